@@ -3,6 +3,7 @@ plugins {
 }
 
 val junitVersion = "4.13.2"
+val jmhVersion = "1.37"
 
 repositories {
     mavenCentral()
@@ -13,8 +14,42 @@ version = getGitVersion()
 
 java.sourceCompatibility = JavaVersion.VERSION_1_8
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 dependencies {
     testImplementation("junit:junit:$junitVersion")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+// Run the JMH benchmarks with the GC profiler, writing JSON results to build/reports/jmh/results.json.
+// Pass -PjmhIncludes=<regex> to run only matching benchmarks, e.g. ./gradlew jmh -PjmhIncludes=AnyOf
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks and writes the results as JSON."
+
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    val includes = providers.gradleProperty("jmhIncludes")
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    outputs.file(resultsFile)
+    outputs.upToDateWhen { false }
+
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            "-rf", "json",
+            "-rff", resultsFile.get().asFile.absolutePath,
+            "-prof", "gc"
+        ) + listOfNotNull(includes.orNull)
+    })
+
+    doFirst {
+        resultsFile.get().asFile.parentFile.mkdirs()
+    }
 }
 
 fun getGitVersion(): String = try {
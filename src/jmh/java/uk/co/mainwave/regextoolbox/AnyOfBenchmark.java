@@ -0,0 +1,63 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Building and matching {@link RegexBuilder#anyOf(String...)} with increasing numbers of alternatives
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnyOfBenchmark {
+    private static final int LINE_COUNT = 100;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int alternativeCount;
+
+    private String[] words;
+    private String[] lines;
+    private Pattern pattern;
+
+    @Setup
+    public void setUp() {
+        words = BenchmarkData.words(alternativeCount);
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        pattern = new RegexBuilder()
+                .anyOf(words)
+                .buildRegex();
+    }
+
+    @Benchmark
+    public Pattern buildAndCompile() {
+        return new RegexBuilder()
+                .anyOf(words)
+                .buildRegex();
+    }
+
+    @Benchmark
+    public int findInLogLines() {
+        int count = 0;
+        for (final String line : lines) {
+            if (pattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of matching ASCII log lines with letter and word character classes built as Unicode properties compared
+ * with the same regexes built with {@link RegexOptions#ASCII_ONLY}, and of building a linear-time matcher for each
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsciiOnlyBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern unicodeLogLine;
+    private Pattern asciiLogLine;
+    private Pattern unicodeWords;
+    private Pattern asciiWords;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        unicodeLogLine = RegexBuilderBenchmark.logLineBuilder(null).buildRegex();
+        asciiLogLine = RegexBuilderBenchmark.logLineBuilder(null).buildRegex(RegexOptions.ASCII_ONLY);
+        unicodeWords = wordsBuilder().buildRegex();
+        asciiWords = wordsBuilder().buildRegex(RegexOptions.ASCII_ONLY);
+    }
+
+    @Benchmark
+    public int matchLogLineUnicode() {
+        return countLookingAt(unicodeLogLine);
+    }
+
+    @Benchmark
+    public int matchLogLineAscii() {
+        return countLookingAt(asciiLogLine);
+    }
+
+    @Benchmark
+    public int findWordsUnicode() {
+        return countFinds(unicodeWords);
+    }
+
+    @Benchmark
+    public int findWordsAscii() {
+        return countFinds(asciiWords);
+    }
+
+    @Benchmark
+    public boolean buildLinearTimeUnicode() {
+        return RegexBuilderBenchmark.logLineBuilder(null)
+                .buildMatcher(RegexOptions.LINEAR_TIME)
+                .lookingAt(lines[0]);
+    }
+
+    @Benchmark
+    public boolean buildLinearTimeAscii() {
+        return RegexBuilderBenchmark.logLineBuilder(null)
+                .buildMatcher(RegexOptions.LINEAR_TIME, RegexOptions.ASCII_ONLY)
+                .lookingAt(lines[0]);
+    }
+
+    private int countLookingAt(final Pattern pattern) {
+        int count = 0;
+        final Matcher matcher = pattern.matcher("");
+        for (final String line : lines) {
+            if (matcher.reset(line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countFinds(final Pattern pattern) {
+        int count = 0;
+        final Matcher matcher = pattern.matcher("");
+        for (final String line : lines) {
+            matcher.reset(line);
+            while (matcher.find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RegexBuilder wordsBuilder() {
+        return new RegexBuilder()
+                .nonLetterOrDigit()
+                .lowercaseLetter(RegexQuantifier.oneOrMore())
+                .text("=")
+                .letterOrDigit(RegexQuantifier.oneOrMore())
+                .nonWordCharacter();
+    }
+}
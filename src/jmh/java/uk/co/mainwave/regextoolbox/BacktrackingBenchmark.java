@@ -0,0 +1,130 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Latency of failing to match input that almost matches, with backtracking quantifiers compared with possessive
+ * quantifiers and atomic groups
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BacktrackingBenchmark {
+    @Param({"10", "20", "40"})
+    public int length;
+
+    private String nearMissWords;
+    private String nearMissNumbers;
+    private Pattern backtrackingWords;
+    private Pattern possessiveWords;
+    private Pattern atomicWords;
+    private Pattern backtrackingNumbers;
+    private Pattern possessiveNumbers;
+
+    @Setup
+    public void setUp() {
+        // Input that would match, spoiled by the last character: each way of splitting the run between repeats of
+        // the group is tried before a backtracking pattern gives up
+        final StringBuilder words = new StringBuilder();
+        final StringBuilder numbers = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            words.append('a');
+            numbers.append(i % 10);
+        }
+        nearMissWords = words.append('!').toString();
+        nearMissNumbers = numbers.append('x').toString();
+
+        // ^(?:[\p{L}0-9_]+\s?)+$
+        backtrackingWords = new RegexBuilder()
+                .startOfString()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .whitespace(RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .buildRegex();
+
+        // ^(?:[\p{L}0-9_]++\s?+)++$
+        possessiveWords = new RegexBuilder()
+                .startOfString()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .whitespace(RegexQuantifier.zeroOrOne().butWithoutBacktracking())
+                .endGroup(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .endOfString()
+                .buildRegex();
+
+        // ^(?>(?:[\p{L}0-9_]+\s?)+)$
+        atomicWords = new RegexBuilder()
+                .startOfString()
+                .startAtomicGroup()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .whitespace(RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .endOfString()
+                .buildRegex();
+
+        // ^(?:\d+,?)*$
+        backtrackingNumbers = new RegexBuilder()
+                .startOfString()
+                .startNonCapturingGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .text(",", RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.zeroOrMore())
+                .endOfString()
+                .buildRegex();
+
+        // ^(?:\d++,?+)*+$
+        possessiveNumbers = new RegexBuilder()
+                .startOfString()
+                .startNonCapturingGroup()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .text(",", RegexQuantifier.zeroOrOne().butWithoutBacktracking())
+                .endGroup(RegexQuantifier.zeroOrMore().butWithoutBacktracking())
+                .endOfString()
+                .buildRegex();
+    }
+
+    @Benchmark
+    public boolean wordsWithBacktracking() {
+        return backtrackingWords.matcher(nearMissWords).find();
+    }
+
+    @Benchmark
+    public boolean wordsWithPossessiveQuantifiers() {
+        return possessiveWords.matcher(nearMissWords).find();
+    }
+
+    @Benchmark
+    public boolean wordsWithAtomicGroup() {
+        return atomicWords.matcher(nearMissWords).find();
+    }
+
+    @Benchmark
+    public boolean numbersWithBacktracking() {
+        return backtrackingNumbers.matcher(nearMissNumbers).find();
+    }
+
+    @Benchmark
+    public boolean numbersWithPossessiveQuantifiers() {
+        return possessiveNumbers.matcher(nearMissNumbers).find();
+    }
+}
@@ -0,0 +1,119 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Random;
+
+/**
+ * Deterministic test data shared by the benchmarks
+ */
+final class BenchmarkData {
+    private static final long SEED = 20240101L;
+    private static final String[] LEVELS = {"DEBUG", "INFO", "WARN", "ERROR"};
+    private static final String[] COMPONENTS = {"http", "db", "cache", "auth", "scheduler"};
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generate log lines of the form "2024-01-02 03:04:05.678 INFO [http] user=abc123 took 42ms path=/a/b"
+     *
+     * @param count Number of lines
+     * @return Log lines
+     */
+    static String[] logLines(final int count) {
+        final Random random = new Random(SEED);
+        final String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = String.format("2024-%02d-%02d %02d:%02d:%02d.%03d %s [%s] user=%s took %dms path=/%s/%s",
+                    1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000),
+                    LEVELS[random.nextInt(LEVELS.length)], COMPONENTS[random.nextInt(COMPONENTS.length)],
+                    word(random, 6) + random.nextInt(1000), random.nextInt(5000),
+                    word(random, 4), word(random, 8));
+        }
+        return lines;
+    }
+
+    /**
+     * Generate distinct lowercase words of 4 to 12 characters
+     *
+     * @param count Number of words
+     * @return Words
+     */
+    static String[] words(final int count) {
+        final Random random = new Random(SEED);
+        final java.util.Set<String> words = new java.util.LinkedHashSet<>();
+        while (words.size() < count) {
+            words.add(word(random, 4 + random.nextInt(9)));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Generate identifiers of the form "0123abcd-4567-89ab-cdef-0123456789ab", of which only one in five is well
+     * formed: the rest have a group that is too short or too long
+     *
+     * @param count Number of identifiers
+     * @return Identifiers
+     */
+    static String[] ids(final int count) {
+        final Random random = new Random(SEED);
+        final String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            final int wrongGroup = (i % 5 == 0) ? -1 : random.nextInt(5);
+            final StringBuilder id = new StringBuilder();
+            final int[] groupLengths = {8, 4, 4, 4, 12};
+            for (int group = 0; group < groupLengths.length; group++) {
+                if (group > 0) {
+                    id.append('-');
+                }
+                final int length = groupLengths[group] + ((group == wrongGroup) ? (random.nextBoolean() ? 1 : -1) : 0);
+                for (int j = 0; j < length; j++) {
+                    id.append(HEX_DIGITS.charAt(random.nextInt(HEX_DIGITS.length())));
+                }
+            }
+            ids[i] = id.toString();
+        }
+        return ids;
+    }
+
+    /**
+     * Generate long lines of lowercase words with a few numbers among them, one in ten of which also has a percentage
+     * such as "42%"
+     *
+     * @param count     Number of lines
+     * @param wordCount Number of words in each line
+     * @return Lines
+     */
+    static String[] prose(final int count, final int wordCount) {
+        final Random random = new Random(SEED);
+        final String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            final StringBuilder line = new StringBuilder();
+            for (int j = 0; j < wordCount; j++) {
+                if (j > 0) {
+                    line.append(' ');
+                }
+                if (random.nextInt(100) == 0) {
+                    line.append(random.nextInt(1000));
+                } else {
+                    line.append(word(random, 2 + random.nextInt(8)));
+                }
+            }
+            if (i % 10 == 0) {
+                line.append(' ').append(random.nextInt(100)).append('%');
+            }
+            lines[i] = line.toString();
+        }
+        return lines;
+    }
+
+    private static String word(final Random random, final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
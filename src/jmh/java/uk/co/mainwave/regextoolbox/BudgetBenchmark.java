@@ -0,0 +1,75 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Overhead of limiting matching with a {@link RegexBudget}, compared with matching the same log lines unlimited
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BudgetBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern logLine;
+    private RegexBudget timeout;
+    private RegexBudget steps;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        logLine = RegexBuilderBenchmark.logLineBuilder(null).buildRegex();
+        timeout = RegexBudget.ofTimeout(Duration.ofMillis(50));
+        steps = RegexBudget.ofSteps(100000);
+    }
+
+    @Benchmark
+    public int unlimited() {
+        int count = 0;
+        for (final String line : lines) {
+            if (logLine.matcher(line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int withTimeout() {
+        int count = 0;
+        for (final String line : lines) {
+            if (timeout.matcher(logLine, line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int withStepBudget() {
+        int count = 0;
+        for (final String line : lines) {
+            if (steps.matcher(logLine, line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of extracting fields from log lines with a {@link RegexCaptureMatcher} compared with
+ * {@link java.util.regex.Matcher#start(int)} and {@link java.util.regex.Matcher#end(int)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern pattern;
+    private RegexCaptureMatcher captureMatcher;
+    private int[] groups;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        // (?<level>\p{Lu}+) \[(?<component>\p{L}+)\] user=(?<user>[\p{L}0-9_]+) took (?<took>\d+)ms
+        final RegexBuilder builder = new RegexBuilder()
+                .startNamedGroup("level")
+                .uppercaseLetter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text(" [")
+                .startNamedGroup("component")
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("] user=")
+                .startNamedGroup("user")
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text(" took ")
+                .startNamedGroup("took")
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("ms");
+        pattern = builder.buildRegex();
+        captureMatcher = builder.buildCaptureMatcher();
+        groups = new int[2 * (captureMatcher.getGroupCount() + 1)];
+    }
+
+    @Benchmark
+    public long pattern() {
+        long total = 0;
+        for (final String line : lines) {
+            final Matcher matcher = pattern.matcher(line);
+            if (matcher.find()) {
+                for (int group = 1; group <= matcher.groupCount(); group++) {
+                    total += matcher.end(group) - matcher.start(group);
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long captureMatcher() {
+        long total = 0;
+        for (final String line : lines) {
+            if (captureMatcher.find(line, 0, groups)) {
+                for (int group = 1; group <= captureMatcher.getGroupCount(); group++) {
+                    total += groups[2 * group + 1] - groups[2 * group];
+                }
+            }
+        }
+        return total;
+    }
+}
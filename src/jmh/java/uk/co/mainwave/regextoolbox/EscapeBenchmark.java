@@ -0,0 +1,68 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass {@link RegexEscaper} compared with the chain of {@link String#replace} calls it replaced
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeBenchmark {
+    @Param({"user-token-1234", "a.b*c+d?(e)", "/api/v1/users/{id}/orders[0]?expand=items|customer"})
+    private String text;
+
+    private StringBuilder stringBuilder;
+
+    @Setup
+    public void setUp() {
+        stringBuilder = new StringBuilder(256);
+    }
+
+    @Benchmark
+    public StringBuilder singlePass() {
+        stringBuilder.setLength(0);
+        RegexEscaper.appendSafeForRegex(stringBuilder, text);
+        return stringBuilder;
+    }
+
+    @Benchmark
+    public StringBuilder replaceChain() {
+        stringBuilder.setLength(0);
+        stringBuilder.append(replaceChain(text));
+        return stringBuilder;
+    }
+
+    private static String replaceChain(final String s) {
+        return s
+                .replace("\\", "\\\\")
+                .replace("?", "\\?")
+                .replace(".", "\\.")
+                .replace("+", "\\+")
+                .replace("*", "\\*")
+                .replace("^", "\\^")
+                .replace("$", "\\$")
+                .replace("(", "\\(")
+                .replace(")", "\\)")
+                .replace("[", "\\[")
+                .replace("]", "\\]")
+                .replace("{", "\\{")
+                .replace("}", "\\}")
+                .replace("|", "\\|");
+    }
+}
@@ -0,0 +1,84 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of finding every match in a log file line by line on one thread compared with scanning it in parallel
+ * with a {@link RegexFileScanner}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileScannerBenchmark {
+    private static final int LINE_COUNT = 500000;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private Path file;
+    private Pattern pattern;
+    private RegexFileScanner scanner;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("FileScannerBenchmark", ".log");
+        Files.write(file, Arrays.asList(BenchmarkData.logLines(LINE_COUNT)), StandardCharsets.UTF_8);
+        pattern = addElements(new RegexBuilder()).buildRegex();
+        scanner = addElements(new RegexBuilder()).buildFileScanner().withChunkSize(CHUNK_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long lineByLine() throws IOException {
+        long count = 0;
+        final Matcher matcher = pattern.matcher("");
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                matcher.reset(line);
+                while (matcher.find()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long parallel() throws IOException {
+        return scanner.scan(file, StandardCharsets.UTF_8, (start, end, match) -> true);
+    }
+
+    private static RegexBuilder addElements(final RegexBuilder builder) {
+        return builder
+                .text("ERROR [")
+                .letter(RegexQuantifier.between(1, 10))
+                .text("] user=")
+                .wordCharacter(RegexQuantifier.between(1, 20));
+    }
+}
@@ -0,0 +1,70 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Throughput of searching long lines of words for percentages, which can only start at the few digits in each line,
+ * with a {@link Matcher} compared with a {@link RegexMatcher} which skips to the positions a match can start at
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirstCharactersBenchmark {
+    private static final int LINE_COUNT = 100;
+    private static final int WORD_COUNT = 400;
+
+    private String[] lines;
+    private Matcher patternMatcher;
+    private RegexMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.prose(LINE_COUNT, WORD_COUNT);
+        patternMatcher = percentageBuilder().buildRegex().matcher("");
+        matcher = percentageBuilder().buildMatcher();
+    }
+
+    @Benchmark
+    public int pattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (patternMatcher.reset(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int skipping() {
+        int count = 0;
+        for (final String line : lines) {
+            if (matcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RegexBuilder percentageBuilder() {
+        return new RegexBuilder()
+                .wordBoundary()
+                .digit(RegexQuantifier.between(1, 3))
+                .anyCharacterFrom("%\u2030");
+    }
+}
@@ -0,0 +1,68 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of building a regex from shared {@link RegexFragment}s compared with repeating the fluent calls which
+ * build the same parts each time
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FragmentBenchmark {
+    // 25[0-5]|2[0-4]\d|1\d\d|[1-9]?\d
+    private static final RegexFragment OCTET = addOctet(new RegexBuilder()).buildFragment();
+
+    @Benchmark
+    public String fluent() {
+        final RegexBuilder builder = new RegexBuilder();
+        addOctet(builder);
+        for (int i = 0; i < 3; i++) {
+            builder.text(".");
+            addOctet(builder);
+        }
+        return builder.buildFragment().toString();
+    }
+
+    @Benchmark
+    public String fragment() {
+        final RegexBuilder builder = new RegexBuilder()
+                .fragment(OCTET);
+        for (int i = 0; i < 3; i++) {
+            builder.text(".")
+                    .fragment(OCTET);
+        }
+        return builder.buildFragment().toString();
+    }
+
+    private static RegexBuilder addOctet(final RegexBuilder builder) {
+        return builder
+                .startNonCapturingGroup()
+                .text("25")
+                .anyCharacterFrom("012345")
+                .regexText("|")
+                .text("2")
+                .anyCharacterFrom("01234")
+                .digit()
+                .regexText("|")
+                .text("1")
+                .digit(RegexQuantifier.exactly(2))
+                .regexText("|")
+                .anyCharacterFrom("123456789", RegexQuantifier.zeroOrOne())
+                .digit()
+                .endGroup();
+    }
+}
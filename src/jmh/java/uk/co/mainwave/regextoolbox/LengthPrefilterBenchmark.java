@@ -0,0 +1,87 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of validating fixed-format identifiers, most of which are the wrong length, with a {@link Matcher}
+ * compared with a {@link RegexMatcher} which rejects them by length before running the regex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LengthPrefilterBenchmark {
+    private static final int ID_COUNT = 1000;
+
+    private String[] ids;
+    private Matcher patternMatcher;
+    private RegexMatcher matcher;
+    private RegexMatcher linearTimeMatcher;
+
+    @Setup
+    public void setUp() {
+        ids = BenchmarkData.ids(ID_COUNT);
+        patternMatcher = idBuilder().buildRegex().matcher("");
+        matcher = idBuilder().buildMatcher();
+        linearTimeMatcher = idBuilder().buildMatcher(RegexOptions.LINEAR_TIME);
+    }
+
+    @Benchmark
+    public int pattern() {
+        int count = 0;
+        for (final String id : ids) {
+            if (patternMatcher.reset(id).matches()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int prefiltered() {
+        return countMatches(matcher);
+    }
+
+    @Benchmark
+    public int prefilteredLinearTime() {
+        return countMatches(linearTimeMatcher);
+    }
+
+    private int countMatches(final RegexMatcher regexMatcher) {
+        int count = 0;
+        for (final String id : ids) {
+            if (regexMatcher.matches(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RegexBuilder idBuilder() {
+        return new RegexBuilder()
+                .hexDigit(RegexQuantifier.exactly(8))
+                .text("-")
+                .hexDigit(RegexQuantifier.exactly(4))
+                .text("-")
+                .hexDigit(RegexQuantifier.exactly(4))
+                .text("-")
+                .hexDigit(RegexQuantifier.exactly(4))
+                .text("-")
+                .hexDigit(RegexQuantifier.exactly(12));
+    }
+}
@@ -0,0 +1,101 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of matchers built with {@link RegexOptions#LINEAR_TIME} compared with {@link java.util.regex.Pattern},
+ * over realistic log lines and over input which makes a backtracking regex fail slowly
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinearTimeBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    @Param({"false", "true"})
+    public boolean linearTime;
+
+    private String[] lines;
+    private String nearMiss;
+    private RegexMatcher timing;
+    private RegexMatcher levelAndComponent;
+    private RegexMatcher words;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        final StringBuilder run = new StringBuilder();
+        for (int i = 0; i < 18; i++) {
+            run.append('a');
+        }
+        nearMiss = run.append('!').toString();
+
+        final RegexOptions[] options = linearTime
+                ? new RegexOptions[]{RegexOptions.LINEAR_TIME}
+                : new RegexOptions[0];
+        timing = new RegexBuilder()
+                .text("took ")
+                .digit(RegexQuantifier.atLeast(4))
+                .text("ms")
+                .buildMatcher(options);
+        levelAndComponent = new RegexBuilder()
+                .wordBoundary()
+                .anyOf("WARN", "ERROR")
+                .whitespace()
+                .text("[")
+                .letter(RegexQuantifier.oneOrMore())
+                .text("]")
+                .buildMatcher(options);
+        // ^(?:[\p{L}0-9_]+?\s?)+?$
+        words = new RegexBuilder()
+                .startOfString()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+                .whitespace(RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+                .endOfString()
+                .buildMatcher(options);
+    }
+
+    @Benchmark
+    public int findTiming() {
+        int count = 0;
+        for (final String line : lines) {
+            if (timing.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int findLevelAndComponent() {
+        int count = 0;
+        for (final String line : lines) {
+            if (levelAndComponent.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public boolean nearMissWords() {
+        return words.matches(nearMiss);
+    }
+}
@@ -0,0 +1,125 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Matchers for pure-literal builds from {@link RegexBuilder#buildMatcher(RegexOptions...)} compared with the
+ * equivalent {@link Pattern}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralMatcherBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern unanchoredPattern;
+    private RegexMatcher unanchoredMatcher;
+    private Pattern ignoreCasePattern;
+    private RegexMatcher ignoreCaseMatcher;
+    private Pattern anchoredPattern;
+    private RegexMatcher anchoredMatcher;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        unanchoredPattern = unanchored().buildRegex();
+        unanchoredMatcher = unanchored().buildMatcher();
+        ignoreCasePattern = unanchored().buildRegex(RegexOptions.IGNORE_CASE);
+        ignoreCaseMatcher = unanchored().buildMatcher(RegexOptions.IGNORE_CASE);
+        anchoredPattern = anchored().buildRegex();
+        anchoredMatcher = anchored().buildMatcher();
+    }
+
+    @Benchmark
+    public int unanchoredFindWithPattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (unanchoredPattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int unanchoredFindWithLiteralMatcher() {
+        int count = 0;
+        for (final String line : lines) {
+            if (unanchoredMatcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int ignoreCaseFindWithPattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (ignoreCasePattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int ignoreCaseFindWithLiteralMatcher() {
+        int count = 0;
+        for (final String line : lines) {
+            if (ignoreCaseMatcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int anchoredFindWithPattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (anchoredPattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int anchoredFindWithLiteralMatcher() {
+        int count = 0;
+        for (final String line : lines) {
+            if (anchoredMatcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RegexBuilder unanchored() {
+        return new RegexBuilder()
+                .text("ERROR [db]");
+    }
+
+    private static RegexBuilder anchored() {
+        return new RegexBuilder()
+                .startOfString()
+                .text("2024-02-");
+    }
+}
@@ -0,0 +1,78 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@link LiteralSetMatcher} compared with the equivalent {@link RegexBuilder#anyOf(String...)} pattern, filtering
+ * log lines against a blocklist
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralSetMatcherBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    @Param({"5000", "50000"})
+    private int stringCount;
+
+    private String[] lines;
+    private Pattern anyOfPattern;
+    private LiteralSetMatcher literalSetMatcher;
+
+    @Setup
+    public void setUp() {
+        final String[] words = BenchmarkData.words(stringCount);
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        anyOfPattern = new RegexBuilder()
+                .anyOf(words)
+                .buildRegex();
+        literalSetMatcher = LiteralSetMatcher.of(words);
+    }
+
+    @Benchmark
+    public int anyOfPattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (anyOfPattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int literalSetMatcher() {
+        int count = 0;
+        for (final String line : lines) {
+            if (literalSetMatcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long literalSetMatcherCount() {
+        long count = 0;
+        for (final String line : lines) {
+            count += literalSetMatcher.count(line);
+        }
+        return count;
+    }
+}
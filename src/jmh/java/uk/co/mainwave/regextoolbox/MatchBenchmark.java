@@ -0,0 +1,95 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Match throughput of patterns built with {@link RegexBuilder} over realistic log lines
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern logLine;
+    private Pattern errorLevel;
+    private Pattern timing;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        logLine = RegexBuilderBenchmark.logLineBuilder(null).buildRegex();
+        errorLevel = new RegexBuilder()
+                .wordBoundary()
+                .text("ERROR")
+                .wordBoundary()
+                .buildRegex();
+        timing = new RegexBuilder()
+                .text("took ")
+                .digit(RegexQuantifier.atLeast(4))
+                .text("ms")
+                .buildRegex();
+    }
+
+    @Benchmark
+    public int matchWholeLogLine() {
+        int count = 0;
+        for (final String line : lines) {
+            if (logLine.matcher(line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int extractGroups() {
+        int total = 0;
+        for (final String line : lines) {
+            final Matcher matcher = logLine.matcher(line);
+            if (matcher.lookingAt()) {
+                total += matcher.group("user").length();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int findErrorLevel() {
+        int count = 0;
+        for (final String line : lines) {
+            if (errorLevel.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int findSlowRequests() {
+        int count = 0;
+        for (final String line : lines) {
+            if (timing.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput and allocation of validating records with a new {@link java.util.regex.Matcher} for each one compared
+ * with a {@link RegexMatcher}, which reuses one per thread. Run with the GC profiler (as {@code ./gradlew jmh} does)
+ * to compare the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherReuseBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Pattern pattern;
+    private RegexMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        pattern = RegexBuilderBenchmark.logLineBuilder(null).buildRegex();
+        matcher = RegexBuilderBenchmark.logLineBuilder(null).buildMatcher();
+    }
+
+    @Benchmark
+    public int newMatcherLookingAt() {
+        int count = 0;
+        for (final String line : lines) {
+            if (pattern.matcher(line).lookingAt()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int reusedMatcherLookingAt() {
+        int count = 0;
+        for (final String line : lines) {
+            if (matcher.lookingAt(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int newMatcherFind() {
+        int count = 0;
+        for (final String line : lines) {
+            if (pattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int reusedMatcherFind() {
+        int count = 0;
+        for (final String line : lines) {
+            if (matcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Match throughput of patterns built with and without {@link RegexOptions#OPTIMIZE}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizeBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    @Param({"false", "true"})
+    public boolean optimize;
+
+    private String[] lines;
+    private Pattern timestamp;
+    private Pattern level;
+    private Pattern separators;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        final RegexOptions[] options = optimize ? new RegexOptions[]{RegexOptions.OPTIMIZE} : new RegexOptions[0];
+
+        // \d\d\d\d-\d\d-\d\d \d\d:\d\d:\d\d, as written digit by digit
+        final RegexBuilder builder = new RegexBuilder();
+        for (int i = 0; i < 4; i++) {
+            builder.digit();
+        }
+        timestamp = builder
+                .text("-")
+                .digit()
+                .digit()
+                .text("-")
+                .digit()
+                .digit()
+                .space()
+                .digit()
+                .digit()
+                .text(":")
+                .digit()
+                .digit()
+                .text(":")
+                .digit()
+                .digit()
+                .buildRegex(options);
+
+        level = new RegexBuilder()
+                .startNonCapturingGroup()
+                .startNonCapturingGroup()
+                .anyOf("E", "W")
+                .endGroup()
+                .uppercaseLetter()
+                .uppercaseLetter()
+                .uppercaseLetter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .buildRegex(options);
+
+        separators = new RegexBuilder()
+                .startNonCapturingGroup()
+                .anyOf(" ", "=", ":")
+                .endGroup(RegexQuantifier.atLeast(1))
+                .text("/", RegexQuantifier.exactly(1))
+                .letter()
+                .letter(RegexQuantifier.atLeast(1))
+                .buildRegex(options);
+    }
+
+    @Benchmark
+    public int findTimestamp() {
+        return count(timestamp);
+    }
+
+    @Benchmark
+    public int findLevel() {
+        return count(level);
+    }
+
+    @Benchmark
+    public int findSeparators() {
+        return count(separators);
+    }
+
+    private int count(final Pattern pattern) {
+        int count = 0;
+        for (final String line : lines) {
+            if (pattern.matcher(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
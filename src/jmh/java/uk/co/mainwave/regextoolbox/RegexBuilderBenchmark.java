@@ -0,0 +1,88 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cost of the fluent builder chain, and of compiling what it builds
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexBuilderBenchmark {
+    private RegexCache cache;
+    private String regexString;
+
+    @Setup
+    public void setUp() {
+        cache = new RegexCache();
+        regexString = logLineBuilder(null).buildRegex().pattern();
+    }
+
+    @Benchmark
+    public Pattern fluentChainAndCompile() {
+        return logLineBuilder(null).buildRegex();
+    }
+
+    @Benchmark
+    public Pattern fluentChainWithCachedPattern() {
+        return logLineBuilder(cache).buildRegex();
+    }
+
+    @Benchmark
+    public Pattern compileOnly() {
+        return Pattern.compile(regexString);
+    }
+
+    static RegexBuilder logLineBuilder(final RegexCache cache) {
+        return new RegexBuilder(cache)
+                .startOfString()
+                .digit(RegexQuantifier.exactly(4))
+                .text("-")
+                .digit(RegexQuantifier.exactly(2))
+                .text("-")
+                .digit(RegexQuantifier.exactly(2))
+                .space()
+                .digit(RegexQuantifier.exactly(2))
+                .text(":")
+                .digit(RegexQuantifier.exactly(2))
+                .text(":")
+                .digit(RegexQuantifier.exactly(2))
+                .text(".")
+                .digit(RegexQuantifier.exactly(3))
+                .space()
+                .startNamedGroup("level")
+                .anyOf("DEBUG", "INFO", "WARN", "ERROR")
+                .endGroup()
+                .space()
+                .text("[")
+                .startNamedGroup("component")
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("]")
+                .space()
+                .text("user=")
+                .startNamedGroup("user")
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text(" took ")
+                .startNamedGroup("millis")
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("ms");
+    }
+}
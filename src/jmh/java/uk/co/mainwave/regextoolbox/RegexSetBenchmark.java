@@ -0,0 +1,99 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of finding which of many regexes match each log line, testing each {@link Pattern} in turn compared with
+ * one pass of a {@link RegexSet}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexSetBenchmark {
+    private static final int LINE_COUNT = 1000;
+    private static final int REGEX_COUNT = 200;
+
+    private String[] lines;
+    private Pattern[] patterns;
+    private RegexSet set;
+    private final BitSet matched = new BitSet();
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        final String[] words = BenchmarkData.words(REGEX_COUNT);
+        final List<RegexFragment> fragments = new ArrayList<>();
+        patterns = new Pattern[REGEX_COUNT];
+        for (int i = 0; i < REGEX_COUNT; i++) {
+            fragments.add(addRule(new RegexBuilder(), words[i], i).buildFragment());
+            patterns[i] = addRule(new RegexBuilder(), words[i], i).buildRegex();
+        }
+        set = RegexSet.of(fragments);
+    }
+
+    @Benchmark
+    public int eachPattern() {
+        int count = 0;
+        for (final String line : lines) {
+            for (final Pattern pattern : patterns) {
+                if (pattern.matcher(line).find()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int regexSet() {
+        int count = 0;
+        for (final String line : lines) {
+            set.find(line, matched);
+            count += matched.cardinality();
+        }
+        return count;
+    }
+
+    private static RegexBuilder addRule(final RegexBuilder builder, final String word, final int i) {
+        switch (i % 3) {
+            case 0:
+                return builder
+                        .text("path=/")
+                        .text(word.substring(0, 4))
+                        .text("/")
+                        .letter(RegexQuantifier.oneOrMore());
+            case 1:
+                return builder
+                        .text("user=")
+                        .text(word.substring(0, 2))
+                        .wordCharacter(RegexQuantifier.oneOrMore())
+                        .text(" took ")
+                        .digit(RegexQuantifier.between(1, 4));
+            default:
+                return builder
+                        .text("[")
+                        .text(word.substring(0, 3))
+                        .text("]")
+                        .whitespace()
+                        .text("user=");
+        }
+    }
+}
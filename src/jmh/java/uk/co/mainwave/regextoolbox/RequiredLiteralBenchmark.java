@@ -0,0 +1,86 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of searching log lines for slow failed requests from one component, which about 1% of lines contain,
+ * with a {@link Matcher} compared with a {@link RegexMatcher} which first searches each line for the text every match
+ * contains
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequiredLiteralBenchmark {
+    private static final int LINE_COUNT = 1000;
+
+    private String[] lines;
+    private Matcher patternMatcher;
+    private RegexMatcher matcher;
+    private RegexMatcher linearTimeMatcher;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.logLines(LINE_COUNT);
+        patternMatcher = slowRequestBuilder().buildRegex().matcher("");
+        matcher = slowRequestBuilder().buildMatcher();
+        linearTimeMatcher = slowRequestBuilder().buildMatcher(RegexOptions.LINEAR_TIME);
+    }
+
+    @Benchmark
+    public int pattern() {
+        int count = 0;
+        for (final String line : lines) {
+            if (patternMatcher.reset(line).find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int prefiltered() {
+        return countMatches(matcher);
+    }
+
+    @Benchmark
+    public int prefilteredLinearTime() {
+        return countMatches(linearTimeMatcher);
+    }
+
+    private int countMatches(final RegexMatcher regexMatcher) {
+        int count = 0;
+        for (final String line : lines) {
+            if (regexMatcher.find(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static RegexBuilder slowRequestBuilder() {
+        return new RegexBuilder()
+                .digit(RegexQuantifier.exactly(3))
+                .text(" ERROR [auth] user=")
+                .letter(RegexQuantifier.exactly(6))
+                .digit(RegexQuantifier.between(1, 3))
+                .text(" took 4")
+                .digit(RegexQuantifier.exactly(3))
+                .text("ms");
+    }
+}
@@ -0,0 +1,66 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of finding every match in a block of log lines held in memory with {@link Matcher#find()} compared with
+ * reading it through a {@link RegexStreamScanner}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamScannerBenchmark {
+    private static final int LINE_COUNT = 10000;
+
+    private String text;
+    private Pattern pattern;
+    private RegexStreamScanner scanner;
+
+    @Setup
+    public void setUp() {
+        text = String.join("\n", BenchmarkData.logLines(LINE_COUNT));
+        pattern = addElements(new RegexBuilder()).buildRegex();
+        scanner = addElements(new RegexBuilder()).buildStreamScanner();
+    }
+
+    @Benchmark
+    public int inMemory() {
+        int count = 0;
+        final Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long streamed() throws IOException {
+        return scanner.scan(new StringReader(text), (start, end, match) -> true);
+    }
+
+    private static RegexBuilder addElements(final RegexBuilder builder) {
+        return builder
+                .text("ERROR [")
+                .letter(RegexQuantifier.between(1, 10))
+                .text("] user=")
+                .wordCharacter(RegexQuantifier.between(1, 20));
+    }
+}
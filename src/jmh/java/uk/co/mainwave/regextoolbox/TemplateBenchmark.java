@@ -0,0 +1,103 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of getting a per-tenant {@link Pattern} by rebuilding the whole regex each time compared with filling a
+ * {@link RegexTemplate}, with and without a {@link RegexCache}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+    private static final int TENANT_COUNT = 50;
+
+    private String[] tenants;
+    private RegexTemplate template;
+    private RegexTemplate cachedTemplate;
+    private RegexBuilder cachedBuilder;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tenants = BenchmarkData.words(TENANT_COUNT);
+        for (int i = 0; i < tenants.length; i++) {
+            tenants[i] = tenants[i] + ".example.com";
+        }
+        template = buildTemplate(new RegexBuilder());
+        cachedTemplate = buildTemplate(new RegexBuilder(new RegexCache()));
+        cachedBuilder = new RegexBuilder(new RegexCache());
+    }
+
+    @Benchmark
+    public Pattern rebuild() {
+        return addElements(new RegexBuilder(), nextTenant()).buildRegex();
+    }
+
+    @Benchmark
+    public Pattern rebuildCached() {
+        return addElements(cachedBuilder, nextTenant()).buildRegex();
+    }
+
+    @Benchmark
+    public Pattern fill() {
+        return template.fill(nextTenant());
+    }
+
+    @Benchmark
+    public Pattern fillCached() {
+        return cachedTemplate.fill(nextTenant());
+    }
+
+    private String nextTenant() {
+        next = (next + 1) % tenants.length;
+        return tenants[next];
+    }
+
+    private static RegexTemplate buildTemplate(final RegexBuilder builder) {
+        return addPrefix(builder)
+                .placeholder("tenant")
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("]")
+                .buildTemplate();
+    }
+
+    private static RegexBuilder addElements(final RegexBuilder builder, final String tenant) {
+        return addPrefix(builder)
+                .text(tenant)
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("]");
+    }
+
+    private static RegexBuilder addPrefix(final RegexBuilder builder) {
+        return builder
+                .startOfString()
+                .digit(RegexQuantifier.exactly(4))
+                .text("-")
+                .digit(RegexQuantifier.exactly(2))
+                .text("-")
+                .digit(RegexQuantifier.exactly(2))
+                .whitespace()
+                .anyOf("DEBUG", "INFO", "WARN", "ERROR")
+                .text(" [tenant=");
+    }
+}
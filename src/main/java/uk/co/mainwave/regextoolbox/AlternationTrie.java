@@ -0,0 +1,197 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Factors a list of literal alternatives into a prefix trie, so that for example {@code foo|foobar|fox} is rendered
+ * as {@code fo(?:o(?:bar)??|x)}. The regex engine then only backtracks as deep as the trie, rather than trying every
+ * alternative in turn at each position.
+ * <p>
+ * The rendered regex matches exactly what the plain {@code |}-joined alternatives would, including which alternative
+ * wins when several could match at the same position. To guarantee this, alternatives are only merged when that
+ * doesn't reorder them relative to any alternative which could match the same text:
+ * <ul>
+ * <li>Alternatives are only merged into an edge whose first character is identical. Characters that differ only by
+ * (ASCII) case are kept as separate edges in their original order, so the result is also correct when the regex is
+ * built with {@link RegexOptions#IGNORE_CASE}.</li>
+ * <li>An alternative that ends at a node is a barrier: later alternatives are never merged into edges added before
+ * it, and the empty alternative is rendered in its original position (e.g. {@code (?:bar)??} rather than
+ * {@code (?:bar)?} when the shorter alternative came first).</li>
+ * </ul>
+ */
+final class AlternationTrie {
+    private static final Node END = new Node(null, 0, 0);
+
+    private AlternationTrie() {
+    }
+
+    /**
+     * Append the alternatives to a regex, factored into a trie and escaped. The result is not wrapped in a group.
+     *
+     * @param stringBuilder Regex being built
+     * @param strings       Alternatives, in order of preference: null is treated as an empty string
+     */
+    static void appendAlternatives(final StringBuilder stringBuilder, final List<String> strings) {
+        final Node root = new Node("", 0, 0);
+        for (final String string : strings) {
+            root.insert(string == null ? "" : string);
+        }
+
+        for (int i = 0; i < root.entryCount; i++) {
+            if (i > 0) {
+                stringBuilder.append('|');
+            }
+            if (root.entries[i] != END) {
+                root.entries[i].append(stringBuilder);
+            }
+        }
+    }
+
+    private static char fold(final char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * A trie edge labelled with {@code source[from, to)}, followed by its entries in order of preference. An entry of
+     * {@link #END} marks an alternative ending at this node.
+     */
+    private static final class Node {
+        private final String source;
+        private final int from;
+        private int to;
+        private Node[] entries;
+        private int entryCount;
+
+        Node(final String source, final int from, final int to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        void insert(final String s) {
+            Node node = this;
+            int i = 0;
+            while (true) {
+                if (i == s.length()) {
+                    node.addEnd();
+                    return;
+                }
+
+                final Node child = node.findEdge(s.charAt(i));
+                if (child == null) {
+                    final Node leaf = new Node(s, i, s.length());
+                    leaf.addEntry(END);
+                    node.addEntry(leaf);
+                    return;
+                }
+
+                int j = child.from;
+                while (j < child.to && i < s.length() && child.source.charAt(j) == s.charAt(i)) {
+                    i++;
+                    j++;
+                }
+                if (j < child.to) {
+                    child.split(j);
+                }
+                node = child;
+            }
+        }
+
+        private Node findEdge(final char c) {
+            final char folded = fold(c);
+            for (int i = entryCount - 1; i >= 0; i--) {
+                final Node entry = entries[i];
+                if (entry == END) {
+                    // Merging past the end of a shorter alternative would change which one wins
+                    return null;
+                }
+                final char first = entry.source.charAt(entry.from);
+                if (fold(first) == folded) {
+                    return (first == c) ? entry : null;
+                }
+            }
+            return null;
+        }
+
+        private void split(final int at) {
+            final Node suffix = new Node(source, at, to);
+            suffix.entries = entries;
+            suffix.entryCount = entryCount;
+            to = at;
+            entries = null;
+            entryCount = 0;
+            addEntry(suffix);
+        }
+
+        private void addEnd() {
+            for (int i = 0; i < entryCount; i++) {
+                if (entries[i] == END) {
+                    // A duplicate alternative can never win, so drop it
+                    return;
+                }
+            }
+            addEntry(END);
+        }
+
+        private void addEntry(final Node entry) {
+            if (entries == null) {
+                entries = new Node[2];
+            } else if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, entryCount * 2);
+            }
+            entries[entryCount++] = entry;
+        }
+
+        void append(final StringBuilder stringBuilder) {
+            Node node = this;
+            while (true) {
+                for (int i = node.from; i < node.to; i++) {
+                    RegexEscaper.appendSafeForRegex(stringBuilder, node.source.charAt(i));
+                }
+                if (node.entryCount == 1) {
+                    if (node.entries[0] == END) {
+                        return;
+                    }
+                    // Single continuation: render it inline rather than recursing
+                    node = node.entries[0];
+                    continue;
+                }
+                node.appendEntries(stringBuilder);
+                return;
+            }
+        }
+
+        private void appendEntries(final StringBuilder stringBuilder) {
+            if (entryCount == 2 && (entries[0] == END || entries[1] == END)) {
+                final boolean endFirst = entries[0] == END;
+                final Node optional = endFirst ? entries[1] : entries[0];
+                if (optional.isSingleCharacter()) {
+                    optional.append(stringBuilder);
+                } else {
+                    stringBuilder.append("(?:");
+                    optional.append(stringBuilder);
+                    stringBuilder.append(')');
+                }
+                // If the shorter alternative came first it must be preferred, so make the optional part lazy
+                stringBuilder.append(endFirst ? "??" : "?");
+                return;
+            }
+
+            stringBuilder.append("(?:");
+            for (int i = 0; i < entryCount; i++) {
+                if (i > 0) {
+                    stringBuilder.append('|');
+                }
+                if (entries[i] != END) {
+                    entries[i].append(stringBuilder);
+                }
+            }
+            stringBuilder.append(')');
+        }
+
+        private boolean isSingleCharacter() {
+            return to - from == 1 && entryCount == 1 && entries[0] == END;
+        }
+    }
+}
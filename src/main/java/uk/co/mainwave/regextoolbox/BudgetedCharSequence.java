@@ -0,0 +1,80 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * {@link CharSequence} wrapper which counts the characters read from it and throws
+ * {@link RegexBudgetExceededException} from {@link #charAt(int)} once a {@link RegexBudget} has run out. Regex engines
+ * read their input through {@link #charAt(int)}, so this stops a match wherever it has got to.
+ * <p>
+ * To keep the common path to a single decrement and compare, the clock and step count are only checked every
+ * {@link RegexBudget#CHECK_INTERVAL} characters. Instances are not thread-safe.
+ */
+final class BudgetedCharSequence implements CharSequence {
+    private final CharSequence input;
+    private final String regexString;
+    private final long deadline;
+    private final boolean timed;
+    private final boolean stepLimited;
+    // Steps not yet handed out to the countdown
+    private long stepsRemaining;
+    // Steps left before the budget is next checked
+    private int countdown;
+
+    BudgetedCharSequence(final CharSequence input, final RegexBudget budget, final String regexString) {
+        this.input = input;
+        this.regexString = regexString;
+        timed = budget.getTimeoutNanos() != RegexBudget.UNLIMITED;
+        deadline = timed ? System.nanoTime() + budget.getTimeoutNanos() : 0;
+        stepLimited = budget.getMaximumSteps() != RegexBudget.UNLIMITED;
+        stepsRemaining = budget.getMaximumSteps();
+        countdown = nextChunk();
+    }
+
+    @Override
+    public int length() {
+        return input.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (--countdown < 0) {
+            checkBudget();
+        }
+        return input.charAt(index);
+    }
+
+    /**
+     * Sub-sequences are only taken to read captured groups once matching has finished, so aren't counted
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return input.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return input.toString();
+    }
+
+    private void checkBudget() {
+        if (stepLimited && stepsRemaining == 0) {
+            throw new RegexBudgetExceededException("Step budget exceeded", regexString);
+        }
+        if (timed && System.nanoTime() - deadline > 0) {
+            throw new RegexBudgetExceededException("Time budget exceeded", regexString);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RegexBudgetExceededException("Matching interrupted", regexString);
+        }
+        // This read is the first step of the next chunk
+        countdown = nextChunk() - 1;
+    }
+
+    /**
+     * Take the next chunk of steps to count down before checking the budget again
+     */
+    private int nextChunk() {
+        final int chunk = (int) Math.min(RegexBudget.CHECK_INTERVAL, stepsRemaining);
+        stepsRemaining -= chunk;
+        return chunk;
+    }
+}
@@ -0,0 +1,134 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Partition of the chars into classes which an automaton treats alike, so that a DFA state needs one transition per
+ * class rather than per character. Surrogates are always in a class of their own, so that input the automaton can't
+ * read is spotted the first time a DFA state meets it.
+ * <p>
+ * Instances are immutable.
+ */
+final class CharacterClasses {
+    /**
+     * Characters below this have their class looked up in a table rather than searched for
+     */
+    static final int ASCII_SIZE = 128;
+
+    private final int count;
+    private final int[] asciiClasses = new int[ASCII_SIZE];
+    private final int[] intervalStarts;
+    private final int[] intervalClasses;
+    private final int[] representatives;
+    private final int surrogateClass;
+
+    /**
+     * @param nfaSets Every set of characters that affects how the automaton steps, from
+     *                {@link Nfa#getCharacterSets()}
+     */
+    CharacterClasses(final List<CharacterSet> nfaSets) {
+        // Split the chars into intervals at every boundary of every set, then give intervals which are in the same
+        // sets the same class
+        final List<CharacterSet> sets = new ArrayList<>(nfaSets);
+        sets.add(CharacterSet.range(Character.MIN_SURROGATE, Character.MAX_SURROGATE));
+        final TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (final CharacterSet set : sets) {
+            for (int i = 0; i < set.getRangeCount(); i++) {
+                boundaries.add(set.getRangeStart(i));
+                if (set.getRangeEnd(i) < Character.MAX_VALUE) {
+                    boundaries.add(set.getRangeEnd(i) + 1);
+                }
+            }
+        }
+        boundaries.removeIf(boundary -> boundary > Character.MAX_VALUE);
+
+        final Map<BitSet, Integer> classes = new HashMap<>();
+        final List<Integer> classRepresentatives = new ArrayList<>();
+        intervalStarts = new int[boundaries.size()];
+        intervalClasses = new int[boundaries.size()];
+        int interval = 0;
+        for (final int boundary : boundaries) {
+            final BitSet membership = new BitSet(sets.size());
+            for (int i = 0; i < sets.size(); i++) {
+                if (sets.get(i).contains(boundary)) {
+                    membership.set(i);
+                }
+            }
+            Integer characterClass = classes.get(membership);
+            if (characterClass == null) {
+                characterClass = classes.size();
+                classes.put(membership, characterClass);
+                classRepresentatives.add(boundary);
+            }
+            intervalStarts[interval] = boundary;
+            intervalClasses[interval] = characterClass;
+            interval++;
+        }
+        count = classes.size();
+        representatives = classRepresentatives.stream().mapToInt(Integer::intValue).toArray();
+        surrogateClass = intervalClasses[intervalOf(Character.MIN_SURROGATE)];
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            asciiClasses[c] = intervalClasses[intervalOf(c)];
+        }
+    }
+
+    /**
+     * Get the number of classes
+     *
+     * @return Number of classes
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the class of a character
+     *
+     * @param c Character
+     * @return Class, from 0 to {@link #getCount()} - 1
+     */
+    int classOf(final char c) {
+        return (c < ASCII_SIZE) ? asciiClasses[c] : intervalClasses[intervalOf(c)];
+    }
+
+    /**
+     * Get the table of classes for characters below {@link #ASCII_SIZE}, for callers to look them up directly in
+     * their inner loops
+     *
+     * @return Classes indexed by character, which must not be modified
+     */
+    int[] getAsciiClasses() {
+        return asciiClasses;
+    }
+
+    /**
+     * Get a character in a class, which steps the automaton the same way as any other character in it
+     *
+     * @param characterClass Class
+     * @return Character
+     */
+    int getRepresentative(final int characterClass) {
+        return representatives[characterClass];
+    }
+
+    /**
+     * Get the class containing the surrogates, which contains nothing else
+     *
+     * @return Class
+     */
+    int getSurrogateClass() {
+        return surrogateClass;
+    }
+
+    private int intervalOf(final int c) {
+        final int index = Arrays.binarySearch(intervalStarts, c);
+        return (index >= 0) ? index : -index - 2;
+    }
+}
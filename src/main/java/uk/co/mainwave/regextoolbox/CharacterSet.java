@@ -0,0 +1,461 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable set of Unicode code points, stored as sorted, non-overlapping, non-adjacent ranges. Used to reason about
+ * which characters elements of a regex can match.
+ */
+final class CharacterSet {
+    static final CharacterSet EMPTY = new CharacterSet(new int[0]);
+    static final CharacterSet ALL = range(0, Character.MAX_CODE_POINT);
+
+    static final CharacterSet LINE_TERMINATORS = of('\n', '\r', '\u0085', '\u2028', '\u2029');
+    private static final CharacterSet WHITESPACE = of(' ', '\t', '\n', '\u000B', '\f', '\r');
+    private static final CharacterSet DIGITS = range('0', '9');
+    private static final CharacterSet UPPERCASE_HEX_DIGITS = DIGITS.union(range('A', 'F'));
+    private static final CharacterSet LOWERCASE_HEX_DIGITS = DIGITS.union(range('a', 'f'));
+    private static final CharacterSet HEX_DIGITS = UPPERCASE_HEX_DIGITS.union(LOWERCASE_HEX_DIGITS);
+    private static final CharacterSet ASCII_UPPERCASE = range('A', 'Z');
+    private static final CharacterSet ASCII_LOWERCASE = range('a', 'z');
+    private static final CharacterSet ASCII_LETTERS = ASCII_UPPERCASE.union(ASCII_LOWERCASE);
+    private static final CharacterSet ASCII_LETTERS_AND_DIGITS = ASCII_LETTERS.union(DIGITS);
+    private static final CharacterSet ASCII_WORD_CHARACTERS = ASCII_LETTERS_AND_DIGITS.union(of('_'));
+
+    // Letters are found by scanning every code point, so only when first needed
+    private static final class Letters {
+        static final CharacterSet ALL_LETTERS = matching(CodePointTest.LETTER);
+        static final CharacterSet UPPERCASE = matching(CodePointTest.UPPERCASE);
+        static final CharacterSet LOWERCASE = matching(CodePointTest.LOWERCASE);
+        static final CharacterSet CASED = UPPERCASE.union(LOWERCASE).union(matching(CodePointTest.TITLECASE));
+        static final CharacterSet LETTERS_AND_DIGITS = ALL_LETTERS.union(DIGITS);
+        static final CharacterSet WORD_CHARACTERS = LETTERS_AND_DIGITS.union(of('_'));
+    }
+
+    // Characters that java.util.regex.Pattern treats as word characters at a \b boundary. Up to JDK 18 these are
+    // letters and digits in any script, and from JDK 19 only ASCII ones, so Pattern is asked which applies.
+    private static final class WordBoundaries {
+        private static final Pattern BOUNDARY = Pattern.compile("\\b");
+        private static final CharacterSet ALL_LETTERS_AND_DIGITS = matching(CodePointTest.LETTER_OR_DIGIT);
+
+        // A letter outside ASCII is a word character if there's a boundary before it
+        static final CharacterSet WORD_CHARACTERS = isBoundary("\u00e9", 0)
+                ? ALL_LETTERS_AND_DIGITS.union(of('_'))
+                : ASCII_WORD_CHARACTERS;
+        // A non-spacing mark after such a letter is a word character if there's a boundary after the mark
+        static final CharacterSet LETTERS_AND_DIGITS = isBoundary("\u00e9\u0301 ", 2)
+                ? ALL_LETTERS_AND_DIGITS
+                : ASCII_LETTERS_AND_DIGITS;
+        static final CharacterSet NON_SPACING_MARKS = matching(CodePointTest.NON_SPACING_MARK);
+
+        private static boolean isBoundary(final String text, final int index) {
+            final Matcher matcher = BOUNDARY.matcher(text);
+            return matcher.find(index) && matcher.start() == index;
+        }
+    }
+
+    // Pairs of inclusive bounds: ranges[2i] to ranges[2i + 1]
+    private final int[] ranges;
+
+    private CharacterSet(final int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Create a set of a range of code points
+     *
+     * @param first First code point in the range
+     * @param last  Last code point in the range (inclusive)
+     * @return A new set
+     */
+    static CharacterSet range(final int first, final int last) {
+        return new CharacterSet(new int[]{first, last});
+    }
+
+    /**
+     * Create a set of individual code points
+     *
+     * @param codePoints Code points
+     * @return A new set
+     */
+    static CharacterSet of(final int... codePoints) {
+        final int[] sorted = codePoints.clone();
+        Arrays.sort(sorted);
+        final int[] ranges = new int[sorted.length * 2];
+        int count = 0;
+        for (final int codePoint : sorted) {
+            if (count > 0 && codePoint <= ranges[count - 1] + 1) {
+                ranges[count - 1] = Math.max(ranges[count - 1], codePoint);
+            } else {
+                ranges[count++] = codePoint;
+                ranges[count++] = codePoint;
+            }
+        }
+        return new CharacterSet(Arrays.copyOf(ranges, count));
+    }
+
+    /**
+     * Create a set of the code points in a string
+     *
+     * @param s String
+     * @return A new set
+     */
+    static CharacterSet of(final String s) {
+        return of(s.codePoints().toArray());
+    }
+
+    /**
+     * Get the set of characters matched by a type of character class, in the same way as
+     * {@link java.util.regex.Pattern}, optionally with {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+     *
+     * @param type       Type of character class
+     * @param characters Characters for {@link RegexNode.CharacterClassType#ANY_FROM} and
+     *                   {@link RegexNode.CharacterClassType#ANY_EXCEPT}
+     * @param ignoreCase Whether the class is case-insensitive
+     * @return Set of characters, or null if the characters include escape sequences or nested classes which aren't
+     * interpreted here
+     */
+    static CharacterSet forClass(final RegexNode.CharacterClassType type,
+                                 final String characters,
+                                 final boolean ignoreCase) {
+        if (!ignoreCase) {
+            return forClass(type, characters);
+        }
+        switch (type) {
+            case UPPERCASE_LETTER:
+            case LOWERCASE_LETTER:
+                // Case-insensitive \p{Lu} and \p{Ll} both match any cased letter
+                return Letters.CASED;
+            case ANY_EXCEPT:
+                // Case variants are added before the class is negated
+                return isPlain(characters) ? of(characters).withAsciiCase().complement() : null;
+            default:
+                final CharacterSet set = forClass(type, characters);
+                return (set == null) ? null : set.withAsciiCase();
+        }
+    }
+
+    /**
+     * Get the set of characters matched by a type of character class, in the same way as
+     * {@link java.util.regex.Pattern} with no flags
+     *
+     * @param type       Type of character class
+     * @param characters Characters for {@link RegexNode.CharacterClassType#ANY_FROM} and
+     *                   {@link RegexNode.CharacterClassType#ANY_EXCEPT}
+     * @return Set of characters, or null if the characters include escape sequences or nested classes which aren't
+     * interpreted here
+     */
+    static CharacterSet forClass(final RegexNode.CharacterClassType type, final String characters) {
+        switch (type) {
+            case ANY_CHARACTER:
+                return LINE_TERMINATORS.complement();
+            case WHITESPACE:
+                return WHITESPACE;
+            case NON_WHITESPACE:
+                return WHITESPACE.complement();
+            case DIGIT:
+                return DIGITS;
+            case NON_DIGIT:
+                return DIGITS.complement();
+            case LETTER:
+                return Letters.ALL_LETTERS;
+            case NON_LETTER:
+                return Letters.ALL_LETTERS.complement();
+            case UPPERCASE_LETTER:
+                return Letters.UPPERCASE;
+            case LOWERCASE_LETTER:
+                return Letters.LOWERCASE;
+            case LETTER_OR_DIGIT:
+                return Letters.LETTERS_AND_DIGITS;
+            case NON_LETTER_OR_DIGIT:
+                return Letters.LETTERS_AND_DIGITS.complement();
+            case HEX_DIGIT:
+                return HEX_DIGITS;
+            case UPPERCASE_HEX_DIGIT:
+                return UPPERCASE_HEX_DIGITS;
+            case LOWERCASE_HEX_DIGIT:
+                return LOWERCASE_HEX_DIGITS;
+            case NON_HEX_DIGIT:
+                return HEX_DIGITS.complement();
+            case WORD_CHARACTER:
+                return Letters.WORD_CHARACTERS;
+            case NON_WORD_CHARACTER:
+                return Letters.WORD_CHARACTERS.complement();
+            case ASCII_LETTER:
+                return ASCII_LETTERS;
+            case ASCII_NON_LETTER:
+                return ASCII_LETTERS.complement();
+            case ASCII_UPPERCASE_LETTER:
+                return ASCII_UPPERCASE;
+            case ASCII_LOWERCASE_LETTER:
+                return ASCII_LOWERCASE;
+            case ASCII_LETTER_OR_DIGIT:
+                return ASCII_LETTERS_AND_DIGITS;
+            case ASCII_NON_LETTER_OR_DIGIT:
+                return ASCII_LETTERS_AND_DIGITS.complement();
+            case ASCII_WORD_CHARACTER:
+                return ASCII_WORD_CHARACTERS;
+            case ASCII_NON_WORD_CHARACTER:
+                return ASCII_WORD_CHARACTERS.complement();
+            case ANY_FROM:
+                return isPlain(characters) ? of(characters) : null;
+            case ANY_EXCEPT:
+                return isPlain(characters) ? of(characters).complement() : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Test whether characters for a character class are all taken literally: characters which start an escape
+     * sequence, a nested class or an intersection inside a class aren't.
+     *
+     * @param characters Characters for a class
+     * @return true if every character stands for itself
+     */
+    static boolean isPlain(final CharSequence characters) {
+        if (characters == null || characters.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < characters.length(); i++) {
+            final char c = characters.charAt(i);
+            if (c == '\\' || c == '[' || c == '&') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the characters {@link Pattern} treats as word characters at a {@code \b} boundary: letters, digits and
+     * underscore, in any script before JDK 19 and only in ASCII since
+     *
+     * @return Set of word characters
+     */
+    static CharacterSet boundaryWordCharacters() {
+        return WordBoundaries.WORD_CHARACTERS;
+    }
+
+    /**
+     * Get the letters and digits which let a following non-spacing mark count as a word character at a {@code \b}
+     * boundary, found from {@link Pattern} in the same way as {@link #boundaryWordCharacters()}
+     *
+     * @return Set of letters and digits
+     */
+    static CharacterSet boundaryBaseCharacters() {
+        return WordBoundaries.LETTERS_AND_DIGITS;
+    }
+
+    /**
+     * Get the non-spacing marks, which count as word characters at a {@code \b} boundary when they follow a letter or
+     * digit
+     *
+     * @return Set of non-spacing marks
+     */
+    static CharacterSet nonSpacingMarks() {
+        return WordBoundaries.NON_SPACING_MARKS;
+    }
+
+    boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    boolean contains(final int codePoint) {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (codePoint < ranges[2 * mid]) {
+                high = mid - 1;
+            } else if (codePoint > ranges[2 * mid + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean intersects(final CharacterSet other) {
+        return !intersect(other).isEmpty();
+    }
+
+    CharacterSet complement() {
+        final int[] result = new int[ranges.length + 2];
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                result[count++] = next;
+                result[count++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= Character.MAX_CODE_POINT) {
+            result[count++] = next;
+            result[count++] = Character.MAX_CODE_POINT;
+        }
+        return new CharacterSet(Arrays.copyOf(result, count));
+    }
+
+    CharacterSet union(final CharacterSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+
+        final int[] result = new int[ranges.length + other.ranges.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length || j < other.ranges.length) {
+            final int first;
+            final int last;
+            if (j >= other.ranges.length || (i < ranges.length && ranges[i] <= other.ranges[j])) {
+                first = ranges[i];
+                last = ranges[i + 1];
+                i += 2;
+            } else {
+                first = other.ranges[j];
+                last = other.ranges[j + 1];
+                j += 2;
+            }
+            if (count > 0 && first <= result[count - 1] + 1) {
+                result[count - 1] = Math.max(result[count - 1], last);
+            } else {
+                result[count++] = first;
+                result[count++] = last;
+            }
+        }
+        return new CharacterSet(Arrays.copyOf(result, count));
+    }
+
+    CharacterSet intersect(final CharacterSet other) {
+        final int[] result = new int[ranges.length + other.ranges.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length && j < other.ranges.length) {
+            final int first = Math.max(ranges[i], other.ranges[j]);
+            final int last = Math.min(ranges[i + 1], other.ranges[j + 1]);
+            if (first <= last) {
+                result[count++] = first;
+                result[count++] = last;
+            }
+            if (ranges[i + 1] < other.ranges[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return new CharacterSet(Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Add the other case of any US-ASCII letters in the set, as {@link java.util.regex.Pattern#CASE_INSENSITIVE} does
+     *
+     * @return Set including both cases of US-ASCII letters
+     */
+    CharacterSet withAsciiCase() {
+        final CharacterSet upper = intersect(range('A', 'Z'));
+        final CharacterSet lower = intersect(range('a', 'z'));
+        return union(upper.shift('a' - 'A')).union(lower.shift('A' - 'a'));
+    }
+
+    /**
+     * Get the number of ranges in the set
+     *
+     * @return Number of ranges
+     */
+    int getRangeCount() {
+        return ranges.length / 2;
+    }
+
+    /**
+     * Get the first code point of a range
+     *
+     * @param index Index of the range
+     * @return First code point
+     */
+    int getRangeStart(final int index) {
+        return ranges[2 * index];
+    }
+
+    /**
+     * Get the last code point of a range
+     *
+     * @param index Index of the range
+     * @return Last code point (inclusive)
+     */
+    int getRangeEnd(final int index) {
+        return ranges[2 * index + 1];
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || (o instanceof CharacterSet && Arrays.equals(ranges, ((CharacterSet) o).ranges));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    private CharacterSet shift(final int offset) {
+        final int[] result = ranges.clone();
+        for (int i = 0; i < result.length; i++) {
+            result[i] += offset;
+        }
+        return new CharacterSet(result);
+    }
+
+    private static CharacterSet matching(final CodePointTest test) {
+        int[] result = new int[256];
+        int count = 0;
+        int first = -1;
+        for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT + 1; codePoint++) {
+            final boolean matches = codePoint <= Character.MAX_CODE_POINT && test.test(codePoint);
+            if (matches && first < 0) {
+                first = codePoint;
+            } else if (!matches && first >= 0) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = first;
+                result[count++] = codePoint - 1;
+                first = -1;
+            }
+        }
+        return new CharacterSet(Arrays.copyOf(result, count));
+    }
+
+    private enum CodePointTest {
+        LETTER,
+        UPPERCASE,
+        LOWERCASE,
+        TITLECASE,
+        LETTER_OR_DIGIT,
+        NON_SPACING_MARK;
+
+        boolean test(final int codePoint) {
+            switch (this) {
+                case LETTER:
+                    return Character.isLetter(codePoint);
+                case UPPERCASE:
+                    return Character.getType(codePoint) == Character.UPPERCASE_LETTER;
+                case LOWERCASE:
+                    return Character.getType(codePoint) == Character.LOWERCASE_LETTER;
+                case TITLECASE:
+                    return Character.getType(codePoint) == Character.TITLECASE_LETTER;
+                case LETTER_OR_DIGIT:
+                    return Character.isLetterOrDigit(codePoint);
+                default:
+                    return Character.getType(codePoint) == Character.NON_SPACING_MARK;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.regex.Pattern;
+
+/**
+ * {@link RegexMatcher} which runs in time linear in the length of the input, by simulating an {@link Nfa} with a
+ * {@link LazyDfa} whose states are built as the input needs them. Greedy and lazy quantifiers match the same strings, so for
+ * {@link #matches(CharSequence)} and {@link #find(CharSequence)} the results are the same as
+ * {@link java.util.regex.Matcher}'s without any backtracking. Pattern ends a loop as soon as an iteration matches the
+ * empty string, which a DFA can't track, so an anchor in a repeated group which can match the empty string isn't
+ * supported.
+ * <p>
+ * Characters are grouped into classes which every part of the regex treats alike, so each DFA state has one
+ * transition per class rather than per character. Each thread builds its own cache of states; when a cache would
+ * grow past its limit it is cleared, and the rest of that call simulates the NFA directly instead. Input containing
+ * surrogate pairs is matched with the compiled {@link Pattern}, since the automaton only reads characters in the
+ * Basic Multilingual Plane.
+ */
+final class DfaMatcher implements RegexMatcher {
+    private final Nfa nfa;
+    private final Pattern pattern;
+    private final int minimumLength;
+    private final int maximumLength;
+    private final RequiredLiteral requiredLiteral;
+    private final int maximumCacheSize;
+    private final CharacterClasses classes;
+    private final int[] asciiClasses;
+    private final int surrogateClass;
+    private final ThreadLocal<Dfa> anchored;
+    private final ThreadLocal<Dfa> unanchored;
+    private final ThreadLocal<Nfa.Searcher> searchers;
+
+    /**
+     * @param nfa           Compiled regex
+     * @param pattern       The same regex compiled by {@link Pattern}, for input the automaton can't read
+     * @param minimumLength Length of the shortest match
+     * @param maximumLength   Length of the longest match, or {@link RegexLengthAnalyzer#UNBOUNDED}
+     * @param requiredLiteral Literal which every match contains, or null
+     */
+    DfaMatcher(final Nfa nfa,
+               final Pattern pattern,
+               final int minimumLength,
+               final int maximumLength,
+               final RequiredLiteral requiredLiteral) {
+        this(nfa, pattern, minimumLength, maximumLength, requiredLiteral, LazyDfa.DEFAULT_MAXIMUM_CACHE_SIZE);
+    }
+
+    private DfaMatcher(final Nfa nfa,
+                       final Pattern pattern,
+                       final int minimumLength,
+                       final int maximumLength,
+                       final RequiredLiteral requiredLiteral,
+                       final int maximumCacheSize) {
+        this.nfa = nfa;
+        this.pattern = pattern;
+        this.minimumLength = minimumLength;
+        this.maximumLength = maximumLength;
+        this.requiredLiteral = requiredLiteral;
+        this.maximumCacheSize = maximumCacheSize;
+        searchers = ThreadLocal.withInitial(nfa::newSearcher);
+
+        classes = new CharacterClasses(nfa.getCharacterSets());
+        asciiClasses = classes.getAsciiClasses();
+        surrogateClass = classes.getSurrogateClass();
+        anchored = ThreadLocal.withInitial(() -> new Dfa(nfa, classes, maximumCacheSize, false));
+        unanchored = ThreadLocal.withInitial(() -> new Dfa(nfa, classes, maximumCacheSize, true));
+    }
+
+    /**
+     * Create a matcher for the same regex with a different limit on the size of its caches
+     *
+     * @param maximumCacheSize Maximum number of transitions cached by each thread, for each of the two DFAs
+     * @return A new {@link DfaMatcher}
+     */
+    DfaMatcher withMaximumCacheSize(final int maximumCacheSize) {
+        return new DfaMatcher(nfa, pattern, minimumLength, maximumLength, requiredLiteral, maximumCacheSize);
+    }
+
+    @Override
+    public boolean matches(final CharSequence input) {
+        return RegexLengthAnalyzer.canMatchWhole(input, minimumLength, maximumLength) && run(anchored.get(), input);
+    }
+
+    /**
+     * Test whether the regex matches anywhere in the input. If every match contains some literal text, input without
+     * it is rejected before running the DFA.
+     */
+    @Override
+    public boolean find(final CharSequence input) {
+        return input.length() >= minimumLength
+                && (requiredLiteral == null || requiredLiteral.indexIn(input) >= 0)
+                && run(unanchored.get(), input);
+    }
+
+    /**
+     * Test whether the regex matches at the start of the input. The DFA doesn't track where matches end, so this
+     * simulates the NFA directly, which also takes linear time.
+     */
+    @Override
+    public boolean lookingAt(final CharSequence input) {
+        if (input.length() < minimumLength) {
+            return false;
+        }
+        if (Nfa.containsSurrogates(input)) {
+            return pattern.matcher(input).lookingAt();
+        }
+        return searchers.get().search(input, 0, true, false, null);
+    }
+
+    @Override
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    @Override
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+    @Override
+    public String toString() {
+        return pattern.toString();
+    }
+
+    private boolean run(final Dfa dfa, final CharSequence input) {
+        final int length = input.length();
+        final int[] ascii = asciiClasses;
+        final int stride = classes.getCount();
+        int[] transitions = dfa.getTransitions();
+        int state = dfa.getStartState();
+        for (int i = 0; i < length; i++) {
+            final char c = input.charAt(i);
+            final int characterClass = (c < CharacterClasses.ASCII_SIZE) ? ascii[c] : classes.classOf(c);
+            int transition = transitions[state * stride + characterClass];
+            if (transition == LazyDfa.UNKNOWN) {
+                if (characterClass == surrogateClass) {
+                    return dfa.unanchored ? pattern.matcher(input).find() : pattern.matcher(input).matches();
+                }
+                transition = dfa.computeTransition(state, characterClass);
+                if (transition == LazyDfa.CACHE_FULL) {
+                    return simulate(dfa, state, input, i);
+                }
+                // Adding a state may have reallocated the table
+                transitions = dfa.getTransitions();
+            }
+            if (transition < 0) {
+                // Only set when finding: a match ended before this character
+                return true;
+            }
+            state = transition - 1;
+            if (state == LazyDfa.DEAD) {
+                return false;
+            }
+        }
+        return dfa.getEndMatch(state) != LazyDfa.NO_MATCH;
+    }
+
+    /**
+     * Carry on from a DFA state by simulating the NFA directly, once the cache of DFA states is full
+     */
+    private boolean simulate(final Dfa dfa, final int state, final CharSequence input, final int from) {
+        int[] threads = dfa.getThreads(state);
+        int flags = dfa.getFlags(state);
+        dfa.clear();
+
+        final Nfa.Stepper stepper = dfa.stepper;
+        final int length = input.length();
+        for (int i = from; i < length; i++) {
+            final char c = input.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return dfa.unanchored ? pattern.matcher(input).find() : pattern.matcher(input).matches();
+            }
+            if (stepper.step(threads, flags, c, dfa.unanchored) && dfa.unanchored) {
+                return true;
+            }
+            threads = stepper.getThreads();
+            if (threads.length == 0) {
+                return false;
+            }
+            flags = nfa.getNextFlags(flags, c);
+        }
+        return stepper.step(threads, flags, Nfa.END_OF_INPUT, false);
+    }
+
+    /**
+     * {@link LazyDfa} which only records whether a match ended, and only before the end of the input when finding
+     */
+    private static final class Dfa extends LazyDfa {
+        Dfa(final Nfa nfa, final CharacterClasses classes, final int maximumCacheSize, final boolean unanchored) {
+            super(nfa, classes, maximumCacheSize, unanchored);
+        }
+
+        @Override
+        int step(final int[] stateThreads, final int stateFlags, final int c) {
+            return (stepper.step(stateThreads, stateFlags, c, unanchored) && unanchored) ? 0 : NO_MATCH;
+        }
+
+        @Override
+        int stepAtEnd(final int[] stateThreads, final int stateFlags) {
+            return stepper.step(stateThreads, stateFlags, Nfa.END_OF_INPUT, false) ? 0 : NO_MATCH;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.List;
+
+/**
+ * The characters a match of a regex can start with, found from the leading elements of a tree of {@link RegexNode}s
+ * and stored as a bitmap over the Basic Multilingual Plane. A match starting with a character outside it starts with
+ * a high surrogate, which is in the bitmap. Matchers use it to skip positions where no match can start, instead of
+ * trying the regex at every one.
+ * <p>
+ * The bitmap only extends as far as the highest character in the set, so a set of ASCII characters takes two longs.
+ */
+final class FirstCharacters {
+    // A set containing more of the ASCII characters than this skips too few positions to be worth checking
+    private static final int MAXIMUM_ASCII_COUNT = 64;
+
+    private final long[] bits;
+
+    private FirstCharacters(final long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Find the characters a match of the nodes can start with
+     *
+     * @param nodes      Nodes to analyze
+     * @param ignoreCase Whether the regex is case-insensitive
+     * @return The first characters, or null if a match can be empty, the regex contains regex text, a leading element
+     * isn't analyzed, or the set contains too many characters to skip many positions
+     */
+    static FirstCharacters find(final List<RegexNode> nodes, final boolean ignoreCase) {
+        // Even after the leading elements, a | in regex text can start another alternative and inline flags can
+        // change the case of what follows
+        if (RegexLengthAnalyzer.containsRegexText(nodes)) {
+            return null;
+        }
+        final Collector collector = new Collector(ignoreCase);
+        if (!collector.visitSequence(nodes) || collector.unknown) {
+            return null;
+        }
+        final CharacterSet characters = collector.set;
+        if (countAscii(characters) > MAXIMUM_ASCII_COUNT) {
+            return null;
+        }
+        CharacterSet set = characters;
+        for (int i = 0; i < characters.getRangeCount(); i++) {
+            if (characters.getRangeEnd(i) > Character.MAX_VALUE) {
+                final int start = Math.max(characters.getRangeStart(i), Character.MIN_SUPPLEMENTARY_CODE_POINT);
+                set = set.union(CharacterSet.range(Character.highSurrogate(start),
+                        Character.highSurrogate(characters.getRangeEnd(i))));
+            }
+        }
+
+        final int highest = set.isEmpty()
+                ? -1
+                : Math.min(set.getRangeEnd(set.getRangeCount() - 1), Character.MAX_VALUE);
+        final long[] bits = new long[(highest >> 6) + 1];
+        for (int i = 0; i < set.getRangeCount(); i++) {
+            final int end = Math.min(set.getRangeEnd(i), highest);
+            for (int c = set.getRangeStart(i); c <= end; c++) {
+                bits[c >>> 6] |= 1L << c;
+            }
+        }
+        return new FirstCharacters(bits);
+    }
+
+    /**
+     * Find the next position in the input where a match could start
+     *
+     * @param input Input to search
+     * @param from  Index to search from
+     * @return Index of the first character at or after {@code from} that a match can start with, or -1 if there is
+     * none
+     */
+    int indexIn(final CharSequence input, final int from) {
+        final long[] words = bits;
+        final int length = input.length();
+        for (int i = from; i < length; i++) {
+            final char c = input.charAt(i);
+            final int word = c >>> 6;
+            if (word < words.length && (words[word] & (1L << c)) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int countAscii(final CharacterSet set) {
+        int count = 0;
+        for (int i = 0; i < set.getRangeCount() && set.getRangeStart(i) < 128; i++) {
+            count += Math.min(set.getRangeEnd(i), 127) - set.getRangeStart(i) + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the characters each leading node can start with to a set. Each visit returns whether the node always
+     * consumes a character, in which case the nodes after it can't start a match.
+     */
+    private static final class Collector implements RegexNode.Visitor<Boolean> {
+        private final boolean ignoreCase;
+        private CharacterSet set = CharacterSet.EMPTY;
+        private boolean unknown;
+
+        Collector(final boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        boolean visitSequence(final List<RegexNode> nodes) {
+            for (final RegexNode node : nodes) {
+                if (node.accept(this) || unknown) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean visitLiteral(final RegexNode.Literal node) {
+            if (node.getText().isEmpty()) {
+                return false;
+            }
+            add(CharacterSet.of(node.getText().codePointAt(0)));
+            return isMandatory(node);
+        }
+
+        @Override
+        public Boolean visitCharacterClass(final RegexNode.CharacterClass node) {
+            final CharacterSet characters = CharacterSet.forClass(node.getType(), node.getCharacters(), ignoreCase);
+            if (characters == null) {
+                unknown = true;
+                return true;
+            }
+            set = set.union(characters);
+            return isMandatory(node);
+        }
+
+        @Override
+        public Boolean visitAlternation(final RegexNode.Alternation node) {
+            boolean empty = false;
+            for (final String string : node.getStrings()) {
+                if (string.isEmpty()) {
+                    empty = true;
+                } else {
+                    add(CharacterSet.of(string.codePointAt(0)));
+                }
+            }
+            return !empty && isMandatory(node);
+        }
+
+        @Override
+        public Boolean visitAnchor(final RegexNode.Anchor node) {
+            return false;
+        }
+
+        @Override
+        public Boolean visitGroup(final RegexNode.Group node) {
+            return visitSequence(node.getChildren()) && isMandatory(node);
+        }
+
+        @Override
+        public Boolean visitRaw(final RegexNode.Raw node) {
+            unknown = true;
+            return true;
+        }
+
+        private void add(final CharacterSet characters) {
+            set = set.union(ignoreCase ? characters.withAsciiCase() : characters);
+        }
+
+        private static boolean isMandatory(final RegexNode node) {
+            final RegexQuantifier quantifier = node.getQuantifier();
+            return quantifier == null || quantifier.getMinimum() > 0;
+        }
+    }
+}
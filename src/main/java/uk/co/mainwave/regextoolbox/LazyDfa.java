@@ -0,0 +1,259 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DFA built lazily from an {@link Nfa} as the input needs it, cached by one thread. Each state is a set of NFA threads
+ * plus the flags describing the previous character. Transitions are stored as the target state plus one, negated if a
+ * match ended before the character, or {@link #UNKNOWN} if not yet built.
+ * <p>
+ * Subclasses decide what counts as a match by stepping the NFA threads themselves, and describe each match with a
+ * number which is kept for each transition and for the end of the input in each state. Once adding a state would take
+ * the table past its limit, {@link #computeTransition(int, int)} returns {@link #CACHE_FULL}; the caller should then
+ * clear the cache and simulate the NFA directly for the rest of the input.
+ */
+abstract class LazyDfa {
+    /**
+     * Default maximum number of transitions cached by each thread, for each DFA
+     */
+    static final int DEFAULT_MAXIMUM_CACHE_SIZE = 1 << 18;
+    /**
+     * The state with no threads, which never matches and loops back to itself
+     */
+    static final int DEAD = 0;
+    /**
+     * Transition which hasn't been built yet
+     */
+    static final int UNKNOWN = 0;
+    /**
+     * Returned by {@link #computeTransition(int, int)} when there's no room for another state
+     */
+    static final int CACHE_FULL = Integer.MIN_VALUE;
+    /**
+     * Returned by the step methods when no match ended
+     */
+    static final int NO_MATCH = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    final Nfa nfa;
+    final Nfa.Stepper stepper;
+    final boolean unanchored;
+    private final CharacterClasses classes;
+    private final int classCount;
+    private final int maximumCacheSize;
+    private final Map<StateKey, Integer> states = new HashMap<>();
+    private final List<int[]> threads = new ArrayList<>();
+    private int[] flags;
+    private int[] transitions;
+    // Only allocated once a transition makes a match other than 0
+    private int[] transitionMatches;
+    // Match at the end of the input plus two, or 0 if not yet known
+    private int[] endMatches;
+    private int startState;
+
+    /**
+     * @param nfa              Automaton to simulate
+     * @param classes          Classes of characters which every part of the automaton treats alike
+     * @param maximumCacheSize Maximum number of transitions to cache
+     * @param unanchored       Whether a match can start anywhere in the input
+     */
+    LazyDfa(final Nfa nfa, final CharacterClasses classes, final int maximumCacheSize, final boolean unanchored) {
+        this.nfa = nfa;
+        this.classes = classes;
+        this.unanchored = unanchored;
+        stepper = nfa.newStepper();
+        classCount = classes.getCount();
+        // Always leave room for the dead state and the start state
+        this.maximumCacheSize = Math.max(maximumCacheSize, 2 * classCount);
+        reset();
+    }
+
+    /**
+     * Step the threads of a state past a character with {@link #stepper}, which holds the next threads afterwards
+     *
+     * @param stateThreads Threads to step
+     * @param stateFlags   Flags describing the previous character
+     * @param c            Character
+     * @return A number describing the match which ended before the character, or {@link #NO_MATCH}
+     */
+    abstract int step(int[] stateThreads, int stateFlags, int c);
+
+    /**
+     * Test the threads of a state against the end of the input with {@link #stepper}
+     *
+     * @param stateThreads Threads to test
+     * @param stateFlags   Flags describing the last character
+     * @return A number describing the match which ends there, or {@link #NO_MATCH}
+     */
+    abstract int stepAtEnd(int[] stateThreads, int stateFlags);
+
+    /**
+     * Called after the cache has been cleared, for subclasses which keep their own caches alongside it
+     */
+    void onClear() {
+    }
+
+    /**
+     * Get the table of transitions, indexed by state times the number of character classes plus the character class.
+     * Adding a state may reallocate the table.
+     *
+     * @return Transitions
+     */
+    int[] getTransitions() {
+        return transitions;
+    }
+
+    int getStartState() {
+        if (startState < 0) {
+            startState = addState(nfa.getInitialThreads(), nfa.getInitialFlags());
+        }
+        return startState;
+    }
+
+    int[] getThreads(final int state) {
+        return threads.get(state);
+    }
+
+    int getFlags(final int state) {
+        return flags[state];
+    }
+
+    /**
+     * Build the transition from a state on a class of characters
+     *
+     * @param state          State
+     * @param characterClass Character class
+     * @return The transition, or {@link #CACHE_FULL}
+     */
+    int computeTransition(final int state, final int characterClass) {
+        final int c = classes.getRepresentative(characterClass);
+        final int match = step(threads.get(state), flags[state], c);
+        final int[] nextThreads = stepper.getThreads();
+        final int target = (nextThreads.length == 0)
+                ? DEAD
+                : addState(nextThreads, nfa.getNextFlags(flags[state], c));
+        if (target < 0) {
+            return CACHE_FULL;
+        }
+        final int index = state * classCount + characterClass;
+        if (match > 0) {
+            if (transitionMatches == null) {
+                transitionMatches = new int[transitions.length];
+            }
+            transitionMatches[index] = match;
+        }
+        final int transition = (match == NO_MATCH) ? target + 1 : -(target + 1);
+        transitions[index] = transition;
+        return transition;
+    }
+
+    /**
+     * Get the match made by a transition which is negative
+     *
+     * @param index Index of the transition in the table
+     * @return The number describing the match
+     */
+    int getTransitionMatch(final int index) {
+        return (transitionMatches == null) ? 0 : transitionMatches[index];
+    }
+
+    /**
+     * Get the match at the end of the input in a state
+     *
+     * @param state State
+     * @return The number describing the match, or {@link #NO_MATCH}
+     */
+    int getEndMatch(final int state) {
+        if (endMatches[state] == 0) {
+            endMatches[state] = stepAtEnd(threads.get(state), flags[state]) + 2;
+        }
+        return endMatches[state] - 2;
+    }
+
+    /**
+     * Discard every state, for example before simulating the NFA once the cache is full
+     */
+    void clear() {
+        reset();
+        onClear();
+    }
+
+    private void reset() {
+        states.clear();
+        threads.clear();
+        flags = new int[INITIAL_CAPACITY];
+        transitions = new int[INITIAL_CAPACITY * classCount];
+        transitionMatches = null;
+        endMatches = new int[INITIAL_CAPACITY];
+        startState = -1;
+
+        threads.add(new int[0]);
+        Arrays.fill(transitions, 0, classCount, DEAD + 1);
+        endMatches[DEAD] = NO_MATCH + 2;
+    }
+
+    /**
+     * Get the state for a set of threads and flags, adding it if necessary
+     *
+     * @return State, or -1 if the cache is full
+     */
+    private int addState(final int[] stateThreads, final int stateFlags) {
+        final StateKey key = new StateKey(stateThreads, stateFlags);
+        final Integer existing = states.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        final int state = threads.size();
+        if ((long) (state + 1) * classCount > maximumCacheSize) {
+            return -1;
+        }
+        if (state == flags.length) {
+            final int capacity = state * 2;
+            flags = Arrays.copyOf(flags, capacity);
+            transitions = Arrays.copyOf(transitions, capacity * classCount);
+            if (transitionMatches != null) {
+                transitionMatches = Arrays.copyOf(transitionMatches, capacity * classCount);
+            }
+            endMatches = Arrays.copyOf(endMatches, capacity);
+        }
+        threads.add(stateThreads);
+        flags[state] = stateFlags;
+        states.put(key, state);
+        return state;
+    }
+
+    /**
+     * Key identifying a DFA state by its NFA threads and flags
+     */
+    private static final class StateKey {
+        private final int[] threads;
+        private final int flags;
+        private final int hashCode;
+
+        StateKey(final int[] threads, final int flags) {
+            this.threads = threads;
+            this.flags = flags;
+            hashCode = Arrays.hashCode(threads) * 31 + flags;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            final StateKey other = (StateKey) o;
+            return flags == other.flags && Arrays.equals(threads, other.threads);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Callback receiving each match found by {@link LiteralSetMatcher#findAll(CharSequence, LiteralMatchHandler)}
+ */
+public interface LiteralMatchHandler {
+    /**
+     * Called for each match
+     *
+     * @param stringIndex Index of the matched string in the array the {@link LiteralSetMatcher} was created with
+     * @param start       Start index of the match in the input
+     * @param end         End index (exclusive) of the match in the input
+     * @return true to carry on searching, false to stop
+     */
+    boolean onMatch(int stringIndex, int start, int end);
+}
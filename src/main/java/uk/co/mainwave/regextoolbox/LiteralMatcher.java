@@ -0,0 +1,221 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link RegexMatcher} for a regex consisting only of literal text, optionally anchored to the start and/or end of
+ * the string. Matching uses {@link String#indexOf(String)} or a Boyer-Moore-Horspool search instead of
+ * {@link java.util.regex.Pattern}, with the same results.
+ */
+final class LiteralMatcher implements RegexMatcher {
+    private static final int SHIFT_TABLE_SIZE = 256;
+    private static final int SHIFT_TABLE_MASK = SHIFT_TABLE_SIZE - 1;
+
+    private final String literal;
+    private final boolean anchoredAtStart;
+    private final boolean anchoredAtEnd;
+    private final boolean ignoreCase;
+    private final String regexString;
+    private final int[] shiftTable;
+
+    LiteralMatcher(final String literal,
+                   final boolean anchoredAtStart,
+                   final boolean anchoredAtEnd,
+                   final boolean ignoreCase,
+                   final String regexString) {
+        this.literal = ignoreCase ? foldAscii(literal) : literal;
+        this.anchoredAtStart = anchoredAtStart;
+        this.anchoredAtEnd = anchoredAtEnd;
+        this.ignoreCase = ignoreCase;
+        this.regexString = regexString;
+        shiftTable = createShiftTable(this.literal);
+    }
+
+    /**
+     * Create a matcher for the nodes recorded by a {@link RegexBuilder}, if they are purely literal
+     *
+     * @param nodes      Nodes recorded by the builder
+     * @param ignoreCase Whether the regex is case-insensitive
+     * @param multiline  Whether anchors match at line breaks, in which case only unanchored literals are supported
+     * @return A new {@link LiteralMatcher}, or null if the nodes aren't a plain literal with optional anchors
+     */
+    static LiteralMatcher create(final List<RegexNode> nodes, final boolean ignoreCase, final boolean multiline) {
+        int first = 0;
+        int end = nodes.size();
+        final boolean anchoredAtStart = end > 0 && isAnchor(nodes.get(0), RegexNode.AnchorType.START_OF_STRING);
+        if (anchoredAtStart) {
+            first++;
+        }
+        final boolean anchoredAtEnd = end > first && isAnchor(nodes.get(end - 1), RegexNode.AnchorType.END_OF_STRING);
+        if (anchoredAtEnd) {
+            end--;
+        }
+        if (multiline && (anchoredAtStart || anchoredAtEnd)) {
+            return null;
+        }
+
+        final StringBuilder literal = new StringBuilder();
+        for (int i = first; i < end; i++) {
+            final RegexNode node = nodes.get(i);
+            if (!(node instanceof RegexNode.Literal) || node.getQuantifier() != null) {
+                return null;
+            }
+            literal.append(((RegexNode.Literal) node).getText());
+        }
+
+        return new LiteralMatcher(literal.toString(), anchoredAtStart, anchoredAtEnd, ignoreCase,
+                RegexRenderer.render(nodes));
+    }
+
+    @Override
+    public boolean matches(final CharSequence input) {
+        // Anchors are zero-width, so only an input equal to the literal can match in its entirety
+        return input.length() == literal.length() && regionMatches(input, 0);
+    }
+
+    @Override
+    public boolean find(final CharSequence input) {
+        final int length = input.length();
+        final int literalLength = literal.length();
+
+        if (anchoredAtStart) {
+            return literalLength <= length
+                    && regionMatches(input, 0)
+                    && (!anchoredAtEnd || isEnd(input, literalLength));
+        }
+
+        if (anchoredAtEnd) {
+            // The end anchor also matches before a line terminator at the very end, so there are up to three
+            // places the literal could end
+            for (int end = Math.max(literalLength, length - 2); end <= length; end++) {
+                if (isEnd(input, end) && regionMatches(input, end - literalLength)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return indexOf(input) >= 0;
+    }
+
+    @Override
+    public boolean lookingAt(final CharSequence input) {
+        // A match starting at the beginning is a match for the start anchor too
+        final int literalLength = literal.length();
+        return literalLength <= input.length()
+                && regionMatches(input, 0)
+                && (!anchoredAtEnd || isEnd(input, literalLength));
+    }
+
+    @Override
+    public int getMinimumLength() {
+        return literal.length();
+    }
+
+    @Override
+    public int getMaximumLength() {
+        return literal.length();
+    }
+
+    @Override
+    public String toString() {
+        return regexString;
+    }
+
+    /**
+     * Find the first occurrence of the literal in the input, ignoring the anchors
+     *
+     * @param input Input to search
+     * @return Index of the first occurrence, or -1 if there is none
+     */
+    int indexOf(final CharSequence input) {
+        if (!ignoreCase && input instanceof String) {
+            return ((String) input).indexOf(literal);
+        }
+
+        final int literalLength = literal.length();
+        if (literalLength == 0) {
+            return 0;
+        }
+
+        final int last = literalLength - 1;
+        final int limit = input.length() - literalLength;
+        int i = 0;
+        while (i <= limit) {
+            int j = last;
+            while (charAt(input, i + j) == literal.charAt(j)) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += shiftTable[charAt(input, i + last) & SHIFT_TABLE_MASK];
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(final CharSequence input, final int offset) {
+        final int literalLength = literal.length();
+        for (int i = 0; i < literalLength; i++) {
+            if (charAt(input, offset + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char charAt(final CharSequence input, final int index) {
+        final char c = input.charAt(index);
+        return ignoreCase ? foldAscii(c) : c;
+    }
+
+    private static boolean isAnchor(final RegexNode node, final RegexNode.AnchorType type) {
+        return node instanceof RegexNode.Anchor && ((RegexNode.Anchor) node).getType() == type;
+    }
+
+    /**
+     * Test whether the end-of-string anchor {@code $} matches at an index, replicating
+     * {@link java.util.regex.Pattern}: it matches at the end of the input, or before a line terminator at the very
+     * end of the input (but not between {@code \r} and {@code \n}).
+     */
+    private static boolean isEnd(final CharSequence input, final int index) {
+        final int length = input.length();
+        if (index == length) {
+            return true;
+        }
+        if (index == length - 2) {
+            return input.charAt(index) == '\r' && input.charAt(index + 1) == '\n';
+        }
+        if (index == length - 1) {
+            final char c = input.charAt(index);
+            if (c == '\n') {
+                return index == 0 || input.charAt(index - 1) != '\r';
+            }
+            return c == '\r' || c == '\u0085' || (c | 1) == '\u2029';
+        }
+        return false;
+    }
+
+    private static int[] createShiftTable(final String literal) {
+        final int[] table = new int[SHIFT_TABLE_SIZE];
+        final int literalLength = literal.length();
+        Arrays.fill(table, Math.max(literalLength, 1));
+        for (int i = 0; i < literalLength - 1; i++) {
+            table[literal.charAt(i) & SHIFT_TABLE_MASK] = literalLength - 1 - i;
+        }
+        return table;
+    }
+
+    private static char foldAscii(final char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String foldAscii(final String s) {
+        final char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = foldAscii(chars[i]);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,372 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Arrays;
+
+/**
+ * Matcher for a large set of literal strings, such as a blocklist, using an Aho-Corasick automaton. It takes the
+ * same strings as {@link RegexBuilder#anyOf(String...)}, but instead of trying each alternative at each position it
+ * finds every occurrence of every string in a single linear pass over the input, however many strings there are.
+ * <p>
+ * The automaton is stored in flat arrays (sorted transitions per state, plus failure and output links), so it stays
+ * compact with tens of thousands of strings. Matching never allocates: {@link #find(CharSequence, int, int[])} writes
+ * its result into a caller-supplied array and {@link #findAll(CharSequence, LiteralMatchHandler)} reports matches
+ * through a callback.
+ * <p>
+ * Instances are immutable and thread-safe.
+ * <p>
+ * Example:
+ * <pre>
+ * final LiteralSetMatcher blocklist = LiteralSetMatcher.of(blockedWords, RegexOptions.IGNORE_CASE);
+ * if (blocklist.find(logLine)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class LiteralSetMatcher {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int DENSE_ROOT_SIZE = 128;
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private final String[] strings;
+    private final boolean ignoreCase;
+
+    // Transitions of state s are edgeChar/edgeTarget[edgeStart[s], edgeStart[s + 1]), sorted by character
+    private final int[] edgeStart;
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+    private final int[] rootNext;
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+    private final int[] depth;
+
+    private LiteralSetMatcher(final String[] strings, final boolean ignoreCase) {
+        this.strings = strings.clone();
+        this.ignoreCase = ignoreCase;
+
+        final TrieBuilder trie = new TrieBuilder();
+        for (int i = 0; i < strings.length; i++) {
+            if (strings[i] != null && !strings[i].isEmpty()) {
+                trie.insert(strings[i], i, ignoreCase);
+            }
+        }
+
+        // Renumber states in breadth-first order, so that fail links always point to earlier states
+        final int stateCount = trie.stateCount;
+        final int[] order = new int[stateCount];
+        final int[] newIndex = new int[stateCount];
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            final int state = order[head++];
+            newIndex[state] = head - 1;
+            for (int child = trie.firstChild[state]; child != NONE; child = trie.nextSibling[child]) {
+                order[tail++] = child;
+            }
+        }
+
+        edgeStart = new int[stateCount + 1];
+        edgeChar = new char[stateCount - 1];
+        edgeTarget = new int[stateCount - 1];
+        output = new int[stateCount];
+        depth = new int[stateCount];
+        int edgeCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            final int oldState = order[s];
+            output[s] = trie.output[oldState];
+            depth[s] = trie.depth[oldState];
+            edgeStart[s] = edgeCount;
+            for (int child = trie.firstChild[oldState]; child != NONE; child = trie.nextSibling[child]) {
+                edgeChar[edgeCount] = trie.label[child];
+                edgeTarget[edgeCount] = newIndex[child];
+                edgeCount++;
+            }
+            sortEdges(edgeStart[s], edgeCount);
+        }
+        edgeStart[stateCount] = edgeCount;
+
+        rootNext = new int[DENSE_ROOT_SIZE];
+        Arrays.fill(rootNext, ROOT);
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            if (edgeChar[e] < DENSE_ROOT_SIZE) {
+                rootNext[edgeChar[e]] = edgeTarget[e];
+            }
+        }
+
+        fail = new int[stateCount];
+        outputLink = new int[stateCount];
+        outputLink[ROOT] = NONE;
+        for (int s = 0; s < stateCount; s++) {
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                final int child = edgeTarget[e];
+                final int childFail = (s == ROOT) ? ROOT : next(fail[s], edgeChar[e]);
+                fail[child] = childFail;
+                outputLink[child] = (output[childFail] != NONE) ? childFail : outputLink[childFail];
+            }
+        }
+    }
+
+    /**
+     * Create a matcher for a set of strings
+     *
+     * @param strings Strings to find: null and empty strings are ignored
+     * @return A new {@link LiteralSetMatcher}
+     */
+    public static LiteralSetMatcher of(final String... strings) {
+        return of(strings, new RegexOptions[0]);
+    }
+
+    /**
+     * Create a matcher for a set of strings
+     *
+     * @param strings Strings to find: null and empty strings are ignored
+     * @param options Any number of regex options: {@link RegexOptions#IGNORE_CASE} makes matching case-insensitive
+     *                for US-ASCII letters, in the same way as a regex built with that option. Other options don't
+     *                apply to literal matching and are ignored.
+     * @return A new {@link LiteralSetMatcher}
+     */
+    public static LiteralSetMatcher of(final String[] strings, final RegexOptions... options) {
+        boolean ignoreCase = false;
+        for (final RegexOptions option : options) {
+            if (option == RegexOptions.IGNORE_CASE) {
+                ignoreCase = true;
+            }
+        }
+        return new LiteralSetMatcher(strings == null ? new String[0] : strings, ignoreCase);
+    }
+
+    /**
+     * Get the number of strings this matcher was created with, including any null or empty strings
+     *
+     * @return Number of strings
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     * Get one of the strings this matcher was created with
+     *
+     * @param index Index of the string, as reported by {@link #find(CharSequence, int, int[])} and
+     *              {@link #findAll(CharSequence, LiteralMatchHandler)}
+     * @return The string
+     */
+    public String getString(final int index) {
+        return strings[index];
+    }
+
+    /**
+     * Find whether the input contains any of the strings
+     *
+     * @param input Input to search
+     * @return true if any string occurs in the input
+     */
+    public boolean find(final CharSequence input) {
+        final int length = input.length();
+        int state = ROOT;
+        for (int i = 0; i < length; i++) {
+            state = next(state, input.charAt(i));
+            if (output[state] != NONE || outputLink[state] != NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the first occurrence of any of the strings, starting the search at a given index. The first occurrence is
+     * the one which ends earliest; if several end at the same index, the longest is reported.
+     *
+     * @param input     Input to search
+     * @param fromIndex Index to start searching from
+     * @param match     Array of at least 3 elements which on success receives the index of the string found, and the
+     *                  start and end (exclusive) indices of the match in the input
+     * @return true if a string was found
+     */
+    public boolean find(final CharSequence input, final int fromIndex, final int[] match) {
+        final int length = input.length();
+        int state = ROOT;
+        for (int i = Math.max(fromIndex, 0); i < length; i++) {
+            state = next(state, input.charAt(i));
+            final int found = (output[state] != NONE) ? state : outputLink[state];
+            if (found != NONE) {
+                match[0] = output[found];
+                match[1] = i + 1 - depth[found];
+                match[2] = i + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Report every occurrence of every string in the input, including overlapping occurrences, in order of their
+     * end index.
+     *
+     * @param input   Input to search
+     * @param handler Handler to receive each match: return false from it to stop searching
+     */
+    public void findAll(final CharSequence input, final LiteralMatchHandler handler) {
+        final int length = input.length();
+        int state = ROOT;
+        for (int i = 0; i < length; i++) {
+            state = next(state, input.charAt(i));
+            int found = (output[state] != NONE) ? state : outputLink[state];
+            while (found != NONE) {
+                if (!handler.onMatch(output[found], i + 1 - depth[found], i + 1)) {
+                    return;
+                }
+                found = outputLink[found];
+            }
+        }
+    }
+
+    /**
+     * Count the occurrences of all the strings in the input, including overlapping occurrences
+     *
+     * @param input Input to search
+     * @return Number of occurrences
+     */
+    public long count(final CharSequence input) {
+        final int length = input.length();
+        long count = 0;
+        int state = ROOT;
+        for (int i = 0; i < length; i++) {
+            state = next(state, input.charAt(i));
+            for (int found = (output[state] != NONE) ? state : outputLink[state];
+                 found != NONE;
+                 found = outputLink[found]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int next(final int fromState, final char inputChar) {
+        final char c = ignoreCase ? fold(inputChar) : inputChar;
+        int state = fromState;
+        while (true) {
+            if (state == ROOT) {
+                return (c < DENSE_ROOT_SIZE) ? rootNext[c] : findEdge(ROOT, c, ROOT);
+            }
+            final int target = findEdge(state, c, NONE);
+            if (target != NONE) {
+                return target;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int findEdge(final int state, final char c, final int notFound) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        if (high - low < LINEAR_SEARCH_LIMIT) {
+            for (int e = low; e <= high; e++) {
+                if (edgeChar[e] == c) {
+                    return edgeTarget[e];
+                }
+            }
+            return notFound;
+        }
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final char midChar = edgeChar[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return notFound;
+    }
+
+    private void sortEdges(final int from, final int to) {
+        // Insertion sort: most states have very few edges
+        for (int i = from + 1; i < to; i++) {
+            final char c = edgeChar[i];
+            final int target = edgeTarget[i];
+            int j = i - 1;
+            while (j >= from && edgeChar[j] > c) {
+                edgeChar[j + 1] = edgeChar[j];
+                edgeTarget[j + 1] = edgeTarget[j];
+                j--;
+            }
+            edgeChar[j + 1] = c;
+            edgeTarget[j + 1] = target;
+        }
+    }
+
+    private static char fold(final char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Trie under construction, stored as linked lists of children in growable arrays
+     */
+    private static final class TrieBuilder {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int[] firstChild = new int[INITIAL_CAPACITY];
+        private int[] nextSibling = new int[INITIAL_CAPACITY];
+        private char[] label = new char[INITIAL_CAPACITY];
+        private int[] output = new int[INITIAL_CAPACITY];
+        private int[] depth = new int[INITIAL_CAPACITY];
+        private final int[] rootChildren = new int[Character.MAX_VALUE + 1];
+        private int stateCount;
+
+        TrieBuilder() {
+            Arrays.fill(rootChildren, NONE);
+            addState('\0', 0);
+        }
+
+        void insert(final String s, final int index, final boolean ignoreCase) {
+            int state = ROOT;
+            for (int i = 0; i < s.length(); i++) {
+                final char c = ignoreCase ? fold(s.charAt(i)) : s.charAt(i);
+                int child = (state == ROOT) ? rootChildren[c] : findChild(state, c);
+                if (child == NONE) {
+                    child = addState(c, i + 1);
+                    nextSibling[child] = firstChild[state];
+                    firstChild[state] = child;
+                    if (state == ROOT) {
+                        rootChildren[c] = child;
+                    }
+                }
+                state = child;
+            }
+            if (output[state] == NONE) {
+                output[state] = index;
+            }
+        }
+
+        private int findChild(final int state, final char c) {
+            for (int child = firstChild[state]; child != NONE; child = nextSibling[child]) {
+                if (label[child] == c) {
+                    return child;
+                }
+            }
+            return NONE;
+        }
+
+        private int addState(final char c, final int stateDepth) {
+            if (stateCount == firstChild.length) {
+                final int capacity = stateCount * 2;
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                label = Arrays.copyOf(label, capacity);
+                output = Arrays.copyOf(output, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+            }
+            final int state = stateCount++;
+            firstChild[state] = NONE;
+            nextSibling[state] = NONE;
+            label[state] = c;
+            output[state] = NONE;
+            depth[state] = stateDepth;
+            return state;
+        }
+    }
+}
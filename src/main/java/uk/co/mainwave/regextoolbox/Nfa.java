@@ -0,0 +1,1147 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Thompson NFA compiled from a tree of {@link RegexNode}s, which can be simulated in time linear in the length of the
+ * input. Used by {@link DfaMatcher} both to build DFA states and, when its cache of states is full, directly, and by
+ * {@link NfaMatcher} to find the positions of capturing groups.
+ * <p>
+ * The automaton reads UTF-16 chars and only knows about characters in the Basic Multilingual Plane: callers must
+ * match input containing surrogates some other way. Zero-width assertions are evaluated while following epsilon
+ * transitions, against flags describing the character before the current position and the character after it. A
+ * non-multiline {@code $} can also match before a final line terminator, which is tracked by tagging each thread with
+ * what it may still consume: thread entries are encoded as {@code state << 2 | tag}.
+ * <p>
+ * When compiled with capturing groups, the automaton also records positions in slots: the start and end of each
+ * group, and where each iteration of a loop that can match the empty string began, so that an iteration matching the
+ * empty string ends the loop as it does in {@link java.util.regex.Pattern}. Alternatives are then tried in the order
+ * they were given, and greedy and lazy quantifiers prefer more and fewer iterations respectively.
+ * <p>
+ * Instances are immutable; use a {@link Stepper} or {@link Searcher} per thread to simulate the automaton.
+ */
+final class Nfa {
+    /**
+     * Maximum number of states, which bounds the work done for each character of input
+     */
+    static final int MAXIMUM_STATES = 20000;
+
+    /**
+     * Passed to {@link Stepper#step(int[], int, int, boolean)} for the position after the last character of input
+     */
+    static final int END_OF_INPUT = -1;
+
+    // Flags describing the character before the current position
+    static final int AT_START = 1;
+    static final int AFTER_LINE_TERMINATOR = 2;
+    static final int AFTER_CARRIAGE_RETURN = 4;
+    static final int AFTER_WORD_CHARACTER = 8;
+    static final int AFTER_BASE_CHARACTER = 16;
+
+    // Kinds of state
+    private static final int CHARACTERS = 0;
+    private static final int SPLIT = 1;
+    private static final int ASSERTION = 2;
+    private static final int MATCH = 3;
+    // Records the current position in a slot
+    private static final int SAVE = 4;
+    // Goes to next1 if the position has moved on since it was saved in a slot, otherwise to next2
+    private static final int PROGRESS = 5;
+
+    // Kinds of assertion
+    private static final int BEGIN = 0;
+    private static final int MULTILINE_BEGIN = 1;
+    private static final int END = 2;
+    private static final int MULTILINE_END = 3;
+    private static final int WORD_BOUNDARY = 4;
+
+    // Tags saying what a thread may still consume after passing a non-multiline $ before the end of the input
+    private static final int FREE = 0;
+    private static final int LINE_TERMINATOR_ONLY = 1;
+    private static final int LINE_FEED_ONLY = 2;
+    private static final int NOTHING = 3;
+
+    private static final CharacterSet BASIC_MULTILINGUAL_PLANE = CharacterSet.range(0, Character.MIN_SURROGATE - 1)
+            .union(CharacterSet.range(Character.MAX_SURROGATE + 1, Character.MAX_VALUE));
+
+    private final int[] kinds;
+    private final int[] next1;
+    private final int[] next2;
+    // Kind of assertion for ASSERTION states, slot for SAVE and PROGRESS states, or regex for MATCH states
+    private final int[] arguments;
+    private final CharacterSet[] sets;
+    private final int start;
+    private final int regexCount;
+    private final int flagsMask;
+    private final List<CharacterSet> lookaroundSets;
+    private final int groupCount;
+    private final Map<String, Integer> groupNumbers;
+    private final int slotCount;
+    // Slots of the loops each state is inside, outermost first
+    private final int[][] loops;
+    // Where each state's entries start in a Searcher's marks, which have one entry per state and enclosing loop count
+    private final int[] markOffsets;
+    private final int markCount;
+
+    private Nfa(final Compiler compiler, final int start, final int regexCount) {
+        final int count = compiler.count;
+        kinds = Arrays.copyOf(compiler.kinds, count);
+        next1 = Arrays.copyOf(compiler.next1, count);
+        next2 = Arrays.copyOf(compiler.next2, count);
+        arguments = Arrays.copyOf(compiler.arguments, count);
+        sets = Arrays.copyOf(compiler.sets, count);
+        this.start = start;
+        this.regexCount = regexCount;
+        groupCount = compiler.groupNumbers.size();
+        groupNumbers = Collections.unmodifiableMap(compiler.groupNames);
+        slotCount = compiler.slotCount;
+        loops = Arrays.copyOf(compiler.loops, count);
+        markOffsets = new int[count];
+        int marks = 0;
+        for (int state = 0; state < count; state++) {
+            markOffsets[state] = marks;
+            marks += loops[state].length + 1;
+        }
+        markCount = marks;
+
+        int mask = 0;
+        boolean lines = false;
+        boolean words = false;
+        for (int state = 0; state < count; state++) {
+            if (kinds[state] != ASSERTION) {
+                continue;
+            }
+            switch (arguments[state]) {
+                case BEGIN:
+                    mask |= AT_START;
+                    break;
+                case MULTILINE_BEGIN:
+                    mask |= AT_START | AFTER_LINE_TERMINATOR | AFTER_CARRIAGE_RETURN;
+                    lines = true;
+                    break;
+                case WORD_BOUNDARY:
+                    mask |= AFTER_WORD_CHARACTER | AFTER_BASE_CHARACTER;
+                    words = true;
+                    break;
+                default:
+                    mask |= AFTER_CARRIAGE_RETURN;
+                    lines = true;
+                    break;
+            }
+        }
+        flagsMask = mask;
+
+        lookaroundSets = new ArrayList<>();
+        if (lines) {
+            lookaroundSets.add(CharacterSet.LINE_TERMINATORS);
+            lookaroundSets.add(CharacterSet.of('\r'));
+            lookaroundSets.add(CharacterSet.of('\n'));
+        }
+        if (words) {
+            lookaroundSets.add(CharacterSet.boundaryWordCharacters());
+            lookaroundSets.add(CharacterSet.boundaryBaseCharacters());
+            lookaroundSets.add(CharacterSet.nonSpacingMarks());
+        }
+    }
+
+    /**
+     * Compile nodes into an NFA
+     *
+     * @param nodes         Nodes to compile
+     * @param ignoreCase    Whether the regex is case-insensitive
+     * @param multiline     Whether anchors also match at line breaks
+     * @param captureGroups Whether to record the positions of capturing groups, for a {@link Searcher}
+     * @param regexString   The regex rendered from the nodes, for error messages
+     * @return A new {@link Nfa}
+     * @throws RegexBuilderException The nodes contain regex text, a possessive quantifier or an atomic group,
+     *                               without capturing groups contain an anchor in a repeated group which can match the
+     *                               empty string, or would need more than {@link #MAXIMUM_STATES} states
+     */
+    static Nfa compile(final List<RegexNode> nodes,
+                       final boolean ignoreCase,
+                       final boolean multiline,
+                       final boolean captureGroups,
+                       final String regexString) {
+        final Compiler compiler = new Compiler(ignoreCase, multiline, captureGroups, regexString);
+        if (captureGroups) {
+            compiler.numberGroups(nodes);
+        }
+        final int match = compiler.add(MATCH, -1, -1, 0);
+        return new Nfa(compiler, compiler.compileSequence(nodes, match), 1);
+    }
+
+    /**
+     * Compile several regexes into one NFA which runs them all at once. Each regex has its own match state, so a
+     * {@link Stepper} can tell which of them matched.
+     *
+     * @param regexes      Nodes of each regex to compile
+     * @param ignoreCase   Whether the regexes are case-insensitive
+     * @param multiline    Whether anchors also match at line breaks
+     * @param regexStrings The regexes rendered from the nodes, for error messages
+     * @return A new {@link Nfa}
+     * @throws RegexBuilderException A regex contains regex text, a possessive quantifier, an atomic group or an
+     *                               anchor in a repeated group which can match the empty string, or the regexes
+     *                               together would need more than {@link #MAXIMUM_STATES} states
+     */
+    static Nfa compileSet(final List<List<RegexNode>> regexes,
+                          final boolean ignoreCase,
+                          final boolean multiline,
+                          final List<String> regexStrings) {
+        final Compiler compiler = new Compiler(ignoreCase, multiline, false, null);
+        // Alternatives are tried in order, but without capturing groups the order makes no difference. With no regexes,
+        // the automaton can't get past its start.
+        int start = regexes.isEmpty() ? compiler.addCharacters(CharacterSet.EMPTY, -1) : -1;
+        for (int i = regexes.size() - 1; i >= 0; i--) {
+            compiler.regexString = regexStrings.get(i);
+            final int match = compiler.add(MATCH, -1, -1, i);
+            final int regexStart = compiler.compileSequence(regexes.get(i), match);
+            start = (i == regexes.size() - 1) ? regexStart : compiler.add(SPLIT, regexStart, start);
+        }
+        return new Nfa(compiler, start, regexes.size());
+    }
+
+    /**
+     * Test whether input contains any surrogates, which the automaton can't read, so that it can be matched with
+     * {@link java.util.regex.Pattern} instead
+     *
+     * @param input Input to test
+     * @return true if any character is a surrogate
+     */
+    static boolean containsSurrogates(final CharSequence input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (Character.isSurrogate(input.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of regexes compiled together
+     *
+     * @return Number of regexes, which is 1 unless compiled with {@link #compileSet(List, boolean, boolean, List)}
+     */
+    int getRegexCount() {
+        return regexCount;
+    }
+
+    /**
+     * Get the number of capturing groups, not counting the whole match
+     *
+     * @return Number of groups, or 0 if not compiled with capturing groups
+     */
+    int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Get the numbers of the named groups
+     *
+     * @return Unmodifiable map from name to group number
+     */
+    Map<String, Integer> getGroupNumbers() {
+        return groupNumbers;
+    }
+
+    /**
+     * Get the entries for the threads at the start of the input
+     *
+     * @return Sorted thread entries
+     */
+    int[] getInitialThreads() {
+        return new int[]{start << 2};
+    }
+
+    /**
+     * Get the flags for the start of the input
+     *
+     * @return Flags, limited to those the automaton's assertions look at
+     */
+    int getInitialFlags() {
+        return AT_START & flagsMask;
+    }
+
+    /**
+     * Get the flags after reading a character
+     *
+     * @param flags Flags before the character
+     * @param c     Character read
+     * @return Flags, limited to those the automaton's assertions look at
+     */
+    int getNextFlags(final int flags, final int c) {
+        if (flagsMask == 0) {
+            return 0;
+        }
+        int next = 0;
+        if (CharacterSet.LINE_TERMINATORS.contains(c)) {
+            next |= AFTER_LINE_TERMINATOR;
+        }
+        if (c == '\r') {
+            next |= AFTER_CARRIAGE_RETURN;
+        }
+        // A non-spacing mark takes its place in a word from the last other character before it
+        final boolean mark = CharacterSet.nonSpacingMarks().contains(c);
+        final boolean afterBase = (flags & AFTER_BASE_CHARACTER) != 0;
+        if (CharacterSet.boundaryWordCharacters().contains(c) || (mark && afterBase)) {
+            next |= AFTER_WORD_CHARACTER;
+        }
+        if (mark ? afterBase : CharacterSet.boundaryBaseCharacters().contains(c)) {
+            next |= AFTER_BASE_CHARACTER;
+        }
+        return next & flagsMask;
+    }
+
+    /**
+     * Get the flags for a position in some input, looking back as far as necessary
+     *
+     * @param input Input
+     * @param index Position in the input
+     * @return Flags, limited to those the automaton's assertions look at
+     */
+    int getFlagsAt(final CharSequence input, final int index) {
+        int flags = getInitialFlags();
+        if (index == 0 || flagsMask == 0) {
+            return flags;
+        }
+        // Flags after any character other than a non-spacing mark don't depend on the characters before it
+        int from = index - 1;
+        while (from > 0 && CharacterSet.nonSpacingMarks().contains(input.charAt(from))) {
+            from--;
+        }
+        for (int i = from; i < index; i++) {
+            flags = getNextFlags(flags, input.charAt(i));
+        }
+        return flags;
+    }
+
+    /**
+     * Get every set of characters that affects how the automaton steps: those matched by its states, and those its
+     * assertions look at. Characters which are in the same sets as each other always step the same way.
+     *
+     * @return Sets of characters, each limited to the Basic Multilingual Plane
+     */
+    List<CharacterSet> getCharacterSets() {
+        final List<CharacterSet> result = new ArrayList<>(lookaroundSets);
+        for (int state = 0; state < kinds.length; state++) {
+            if (kinds[state] == CHARACTERS) {
+                result.add(sets[state]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create scratch space for simulating the automaton
+     *
+     * @return A new {@link Stepper}, which is not thread-safe
+     */
+    Stepper newStepper() {
+        return new Stepper();
+    }
+
+    /**
+     * Create scratch space for finding matches and their capturing groups
+     *
+     * @return A new {@link Searcher}, which is not thread-safe
+     */
+    Searcher newSearcher() {
+        return new Searcher();
+    }
+
+    /**
+     * Scratch space for advancing a set of threads over one character
+     */
+    final class Stepper {
+        private final int[] marks = new int[kinds.length << 2];
+        private int generation;
+        private int[] stack = new int[64];
+        private int[] output = new int[64];
+        private int outputSize;
+
+        /**
+         * Follow epsilon transitions from a set of threads, then advance them over a character
+         *
+         * @param threads    Sorted thread entries
+         * @param flags      Flags describing the character before the current position
+         * @param c          Character at the current position, or {@link #END_OF_INPUT}
+         * @param unanchored Whether to start a new thread at the next position, to find a match anywhere
+         * @return true if a thread reached a match at the current position, before reading the character
+         */
+        boolean step(final int[] threads, final int flags, final int c, final boolean unanchored) {
+            return step(threads, flags, c, unanchored, null);
+        }
+
+        /**
+         * Follow epsilon transitions from a set of threads, then advance them over a character, noting which regexes
+         * matched
+         *
+         * @param threads    Sorted thread entries
+         * @param flags      Flags describing the character before the current position
+         * @param c          Character at the current position, or {@link #END_OF_INPUT}
+         * @param unanchored Whether to start a new thread at the next position, to find a match anywhere
+         * @param matched    Set to add the index of each regex which reached a match to, or null
+         * @return true if a thread reached a match at the current position, before reading the character
+         */
+        boolean step(final int[] threads,
+                     final int flags,
+                     final int c,
+                     final boolean unanchored,
+                     final BitSet matched) {
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+            outputSize = 0;
+            boolean anyMatched = false;
+            int stackSize = 0;
+            for (int i = threads.length - 1; i >= 0; i--) {
+                stack = push(stack, stackSize++, threads[i]);
+            }
+
+            while (stackSize > 0) {
+                final int thread = stack[--stackSize];
+                if (marks[thread] == generation) {
+                    continue;
+                }
+                marks[thread] = generation;
+                final int state = thread >>> 2;
+                final int tag = thread & 3;
+                switch (kinds[state]) {
+                    case MATCH:
+                        if (tag == FREE || c == END_OF_INPUT) {
+                            anyMatched = true;
+                            if (matched != null) {
+                                matched.set(arguments[state]);
+                            }
+                        } else if (unanchored) {
+                            // Passed a $ before the end, so the match only counts once the rest of the input turns
+                            // out to be the final line terminator. A match for matches() has to reach the end itself.
+                            final int consumedTag = consume(tag, c);
+                            if (consumedTag >= 0) {
+                                output = push(output, outputSize++, state << 2 | consumedTag);
+                            }
+                        }
+                        break;
+                    case SPLIT:
+                    case SAVE:
+                    case PROGRESS:
+                        // Slots only matter to a Searcher, so a progress check can go either way
+                        if (next2[state] >= 0) {
+                            stack = push(stack, stackSize++, next2[state] << 2 | tag);
+                        }
+                        stack = push(stack, stackSize++, next1[state] << 2 | tag);
+                        break;
+                    case ASSERTION:
+                        final int nextTag = check(arguments[state], tag, flags, c);
+                        if (nextTag >= 0) {
+                            stack = push(stack, stackSize++, next1[state] << 2 | nextTag);
+                        }
+                        break;
+                    default:
+                        if (c != END_OF_INPUT && sets[state].contains(c)) {
+                            final int consumedTag = consume(tag, c);
+                            if (consumedTag >= 0) {
+                                output = push(output, outputSize++, next1[state] << 2 | consumedTag);
+                            }
+                        }
+                        break;
+                }
+            }
+
+            if (unanchored && c != END_OF_INPUT) {
+                output = push(output, outputSize++, start << 2);
+            }
+            return anyMatched;
+        }
+
+        /**
+         * Get the threads left by the last call to {@link #step(int[], int, int, boolean)}
+         *
+         * @return Sorted thread entries, without duplicates or threads made redundant by a less restricted thread
+         * in the same state
+         */
+        int[] getThreads() {
+            Arrays.sort(output, 0, outputSize);
+            int count = 0;
+            for (int i = 0; i < outputSize; i++) {
+                final int thread = output[i];
+                if (count == 0 || (output[count - 1] >>> 2) != (thread >>> 2)) {
+                    output[count++] = thread;
+                }
+            }
+            return Arrays.copyOf(output, count);
+        }
+    }
+
+    /**
+     * Scratch space for finding a match and the positions of its capturing groups, by simulating the automaton as a
+     * Pike VM. Threads are kept in the order a backtracking matcher would try them, each with its own slots, and a
+     * thread reaching a state which an earlier thread has already reached at the same position is dropped. The first
+     * match found is therefore the one {@link java.util.regex.Matcher} would find, in time proportional to the length
+     * of the input times the number of states.
+     * <p>
+     * Since the whole input is available, a non-multiline {@code $} before the end simply looks ahead to check that
+     * only a final line terminator follows, and threads don't need tags.
+     */
+    final class Searcher {
+        private final int[] followed = new int[markCount];
+        private final int[] queued = new int[kinds.length];
+        private int generation;
+        private int[] stack = new int[64];
+        private final int[] working = new int[slotCount];
+        private final int[] matchSlots = new int[slotCount];
+        private ThreadList current = new ThreadList();
+        private ThreadList next = new ThreadList();
+
+        /**
+         * Search for a match
+         *
+         * @param input    Input to search, which must not contain surrogates
+         * @param from     Position to start searching from
+         * @param anchored Whether the match must start at {@code from}
+         * @param toEnd    Whether the match must end at the end of the input
+         * @param groups   Array to receive the start and end of the match and of each group, or -1 for groups which
+         *                 took no part in the match; only written to if a match is found. May be null.
+         * @return true if a match was found
+         */
+        boolean search(final CharSequence input,
+                       final int from,
+                       final boolean anchored,
+                       final boolean toEnd,
+                       final int[] groups) {
+            final int length = input.length();
+            boolean matched = false;
+            int flags = getFlagsAt(input, from);
+            current.size = 0;
+            for (int position = from; ; position++) {
+                if (!matched && (position == from || !anchored)) {
+                    // A match starting here is tried after every match starting earlier
+                    Arrays.fill(working, -1);
+                    working[0] = position;
+                    current.add(start, working, slotCount);
+                }
+                if (current.size == 0) {
+                    break;
+                }
+                final int c = (position < length) ? input.charAt(position) : END_OF_INPUT;
+                if (step(input, position, flags, c, toEnd)) {
+                    matched = true;
+                }
+                if (c == END_OF_INPUT) {
+                    break;
+                }
+                final ThreadList swap = current;
+                current = next;
+                next = swap;
+                flags = getNextFlags(flags, c);
+            }
+            if (matched && groups != null) {
+                System.arraycopy(matchSlots, 0, groups, 0, 2 * (groupCount + 1));
+            }
+            return matched;
+        }
+
+        /**
+         * Follow the current threads in order over one character into the next list
+         *
+         * @return true if a thread matched, in which case the threads after it have been dropped
+         */
+        private boolean step(final CharSequence input,
+                             final int position,
+                             final int flags,
+                             final int c,
+                             final boolean toEnd) {
+            if (++generation == 0) {
+                Arrays.fill(followed, 0);
+                Arrays.fill(queued, 0);
+                generation = 1;
+            }
+            next.size = 0;
+            for (int i = 0; i < current.size; i++) {
+                System.arraycopy(current.slots, i * slotCount, working, 0, slotCount);
+                if (follow(current.states[i], input, position, flags, c, toEnd)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Follow epsilon transitions from one thread depth first, in order of preference, adding the threads which
+         * consume the character to the next list. Changes to slots are undone as the search backs out of them.
+         * <p>
+         * A backtracking matcher goes round a loop again at the same position if the last iteration wasn't empty, and
+         * the new iteration can revisit states that the path leading into it has already been through here. Whether a
+         * state's future differs depends on which of the loops it is inside began their current iteration at this
+         * position; iterations of inner loops never begin before those of outer loops, so counting the loops which
+         * began earlier is enough to tell the visits apart.
+         *
+         * @return true if the thread matched
+         */
+        private boolean follow(final int thread,
+                               final CharSequence input,
+                               final int position,
+                               final int flags,
+                               final int c,
+                               final boolean toEnd) {
+            int stackSize = 0;
+            stack = push(stack, stackSize++, thread);
+            while (stackSize > 0) {
+                final int state = stack[--stackSize];
+                if (state < 0) {
+                    // Restore a slot
+                    working[-1 - state] = stack[--stackSize];
+                    continue;
+                }
+                final int[] enclosing = loops[state];
+                int earlier = 0;
+                while (earlier < enclosing.length && working[enclosing[earlier]] < position) {
+                    earlier++;
+                }
+                final int mark = markOffsets[state] + earlier;
+                if (followed[mark] == generation) {
+                    continue;
+                }
+                followed[mark] = generation;
+                switch (kinds[state]) {
+                    case MATCH:
+                        if (!toEnd || c == END_OF_INPUT) {
+                            System.arraycopy(working, 0, matchSlots, 0, slotCount);
+                            matchSlots[1] = position;
+                            return true;
+                        }
+                        break;
+                    case SPLIT:
+                        if (next2[state] >= 0) {
+                            stack = push(stack, stackSize++, next2[state]);
+                        }
+                        stack = push(stack, stackSize++, next1[state]);
+                        break;
+                    case SAVE:
+                        final int slot = arguments[state];
+                        stack = push(stack, stackSize++, working[slot]);
+                        stack = push(stack, stackSize++, -1 - slot);
+                        working[slot] = position;
+                        stack = push(stack, stackSize++, next1[state]);
+                        break;
+                    case PROGRESS:
+                        stack = push(stack, stackSize++,
+                                (position > working[arguments[state]]) ? next1[state] : next2[state]);
+                        break;
+                    case ASSERTION:
+                        final int tag = check(arguments[state], FREE, flags, c);
+                        if (tag == FREE || (tag > FREE && isBeforeFinalLineTerminator(input, position))) {
+                            stack = push(stack, stackSize++, next1[state]);
+                        }
+                        break;
+                    default:
+                        if (c != END_OF_INPUT && sets[state].contains(c) && queued[next1[state]] != generation) {
+                            queued[next1[state]] = generation;
+                            next.add(next1[state], working, slotCount);
+                        }
+                        break;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * States of the threads at one position, in order of preference, and their slots
+     */
+    private static final class ThreadList {
+        private int[] states = new int[16];
+        private int[] slots = new int[0];
+        private int size;
+
+        void add(final int state, final int[] threadSlots, final int slotCount) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+            }
+            if ((size + 1) * slotCount > slots.length) {
+                slots = Arrays.copyOf(slots, states.length * slotCount);
+            }
+            states[size] = state;
+            System.arraycopy(threadSlots, 0, slots, size * slotCount, slotCount);
+            size++;
+        }
+    }
+
+    private static int[] push(final int[] array, final int index, final int value) {
+        final int[] result = (index < array.length) ? array : Arrays.copyOf(array, array.length * 2);
+        result[index] = value;
+        return result;
+    }
+
+    /**
+     * Check an assertion, in the same way as {@link java.util.regex.Pattern}
+     *
+     * @return The thread's tag after passing the assertion, or -1 if it fails
+     */
+    private static int check(final int assertion, final int tag, final int flags, final int c) {
+        final boolean atEnd = c == END_OF_INPUT;
+        // $ never matches between \r and \n
+        final boolean beforeLineTerminator = !atEnd
+                && CharacterSet.LINE_TERMINATORS.contains(c)
+                && !(c == '\n' && (flags & AFTER_CARRIAGE_RETURN) != 0);
+        switch (assertion) {
+            case BEGIN:
+                return ((flags & AT_START) != 0) ? tag : -1;
+            case MULTILINE_BEGIN:
+                // ^ never matches at the end of the input, even after a line terminator, nor between \r and \n
+                return (!atEnd && ((flags & AT_START) != 0
+                        || ((flags & AFTER_LINE_TERMINATOR) != 0
+                        && !((flags & AFTER_CARRIAGE_RETURN) != 0 && c == '\n')))) ? tag : -1;
+            case MULTILINE_END:
+                return (atEnd || beforeLineTerminator) ? tag : -1;
+            case END:
+                // Before the end, only a final line terminator may follow
+                if (atEnd) {
+                    return tag;
+                }
+                return beforeLineTerminator ? Math.max(tag, LINE_TERMINATOR_ONLY) : -1;
+            default:
+                final boolean before = (flags & AFTER_WORD_CHARACTER) != 0;
+                final boolean after = !atEnd && (CharacterSet.boundaryWordCharacters().contains(c)
+                        || (CharacterSet.nonSpacingMarks().contains(c) && (flags & AFTER_BASE_CHARACTER) != 0));
+                return (before != after) ? tag : -1;
+        }
+    }
+
+    /**
+     * Test whether the rest of the input is a final line terminator, which a non-multiline {@code $} can match before.
+     * The character at the position is already known to be a line terminator.
+     */
+    private static boolean isBeforeFinalLineTerminator(final CharSequence input, final int position) {
+        final int remaining = input.length() - position;
+        return remaining == 1
+                || (remaining == 2 && input.charAt(position) == '\r' && input.charAt(position + 1) == '\n');
+    }
+
+    /**
+     * Consume a character on a tagged thread
+     *
+     * @return The thread's tag after consuming the character, or -1 if it may not consume it
+     */
+    private static int consume(final int tag, final int c) {
+        switch (tag) {
+            case FREE:
+                return FREE;
+            case LINE_TERMINATOR_ONLY:
+                // The assertion has already checked that the character is a line terminator
+                return (c == '\r') ? LINE_FEED_ONLY : NOTHING;
+            case LINE_FEED_ONLY:
+                return (c == '\n') ? NOTHING : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Builds the states of an NFA backwards from its match state, so each node is compiled knowing which state
+     * follows it
+     */
+    private static final class Compiler {
+        private final boolean ignoreCase;
+        private final boolean multiline;
+        private final boolean captureGroups;
+        private String regexString;
+        private final Map<RegexNode.Group, Integer> groupNumbers = new IdentityHashMap<>();
+        private final Map<String, Integer> groupNames = new LinkedHashMap<>();
+        // Slots 0 and 1 hold the start and end of the whole match
+        private int slotCount = 2;
+        private int count;
+        private int[] kinds = new int[64];
+        private int[] next1 = new int[64];
+        private int[] next2 = new int[64];
+        private int[] arguments = new int[64];
+        private CharacterSet[] sets = new CharacterSet[64];
+        private int[][] loops = new int[64][];
+        // Slots of the loops whose iterations are being compiled, outermost first
+        private int[] currentLoops = new int[0];
+
+        Compiler(final boolean ignoreCase,
+                 final boolean multiline,
+                 final boolean captureGroups,
+                 final String regexString) {
+            this.ignoreCase = ignoreCase;
+            this.multiline = multiline;
+            this.captureGroups = captureGroups;
+            this.regexString = regexString;
+        }
+
+        /**
+         * Number the capturing groups in the order they open, as {@link java.util.regex.Pattern} does, and give each
+         * group two slots. This has to happen before compiling, which works backwards.
+         */
+        void numberGroups(final List<RegexNode> nodes) {
+            for (final RegexNode node : nodes) {
+                if (!(node instanceof RegexNode.Group)) {
+                    continue;
+                }
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (group.getType() == RegexNode.GroupType.CAPTURING || group.getType() == RegexNode.GroupType.NAMED) {
+                    final int number = groupNumbers.size() + 1;
+                    groupNumbers.put(group, number);
+                    if (group.getName() != null) {
+                        groupNames.put(group.getName(), number);
+                    }
+                    slotCount += 2;
+                }
+                numberGroups(group.getChildren());
+            }
+        }
+
+        int compileSequence(final List<RegexNode> nodes, final int next) {
+            int state = next;
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                state = compileNode(nodes.get(i), state);
+            }
+            return state;
+        }
+
+        private int compileNode(final RegexNode node, final int next) {
+            final RegexQuantifier quantifier = node.getQuantifier();
+            if (quantifier == null) {
+                return compileOnce(node, next);
+            }
+            if (quantifier.getMode() == RegexQuantifier.Mode.POSSESSIVE) {
+                throw unsupported("the possessive quantifier " + quantifier);
+            }
+            if (quantifier.getMaximum() == 0) {
+                // Nothing is compiled, but Pattern still counts any groups in regex text, so reject what couldn't be
+                checkSupported(node);
+                return next;
+            }
+
+            // Each optional iteration is a split whose first choice is preferred. Pattern compiles ? and {0,1} as a
+            // choice between two alternatives, and other quantifiers as counted repeats or loops.
+            final boolean lazy = quantifier.getMode() == RegexQuantifier.Mode.LAZY;
+            final int minimum = quantifier.getMinimum();
+            int maximum = quantifier.getMaximum();
+            final boolean alternatives = minimum == 0 && maximum == 1;
+            int slot = -1;
+            if (!alternatives && isZeroWidth(node) && !canVaryInLength(node)) {
+                // Pattern stops repeating an element as soon as it matches the empty string, leaving any groups in
+                // it as they were, so optional iterations of an element which always does make no difference
+                if (captureGroups && minimum == 0 && maximum != 0 && node instanceof RegexNode.Group
+                        && ((RegexNode.Group) node).getType() != RegexNode.GroupType.ATOMIC) {
+                    // With no iterations required, Pattern still tries one, keeping the groups inside the element
+                    // but not recording the element itself if it's a group
+                    final int body = compileSequence(((RegexNode.Group) node).getChildren(), next);
+                    return lazy ? add(SPLIT, next, body) : add(SPLIT, body, next);
+                }
+                maximum = minimum;
+            } else if (!alternatives && canMatchEmpty(node) && isLoop(node)) {
+                // Pattern ends a loop whose body can vary in length as soon as an iteration matches the empty string,
+                // keeping the groups from that iteration, so each iteration checks whether it did. Without slots that
+                // only matters if an anchor lets an empty iteration match at one position but not at another.
+                if (captureGroups) {
+                    slot = slotCount++;
+                } else if (containsAnchor(node)) {
+                    throw unsupported("an anchor in a repeated group which can match the empty string");
+                }
+            }
+
+            int state = next;
+            if (maximum == RegexQuantifier.UNBOUNDED) {
+                final int loop = add(SPLIT, -1, -1);
+                // Compile the body before indexing into the arrays, which compiling it may reallocate
+                final int body = compileIteration(node, loop, next, slot);
+                next1[loop] = lazy ? next : body;
+                next2[loop] = lazy ? body : next;
+                state = loop;
+            } else {
+                for (int i = minimum; i < maximum; i++) {
+                    final int body = compileIteration(node, state, next, slot);
+                    state = lazy ? add(SPLIT, next, body) : add(SPLIT, body, next);
+                }
+            }
+            for (int i = 0; i < minimum; i++) {
+                state = compileIteration(node, state, next, slot);
+            }
+            return state;
+        }
+
+        /**
+         * Compile one iteration of a quantified node, followed by the next iteration. If the iteration has a slot,
+         * it records where it started and goes to {@code exit} instead if it matched the empty string.
+         */
+        private int compileIteration(final RegexNode node, final int following, final int exit, final int slot) {
+            if (slot < 0) {
+                return compileOnce(node, following);
+            }
+            final int[] outerLoops = currentLoops;
+            currentLoops = Arrays.copyOf(outerLoops, outerLoops.length + 1);
+            currentLoops[outerLoops.length] = slot;
+            final int check = add(PROGRESS, following, exit, slot);
+            final int body = compileOnce(node, check);
+            currentLoops = outerLoops;
+            return add(SAVE, body, -1, slot);
+        }
+
+        private int compileOnce(final RegexNode node, final int next) {
+            if (node instanceof RegexNode.Literal) {
+                return compileText(((RegexNode.Literal) node).getText(), next);
+            }
+            if (node instanceof RegexNode.CharacterClass) {
+                final RegexNode.CharacterClass characterClass = (RegexNode.CharacterClass) node;
+                final CharacterSet set = CharacterSet.forClass(characterClass.getType(),
+                        characterClass.getCharacters(), ignoreCase);
+                if (set == null) {
+                    throw unsupported("a character class containing \\, [ or &");
+                }
+                return addCharacters(set, next);
+            }
+            if (node instanceof RegexNode.Alternation) {
+                return compileAlternatives(((RegexNode.Alternation) node).getStrings(), next);
+            }
+            if (node instanceof RegexNode.Anchor) {
+                return add(ASSERTION, next, -1, assertion(((RegexNode.Anchor) node).getType()));
+            }
+            if (node instanceof RegexNode.Group) {
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (group.getType() == RegexNode.GroupType.ATOMIC) {
+                    throw unsupported("an atomic group");
+                }
+                final Integer number = groupNumbers.get(group);
+                if (number == null) {
+                    return compileSequence(group.getChildren(), next);
+                }
+                final int end = add(SAVE, next, -1, 2 * number + 1);
+                return add(SAVE, compileSequence(group.getChildren(), end), -1, 2 * number);
+            }
+            throw unsupported("the regex text " + ((RegexNode.Raw) node).getRegex());
+        }
+
+        /**
+         * Reject a node which {@link #compileOnce(RegexNode, int)} would reject, without compiling it
+         */
+        private void checkSupported(final RegexNode node) {
+            final RegexQuantifier quantifier = node.getQuantifier();
+            if (quantifier != null && quantifier.getMode() == RegexQuantifier.Mode.POSSESSIVE) {
+                throw unsupported("the possessive quantifier " + quantifier);
+            }
+            if (node instanceof RegexNode.CharacterClass) {
+                final RegexNode.CharacterClass characterClass = (RegexNode.CharacterClass) node;
+                if (CharacterSet.forClass(characterClass.getType(), characterClass.getCharacters(),
+                        ignoreCase) == null) {
+                    throw unsupported("a character class containing \\, [ or &");
+                }
+            } else if (node instanceof RegexNode.Group) {
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (group.getType() == RegexNode.GroupType.ATOMIC) {
+                    throw unsupported("an atomic group");
+                }
+                for (final RegexNode child : group.getChildren()) {
+                    checkSupported(child);
+                }
+            } else if (node instanceof RegexNode.Raw) {
+                throw unsupported("the regex text " + ((RegexNode.Raw) node).getRegex());
+            }
+        }
+
+        private int compileText(final String text, final int next) {
+            int state = next;
+            for (int i = text.length() - 1; i >= 0; i--) {
+                state = addCharacters(caseless(CharacterSet.of(text.charAt(i))), state);
+            }
+            return state;
+        }
+
+        /**
+         * Compile alternatives as a trie, so alternatives with common prefixes share states. A trie loses the order of
+         * the alternatives, so when recording slots they are compiled as a chain of splits instead.
+         */
+        private int compileAlternatives(final List<String> strings, final int next) {
+            if (captureGroups) {
+                int state = compileText(strings.get(strings.size() - 1), next);
+                for (int i = strings.size() - 2; i >= 0; i--) {
+                    state = add(SPLIT, compileText(strings.get(i), next), state);
+                }
+                return state;
+            }
+            final TrieNode root = new TrieNode();
+            for (final String string : strings) {
+                TrieNode trieNode = root;
+                for (int i = 0; i < string.length(); i++) {
+                    final char c = string.charAt(i);
+                    trieNode = trieNode.children.computeIfAbsent(ignoreCase ? foldAscii(c) : c, k -> new TrieNode());
+                }
+                trieNode.terminal = true;
+            }
+            return compileTrie(root, next);
+        }
+
+        private int compileTrie(final TrieNode trieNode, final int next) {
+            int state = -1;
+            for (final Map.Entry<Character, TrieNode> child : trieNode.children.entrySet()) {
+                final int branch = addCharacters(caseless(CharacterSet.of(child.getKey())),
+                        compileTrie(child.getValue(), next));
+                state = (state < 0) ? branch : add(SPLIT, branch, state);
+            }
+            if (trieNode.terminal) {
+                state = (state < 0) ? next : add(SPLIT, state, next);
+            }
+            return state;
+        }
+
+        private int addCharacters(final CharacterSet set, final int next) {
+            final int state = add(CHARACTERS, next, -1);
+            sets[state] = set.intersect(BASIC_MULTILINGUAL_PLANE);
+            return state;
+        }
+
+        private CharacterSet caseless(final CharacterSet set) {
+            return ignoreCase ? set.withAsciiCase() : set;
+        }
+
+        private int assertion(final RegexNode.AnchorType type) {
+            switch (type) {
+                case START_OF_STRING:
+                    return multiline ? MULTILINE_BEGIN : BEGIN;
+                case END_OF_STRING:
+                    return multiline ? MULTILINE_END : END;
+                default:
+                    return WORD_BOUNDARY;
+            }
+        }
+
+        private int add(final int kind, final int next, final int alternative) {
+            return add(kind, next, alternative, -1);
+        }
+
+        private int add(final int kind, final int next, final int alternative, final int argument) {
+            if (count == MAXIMUM_STATES) {
+                throw new RegexBuilderException("Regex is too large to match in linear time", regexString);
+            }
+            if (count == kinds.length) {
+                final int capacity = count * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                next1 = Arrays.copyOf(next1, capacity);
+                next2 = Arrays.copyOf(next2, capacity);
+                arguments = Arrays.copyOf(arguments, capacity);
+                sets = Arrays.copyOf(sets, capacity);
+                loops = Arrays.copyOf(loops, capacity);
+            }
+            kinds[count] = kind;
+            next1[count] = next;
+            next2[count] = alternative;
+            arguments[count] = argument;
+            loops[count] = currentLoops;
+            return count++;
+        }
+
+        private RegexBuilderException unsupported(final String construct) {
+            return new RegexBuilderException("Cannot match " + construct + " in linear time", regexString);
+        }
+
+        /**
+         * Test whether Pattern repeats a node with a loop that checks each iteration, rather than by counting matches
+         * of a body which always has the same length
+         */
+        private static boolean isLoop(final RegexNode node) {
+            return (node instanceof RegexNode.Group || node instanceof RegexNode.Alternation) && canVaryInLength(node);
+        }
+
+        /**
+         * Test whether the strings a node matches, ignoring its quantifier, can have different lengths
+         */
+        private static boolean canVaryInLength(final RegexNode node) {
+            if (node instanceof RegexNode.Alternation) {
+                return ((RegexNode.Alternation) node).getStrings().size() > 1;
+            }
+            if (node instanceof RegexNode.Group) {
+                for (final RegexNode child : ((RegexNode.Group) node).getChildren()) {
+                    final RegexQuantifier quantifier = child.getQuantifier();
+                    if ((quantifier != null && quantifier.getMinimum() != quantifier.getMaximum())
+                            || canVaryInLength(child)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Test whether a node, ignoring its quantifier, only ever matches the empty string
+         */
+        private static boolean isZeroWidth(final RegexNode node) {
+            if (node instanceof RegexNode.Literal) {
+                return ((RegexNode.Literal) node).getText().isEmpty();
+            }
+            if (node instanceof RegexNode.Alternation) {
+                for (final String string : ((RegexNode.Alternation) node).getStrings()) {
+                    if (!string.isEmpty()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (node instanceof RegexNode.Group) {
+                for (final RegexNode child : ((RegexNode.Group) node).getChildren()) {
+                    final RegexQuantifier quantifier = child.getQuantifier();
+                    if ((quantifier == null || quantifier.getMaximum() != 0) && !isZeroWidth(child)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return node instanceof RegexNode.Anchor;
+        }
+
+        /**
+         * Test whether a node is an anchor or a group containing one
+         */
+        private static boolean containsAnchor(final RegexNode node) {
+            if (node instanceof RegexNode.Group) {
+                for (final RegexNode child : ((RegexNode.Group) node).getChildren()) {
+                    if (containsAnchor(child)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return node instanceof RegexNode.Anchor;
+        }
+
+        /**
+         * Test whether a node, ignoring its quantifier, can match the empty string
+         */
+        private static boolean canMatchEmpty(final RegexNode node) {
+            if (node instanceof RegexNode.Literal) {
+                return ((RegexNode.Literal) node).getText().isEmpty();
+            }
+            if (node instanceof RegexNode.Alternation) {
+                return ((RegexNode.Alternation) node).getStrings().contains("");
+            }
+            if (node instanceof RegexNode.Group) {
+                for (final RegexNode child : ((RegexNode.Group) node).getChildren()) {
+                    final RegexQuantifier quantifier = child.getQuantifier();
+                    if ((quantifier == null || quantifier.getMinimum() > 0) && !canMatchEmpty(child)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return node instanceof RegexNode.Anchor;
+        }
+
+        private static char foldAscii(final char c) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new TreeMap<>();
+        private boolean terminal;
+    }
+}
@@ -0,0 +1,132 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link RegexCaptureMatcher} which simulates an {@link Nfa} with a Pike VM, finding the same match and groups as
+ * {@link Matcher} would in time proportional to the length of the input times the size of the regex. Each thread
+ * reuses its own scratch space, so matching allocates nothing.
+ * <p>
+ * Input containing surrogate pairs is matched with the compiled {@link Pattern}, since the automaton only reads
+ * characters in the Basic Multilingual Plane.
+ */
+final class NfaMatcher implements RegexCaptureMatcher {
+    private final Nfa nfa;
+    private final Pattern pattern;
+    private final int minimumLength;
+    private final int maximumLength;
+    private final ThreadLocal<Nfa.Searcher> searchers;
+
+    /**
+     * @param nfa           Compiled regex
+     * @param pattern       The same regex compiled by {@link Pattern}, for input the automaton can't read
+     * @param minimumLength Length of the shortest match
+     * @param maximumLength Length of the longest match, or {@link RegexLengthAnalyzer#UNBOUNDED}
+     */
+    NfaMatcher(final Nfa nfa, final Pattern pattern, final int minimumLength, final int maximumLength) {
+        this.nfa = nfa;
+        this.pattern = pattern;
+        this.minimumLength = minimumLength;
+        this.maximumLength = maximumLength;
+        searchers = ThreadLocal.withInitial(nfa::newSearcher);
+    }
+
+    @Override
+    public int getGroupCount() {
+        return nfa.getGroupCount();
+    }
+
+    @Override
+    public int getGroupNumber(final String name) {
+        final Integer number = nfa.getGroupNumbers().get(name);
+        if (number == null) {
+            throw new IllegalArgumentException("No group named " + name);
+        }
+        return number;
+    }
+
+    @Override
+    public boolean matches(final CharSequence input) {
+        return search(input, 0, true, null);
+    }
+
+    @Override
+    public boolean find(final CharSequence input) {
+        return search(input, 0, false, null);
+    }
+
+    @Override
+    public boolean lookingAt(final CharSequence input) {
+        if (input.length() < minimumLength) {
+            return false;
+        }
+        if (Nfa.containsSurrogates(input)) {
+            return pattern.matcher(input).lookingAt();
+        }
+        return searchers.get().search(input, 0, true, false, null);
+    }
+
+    @Override
+    public boolean matches(final CharSequence input, final int[] groups) {
+        return search(input, 0, true, checkGroups(groups));
+    }
+
+    @Override
+    public boolean find(final CharSequence input, final int from, final int[] groups) {
+        if (from < 0 || from > input.length()) {
+            throw new IndexOutOfBoundsException("Illegal start index");
+        }
+        return search(input, from, false, checkGroups(groups));
+    }
+
+    @Override
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    @Override
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+    @Override
+    public String toString() {
+        return pattern.toString();
+    }
+
+    private boolean search(final CharSequence input, final int from, final boolean entire, final int[] groups) {
+        if (entire
+                ? !RegexLengthAnalyzer.canMatchWhole(input, minimumLength, maximumLength)
+                : input.length() - from < minimumLength) {
+            return false;
+        }
+        if (Nfa.containsSurrogates(input)) {
+            return searchWithPattern(input, from, entire, groups);
+        }
+        return searchers.get().search(input, from, entire, entire, groups);
+    }
+
+    private boolean searchWithPattern(final CharSequence input,
+                                      final int from,
+                                      final boolean entire,
+                                      final int[] groups) {
+        final Matcher matcher = pattern.matcher(input);
+        final boolean found = entire ? matcher.matches() : matcher.find(from);
+        if (found && groups != null) {
+            for (int group = 0; group <= matcher.groupCount(); group++) {
+                groups[2 * group] = matcher.start(group);
+                groups[2 * group + 1] = matcher.end(group);
+            }
+        }
+        return found;
+    }
+
+    private int[] checkGroups(final int[] groups) {
+        if (groups.length < 2 * (nfa.getGroupCount() + 1)) {
+            throw new IllegalArgumentException("groups must have at least " + 2 * (nfa.getGroupCount() + 1)
+                    + " elements");
+        }
+        return groups;
+    }
+}
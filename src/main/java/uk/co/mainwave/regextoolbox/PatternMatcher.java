@@ -0,0 +1,145 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link RegexMatcher} backed by a compiled {@link Pattern}. Each thread keeps one {@link Matcher} and resets it for
+ * each input, so matching allocates nothing once the thread has matched its first input.
+ * <p>
+ * If every match contains some literal text, {@link #find(CharSequence)} searches for the text first, rejecting input
+ * which doesn't contain it and starting the regex as close before it as a match could start. If only a few characters
+ * can start a match, it then only tries the regex at positions holding one of them.
+ */
+final class PatternMatcher implements RegexMatcher {
+    private static final String EMPTY = "";
+    // Once more than this many candidates have been tried and more than one position in this many was a candidate,
+    // find tries every position instead
+    private static final int MINIMUM_CANDIDATES = 8;
+    private static final int CANDIDATE_DENSITY = 4;
+
+    private final Pattern pattern;
+    private final int minimumLength;
+    private final int maximumLength;
+    private final RequiredLiteral requiredLiteral;
+    private final FirstCharacters firstCharacters;
+    private final ThreadLocal<Matcher> matchers;
+
+    PatternMatcher(final Pattern pattern) {
+        this(pattern, 0, RegexLengthAnalyzer.UNBOUNDED, null, null);
+    }
+
+    /**
+     * @param pattern         Compiled regex
+     * @param minimumLength   Length of the shortest match
+     * @param maximumLength   Length of the longest match, or {@link RegexLengthAnalyzer#UNBOUNDED}
+     * @param requiredLiteral Literal which every match contains, or null
+     * @param firstCharacters Characters which a match can start with, or null
+     */
+    PatternMatcher(final Pattern pattern,
+                   final int minimumLength,
+                   final int maximumLength,
+                   final RequiredLiteral requiredLiteral,
+                   final FirstCharacters firstCharacters) {
+        this.pattern = pattern;
+        this.minimumLength = minimumLength;
+        this.maximumLength = maximumLength;
+        this.requiredLiteral = requiredLiteral;
+        this.firstCharacters = firstCharacters;
+        // Searching from the middle of the input must still see the text before it for \b and ^. With the region
+        // covering the whole input, as it does after each reset, these settings make no difference.
+        matchers = ThreadLocal.withInitial(() -> pattern.matcher(EMPTY)
+                .useTransparentBounds(true)
+                .useAnchoringBounds(false));
+    }
+
+    @Override
+    public boolean matches(final CharSequence input) {
+        if (!RegexLengthAnalyzer.canMatchWhole(input, minimumLength, maximumLength)) {
+            return false;
+        }
+        final Matcher matcher = matchers.get().reset(input);
+        try {
+            return matcher.matches();
+        } finally {
+            release(matcher);
+        }
+    }
+
+    @Override
+    public boolean find(final CharSequence input) {
+        if (input.length() < minimumLength) {
+            return false;
+        }
+        int start = 0;
+        if (requiredLiteral != null) {
+            final int index = requiredLiteral.indexIn(input);
+            if (index < 0) {
+                return false;
+            }
+            start = requiredLiteral.getSearchStart(index);
+        }
+        final Matcher matcher = matchers.get().reset(input);
+        try {
+            if (firstCharacters == null) {
+                if (start > 0) {
+                    matcher.region(start, input.length());
+                }
+                return matcher.find();
+            }
+            // No match can start anywhere else, so the first candidate that matches is where find would match
+            int tried = 0;
+            for (int candidate = firstCharacters.indexIn(input, start);
+                 candidate >= 0;
+                 candidate = firstCharacters.indexIn(input, candidate + 1)) {
+                matcher.region(candidate, input.length());
+                if (tried > MINIMUM_CANDIDATES && tried * CANDIDATE_DENSITY > candidate - start) {
+                    // Candidates are too close together to gain from skipping, so let the matcher try every position
+                    return matcher.find();
+                }
+                if (matcher.lookingAt()) {
+                    return true;
+                }
+                tried++;
+            }
+            return false;
+        } finally {
+            release(matcher);
+        }
+    }
+
+    @Override
+    public boolean lookingAt(final CharSequence input) {
+        if (input.length() < minimumLength) {
+            return false;
+        }
+        final Matcher matcher = matchers.get().reset(input);
+        try {
+            return matcher.lookingAt();
+        } finally {
+            release(matcher);
+        }
+    }
+
+    @Override
+    public int getMinimumLength() {
+        return minimumLength;
+    }
+
+    @Override
+    public int getMaximumLength() {
+        return maximumLength;
+    }
+
+    @Override
+    public String toString() {
+        return pattern.toString();
+    }
+
+    /**
+     * Stop the thread's matcher referring to the input, so that a large input isn't kept alive between calls
+     */
+    private static void release(final Matcher matcher) {
+        matcher.reset(EMPTY);
+    }
+}
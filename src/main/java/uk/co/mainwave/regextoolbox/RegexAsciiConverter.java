@@ -0,0 +1,66 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a tree of {@link RegexNode}s so that its letter and word character classes only match ASCII letters, for
+ * example {@code \p{L}} becomes {@code \p{Alpha}} and {@code [\p{L}0-9_]} becomes {@code \w}. Used by
+ * {@link RegexBuilder} with {@link RegexOptions#ASCII_ONLY}.
+ * <p>
+ * Nodes which don't change are kept as they are, so that a template can still find its placeholders in the rewritten
+ * tree.
+ */
+final class RegexAsciiConverter implements RegexNode.Visitor<RegexNode> {
+    private static final RegexAsciiConverter INSTANCE = new RegexAsciiConverter();
+
+    private RegexAsciiConverter() {
+    }
+
+    /**
+     * Convert a list of nodes
+     *
+     * @param nodes Nodes to convert
+     * @return Nodes with ASCII character classes
+     */
+    static List<RegexNode> convert(final List<RegexNode> nodes) {
+        final List<RegexNode> converted = new ArrayList<>(nodes.size());
+        for (final RegexNode node : nodes) {
+            converted.add(node.accept(INSTANCE));
+        }
+        return converted;
+    }
+
+    @Override
+    public RegexNode visitLiteral(final RegexNode.Literal node) {
+        return node;
+    }
+
+    @Override
+    public RegexNode visitCharacterClass(final RegexNode.CharacterClass node) {
+        final RegexNode.CharacterClassType type = node.getType().toAscii();
+        return (type == node.getType())
+                ? node
+                : new RegexNode.CharacterClass(type, node.getCharacters(), node.getQuantifier());
+    }
+
+    @Override
+    public RegexNode visitAlternation(final RegexNode.Alternation node) {
+        return node;
+    }
+
+    @Override
+    public RegexNode visitAnchor(final RegexNode.Anchor node) {
+        return node;
+    }
+
+    @Override
+    public RegexNode visitGroup(final RegexNode.Group node) {
+        return new RegexNode.Group(node.getType(), node.getName(), convert(node.getChildren()), node.getQuantifier());
+    }
+
+    @Override
+    public RegexNode visitRaw(final RegexNode.Raw node) {
+        return node;
+    }
+}
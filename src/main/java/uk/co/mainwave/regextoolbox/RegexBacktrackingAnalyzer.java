@@ -0,0 +1,389 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds parts of a tree of {@link RegexNode}s which can make a backtracking regex engine such as
+ * {@link java.util.regex.Pattern} take exponential or polynomial time to fail on input which almost matches:
+ * <ul>
+ * <li>A repeated group containing a repeated element which can match the same characters as the start or end of the
+ * group, such as {@code (?:\w+\s?)+}, so a run of those characters can be split between repeats of the group in
+ * exponentially many ways</li>
+ * <li>A repeated list of alternatives where some alternatives can be made by joining others, such as
+ * {@code (?:a|aa)+}</li>
+ * <li>Adjacent unbounded repeats which can match the same characters, such as {@code \d+,?\d+}, so a run of those
+ * characters can be split between them in polynomially many ways</li>
+ * </ul>
+ * Possessive quantifiers and atomic groups never backtrack, so they're not reported. Regex text added with
+ * {@link RegexBuilder#regexText(String)} isn't analyzed.
+ */
+final class RegexBacktrackingAnalyzer {
+    private static final int MAXIMUM_ALTERNATIVES = 10000;
+    private static final Info EMPTY = new Info(true, CharacterSet.EMPTY, CharacterSet.EMPTY, CharacterSet.EMPTY);
+    private static final Info OPAQUE = new Info(false, CharacterSet.EMPTY, CharacterSet.EMPTY, CharacterSet.EMPTY);
+
+    private final boolean ignoreCase;
+    private final String regexString;
+    private final Map<RegexNode, int[]> positions = new IdentityHashMap<>();
+    private final Map<RegexNode, Info> infos = new IdentityHashMap<>();
+    private final List<RegexBacktrackingRisk> risks = new ArrayList<>();
+
+    private RegexBacktrackingAnalyzer(final List<RegexNode> nodes, final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        regexString = RegexRenderer.render(nodes, positions);
+    }
+
+    /**
+     * Find backtracking risks in a list of nodes
+     *
+     * @param nodes      Nodes to analyze
+     * @param ignoreCase Whether the regex is case-insensitive
+     * @return Risks found, in order of their positions in the regex string rendered from the nodes
+     */
+    static List<RegexBacktrackingRisk> analyze(final List<RegexNode> nodes, final boolean ignoreCase) {
+        final RegexBacktrackingAnalyzer analyzer = new RegexBacktrackingAnalyzer(nodes, ignoreCase);
+        analyzer.analyzeSequence(nodes);
+        analyzer.risks.sort(Comparator.comparingInt(RegexBacktrackingRisk::getStart));
+        return analyzer.risks;
+    }
+
+    private void analyzeSequence(final List<RegexNode> nodes) {
+        final List<RegexNode> sequence = flatten(nodes);
+        checkAdjacentRepeats(sequence);
+        for (final RegexNode node : sequence) {
+            if (node instanceof RegexNode.Group) {
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (isBacktrackingRepeat(group) && group.getType() != RegexNode.GroupType.ATOMIC) {
+                    checkRepeatedGroup(group);
+                }
+                analyzeSequence(group.getChildren());
+            } else if (node instanceof RegexNode.Alternation && isBacktrackingRepeat(node)) {
+                checkRepeatedAlternatives(node, ((RegexNode.Alternation) node).getStrings());
+            }
+        }
+    }
+
+    private void checkAdjacentRepeats(final List<RegexNode> sequence) {
+        for (int i = 0; i < sequence.size(); i++) {
+            final RegexNode first = sequence.get(i);
+            if (!isUnbounded(first) || !isBacktrackingRepeat(first)) {
+                continue;
+            }
+            for (int j = i + 1; j < sequence.size(); j++) {
+                final RegexNode second = sequence.get(j);
+                if (isUnbounded(second) && info(first).chars.intersects(info(second).chars)) {
+                    addRisk(RegexBacktrackingRisk.Severity.POLYNOMIAL,
+                            quote(first) + " and " + quote(second) + " can match the same characters, so input which"
+                                    + " almost matches can be split between them in polynomially many ways",
+                            positions.get(first)[0], positions.get(second)[1]);
+                    break;
+                }
+                if (!info(second).nullable) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void checkRepeatedGroup(final RegexNode.Group group) {
+        final List<RegexNode> body = flatten(group.getChildren());
+        final RegexNode alternation = singleAlternation(body);
+        if (alternation != null) {
+            checkRepeatedAlternatives(group, ((RegexNode.Alternation) alternation).getStrings());
+            return;
+        }
+
+        final Info bodyInfo = sequenceInfo(body);
+        // A repeat at the end of the group which can also match the start of the group's next repeat, or a repeat
+        // at the start of the group which can also match the end of the group's previous repeat
+        RegexNode overlapping = findOverlappingRepeat(body, body.size() - 1, -1, bodyInfo.first);
+        if (overlapping == null) {
+            overlapping = findOverlappingRepeat(body, 0, 1, bodyInfo.last);
+        }
+        if (overlapping != null) {
+            final boolean exponential = group.getQuantifier().getMaximum() == RegexQuantifier.UNBOUNDED;
+            addRisk(exponential ? RegexBacktrackingRisk.Severity.EXPONENTIAL : RegexBacktrackingRisk.Severity.POLYNOMIAL,
+                    "The repeated group " + quote(group) + " contains " + quote(overlapping)
+                            + ", which can match the same characters as the next or previous repeat of the group, so"
+                            + " input which almost matches can be tried in " + (exponential ? "exponentially" : "polynomially")
+                            + " many ways",
+                    positions.get(group)[0], positions.get(group)[1]);
+        }
+    }
+
+    private RegexNode findOverlappingRepeat(final List<RegexNode> body,
+                                            final int from,
+                                            final int step,
+                                            final CharacterSet neighbour) {
+        for (int i = from; i >= 0 && i < body.size(); i += step) {
+            final RegexNode node = body.get(i);
+            if (isBacktrackingRepeat(node) && info(node).chars.intersects(neighbour)) {
+                return node;
+            }
+            if (!info(node).nullable) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void checkRepeatedAlternatives(final RegexNode repeat, final List<String> strings) {
+        if (isAmbiguous(strings)) {
+            final boolean exponential = repeat.getQuantifier().getMaximum() == RegexQuantifier.UNBOUNDED;
+            addRisk(exponential ? RegexBacktrackingRisk.Severity.EXPONENTIAL : RegexBacktrackingRisk.Severity.POLYNOMIAL,
+                    "Alternatives in the repeated " + quote(repeat) + " can be joined to match the same text in more"
+                            + " than one way, so input which almost matches can be tried in "
+                            + (exponential ? "exponentially" : "polynomially") + " many ways",
+                    positions.get(repeat)[0], positions.get(repeat)[1]);
+        }
+    }
+
+    /**
+     * Test whether some text can be matched by more than one sequence of alternatives, using the Sardinas-Patterson
+     * test: follow the suffixes left over when one alternative is a prefix of another, and the text is ambiguous if a
+     * left-over suffix is itself an alternative
+     */
+    private boolean isAmbiguous(final List<String> strings) {
+        final NavigableSet<String> alternatives = new TreeSet<>();
+        final Set<String> distinct = new HashSet<>();
+        int maximumLength = 0;
+        for (final String string : strings) {
+            if (!string.isEmpty() && distinct.add(string)) {
+                // Identical alternatives are only tried once, but alternatives which differ only in case aren't
+                if (!alternatives.add(ignoreCase ? foldAscii(string) : string)) {
+                    return true;
+                }
+                maximumLength = Math.max(maximumLength, string.length());
+            }
+        }
+        if (alternatives.size() > MAXIMUM_ALTERNATIVES) {
+            return false;
+        }
+
+        final Set<String> suffixes = new HashSet<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        for (final String alternative : alternatives) {
+            addLongerSuffixes(alternatives, alternative, suffixes, pending);
+        }
+        while (!pending.isEmpty()) {
+            final String suffix = pending.poll();
+            if (alternatives.contains(suffix)) {
+                return true;
+            }
+            addLongerSuffixes(alternatives, suffix, suffixes, pending);
+            for (int length = 1; length < suffix.length() && length <= maximumLength; length++) {
+                if (alternatives.contains(suffix.substring(0, length)) && suffixes.add(suffix.substring(length))) {
+                    pending.add(suffix.substring(length));
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void addLongerSuffixes(final NavigableSet<String> alternatives,
+                                          final String prefix,
+                                          final Set<String> suffixes,
+                                          final Deque<String> pending) {
+        for (final String alternative : alternatives.tailSet(prefix, false)) {
+            if (!alternative.startsWith(prefix)) {
+                break;
+            }
+            final String suffix = alternative.substring(prefix.length());
+            if (suffixes.add(suffix)) {
+                pending.add(suffix);
+            }
+        }
+    }
+
+    private void addRisk(final RegexBacktrackingRisk.Severity severity,
+                         final String description,
+                         final int start,
+                         final int end) {
+        risks.add(new RegexBacktrackingRisk(severity, description, start, end));
+    }
+
+    private String quote(final RegexNode node) {
+        final int[] position = positions.get(node);
+        return "'" + regexString.substring(position[0], position[1]) + "'";
+    }
+
+    private Info info(final RegexNode node) {
+        Info info = infos.get(node);
+        if (info == null) {
+            info = computeInfo(node);
+            infos.put(node, info);
+        }
+        return info;
+    }
+
+    private Info computeInfo(final RegexNode node) {
+        final RegexQuantifier quantifier = node.getQuantifier();
+        if (quantifier != null && quantifier.getMaximum() == 0) {
+            return EMPTY;
+        }
+
+        final Info info;
+        if (node instanceof RegexNode.Literal) {
+            final String text = ((RegexNode.Literal) node).getText();
+            if (text.isEmpty()) {
+                return EMPTY;
+            }
+            info = new Info(false,
+                    characters(CharacterSet.of(text.codePointAt(0))),
+                    characters(CharacterSet.of(text.codePointBefore(text.length()))),
+                    characters(CharacterSet.of(text)));
+        } else if (node instanceof RegexNode.CharacterClass) {
+            final RegexNode.CharacterClass characterClass = (RegexNode.CharacterClass) node;
+            final CharacterSet set = CharacterSet.forClass(characterClass.getType(), characterClass.getCharacters(),
+                    ignoreCase);
+            final CharacterSet characters = (set == null) ? CharacterSet.ALL : set;
+            info = new Info(false, characters, characters, characters);
+        } else if (node instanceof RegexNode.Alternation) {
+            boolean nullable = false;
+            CharacterSet first = CharacterSet.EMPTY;
+            CharacterSet last = CharacterSet.EMPTY;
+            CharacterSet all = CharacterSet.EMPTY;
+            for (final String string : ((RegexNode.Alternation) node).getStrings()) {
+                if (string.isEmpty()) {
+                    nullable = true;
+                } else {
+                    first = first.union(CharacterSet.of(string.codePointAt(0)));
+                    last = last.union(CharacterSet.of(string.codePointBefore(string.length())));
+                    all = all.union(CharacterSet.of(string));
+                }
+            }
+            info = new Info(nullable, characters(first), characters(last), characters(all));
+        } else if (node instanceof RegexNode.Group) {
+            info = sequenceInfo(((RegexNode.Group) node).getChildren());
+        } else if (node instanceof RegexNode.Anchor) {
+            return EMPTY;
+        } else {
+            return OPAQUE;
+        }
+
+        return (quantifier != null && quantifier.getMinimum() == 0 && !info.nullable)
+                ? new Info(true, info.first, info.last, info.chars)
+                : info;
+    }
+
+    private Info sequenceInfo(final List<RegexNode> nodes) {
+        boolean nullable = true;
+        CharacterSet first = CharacterSet.EMPTY;
+        CharacterSet chars = CharacterSet.EMPTY;
+        for (final RegexNode node : nodes) {
+            final Info info = info(node);
+            if (nullable) {
+                first = first.union(info.first);
+                nullable = info.nullable;
+            }
+            chars = chars.union(info.chars);
+        }
+
+        CharacterSet last = CharacterSet.EMPTY;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            final Info info = info(nodes.get(i));
+            last = last.union(info.last);
+            if (!info.nullable) {
+                break;
+            }
+        }
+        return new Info(nullable, first, last, chars);
+    }
+
+    private CharacterSet characters(final CharacterSet set) {
+        return ignoreCase ? set.withAsciiCase() : set;
+    }
+
+    /**
+     * Get the single alternation which makes up a sequence, ignoring anchors
+     */
+    private static RegexNode singleAlternation(final List<RegexNode> sequence) {
+        RegexNode alternation = null;
+        for (final RegexNode node : sequence) {
+            if (node instanceof RegexNode.Anchor) {
+                continue;
+            }
+            if (alternation != null || !(node instanceof RegexNode.Alternation) || node.getQuantifier() != null) {
+                return null;
+            }
+            alternation = node;
+        }
+        return alternation;
+    }
+
+    /**
+     * Replace groups without quantifiers by their contents, as they match in sequence with the nodes around them.
+     * Atomic groups are kept, as what's inside them is never backtracked into.
+     */
+    private static List<RegexNode> flatten(final List<RegexNode> nodes) {
+        final List<RegexNode> sequence = new ArrayList<>(nodes.size());
+        flatten(nodes, sequence);
+        return sequence;
+    }
+
+    private static void flatten(final List<RegexNode> nodes, final List<RegexNode> sequence) {
+        for (final RegexNode node : nodes) {
+            if (node instanceof RegexNode.Group && node.getQuantifier() == null
+                    && ((RegexNode.Group) node).getType() != RegexNode.GroupType.ATOMIC) {
+                flatten(((RegexNode.Group) node).getChildren(), sequence);
+            } else {
+                sequence.add(node);
+            }
+        }
+    }
+
+    /**
+     * Test whether a node can match a variable number of repeats, giving them back one by one if the rest of the
+     * regex fails to match
+     */
+    private static boolean isBacktrackingRepeat(final RegexNode node) {
+        final RegexQuantifier quantifier = node.getQuantifier();
+        return quantifier != null
+                && quantifier.getMode() != RegexQuantifier.Mode.POSSESSIVE
+                && !(node instanceof RegexNode.Raw)
+                && (quantifier.getMaximum() == RegexQuantifier.UNBOUNDED || quantifier.getMaximum() > 1);
+    }
+
+    private static boolean isUnbounded(final RegexNode node) {
+        final RegexQuantifier quantifier = node.getQuantifier();
+        return quantifier != null && quantifier.getMaximum() == RegexQuantifier.UNBOUNDED;
+    }
+
+    private static String foldAscii(final String s) {
+        final char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * What a node can match: whether it can match empty text, and which characters it can start with, end with, and
+     * contain
+     */
+    private static final class Info {
+        private final boolean nullable;
+        private final CharacterSet first;
+        private final CharacterSet last;
+        private final CharacterSet chars;
+
+        Info(final boolean nullable, final CharacterSet first, final CharacterSet last, final CharacterSet chars) {
+            this.nullable = nullable;
+            this.first = first;
+            this.last = last;
+            this.chars = chars;
+        }
+    }
+}
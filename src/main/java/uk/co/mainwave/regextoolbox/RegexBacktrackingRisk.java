@@ -0,0 +1,77 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * A part of a regex which can make the regex engine backtrack excessively when matching input that almost matches,
+ * as found by {@link RegexBuilder#findBacktrackingRisks(RegexOptions...)}
+ */
+public final class RegexBacktrackingRisk {
+    /**
+     * How the time taken to fail to match grows with the length of the input
+     */
+    public enum Severity {
+        /**
+         * Time grows as a power of the input length, for example when two adjacent quantifiers can match the same
+         * characters
+         */
+        POLYNOMIAL,
+
+        /**
+         * Time grows exponentially with the input length, for example when a repeated group contains a quantifier
+         * that can match the same text as the group's repeats
+         */
+        EXPONENTIAL
+    }
+
+    private final Severity severity;
+    private final String description;
+    private final int start;
+    private final int end;
+
+    RegexBacktrackingRisk(final Severity severity, final String description, final int start, final int end) {
+        this.severity = severity;
+        this.description = description;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the severity of the risk
+     *
+     * @return Severity
+     */
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Get a description of the risk
+     *
+     * @return Description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Get the index of the start of the risky part of the regex string
+     *
+     * @return Start index
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the index of the end of the risky part of the regex string
+     *
+     * @return End index (exclusive)
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return severity + " backtracking at " + start + "-" + end + ": " + description;
+    }
+}
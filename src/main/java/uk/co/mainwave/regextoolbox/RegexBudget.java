@@ -0,0 +1,167 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Limits how long a single match can run, so that input which makes a regex backtrack excessively can't hold up the
+ * calling thread indefinitely.
+ * <p>
+ * A budget is a time limit, a step limit or both. Steps are characters read from the input by the regex engine, so a
+ * step limit gives the same result on every run regardless of machine speed. The input is wrapped so that the budget
+ * is checked every {@value #CHECK_INTERVAL} characters read; when it has run out, or the calling thread has been
+ * interrupted, matching stops with a {@link RegexBudgetExceededException}. Checking this rarely keeps the overhead
+ * low enough to leave on in production, at the cost of letting a match run slightly past its budget.
+ * <p>
+ * Budgets are immutable and thread-safe, and the budget starts afresh for every call.
+ * <pre>{@code
+ * RegexBudget budget = RegexBudget.ofTimeout(Duration.ofMillis(50));
+ * RegexMatcher matcher = budget.limit(new RegexBuilder()...buildMatcher());
+ * try {
+ *     boolean matches = matcher.matches(untrustedInput);
+ * } catch (RegexBudgetExceededException e) {
+ *     // Reject the input
+ * }
+ * }</pre>
+ */
+public final class RegexBudget {
+    /**
+     * Number of characters read from the input between checks of the budget
+     */
+    public static final int CHECK_INTERVAL = 1024;
+
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long timeoutNanos;
+    private final long maximumSteps;
+
+    private RegexBudget(final long timeoutNanos, final long maximumSteps) {
+        this.timeoutNanos = timeoutNanos;
+        this.maximumSteps = maximumSteps;
+    }
+
+    /**
+     * Create a budget limiting the time taken by each call
+     *
+     * @param timeout Maximum time for each call
+     * @return A new {@link RegexBudget}
+     * @throws IllegalArgumentException timeout is not positive
+     */
+    public static RegexBudget ofTimeout(final Duration timeout) {
+        return new RegexBudget(toNanos(timeout), UNLIMITED);
+    }
+
+    /**
+     * Create a budget limiting the number of characters each call can read from the input
+     *
+     * @param maximumSteps Maximum number of characters read for each call
+     * @return A new {@link RegexBudget}
+     * @throws IllegalArgumentException maximumSteps is less than 1
+     */
+    public static RegexBudget ofSteps(final long maximumSteps) {
+        return new RegexBudget(UNLIMITED, checkSteps(maximumSteps));
+    }
+
+    /**
+     * Create a copy of this budget which also limits the time taken by each call
+     *
+     * @param timeout Maximum time for each call
+     * @return A new {@link RegexBudget}
+     * @throws IllegalArgumentException timeout is not positive
+     */
+    public RegexBudget withTimeout(final Duration timeout) {
+        return new RegexBudget(toNanos(timeout), maximumSteps);
+    }
+
+    /**
+     * Create a copy of this budget which also limits the number of characters each call can read from the input
+     *
+     * @param maximumSteps Maximum number of characters read for each call
+     * @return A new {@link RegexBudget}
+     * @throws IllegalArgumentException maximumSteps is less than 1
+     */
+    public RegexBudget withSteps(final long maximumSteps) {
+        return new RegexBudget(timeoutNanos, checkSteps(maximumSteps));
+    }
+
+    /**
+     * Create a {@link Matcher} whose operations are limited by this budget. The budget starts when this method is
+     * called and covers every operation on the returned {@link Matcher}, so create a new one for each piece of
+     * input.
+     *
+     * @param pattern Pattern to match
+     * @param input   Input to match against
+     * @return A new {@link Matcher}, whose methods throw {@link RegexBudgetExceededException} when the budget runs out
+     */
+    public Matcher matcher(final Pattern pattern, final CharSequence input) {
+        return pattern.matcher(new BudgetedCharSequence(input, this, pattern.pattern()));
+    }
+
+    /**
+     * Wrap a {@link RegexMatcher} so that each call to it is limited by this budget
+     *
+     * @param matcher Matcher to wrap, for example one built by {@link RegexBuilder#buildMatcher(RegexOptions...)}
+     * @return A new {@link RegexMatcher}, whose methods throw {@link RegexBudgetExceededException} when the budget
+     * runs out
+     */
+    public RegexMatcher limit(final RegexMatcher matcher) {
+        return new RegexMatcher() {
+            @Override
+            public boolean matches(final CharSequence input) {
+                return matcher.matches(new BudgetedCharSequence(input, RegexBudget.this, matcher.toString()));
+            }
+
+            @Override
+            public boolean find(final CharSequence input) {
+                return matcher.find(new BudgetedCharSequence(input, RegexBudget.this, matcher.toString()));
+            }
+
+            @Override
+            public boolean lookingAt(final CharSequence input) {
+                return matcher.lookingAt(new BudgetedCharSequence(input, RegexBudget.this, matcher.toString()));
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return matcher.getMinimumLength();
+            }
+
+            @Override
+            public int getMaximumLength() {
+                return matcher.getMaximumLength();
+            }
+
+            @Override
+            public String toString() {
+                return matcher.toString();
+            }
+        };
+    }
+
+    long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    long getMaximumSteps() {
+        return maximumSteps;
+    }
+
+    private static long toNanos(final Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        try {
+            return timeout.toNanos();
+        } catch (final ArithmeticException e) {
+            return UNLIMITED;
+        }
+    }
+
+    private static long checkSteps(final long maximumSteps) {
+        if (maximumSteps < 1) {
+            throw new IllegalArgumentException("maximumSteps must be at least 1");
+        }
+        return maximumSteps;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Unchecked exception thrown when matching is stopped because a {@link RegexBudget} has run out or the matching
+ * thread has been interrupted
+ */
+public final class RegexBudgetExceededException extends RuntimeException {
+    /**
+     * The regex whose matching was stopped
+     */
+    private final String regexString;
+
+    /**
+     * Constructor
+     *
+     * @param message     Message describing why matching was stopped
+     * @param regexString The regex whose matching was stopped
+     */
+    RegexBudgetExceededException(final String message, final String regexString) {
+        super(message + ": " + regexString);
+        this.regexString = regexString;
+    }
+
+    /**
+     * Get the regex whose matching was stopped
+     *
+     * @return Regex string
+     */
+    public String getRegexString() {
+        return regexString;
+    }
+}
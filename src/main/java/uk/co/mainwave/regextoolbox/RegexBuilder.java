@@ -1,5 +1,14 @@
 package uk.co.mainwave.regextoolbox;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -17,51 +26,244 @@ import java.util.regex.Pattern;
  * </pre>
  */
 public final class RegexBuilder {
-    private final StringBuilder stringBuilder;
-    private int openGroupCount;
+    private final RegexCache cache;
+    private final List<RegexNode> nodes;
+    private final Deque<OpenGroup> openGroups;
+    private final Map<RegexNode, String> placeholders;
 
     /**
      * Default constructor
      */
     public RegexBuilder() {
-        stringBuilder = new StringBuilder();
+        this(null);
+    }
+
+    /**
+     * Constructor for a builder which looks up built regexes in a {@link RegexCache}, so that building a regex
+     * which has been built before returns the already-compiled {@link Pattern} instead of compiling it again.
+     *
+     * @param cache Cache of compiled patterns, which may be shared with other builders, or null for no caching
+     */
+    public RegexBuilder(final RegexCache cache) {
+        this.cache = cache;
+        nodes = new ArrayList<>();
+        openGroups = new ArrayDeque<>();
+        placeholders = new LinkedHashMap<>();
     }
 
     /**
      * Build and return a {@link Pattern} object from the current builder state.
      * After calling this the builder is cleared and ready to re-use.
+     * <p>
+     * If the builder was created with a {@link RegexCache}, a previously compiled {@link Pattern} with the same
+     * regex string and options is returned from the cache instead of being compiled again.
      *
      * @param options Any number of regex options to apply to the regex
      * @return {@link Pattern} as built
      * @throws RegexBuilderException An error occurred when building the regex
      */
     public Pattern buildRegex(final RegexOptions... options) {
-        if (openGroupCount == 1) {
-            throw new RegexBuilderException("A group has been started but not ended", stringBuilder);
+        checkGroupsEnded();
+        checkNoPlaceholders();
+
+        final int flags = getFlags(options);
+        final List<RegexNode> nodesBuilt = rewrite(nodes, options);
+        final String stringBuilt = RegexRenderer.render(nodesBuilt);
+        checkBacktrackingRisks(nodesBuilt, options, stringBuilt);
+        final Pattern pattern = (cache == null)
+                ? Pattern.compile(stringBuilt, flags)
+                : cache.getPattern(stringBuilt, flags);
+        clear();
+        return pattern;
+    }
+
+    /**
+     * Build and return a {@link RegexMatcher} from the current builder state.
+     * After calling this the builder is cleared and ready to re-use.
+     * <p>
+     * If the regex consists only of literal text (added with {@link #text(String)}, {@link #anyOf(String...)} with a
+     * single string, or single {@link #space()}, {@link #tab()}, {@link #lineFeed()} or {@link #carriageReturn()}
+     * elements), optionally preceded by {@link #startOfString()} and/or followed by {@link #endOfString()}, the
+     * matcher uses plain string searching and no {@link Pattern} is compiled. Otherwise the regex is built as
+     * {@link #buildRegex(RegexOptions...)} would build it, and with {@link RegexOptions#LINEAR_TIME} it is matched by a
+     * lazily built DFA instead of by backtracking.
+     * <p>
+     * The shortest and longest match the regex can make are worked out from the elements added, so that the matcher
+     * can reject input of the wrong length without running the regex.
+     *
+     * @param options Any number of regex options to apply to the regex
+     * @return {@link RegexMatcher} as built
+     * @throws RegexBuilderException An error occurred when building the regex
+     */
+    public RegexMatcher buildMatcher(final RegexOptions... options) {
+        if (openGroups.isEmpty()) {
+            final RegexMatcher matcher = LiteralMatcher.create(nodes,
+                    hasOption(options, RegexOptions.IGNORE_CASE),
+                    hasOption(options, RegexOptions.MULTILINE));
+            if (matcher != null) {
+                clear();
+                return matcher;
+            }
         }
-        if (openGroupCount > 1) {
-            throw new RegexBuilderException(openGroupCount + " groups have been started but not ended", stringBuilder);
+
+        final List<RegexNode> nodesBuilt = rewrite(nodes, options);
+        final int minimumLength = RegexLengthAnalyzer.getMinimumLength(nodesBuilt);
+        final int maximumLength = RegexLengthAnalyzer.getMaximumLength(nodesBuilt,
+                hasOption(options, RegexOptions.IGNORE_CASE));
+        final RequiredLiteral requiredLiteral = RequiredLiteral.find(nodesBuilt,
+                hasOption(options, RegexOptions.IGNORE_CASE));
+        if (hasOption(options, RegexOptions.LINEAR_TIME)) {
+            final Nfa nfa = compileNfa(options, false);
+            return new DfaMatcher(nfa, buildRegex(options), minimumLength, maximumLength, requiredLiteral);
         }
 
-        int flags = 0;
+        final FirstCharacters firstCharacters = FirstCharacters.find(nodesBuilt,
+                hasOption(options, RegexOptions.IGNORE_CASE));
+        return new PatternMatcher(buildRegex(options), minimumLength, maximumLength, requiredLiteral,
+                firstCharacters);
+    }
 
-        for (final RegexOptions option : options) {
-            switch (option) {
-                case IGNORE_CASE:
-                    flags |= Pattern.CASE_INSENSITIVE;
-                    break;
-                case MULTILINE:
-                    flags |= Pattern.MULTILINE;
-                    break;
-                default:
-                    break;
+    /**
+     * Build and return a {@link RegexCaptureMatcher} from the current builder state, which finds matches and the
+     * positions of their capturing groups without backtracking, in time proportional to the length of the input
+     * times the size of the regex. The results are the same as {@link java.util.regex.Matcher}'s for the regex
+     * {@link #buildRegex(RegexOptions...)} would build. After calling this the builder is cleared and ready to re-use.
+     * <p>
+     * As with {@link RegexOptions#LINEAR_TIME}, regex text, possessive quantifiers and atomic groups are not supported.
+     *
+     * @param options Any number of regex options to apply to the regex
+     * @return {@link RegexCaptureMatcher} as built
+     * @throws RegexBuilderException An error occurred when building the regex, or it can't be matched without
+     *                               backtracking
+     */
+    public RegexCaptureMatcher buildCaptureMatcher(final RegexOptions... options) {
+        final Nfa nfa = compileNfa(options, true);
+        final List<RegexNode> nodesBuilt = rewrite(nodes, options);
+        final int minimumLength = RegexLengthAnalyzer.getMinimumLength(nodesBuilt);
+        final int maximumLength = RegexLengthAnalyzer.getMaximumLength(nodesBuilt,
+                hasOption(options, RegexOptions.IGNORE_CASE));
+        return new NfaMatcher(nfa, buildRegex(options), minimumLength, maximumLength);
+    }
+
+    /**
+     * Build and return a {@link RegexStreamScanner} from the current builder state, which finds matches in text read
+     * from a {@link java.io.Reader} or a {@link java.nio.channels.ReadableByteChannel} without holding all of it in
+     * memory. After calling this the builder is cleared and ready to re-use.
+     * <p>
+     * The longest match the regex can make is worked out from the elements added, and if there is a limit it bounds
+     * the memory a scan uses.
+     *
+     * @param options Any number of regex options to apply to the regex
+     * @return {@link RegexStreamScanner} as built
+     * @throws RegexBuilderException An error occurred when building the regex
+     */
+    public RegexStreamScanner buildStreamScanner(final RegexOptions... options) {
+        checkGroupsEnded();
+        final int maximumLength = RegexLengthAnalyzer.getMaximumLength(rewrite(nodes, options),
+                hasOption(options, RegexOptions.IGNORE_CASE));
+        return new RegexStreamScanner(buildRegex(options), maximumLength, RegexStreamScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Build and return a {@link RegexFileScanner} from the current builder state, which finds matches line by line in
+     * large files, matching chunks of each file in parallel. After calling this the builder is cleared and ready to
+     * re-use.
+     *
+     * @param options Any number of regex options to apply to the regex
+     * @return {@link RegexFileScanner} as built
+     * @throws RegexBuilderException An error occurred when building the regex
+     */
+    public RegexFileScanner buildFileScanner(final RegexOptions... options) {
+        return new RegexFileScanner(buildRegex(options), RegexFileScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Build and return a {@link RegexTemplate} from the current builder state, whose placeholders added with
+     * {@link #placeholder(String)} are filled with literal text each time a {@link Pattern} is needed. The rest of the
+     * regex is rendered and validated now, so filling the template costs only escaping the values and joining the
+     * parts together. After calling this the builder is cleared and ready to re-use.
+     * <p>
+     * If the builder was created with a {@link RegexCache}, the template looks up each filled regex in it, so filling
+     * the template with the same values again returns the already-compiled {@link Pattern}.
+     *
+     * @param options Any number of regex options to apply to the regex
+     * @return {@link RegexTemplate} as built
+     * @throws RegexBuilderException An error occurred when building the regex
+     */
+    public RegexTemplate buildTemplate(final RegexOptions... options) {
+        checkGroupsEnded();
+
+        final int flags = getFlags(options);
+        final List<RegexNode> nodesBuilt = rewrite(nodes, options);
+        final Map<RegexNode, int[]> positions = new HashMap<>();
+        final String stringBuilt = RegexRenderer.render(nodesBuilt, positions);
+        checkBacktrackingRisks(nodesBuilt, options, stringBuilt);
+        // Filled placeholders are always escaped literal text, so if the regex compiles with them empty it compiles
+        // with any values
+        Pattern.compile(stringBuilt, flags);
+
+        // Placeholders render as nothing, so adjacent ones start at the same position: they're kept in the order
+        // they were added, which is the order they appear in
+        final List<RegexNode> holeNodes = new ArrayList<>(placeholders.keySet());
+        holeNodes.sort((first, second) -> Integer.compare(positions.get(first)[0], positions.get(second)[0]));
+        final String[] segments = new String[holeNodes.size() + 1];
+        final int[] holes = new int[holeNodes.size()];
+        final List<String> names = new ArrayList<>();
+        int segmentStart = 0;
+        for (int i = 0; i < holes.length; i++) {
+            final RegexNode hole = holeNodes.get(i);
+            final int position = positions.get(hole)[0];
+            segments[i] = stringBuilt.substring(segmentStart, position);
+            segmentStart = position;
+            final String name = placeholders.get(hole);
+            if (!names.contains(name)) {
+                names.add(name);
             }
+            holes[i] = names.indexOf(name);
         }
+        segments[holes.length] = stringBuilt.substring(segmentStart);
 
-        final String stringBuilt = stringBuilder.toString();
-        final Pattern pattern = Pattern.compile(stringBuilt, flags);
-        stringBuilder.setLength(0);
-        return pattern;
+        clear();
+        return new RegexTemplate(segments, holes, names, flags, cache);
+    }
+
+    /**
+     * Build and return an immutable {@link RegexFragment} from the current builder state, which can be embedded in
+     * other regexes with {@link #fragment(RegexFragment)}. After calling this the builder is cleared and ready to
+     * re-use.
+     *
+     * @return {@link RegexFragment} as built
+     * @throws RegexBuilderException A group has been started but not ended, or a placeholder has been added
+     */
+    public RegexFragment buildFragment() {
+        checkGroupsEnded();
+        checkNoPlaceholders();
+        final RegexFragment fragment = new RegexFragment(nodes);
+        clear();
+        return fragment;
+    }
+
+    /**
+     * Find the parts of the regex as it currently stands which could make the regex engine backtrack excessively,
+     * taking exponential or polynomial time to fail on input which almost matches. For example,
+     * {@code startGroup().wordCharacter(RegexQuantifier.oneOrMore()).endGroup(RegexQuantifier.oneOrMore())} can
+     * match a run of word characters in exponentially many ways. Each risk can usually be removed by making a
+     * quantifier possessive with {@link RegexGreedyQuantifier#butWithoutBacktracking()}, by using
+     * {@link #startAtomicGroup()}, or by making sure repeated elements can't match the same characters.
+     * <p>
+     * The builder is not cleared. Use {@link RegexOptions#REJECT_BACKTRACKING_RISKS} to have
+     * {@link #buildRegex(RegexOptions...)} refuse to build a regex with any of these risks.
+     *
+     * @param options The regex options that will be used to build the regex: {@link RegexOptions#OPTIMIZE} changes
+     *                the regex string that the positions of the risks refer to
+     * @return Risks found, in the order they appear in the regex
+     * @throws RegexBuilderException A group has been started but not ended
+     */
+    public List<RegexBacktrackingRisk> findBacktrackingRisks(final RegexOptions... options) {
+        checkGroupsEnded();
+        return Collections.unmodifiableList(RegexBacktrackingAnalyzer.analyze(
+                rewrite(nodes, options),
+                hasOption(options, RegexOptions.IGNORE_CASE)));
     }
 
     /**
@@ -98,11 +300,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder text(final String text, final RegexQuantifier quantifier) {
-        final String safeText = makeSafeForRegex(text);
-        return (quantifier == null)
-                ? addPart(safeText)
-                : addPartInNonCapturingGroup(
-                safeText, quantifier);
+        return add(new RegexNode.Literal(text, null, quantifier));
     }
 
     /**
@@ -141,10 +339,59 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder regexText(final String text, final RegexQuantifier quantifier) {
-        return (quantifier == null)
-                ? addPart(text)
-                : addPartInNonCapturingGroup(
-                text, quantifier);
+        return add(new RegexNode.Raw(text, quantifier));
+    }
+
+    /**
+     * Add a fragment built with {@link #buildFragment()}, as if the calls which built it were made here
+     *
+     * @param fragment Fragment to add
+     * @return The current {@link RegexBuilder} object, for method chaining
+     */
+    public RegexBuilder fragment(final RegexFragment fragment) {
+        return fragment(fragment, null);
+    }
+
+    /**
+     * Add a fragment built with {@link #buildFragment()}, as if the calls which built it were made here, with a
+     * quantifier applied to the whole fragment
+     *
+     * @param fragment   Fragment to add
+     * @param quantifier Quantifier to apply to the whole fragment
+     * @return The current {@link RegexBuilder} object, for method chaining
+     */
+    public RegexBuilder fragment(final RegexFragment fragment, final RegexQuantifier quantifier) {
+        final List<RegexNode> fragmentNodes = fragment.copyNodes();
+        if (quantifier != null) {
+            return add(new RegexNode.Group(RegexNode.GroupType.NON_CAPTURING, null, fragmentNodes, quantifier));
+        }
+        for (final RegexNode node : fragmentNodes) {
+            add(node);
+        }
+        return this;
+    }
+
+    /**
+     * Add a named placeholder for literal text which is only known when the regex is used. Build the regex with
+     * {@link #buildTemplate(RegexOptions...)}, then fill the placeholder each time a {@link Pattern} is needed: the
+     * text it is filled with is escaped, as {@link #text(String)} would escape it. A name may be used for more than
+     * one placeholder, which are then all filled with the same text.
+     * <p>
+     * To apply a quantifier to the text, put the placeholder in a group:
+     * {@code startNonCapturingGroup().placeholder("name").endGroup(RegexQuantifier.zeroOrOne())}.
+     *
+     * @param name Name used to fill the placeholder
+     * @return The current {@link RegexBuilder} object, for method chaining
+     * @throws RegexBuilderException The name is null or empty
+     */
+    public RegexBuilder placeholder(final String name) {
+        if (name == null || name.isEmpty()) {
+            throw new RegexBuilderException("A placeholder must have a name", renderCurrentState());
+        }
+        // Regex text is left alone by the optimizer, so the node can still be found once the regex is rendered
+        final RegexNode node = new RegexNode.Raw("", null);
+        placeholders.put(node, name);
+        return add(node);
     }
 
     /**
@@ -163,7 +410,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder anyCharacter(final RegexQuantifier quantifier) {
-        return addPart(".", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.ANY_CHARACTER, quantifier);
     }
 
     /**
@@ -182,7 +429,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder whitespace(final RegexQuantifier quantifier) {
-        return addPart("\\s", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.WHITESPACE, quantifier);
     }
 
     /**
@@ -201,7 +448,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonWhitespace(final RegexQuantifier quantifier) {
-        return addPart("\\S", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_WHITESPACE, quantifier);
     }
 
     /**
@@ -211,7 +458,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder possibleWhitespace() {
-        return addPart("\\s*");
+        return addCharacterClass(RegexNode.CharacterClassType.WHITESPACE, RegexQuantifier.zeroOrMore());
     }
 
     /**
@@ -232,7 +479,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder space(final RegexQuantifier quantifier) {
-        return addPart(" ", quantifier);
+        return add(new RegexNode.Literal(" ", " ", quantifier));
     }
 
     /**
@@ -251,7 +498,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder tab(final RegexQuantifier quantifier) {
-        return addPart("\\t", quantifier);
+        return add(new RegexNode.Literal("\t", "\\t", quantifier));
     }
 
     /**
@@ -270,7 +517,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder lineFeed(final RegexQuantifier quantifier) {
-        return addPart("\\n", quantifier);
+        return add(new RegexNode.Literal("\n", "\\n", quantifier));
     }
 
     /**
@@ -289,7 +536,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder carriageReturn(final RegexQuantifier quantifier) {
-        return addPart("\\r", quantifier);
+        return add(new RegexNode.Literal("\r", "\\r", quantifier));
     }
 
     /**
@@ -308,7 +555,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder digit(final RegexQuantifier quantifier) {
-        return addPart("\\d", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.DIGIT, quantifier);
     }
 
     /**
@@ -327,7 +574,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonDigit(final RegexQuantifier quantifier) {
-        return addPart("\\D", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_DIGIT, quantifier);
     }
 
     /**
@@ -346,7 +593,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder letter(final RegexQuantifier quantifier) {
-        return addPart("\\p{L}", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.LETTER, quantifier);
     }
 
     /**
@@ -365,7 +612,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonLetter(final RegexQuantifier quantifier) {
-        return addPart("\\P{L}", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_LETTER, quantifier);
     }
 
     /**
@@ -384,7 +631,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder uppercaseLetter(final RegexQuantifier quantifier) {
-        return addPart("\\p{Lu}", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.UPPERCASE_LETTER, quantifier);
     }
 
     /**
@@ -403,7 +650,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder lowercaseLetter(final RegexQuantifier quantifier) {
-        return addPart("\\p{Ll}", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.LOWERCASE_LETTER, quantifier);
     }
 
     /**
@@ -422,7 +669,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder letterOrDigit(final RegexQuantifier quantifier) {
-        return addPart("[\\p{L}0-9]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.LETTER_OR_DIGIT, quantifier);
     }
 
     /**
@@ -441,7 +688,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonLetterOrDigit(final RegexQuantifier quantifier) {
-        return addPart("[^\\p{L}0-9]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_LETTER_OR_DIGIT, quantifier);
     }
 
     /**
@@ -460,7 +707,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder hexDigit(final RegexQuantifier quantifier) {
-        return addPart("[0-9A-Fa-f]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.HEX_DIGIT, quantifier);
     }
 
     /**
@@ -479,7 +726,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder uppercaseHexDigit(final RegexQuantifier quantifier) {
-        return addPart("[0-9A-F]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.UPPERCASE_HEX_DIGIT, quantifier);
     }
 
     /**
@@ -498,7 +745,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder lowercaseHexDigit(final RegexQuantifier quantifier) {
-        return addPart("[0-9a-f]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.LOWERCASE_HEX_DIGIT, quantifier);
     }
 
     /**
@@ -517,7 +764,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonHexDigit(final RegexQuantifier quantifier) {
-        return addPart("[^0-9A-Fa-f]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_HEX_DIGIT, quantifier);
     }
 
     /**
@@ -536,7 +783,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder wordCharacter(final RegexQuantifier quantifier) {
-        return addPart("[\\p{L}0-9_]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.WORD_CHARACTER, quantifier);
     }
 
     /**
@@ -555,7 +802,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder nonWordCharacter(final RegexQuantifier quantifier) {
-        return addPart("[^\\p{L}0-9_]", quantifier);
+        return addCharacterClass(RegexNode.CharacterClassType.NON_WORD_CHARACTER, quantifier);
     }
 
     /**
@@ -576,9 +823,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder anyCharacterFrom(final String characters, final RegexQuantifier quantifier) {
-        // Build a character class, remembering to escape any ] character if passed in
-        final String safeCharacters = makeSafeForCharacterClass(characters);
-        return addPart("[" + safeCharacters + "]", quantifier);
+        return add(new RegexNode.CharacterClass(RegexNode.CharacterClassType.ANY_FROM, characters, quantifier));
     }
 
     /**
@@ -599,13 +844,14 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder anyCharacterExcept(final String characters, final RegexQuantifier quantifier) {
-        // Build a character class, remembering to escape any ] character if passed in
-        final String safeCharacters = makeSafeForCharacterClass(characters);
-        return addPart("[^" + safeCharacters + "]", quantifier);
+        return add(new RegexNode.CharacterClass(RegexNode.CharacterClassType.ANY_EXCEPT, characters, quantifier));
     }
 
     /**
-     * Add a group of alternatives, to match any of the strings provided
+     * Add a group of alternatives, to match any of the strings provided. Strings which share a prefix are factored
+     * together (for example "foo", "foobar" and "fox" become {@code (?:fo(?:o(?:bar)??|x))}) so that large sets of
+     * alternatives match efficiently. This never changes what is matched: where several strings could match, the
+     * first one provided is preferred, exactly as if they had been joined with {@code |}.
      *
      * @param strings A number of strings, any one of which will be matched
      * @return The current {@link RegexBuilder} object, for method chaining
@@ -615,7 +861,8 @@ public final class RegexBuilder {
     }
 
     /**
-     * Add a group of alternatives, to match any of the strings provided
+     * Add a group of alternatives, to match any of the strings provided. Strings which share a prefix are factored
+     * together as described in {@link #anyOf(String...)}.
      *
      * @param strings    A number of strings, any one of which will be matched
      * @param quantifier Quantifier to apply to this element
@@ -627,14 +874,10 @@ public final class RegexBuilder {
         }
 
         if (strings.length == 1 && quantifier == null) {
-            return addPart(makeSafeForRegex(strings[0]));
+            return add(new RegexNode.Literal(strings[0], null, null));
         }
 
-        final String[] safeStrings = new String[strings.length];
-        for (int i = 0; i < strings.length; i++) {
-            safeStrings[i] = makeSafeForRegex(strings[i]);
-        }
-        return addPartInNonCapturingGroup(String.join("|", safeStrings), quantifier);
+        return add(new RegexNode.Alternation(strings, quantifier));
     }
 
 
@@ -646,7 +889,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder startOfString() {
-        return addPart("^");
+        return add(new RegexNode.Anchor(RegexNode.AnchorType.START_OF_STRING));
     }
 
     /**
@@ -655,7 +898,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder endOfString() {
-        return addPart("$");
+        return add(new RegexNode.Anchor(RegexNode.AnchorType.END_OF_STRING));
     }
 
     /**
@@ -665,7 +908,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder wordBoundary() {
-        return addPart("\\b");
+        return add(new RegexNode.Anchor(RegexNode.AnchorType.WORD_BOUNDARY));
     }
 
 
@@ -683,8 +926,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder startGroup() {
-        openGroupCount++;
-        return addPart("(");
+        return startGroup(RegexNode.GroupType.CAPTURING, null);
     }
 
     /**
@@ -699,8 +941,7 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder startNonCapturingGroup() {
-        openGroupCount++;
-        return addPart("(?:");
+        return startGroup(RegexNode.GroupType.NON_CAPTURING, null);
     }
 
     /**
@@ -718,13 +959,25 @@ public final class RegexBuilder {
      * @return The current {@link RegexBuilder} object, for method chaining
      */
     public RegexBuilder startNamedGroup(final String name) {
-        openGroupCount++;
-        return addPart("(?<" + name + ">");
+        return startGroup(RegexNode.GroupType.NAMED, name);
     }
 
     /**
-     * End the innermost group previously started with {@link #startGroup()}, {@link #startNonCapturingGroup()} or
-     * {@link #startNamedGroup(String)}.
+     * Start an atomic group. Atomic groups are non-capturing groups which, once they have matched, never give up any
+     * of their match: if the rest of the expression fails to match, the regex engine does not go back and try other
+     * ways of matching the group. This can stop a pattern spending a long time failing on input that almost matches.
+     * <p>
+     * Note: all groups must be ended with {@link #endGroup()} before calling {@link #buildRegex(RegexOptions...)}.
+     *
+     * @return The current {@link RegexBuilder} object, for method chaining
+     */
+    public RegexBuilder startAtomicGroup() {
+        return startGroup(RegexNode.GroupType.ATOMIC, null);
+    }
+
+    /**
+     * End the innermost group previously started with {@link #startGroup()}, {@link #startNonCapturingGroup()},
+     * {@link #startNamedGroup(String)} or {@link #startAtomicGroup()}.
      *
      * @return The current {@link RegexBuilder} object, for method chaining
      * @throws RegexBuilderException A group has not been started
@@ -734,73 +987,152 @@ public final class RegexBuilder {
     }
 
     /**
-     * End the innermost group previously started with {@link #startGroup()}, {@link #startNonCapturingGroup()} or
-     * {@link #startNamedGroup(String)}.
+     * End the innermost group previously started with {@link #startGroup()}, {@link #startNonCapturingGroup()},
+     * {@link #startNamedGroup(String)} or {@link #startAtomicGroup()}.
      *
      * @param quantifier Quantifier to apply to this group
      * @return The current {@link RegexBuilder} object, for method chaining
      * @throws RegexBuilderException A group has not been started
      */
     public RegexBuilder endGroup(final RegexQuantifier quantifier) {
-        if (openGroupCount == 0) {
+        if (openGroups.isEmpty()) {
             throw new RegexBuilderException("Cannot call endGroup() until a group has been started with startGroup()",
-                    stringBuilder);
+                    renderCurrentState());
         }
 
-        openGroupCount--;
-        return addPart(")", quantifier);
+        final OpenGroup group = openGroups.pop();
+        return add(new RegexNode.Group(group.type, group.name, group.nodes, quantifier));
     }
 
 
     // PRIVATE
 
-    private RegexBuilder addPart(final String part) {
-        return addPart(part, null);
+    private void checkGroupsEnded() {
+        final int openGroupCount = openGroups.size();
+        if (openGroupCount == 1) {
+            throw new RegexBuilderException("A group has been started but not ended", renderCurrentState());
+        }
+        if (openGroupCount > 1) {
+            throw new RegexBuilderException(openGroupCount + " groups have been started but not ended",
+                    renderCurrentState());
+        }
     }
 
-    private RegexBuilder addPart(final String part, final RegexQuantifier quantifier) {
-        stringBuilder.append(part);
-        if (quantifier != null) {
-            stringBuilder.append(quantifier);
+    private void checkNoPlaceholders() {
+        if (!placeholders.isEmpty()) {
+            throw new RegexBuilderException("A regex with placeholders must be built with buildTemplate()",
+                    renderCurrentState());
+        }
+    }
+
+    private void checkBacktrackingRisks(final List<RegexNode> nodesBuilt,
+                                        final RegexOptions[] options,
+                                        final String stringBuilt) {
+        if (hasOption(options, RegexOptions.REJECT_BACKTRACKING_RISKS)) {
+            final List<RegexBacktrackingRisk> risks = RegexBacktrackingAnalyzer.analyze(nodesBuilt,
+                    hasOption(options, RegexOptions.IGNORE_CASE));
+            if (!risks.isEmpty()) {
+                throw new RegexBuilderException(risks.get(0).toString(), stringBuilt);
+            }
         }
+    }
+
+    private Nfa compileNfa(final RegexOptions[] options, final boolean captureGroups) {
+        checkGroupsEnded();
+        checkNoPlaceholders();
+        final List<RegexNode> nodesBuilt = rewrite(nodes, options);
+        return Nfa.compile(nodesBuilt,
+                hasOption(options, RegexOptions.IGNORE_CASE),
+                hasOption(options, RegexOptions.MULTILINE),
+                captureGroups,
+                RegexRenderer.render(nodesBuilt));
+    }
+
+    private RegexBuilder add(final RegexNode node) {
+        final List<RegexNode> currentNodes = openGroups.isEmpty() ? nodes : openGroups.peek().nodes;
+        currentNodes.add(node);
+        return this;
+    }
+
+    private RegexBuilder addCharacterClass(final RegexNode.CharacterClassType type, final RegexQuantifier quantifier) {
+        return add(new RegexNode.CharacterClass(type, null, quantifier));
+    }
+
+    private RegexBuilder startGroup(final RegexNode.GroupType type, final String name) {
+        openGroups.push(new OpenGroup(type, name));
         return this;
     }
 
-    private RegexBuilder addPartInNonCapturingGroup(final String part, final RegexQuantifier quantifier) {
-        return addPart("(?:" + part + ")", quantifier);
+    /**
+     * Render the regex as it currently stands, including the start of any groups which have not been ended
+     */
+    private StringBuilder renderCurrentState() {
+        final StringBuilder stringBuilder = new StringBuilder();
+        RegexRenderer.render(nodes, stringBuilder);
+        final Iterator<OpenGroup> outermostFirst = openGroups.descendingIterator();
+        while (outermostFirst.hasNext()) {
+            final OpenGroup group = outermostFirst.next();
+            RegexRenderer.appendGroupStart(stringBuilder, group.type, group.name);
+            RegexRenderer.render(group.nodes, stringBuilder);
+        }
+        return stringBuilder;
+    }
+
+    private void clear() {
+        nodes.clear();
+        openGroups.clear();
+        placeholders.clear();
+    }
+
+    static int getFlags(final RegexOptions[] options) {
+        int flags = 0;
+        for (final RegexOptions option : options) {
+            switch (option) {
+                case IGNORE_CASE:
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                case MULTILINE:
+                    flags |= Pattern.MULTILINE;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return flags;
     }
 
-    private String makeSafeForCharacterClass(final String s) {
-        String result = s
-                // Replace ] with \]
-                .replace("]", "\\]")
-                // Replace - with \-
-                .replace("-", "\\-");
+    /**
+     * Rewrite nodes as the options require: {@link RegexOptions#ASCII_ONLY} converts character classes, then
+     * {@link RegexOptions#OPTIMIZE} optimizes the result
+     */
+    static List<RegexNode> rewrite(final List<RegexNode> nodes, final RegexOptions[] options) {
+        final List<RegexNode> converted = hasOption(options, RegexOptions.ASCII_ONLY)
+                ? RegexAsciiConverter.convert(nodes)
+                : nodes;
+        return hasOption(options, RegexOptions.OPTIMIZE) ? RegexOptimizer.optimize(converted) : converted;
+    }
 
-        // replace ^ with \^ if it occurs at the start of the string
-        if (result.startsWith("^")) {
-            result = "\\" + result;
+    static boolean hasOption(final RegexOptions[] options, final RegexOptions option) {
+        for (final RegexOptions o : options) {
+            if (o == option) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        return result;
-    }
-
-    private static String makeSafeForRegex(final String s) {
-        return (s == null) ? "" : s
-                // Make sure this always comes first!
-                .replace("\\", "\\\\")
-                .replace("?", "\\?")
-                .replace(".", "\\.")
-                .replace("+", "\\+")
-                .replace("*", "\\*")
-                .replace("^", "\\^")
-                .replace("$", "\\$")
-                .replace("(", "\\(")
-                .replace(")", "\\)")
-                .replace("[", "\\[")
-                .replace("]", "\\]")
-                .replace("{", "\\{")
-                .replace("}", "\\}")
-                .replace("|", "\\|");
+    /**
+     * A group which has been started but not yet ended, and the nodes added to it so far
+     */
+    private static final class OpenGroup {
+        private final RegexNode.GroupType type;
+        private final String name;
+        private final List<RegexNode> nodes;
+
+        OpenGroup(final RegexNode.GroupType type, final String name) {
+            this.type = type;
+            this.name = name;
+            nodes = new ArrayList<>();
+        }
     }
 }
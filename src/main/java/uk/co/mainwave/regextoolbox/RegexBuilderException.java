@@ -12,12 +12,12 @@ public final class RegexBuilderException extends RuntimeException {
     /**
      * Constructor
      *
-     * @param message       Message describing the error
-     * @param stringBuilder The current regex string being built by {@link RegexBuilder}
+     * @param message     Message describing the error
+     * @param regexString The current regex string being built by {@link RegexBuilder}
      */
-    RegexBuilderException(final String message, final StringBuilder stringBuilder) {
+    RegexBuilderException(final String message, final CharSequence regexString) {
         super(message);
-        regexString = stringBuilder.toString();
+        this.regexString = regexString.toString();
     }
 
     /**
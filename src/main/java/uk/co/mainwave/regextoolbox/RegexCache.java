@@ -0,0 +1,175 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Thread-safe, size-bounded cache of compiled {@link Pattern} objects, keyed by regex string and flags.
+ * <p>
+ * Pass a cache to {@link RegexBuilder#RegexBuilder(RegexCache)} to have {@link RegexBuilder#buildRegex(RegexOptions...)}
+ * return an already-compiled {@link Pattern} when the same regex has been built before, instead of compiling it
+ * again. When the cache is full the least recently used pattern is evicted.
+ * <p>
+ * Builders that pass the same instance share their cached patterns: use {@link #shared()} for a process-wide cache,
+ * or create your own instances to keep caches isolated from each other.
+ */
+public final class RegexCache {
+    private static final int DEFAULT_MAXIMUM_SIZE = 256;
+    private static final RegexCache SHARED_INSTANCE = new RegexCache();
+
+    private final int maximumSize;
+    private final Map<Key, Pattern> patterns;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache holding up to 256 patterns
+     */
+    public RegexCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create a cache holding up to the given number of patterns
+     *
+     * @param maximumSize Maximum number of patterns to hold before the least recently used is evicted
+     * @throws IllegalArgumentException maximumSize is less than 1
+     */
+    public RegexCache(final int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        this.maximumSize = maximumSize;
+        patterns = new LinkedHashMap<Key, Pattern>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Pattern> eldest) {
+                if (size() > RegexCache.this.maximumSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the process-wide cache instance, holding up to 256 patterns
+     *
+     * @return The shared {@link RegexCache}
+     */
+    public static RegexCache shared() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Get the compiled {@link Pattern} for a regex string and flags, compiling and caching it if it isn't already
+     * cached.
+     *
+     * @param regex Regex string to compile
+     * @param flags Flags as passed to {@link Pattern#compile(String, int)}
+     * @return The cached {@link Pattern}
+     */
+    public Pattern getPattern(final String regex, final int flags) {
+        final Key key = new Key(regex, flags);
+        synchronized (this) {
+            final Pattern pattern = patterns.get(key);
+            if (pattern != null) {
+                hitCount++;
+                return pattern;
+            }
+            missCount++;
+        }
+
+        // Compile outside the lock so a slow compilation doesn't block other threads
+        final Pattern pattern = Pattern.compile(regex, flags);
+        synchronized (this) {
+            final Pattern existing = patterns.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            patterns.put(key, pattern);
+            return pattern;
+        }
+    }
+
+    /**
+     * Get the maximum number of patterns this cache will hold
+     *
+     * @return Maximum size
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Get the number of patterns currently cached
+     *
+     * @return Current size
+     */
+    public synchronized int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Get the number of lookups that returned an already-compiled pattern
+     *
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of lookups that had to compile a new pattern
+     *
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of patterns evicted to keep the cache within its maximum size
+     *
+     * @return Eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Remove all cached patterns. The hit, miss and eviction counts are not reset.
+     */
+    public synchronized void clear() {
+        patterns.clear();
+    }
+
+    private static final class Key {
+        private final String regex;
+        private final int flags;
+
+        Key(final String regex, final int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return flags == other.flags && regex.equals(other.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * regex.hashCode() + flags;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Finds matches for a regex built with {@link RegexBuilder#buildCaptureMatcher(RegexOptions...)}, together with the
+ * positions of its capturing groups, without backtracking.
+ * <p>
+ * Positions are written into an array supplied by the caller, so that nothing is allocated for each match. The array
+ * must have at least {@code 2 * (getGroupCount() + 1)} elements: for group {@code g}, element {@code 2 * g} is the
+ * start and element {@code 2 * g + 1} is the end, as {@link java.util.regex.Matcher#start(int)} and
+ * {@link java.util.regex.Matcher#end(int)} would return, or -1 if the group took no part in the match. Group 0 is
+ * the whole match. The array is only written to when a match is found.
+ * <pre>{@code
+ * RegexCaptureMatcher matcher = new RegexBuilder()
+ *     .startNamedGroup("level")
+ *     .uppercaseLetter(RegexQuantifier.oneOrMore())
+ *     .endGroup()
+ *     .buildCaptureMatcher();
+ * int[] groups = new int[2 * (matcher.getGroupCount() + 1)];
+ * int level = matcher.getGroupNumber("level");
+ * if (matcher.find(line, 0, groups)) {
+ *     CharSequence value = line.subSequence(groups[2 * level], groups[2 * level + 1]);
+ * }
+ * }</pre>
+ * Implementations are thread-safe.
+ */
+public interface RegexCaptureMatcher extends RegexMatcher {
+    /**
+     * Get the number of capturing groups in the regex, not counting group 0
+     *
+     * @return Number of capturing groups
+     */
+    int getGroupCount();
+
+    /**
+     * Get the number of a named group
+     *
+     * @param name Name given to {@link RegexBuilder#startNamedGroup(String)}
+     * @return Group number
+     * @throws IllegalArgumentException There is no group with that name
+     */
+    int getGroupNumber(String name);
+
+    /**
+     * Test whether the entire input matches the regex, as {@link java.util.regex.Matcher#matches()}, and if so get
+     * the positions of the groups
+     *
+     * @param input  Input to test
+     * @param groups Array to receive the start and end of each group
+     * @return true if the entire input matches
+     * @throws IllegalArgumentException groups is too short
+     */
+    boolean matches(CharSequence input, int[] groups);
+
+    /**
+     * Find the next match starting at or after a position, as {@link java.util.regex.Matcher#find(int)}, and get the
+     * positions of its groups. To find every match, start the next search from the end of the previous match, or
+     * one character after it if the match was empty.
+     *
+     * @param input  Input to search
+     * @param from   Position to start searching from
+     * @param groups Array to receive the start and end of each group
+     * @return true if a match is found
+     * @throws IllegalArgumentException  groups is too short
+     * @throws IndexOutOfBoundsException from is less than zero or greater than the length of the input
+     */
+    boolean find(CharSequence input, int from, int[] groups);
+}
@@ -0,0 +1,50 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static method with no parameters which returns a {@link RegexBuilder}, so that
+ * {@link RegexConstantGenerator} can build its regex at compile time and emit it as a string constant. Code which
+ * uses the generated constant skips the fluent building, and optionally the validation, when it starts up.
+ * <p>
+ * Example:
+ * <pre>
+ * &#64;RegexConstant(options = RegexOptions.IGNORE_CASE, pattern = true)
+ * static RegexBuilder logLevel() {
+ *     return new RegexBuilder()
+ *         .anyOf("DEBUG", "INFO", "WARN", "ERROR")
+ *         .wordBoundary();
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RegexConstant {
+    /**
+     * Name of the generated constant. If empty, the method name is converted to upper case with underscores between
+     * words, so {@code logLevel()} becomes {@code LOG_LEVEL}.
+     *
+     * @return Constant name
+     */
+    String name() default "";
+
+    /**
+     * Options to build the regex with, as passed to {@link RegexBuilder#buildRegex(RegexOptions...)}
+     *
+     * @return Regex options
+     */
+    RegexOptions[] options() default {};
+
+    /**
+     * Whether to also generate a method returning the compiled {@link java.util.regex.Pattern}, which is compiled
+     * on first use
+     *
+     * @return true to generate a pattern method
+     */
+    boolean pattern() default false;
+}
@@ -0,0 +1,299 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Generates a Java source file of string constants from methods annotated with {@link RegexConstant}, so that the
+ * regexes are built and validated when the project is compiled rather than when it starts up. The annotated classes
+ * must already be compiled, so they are usually kept in a source set of their own which is compiled first: see the
+ * README for a Gradle task which does this.
+ * <p>
+ * For each annotated method the generated class has a {@code String} constant holding the regex, an {@code int}
+ * constant holding its {@link Pattern} flags, and if requested a method returning the compiled {@link Pattern}.
+ */
+public final class RegexConstantGenerator {
+    private static final String USAGE =
+            "Usage: RegexConstantGenerator <output directory> <generated class name> <annotated class name>...";
+    private static final String INDENT = "    ";
+
+    private RegexConstantGenerator() {
+    }
+
+    /**
+     * Generate a source file and write it under a directory, in the subdirectory matching its package
+     *
+     * @param args Output directory, fully qualified name of the class to generate, then the fully qualified names of
+     *             the classes containing annotated methods
+     * @throws IOException              The file could not be written
+     * @throws ClassNotFoundException   An annotated class is not on the classpath
+     * @throws IllegalArgumentException Too few arguments, or an annotated method is invalid
+     */
+    public static void main(final String[] args) throws IOException, ClassNotFoundException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException(USAGE);
+        }
+
+        final ClassLoader classLoader = RegexConstantGenerator.class.getClassLoader();
+        final Class<?>[] sources = new Class<?>[args.length - 2];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = Class.forName(args[i + 2], true, classLoader);
+        }
+
+        final String className = args[1];
+        final Path file = Paths.get(args[0], className.replace('.', '/') + ".java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, generate(className, sources).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generate the source of a class of constants for the methods annotated with {@link RegexConstant}
+     *
+     * @param className Fully qualified name of the class to generate
+     * @param sources   Classes containing annotated methods
+     * @return Java source code
+     * @throws IllegalArgumentException An annotated method is not static, has parameters, doesn't return a
+     *                                  {@link RegexBuilder}, fails to build its regex, or has the same constant name as
+     *                                  another
+     */
+    public static String generate(final String className, final Class<?>... sources) {
+        final List<Constant> constants = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (final Class<?> source : sources) {
+            final Method[] methods = source.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (final Method method : methods) {
+                final RegexConstant annotation = method.getAnnotation(RegexConstant.class);
+                if (annotation == null) {
+                    continue;
+                }
+                final Constant constant = buildConstant(method, annotation);
+                if (!names.add(constant.name)) {
+                    throw new IllegalArgumentException(describe(method) + ": duplicate constant name " + constant.name);
+                }
+                constants.add(constant);
+            }
+        }
+
+        final int lastDot = className.lastIndexOf('.');
+        final String simpleName = className.substring(lastDot + 1);
+        final StringBuilder source = new StringBuilder();
+        if (lastDot >= 0) {
+            source.append("package ").append(className, 0, lastDot).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Regexes built at compile time by {@link ")
+                .append(RegexConstantGenerator.class.getName())
+                .append("}. Do not edit.\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName).append(" {\n");
+
+        for (final Constant constant : constants) {
+            appendComment(source, "Built by {@code " + constant.source + "}");
+            source.append(INDENT).append("public static final String ").append(constant.name).append(" = ");
+            appendStringLiteral(source, constant.regex);
+            source.append(";\n\n");
+            appendComment(source, "{@link java.util.regex.Pattern} flags for {@link #" + constant.name + "}");
+            source.append(INDENT).append("public static final int ").append(constant.name).append("_FLAGS = ")
+                    .append(flagsExpression(constant.flags)).append(";\n\n");
+        }
+
+        source.append(INDENT).append("private ").append(simpleName).append("() {\n")
+                .append(INDENT).append("}\n");
+
+        for (final Constant constant : constants) {
+            if (!constant.pattern) {
+                continue;
+            }
+            final String holder = toCamelCase(constant.name, true) + "Holder";
+            source.append('\n');
+            appendComment(source, "Get {@link #" + constant.name + "} compiled, compiling it on first use",
+                    "",
+                    "@return Compiled pattern");
+            source.append(INDENT).append("public static java.util.regex.Pattern ")
+                    .append(toCamelCase(constant.name, false)).append("Pattern() {\n")
+                    .append(INDENT).append(INDENT).append("return ").append(holder).append(".PATTERN;\n")
+                    .append(INDENT).append("}\n\n")
+                    .append(INDENT).append("private static final class ").append(holder).append(" {\n")
+                    .append(INDENT).append(INDENT)
+                    .append("static final java.util.regex.Pattern PATTERN = java.util.regex.Pattern.compile(")
+                    .append(constant.name).append(", ").append(constant.name).append("_FLAGS);\n")
+                    .append(INDENT).append("}\n");
+        }
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static Constant buildConstant(final Method method, final RegexConstant annotation) {
+        if (!Modifier.isStatic(method.getModifiers())
+                || method.getParameterCount() != 0
+                || method.getReturnType() != RegexBuilder.class) {
+            throw new IllegalArgumentException(describe(method) + " must be static, take no parameters and return "
+                    + RegexBuilder.class.getSimpleName());
+        }
+
+        final String name = annotation.name().isEmpty()
+                ? toConstantName(method.getName())
+                : annotation.name();
+        if (!isIdentifier(name)) {
+            throw new IllegalArgumentException(describe(method) + ": invalid constant name " + name);
+        }
+
+        final Pattern pattern;
+        try {
+            method.setAccessible(true);
+            final RegexBuilder builder = (RegexBuilder) method.invoke(null);
+            pattern = builder.buildRegex(annotation.options());
+        } catch (final IllegalAccessException e) {
+            throw new IllegalArgumentException(describe(method) + " could not be called", e);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalArgumentException(describe(method) + " threw " + e.getCause(), e.getCause());
+        } catch (final RegexBuilderException | PatternSyntaxException e) {
+            throw new IllegalArgumentException(describe(method) + " built an invalid regex: " + e.getMessage(), e);
+        }
+
+        return new Constant(name, describe(method), pattern.pattern(), pattern.flags(), annotation.pattern());
+    }
+
+    private static String flagsExpression(final int flags) {
+        final List<String> names = new ArrayList<>();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+            names.add("java.util.regex.Pattern.CASE_INSENSITIVE");
+        }
+        if ((flags & Pattern.MULTILINE) != 0) {
+            names.add("java.util.regex.Pattern.MULTILINE");
+        }
+        final int others = flags & ~(Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+        if (others != 0 || names.isEmpty()) {
+            names.add(Integer.toString(others));
+        }
+        return String.join(" | ", names);
+    }
+
+    private static String describe(final Method method) {
+        return method.getDeclaringClass().getName() + "." + method.getName() + "()";
+    }
+
+    private static void appendComment(final StringBuilder source, final String... lines) {
+        source.append(INDENT).append("/**\n");
+        for (final String line : lines) {
+            source.append(INDENT).append(" *");
+            if (!line.isEmpty()) {
+                source.append(' ').append(line);
+            }
+            source.append('\n');
+        }
+        source.append(INDENT).append(" */\n");
+    }
+
+    /**
+     * Append a string as a Java string literal, escaping anything outside printable ASCII
+     */
+    private static void appendStringLiteral(final StringBuilder source, final String s) {
+        source.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    source.append("\\\"");
+                    break;
+                case '\\':
+                    source.append("\\\\");
+                    break;
+                case '\n':
+                    source.append("\\n");
+                    break;
+                case '\r':
+                    source.append("\\r");
+                    break;
+                case '\t':
+                    source.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c > '~') {
+                        source.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        source.append(c);
+                    }
+                    break;
+            }
+        }
+        source.append('"');
+    }
+
+    /**
+     * Convert a method name such as {@code logLevel} to a constant name such as {@code LOG_LEVEL}
+     */
+    private static String toConstantName(final String methodName) {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < methodName.length(); i++) {
+            final char c = methodName.charAt(i);
+            if (i > 0 && Character.isUpperCase(c) && !Character.isUpperCase(methodName.charAt(i - 1))) {
+                name.append('_');
+            }
+            name.append(Character.toUpperCase(c));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Convert a constant name such as {@code LOG_LEVEL} to {@code logLevel}, or {@code LogLevel} if capitalized
+     */
+    private static String toCamelCase(final String constantName, final boolean capitalize) {
+        final StringBuilder name = new StringBuilder();
+        boolean upper = capitalize;
+        for (int i = 0; i < constantName.length(); i++) {
+            final char c = constantName.charAt(i);
+            if (c == '_') {
+                upper = name.length() > 0 || capitalize;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    private static boolean isIdentifier(final String name) {
+        if (!Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Constant {
+        private final String name;
+        private final String source;
+        private final String regex;
+        private final int flags;
+        private final boolean pattern;
+
+        Constant(final String name, final String source, final String regex, final int flags, final boolean pattern) {
+            this.name = name;
+            this.source = source;
+            this.regex = regex;
+            this.flags = flags;
+            this.pattern = pattern;
+        }
+    }
+}
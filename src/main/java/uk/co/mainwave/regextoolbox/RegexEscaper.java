@@ -0,0 +1,103 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Escapes literal text for use in a regex, appending the result directly to a {@link StringBuilder} in a single
+ * pass so that no intermediate strings are allocated.
+ */
+final class RegexEscaper {
+    private static final String QUOTE_START = "\\Q";
+    private static final String QUOTE_END = "\\E";
+    private static final int QUOTE_OVERHEAD = QUOTE_START.length() + QUOTE_END.length();
+
+    private RegexEscaper() {
+    }
+
+    /**
+     * Append text to a regex, escaping any regex special characters. If the text contains enough special characters
+     * that quoting it with {@code \Q...\E} is shorter than escaping each one, it is quoted instead.
+     *
+     * @param stringBuilder Regex being built
+     * @param s             Text to append: null is treated as an empty string
+     */
+    static void appendSafeForRegex(final StringBuilder stringBuilder, final String s) {
+        if (s == null) {
+            return;
+        }
+
+        final int length = s.length();
+        int specialCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (isSpecialCharacter(s.charAt(i))) {
+                specialCount++;
+            }
+        }
+
+        if (specialCount == 0) {
+            stringBuilder.append(s);
+            return;
+        }
+
+        if (specialCount > QUOTE_OVERHEAD && !s.contains(QUOTE_END)) {
+            stringBuilder.append(QUOTE_START).append(s).append(QUOTE_END);
+            return;
+        }
+
+        stringBuilder.ensureCapacity(stringBuilder.length() + length + specialCount);
+        for (int i = 0; i < length; i++) {
+            appendSafeForRegex(stringBuilder, s.charAt(i));
+        }
+    }
+
+    /**
+     * Append a single character to a regex, escaping it if it's a regex special character
+     *
+     * @param stringBuilder Regex being built
+     * @param c             Character to append
+     */
+    static void appendSafeForRegex(final StringBuilder stringBuilder, final char c) {
+        if (isSpecialCharacter(c)) {
+            stringBuilder.append('\\');
+        }
+        stringBuilder.append(c);
+    }
+
+    /**
+     * Append characters to the inside of a character class, escaping {@code ]}, {@code -}, and {@code ^} if it's
+     * the first character.
+     *
+     * @param stringBuilder Regex being built
+     * @param s             Characters to append
+     */
+    static void appendSafeForCharacterClass(final StringBuilder stringBuilder, final String s) {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c == ']' || c == '-' || (c == '^' && i == 0)) {
+                stringBuilder.append('\\');
+            }
+            stringBuilder.append(c);
+        }
+    }
+
+    private static boolean isSpecialCharacter(final char c) {
+        switch (c) {
+            case '\\':
+            case '?':
+            case '.':
+            case '+':
+            case '*':
+            case '^':
+            case '$':
+            case '(':
+            case ')':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '|':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds matches for a regex built with {@link RegexBuilder#buildFileScanner(RegexOptions...)} in large files, using
+ * every core. The file is memory-mapped in chunks which end at line breaks, the chunks are matched in parallel on a
+ * {@link ForkJoinPool}, and the matches are reported in the order they occur in the file.
+ * <p>
+ * As with grep, each line is matched on its own, without its line terminator ({@code \n} or {@code \r\n}), so a
+ * match never spans lines and {@code ^} and {@code $} match at the start and end of every line. Offsets are in chars
+ * from the start of the file, counting line terminators.
+ * <p>
+ * The file must be in an encoding which encodes ASCII as single bytes and never uses those bytes for anything else,
+ * such as UTF-8, US-ASCII, ISO-8859-1 or another single-byte encoding, so that lines can be found without decoding.
+ * Lines which are entirely ASCII are matched directly against the mapped bytes, and only lines containing other
+ * characters are decoded.
+ * <p>
+ * Instances are immutable and thread-safe.
+ * <pre>{@code
+ * RegexFileScanner scanner = new RegexBuilder()
+ *     .text("ERROR [")
+ *     .letter(RegexQuantifier.oneOrMore())
+ *     .text("]")
+ *     .buildFileScanner();
+ * scanner.scan(logFile, StandardCharsets.UTF_8, (start, end, match) -> {
+ *     System.out.println(start + ": " + match);
+ *     return true;
+ * });
+ * }</pre>
+ */
+public final class RegexFileScanner {
+    /**
+     * Default number of bytes in each chunk, which is extended to the end of the line it finishes in
+     */
+    static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    private static final int LINE_SEARCH_SIZE = 4096;
+
+    private final Pattern pattern;
+    private final int chunkSize;
+
+    /**
+     * @param pattern   Compiled regex
+     * @param chunkSize Number of bytes in each chunk
+     */
+    RegexFileScanner(final Pattern pattern, final int chunkSize) {
+        this.pattern = pattern;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a scanner for the same regex which splits files into chunks of a different size
+     *
+     * @param chunkSize Number of bytes in each chunk
+     * @return A new {@link RegexFileScanner}
+     */
+    RegexFileScanner withChunkSize(final int chunkSize) {
+        return new RegexFileScanner(pattern, chunkSize);
+    }
+
+    /**
+     * Report every match in a file, using the common {@link ForkJoinPool}, until the end of the file or until the
+     * handler returns false
+     *
+     * @param file    File to scan
+     * @param charset Encoding of the file
+     * @param handler Callback receiving each match, always on the calling thread
+     * @return Number of matches reported
+     * @throws IOException              Reading the file failed, or its contents are not valid in the encoding
+     * @throws IllegalArgumentException The encoding doesn't encode ASCII as single bytes
+     */
+    public long scan(final Path file,
+                     final Charset charset,
+                     final RegexStreamMatchHandler handler) throws IOException {
+        return scan(file, charset, ForkJoinPool.commonPool(), handler);
+    }
+
+    /**
+     * Report every match in a file, until the end of the file or until the handler returns false
+     *
+     * @param file    File to scan
+     * @param charset Encoding of the file
+     * @param pool    Pool to match chunks on
+     * @param handler Callback receiving each match, always on the calling thread
+     * @return Number of matches reported
+     * @throws IOException              Reading the file failed, or its contents are not valid in the encoding
+     * @throws IllegalArgumentException The encoding doesn't encode ASCII as single bytes
+     */
+    public long scan(final Path file,
+                     final Charset charset,
+                     final ForkJoinPool pool,
+                     final RegexStreamMatchHandler handler) throws IOException {
+        checkCharset(charset);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            // Keep enough chunks in flight to occupy the pool while the results of the first are reported
+            final int window = 2 * pool.getParallelism();
+            final Deque<ForkJoinTask<ChunkResult>> pending = new ArrayDeque<>();
+            long chunkStart = 0;
+            long charBase = 0;
+            long count = 0;
+            try {
+                while (chunkStart < size || !pending.isEmpty()) {
+                    while (chunkStart < size && pending.size() < window) {
+                        final long chunkEnd = findLineEnd(channel, Math.min(chunkStart + chunkSize, size), size);
+                        final long start = chunkStart;
+                        pending.add(pool.submit(() -> scanChunk(channel, start, chunkEnd, charset)));
+                        chunkStart = chunkEnd;
+                    }
+                    final ChunkResult result = await(pending.removeFirst());
+                    for (int i = 0; i < result.texts.size(); i++) {
+                        count++;
+                        if (!handler.onMatch(charBase + result.positions[2 * i],
+                                charBase + result.positions[2 * i + 1],
+                                result.texts.get(i))) {
+                            return count;
+                        }
+                    }
+                    charBase += result.charCount;
+                }
+                return count;
+            } finally {
+                for (final ForkJoinTask<ChunkResult> task : pending) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern.toString();
+    }
+
+    /**
+     * Find the matches in one chunk of the file
+     */
+    private ChunkResult scanChunk(final FileChannel channel,
+                                  final long start,
+                                  final long end,
+                                  final Charset charset) {
+        final MappedByteBuffer bytes;
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Every byte is a character in ISO-8859-1, so no line needs decoding
+        final boolean latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        final CharsetDecoder decoder = latin1 ? null : charset.newDecoder();
+        final ByteLine byteLine = new ByteLine(bytes);
+        final Matcher matcher = pattern.matcher("");
+        final ChunkResult result = new ChunkResult();
+        final int length = bytes.limit();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            int high = 0;
+            byte b;
+            while (lineEnd < length && (b = bytes.get(lineEnd)) != '\n') {
+                high |= b;
+                lineEnd++;
+            }
+            final int contentEnd = (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+
+            final CharSequence line;
+            if (latin1 || high >= 0) {
+                byteLine.set(lineStart, contentEnd - lineStart);
+                line = byteLine;
+            } else {
+                line = decode(decoder, bytes, lineStart, contentEnd);
+            }
+            matcher.reset(line);
+            while (matcher.find()) {
+                result.add(result.charCount + matcher.start(), result.charCount + matcher.end(), matcher.group());
+            }
+            result.charCount += line.length() + (lineEnd - contentEnd) + ((lineEnd < length) ? 1 : 0);
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private static CharBuffer decode(final CharsetDecoder decoder,
+                                     final ByteBuffer bytes,
+                                     final int start,
+                                     final int end) {
+        final ByteBuffer slice = bytes.duplicate();
+        slice.limit(end).position(start);
+        try {
+            return decoder.decode(slice);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find the end of the line containing a position, just after its line feed
+     */
+    private static long findLineEnd(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(LINE_SEARCH_SIZE);
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static ChunkResult await(final ForkJoinTask<ChunkResult> task) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private static void checkCharset(final Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1)) {
+            return;
+        }
+        if (charset.canEncode()) {
+            final CharsetEncoder encoder = charset.newEncoder();
+            if (encoder.maxBytesPerChar() == 1) {
+                final ByteBuffer ascii = StandardCharsets.ISO_8859_1.encode(CharBuffer.wrap(asciiCharacters()));
+                try {
+                    if (encoder.encode(CharBuffer.wrap(asciiCharacters())).equals(ascii)) {
+                        return;
+                    }
+                } catch (final IOException e) {
+                    // Not ASCII-compatible
+                }
+            }
+        }
+        throw new IllegalArgumentException("Cannot scan files encoded in " + charset
+                + ", which doesn't encode ASCII as single bytes");
+    }
+
+    private static char[] asciiCharacters() {
+        final char[] characters = new char[128];
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = (char) i;
+        }
+        return characters;
+    }
+
+    /**
+     * A line of ASCII bytes in a chunk, read as chars without decoding. The same instance is moved from line to line.
+     */
+    private static final class ByteLine implements CharSequence {
+        private final ByteBuffer bytes;
+        private int offset;
+        private int length;
+
+        ByteLine(final ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        void set(final int lineOffset, final int lineLength) {
+            offset = lineOffset;
+            length = lineLength;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (bytes.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            final char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = charAt(start + i);
+            }
+            return new String(chars);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+
+    /**
+     * Matches found in a chunk, with offsets in chars from the start of the chunk, and the number of chars in it
+     */
+    private static final class ChunkResult {
+        private long[] positions = new long[16];
+        private final List<String> texts = new ArrayList<>();
+        private long charCount;
+
+        void add(final long start, final long end, final String text) {
+            final int index = 2 * texts.size();
+            if (index == positions.length) {
+                positions = Arrays.copyOf(positions, index * 2);
+            }
+            positions[index] = start;
+            positions[index + 1] = end;
+            texts.add(text);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable part of a regex, built once with {@link RegexBuilder#buildFragment()} and then embedded in any number
+ * of regexes with {@link RegexBuilder#fragment(RegexFragment)}. Fragments are thread-safe, so one can be kept in a
+ * static field and shared without locking.
+ * <p>
+ * Example:
+ * <pre>
+ * static final RegexFragment OCTET = new RegexBuilder()
+ *     .digit(RegexQuantifier.between(1, 3))
+ *     .buildFragment();
+ *
+ * final Pattern ipAddress = new RegexBuilder()
+ *     .fragment(OCTET)
+ *     .startNonCapturingGroup()
+ *     .text(".")
+ *     .fragment(OCTET)
+ *     .endGroup(RegexQuantifier.exactly(3))
+ *     .buildRegex();
+ * </pre>
+ */
+public final class RegexFragment {
+    private final List<RegexNode> nodes;
+    private final String regexString;
+    private final int groupCount;
+    private final List<String> groupNames;
+
+    /**
+     * @param nodes Nodes making up the fragment, which are copied
+     */
+    RegexFragment(final List<RegexNode> nodes) {
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        regexString = RegexRenderer.render(this.nodes);
+        final List<String> names = new ArrayList<>();
+        groupCount = countGroups(this.nodes, names);
+        groupNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Get a copy of the nodes making up the fragment. The analyzer and the automaton compiler tell nodes apart by
+     * identity, so a fragment added to a regex more than once must not share nodes between its copies.
+     *
+     * @return Copied nodes
+     */
+    List<RegexNode> copyNodes() {
+        final List<RegexNode> copies = new ArrayList<>(nodes.size());
+        for (final RegexNode node : nodes) {
+            copies.add(node.accept(Copier.INSTANCE));
+        }
+        return copies;
+    }
+
+    /**
+     * Get the number of capturing groups in the fragment, including named groups. Embedding the fragment adds this
+     * many groups to the regex, numbered in order after any groups started before it.
+     *
+     * @return Number of capturing groups
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Get the names of the named groups in the fragment, in the order they start. Since a regex can't have two
+     * groups with the same name, a fragment with named groups can only be embedded once in each regex.
+     *
+     * @return Group names
+     */
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    /**
+     * Get the fragment as a regex string, rendered when the fragment was built
+     *
+     * @return Regex string
+     */
+    @Override
+    public String toString() {
+        return regexString;
+    }
+
+    private static int countGroups(final List<RegexNode> nodes, final List<String> names) {
+        int count = 0;
+        for (final RegexNode node : nodes) {
+            if (node instanceof RegexNode.Group) {
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (group.getType() == RegexNode.GroupType.NAMED) {
+                    names.add(group.getName());
+                }
+                if (group.getType() == RegexNode.GroupType.CAPTURING || group.getType() == RegexNode.GroupType.NAMED) {
+                    count++;
+                }
+                count += countGroups(group.getChildren(), names);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies a tree of nodes
+     */
+    private static final class Copier implements RegexNode.Visitor<RegexNode> {
+        private static final Copier INSTANCE = new Copier();
+
+        @Override
+        public RegexNode visitLiteral(final RegexNode.Literal node) {
+            return new RegexNode.Literal(node.getText(), node.getRegex(), node.getQuantifier());
+        }
+
+        @Override
+        public RegexNode visitCharacterClass(final RegexNode.CharacterClass node) {
+            return new RegexNode.CharacterClass(node.getType(), node.getCharacters(), node.getQuantifier());
+        }
+
+        @Override
+        public RegexNode visitAlternation(final RegexNode.Alternation node) {
+            return new RegexNode.Alternation(node.getStrings().toArray(new String[0]), node.getQuantifier());
+        }
+
+        @Override
+        public RegexNode visitAnchor(final RegexNode.Anchor node) {
+            return new RegexNode.Anchor(node.getType());
+        }
+
+        @Override
+        public RegexNode visitGroup(final RegexNode.Group node) {
+            final List<RegexNode> children = new ArrayList<>(node.getChildren().size());
+            for (final RegexNode child : node.getChildren()) {
+                children.add(child.accept(this));
+            }
+            return new RegexNode.Group(node.getType(), node.getName(), children, node.getQuantifier());
+        }
+
+        @Override
+        public RegexNode visitRaw(final RegexNode.Raw node) {
+            return new RegexNode.Raw(node.getRegex(), node.getQuantifier());
+        }
+    }
+}
@@ -5,8 +5,32 @@ package uk.co.mainwave.regextoolbox;
  * to match a variable number of elements it will match as many as possible.
  */
 public final class RegexGreedyQuantifier extends RegexQuantifier {
-    RegexGreedyQuantifier(final String regexString) {
-        super(regexString);
+    // Non-greedy and possessive versions, created up front for interned quantifiers so that asking for them
+    // allocates nothing; otherwise null
+    private final RegexQuantifier nonGreedy;
+    private final RegexQuantifier possessive;
+
+    RegexGreedyQuantifier(final String regexString, final int minimum, final int maximum) {
+        this(regexString, minimum, maximum, null, null);
+    }
+
+    private RegexGreedyQuantifier(final String regexString,
+                                  final int minimum,
+                                  final int maximum,
+                                  final RegexQuantifier nonGreedy,
+                                  final RegexQuantifier possessive) {
+        super(regexString, minimum, maximum, Mode.GREEDY);
+        this.nonGreedy = nonGreedy;
+        this.possessive = possessive;
+    }
+
+    /**
+     * Create a quantifier to be interned, along with its non-greedy and possessive versions
+     */
+    static RegexGreedyQuantifier interned(final String regexString, final int minimum, final int maximum) {
+        return new RegexGreedyQuantifier(regexString, minimum, maximum,
+                new RegexQuantifier(regexString + "?", minimum, maximum, Mode.LAZY),
+                new RegexQuantifier(regexString + "+", minimum, maximum, Mode.POSSESSIVE));
     }
 
     /**
@@ -16,7 +40,23 @@ public final class RegexGreedyQuantifier extends RegexQuantifier {
      * @return A non-greedy quantifier
      */
     public RegexQuantifier butAsFewAsPossible() {
-        makeNonGreedy();
-        return this;
+        return (nonGreedy != null)
+                ? nonGreedy
+                : new RegexQuantifier(this + "?", getMinimum(), getMaximum(), Mode.LAZY);
+    }
+
+    /**
+     * Get a possessive version of this quantifier: in other words, it will match
+     * as many elements as possible and never give any of them back, even if that
+     * means the rest of the regex can't match. This stops the regex engine
+     * trying every shorter repetition when a match fails, which can make a
+     * pattern fail much faster on input that almost matches.
+     *
+     * @return A possessive quantifier
+     */
+    public RegexQuantifier butWithoutBacktracking() {
+        return (possessive != null)
+                ? possessive
+                : new RegexQuantifier(this + "+", getMinimum(), getMaximum(), Mode.POSSESSIVE);
     }
 }
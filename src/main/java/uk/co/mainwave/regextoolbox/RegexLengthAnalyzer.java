@@ -0,0 +1,165 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.List;
+
+/**
+ * Works out the shortest and longest input a tree of {@link RegexNode}s can match, in chars, from the structure of
+ * the tree. A character class that can match a character outside the Basic Multilingual Plane may take two chars.
+ * Regex text added with {@link RegexBuilder#regexText(String)} isn't analyzed. Since it is rendered as it is, a
+ * {@code |} in it can split the whole regex into alternatives, so a regex containing any regex text may match anything
+ * from the empty string upwards.
+ */
+final class RegexLengthAnalyzer implements RegexNode.Visitor<long[]> {
+    /**
+     * Maximum length of a regex with no upper limit on the length of its matches
+     */
+    static final int UNBOUNDED = -1;
+
+    private static final RegexLengthAnalyzer INSTANCE = new RegexLengthAnalyzer();
+    private static final long UNBOUNDED_LENGTH = Long.MAX_VALUE;
+
+    private final boolean ignoreCase;
+
+    private RegexLengthAnalyzer() {
+        this(false);
+    }
+
+    private RegexLengthAnalyzer(final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Get the length of the shortest input the nodes can match
+     *
+     * @param nodes Nodes to analyze
+     * @return Minimum length in chars
+     */
+    static int getMinimumLength(final List<RegexNode> nodes) {
+        if (containsRegexText(nodes)) {
+            return 0;
+        }
+        return (int) Math.min(INSTANCE.visitSequence(nodes)[0], Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the length of the longest input the nodes can match
+     *
+     * @param nodes      Nodes to analyze
+     * @param ignoreCase Whether the regex is case-insensitive
+     * @return Maximum length in chars, or {@link #UNBOUNDED} if there is no limit
+     */
+    static int getMaximumLength(final List<RegexNode> nodes, final boolean ignoreCase) {
+        if (containsRegexText(nodes)) {
+            return UNBOUNDED;
+        }
+        final long maximum = new RegexLengthAnalyzer(ignoreCase).visitSequence(nodes)[1];
+        return (maximum > Integer.MAX_VALUE) ? UNBOUNDED : (int) maximum;
+    }
+
+    /**
+     * Test whether any of the nodes, or the nodes in their groups, is regex text, which can change how the rest of the
+     * regex matches: a {@code |} splits it into alternatives, and inline flags such as {@code (?i)} apply to what
+     * follows
+     *
+     * @param nodes Nodes to check
+     * @return true if there is regex text anywhere in the tree
+     */
+    static boolean containsRegexText(final List<RegexNode> nodes) {
+        for (final RegexNode node : nodes) {
+            if (node instanceof RegexNode.Raw
+                    || (node instanceof RegexNode.Group && containsRegexText(((RegexNode.Group) node).getChildren()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test whether an input has a length that a match of the whole of it could have
+     *
+     * @param input         Input to test
+     * @param minimumLength Length of the shortest match
+     * @param maximumLength Length of the longest match, or {@link #UNBOUNDED}
+     * @return false if the input is too short or too long to match in its entirety
+     */
+    static boolean canMatchWhole(final CharSequence input, final int minimumLength, final int maximumLength) {
+        final int length = input.length();
+        return length >= minimumLength && (maximumLength == UNBOUNDED || length <= maximumLength);
+    }
+
+    @Override
+    public long[] visitLiteral(final RegexNode.Literal node) {
+        final int length = node.getText().length();
+        return quantify(length, length, node);
+    }
+
+    @Override
+    public long[] visitCharacterClass(final RegexNode.CharacterClass node) {
+        final CharacterSet set = CharacterSet.forClass(node.getType(), node.getCharacters(), ignoreCase);
+        final boolean supplementary = set == null
+                || (set.getRangeCount() > 0 && set.getRangeEnd(set.getRangeCount() - 1) > Character.MAX_VALUE);
+        return quantify(1, supplementary ? 2 : 1, node);
+    }
+
+    @Override
+    public long[] visitAlternation(final RegexNode.Alternation node) {
+        long minimum = UNBOUNDED_LENGTH;
+        long maximum = 0;
+        for (final String string : node.getStrings()) {
+            minimum = Math.min(minimum, string.length());
+            maximum = Math.max(maximum, string.length());
+        }
+        return quantify(minimum, maximum, node);
+    }
+
+    @Override
+    public long[] visitAnchor(final RegexNode.Anchor node) {
+        return new long[]{0, 0};
+    }
+
+    @Override
+    public long[] visitGroup(final RegexNode.Group node) {
+        final long[] lengths = visitSequence(node.getChildren());
+        return quantify(lengths[0], lengths[1], node);
+    }
+
+    @Override
+    public long[] visitRaw(final RegexNode.Raw node) {
+        return new long[]{0, UNBOUNDED_LENGTH};
+    }
+
+    private long[] visitSequence(final List<RegexNode> nodes) {
+        long minimum = 0;
+        long maximum = 0;
+        for (final RegexNode node : nodes) {
+            final long[] lengths = node.accept(this);
+            minimum = add(minimum, lengths[0]);
+            maximum = add(maximum, lengths[1]);
+        }
+        return new long[]{minimum, maximum};
+    }
+
+    private static long[] quantify(final long minimum, final long maximum, final RegexNode node) {
+        final RegexQuantifier quantifier = node.getQuantifier();
+        if (quantifier == null) {
+            return new long[]{minimum, maximum};
+        }
+        final long quantifiedMaximum;
+        if (quantifier.getMaximum() == 0 || maximum == 0) {
+            quantifiedMaximum = 0;
+        } else if (quantifier.getMaximum() == RegexQuantifier.UNBOUNDED) {
+            quantifiedMaximum = UNBOUNDED_LENGTH;
+        } else {
+            quantifiedMaximum = multiply(maximum, quantifier.getMaximum());
+        }
+        return new long[]{multiply(minimum, quantifier.getMinimum()), quantifiedMaximum};
+    }
+
+    private static long add(final long a, final long b) {
+        return (a > UNBOUNDED_LENGTH - b) ? UNBOUNDED_LENGTH : a + b;
+    }
+
+    private static long multiply(final long a, final long b) {
+        return (b != 0 && a > UNBOUNDED_LENGTH / b) ? UNBOUNDED_LENGTH : a * b;
+    }
+}
@@ -0,0 +1,55 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Tests input against a regex built with {@link RegexBuilder#buildMatcher(RegexOptions...)}. Depending on the regex,
+ * implementations may avoid {@link java.util.regex.Pattern} altogether, but always give the same results as the
+ * equivalent {@link java.util.regex.Matcher} methods.
+ * <p>
+ * Matchers built from a regex know the shortest and longest match it can make, and reject input which is too short
+ * for any match, or too long to match in its entirety, without running the regex.
+ * <p>
+ * Implementations are thread-safe.
+ */
+public interface RegexMatcher {
+    /**
+     * Test whether the entire input matches the regex, as {@link java.util.regex.Matcher#matches()}
+     *
+     * @param input Input to test
+     * @return true if the entire input matches
+     */
+    boolean matches(CharSequence input);
+
+    /**
+     * Test whether the regex matches anywhere in the input, as {@link java.util.regex.Matcher#find()}
+     *
+     * @param input Input to test
+     * @return true if a match is found
+     */
+    boolean find(CharSequence input);
+
+    /**
+     * Test whether the regex matches at the start of the input, as {@link java.util.regex.Matcher#lookingAt()}
+     *
+     * @param input Input to test
+     * @return true if a match starts at the beginning of the input
+     */
+    boolean lookingAt(CharSequence input);
+
+    /**
+     * Get the length of the shortest match the regex can make
+     *
+     * @return Minimum length in chars, or 0 if not known
+     */
+    default int getMinimumLength() {
+        return 0;
+    }
+
+    /**
+     * Get the length of the longest match the regex can make
+     *
+     * @return Maximum length in chars, or -1 if there is no limit or it isn't known
+     */
+    default int getMaximumLength() {
+        return RegexLengthAnalyzer.UNBOUNDED;
+    }
+}
@@ -0,0 +1,343 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable node in the tree recorded by {@link RegexBuilder}. Each fluent call adds one node; groups hold the nodes
+ * added between {@link RegexBuilder#startGroup()} and {@link RegexBuilder#endGroup()}. The regex string is only
+ * rendered from the tree (by {@link RegexRenderer}) when the regex is built, so the structure is available for
+ * analysis and optimization first.
+ * <p>
+ * A node keeps the {@link RegexQuantifier} it was given rather than a copy. That is only safe because quantifiers are
+ * immutable: asking a quantifier for a lazy or possessive version returns another quantifier, so a tree which has been
+ * recorded can't change.
+ */
+abstract class RegexNode {
+    private final RegexQuantifier quantifier;
+
+    RegexNode(final RegexQuantifier quantifier) {
+        this.quantifier = quantifier;
+    }
+
+    /**
+     * Get the quantifier applied to this node
+     *
+     * @return Quantifier, or null if the node matches exactly once
+     */
+    final RegexQuantifier getQuantifier() {
+        return quantifier;
+    }
+
+    /**
+     * Dispatch to the visitor method for this type of node
+     *
+     * @param visitor Visitor
+     * @param <T>     Type returned by the visitor
+     * @return Value returned by the visitor
+     */
+    abstract <T> T accept(Visitor<T> visitor);
+
+    /**
+     * Visitor over the types of node
+     *
+     * @param <T> Type returned by each visit method
+     */
+    interface Visitor<T> {
+        T visitLiteral(Literal node);
+
+        T visitCharacterClass(CharacterClass node);
+
+        T visitAlternation(Alternation node);
+
+        T visitAnchor(Anchor node);
+
+        T visitGroup(Group node);
+
+        T visitRaw(Raw node);
+    }
+
+    /**
+     * Literal text, matched exactly
+     */
+    static final class Literal extends RegexNode {
+        private final String text;
+        private final String regex;
+
+        /**
+         * @param text       Text to match
+         * @param regex      Regex for the text if it shouldn't simply be escaped (e.g. {@code \t} for a tab), which
+         *                   must be a single atom that a quantifier can follow directly; or null to escape the text
+         * @param quantifier Quantifier, or null
+         */
+        Literal(final String text, final String regex, final RegexQuantifier quantifier) {
+            super(quantifier);
+            this.text = (text == null) ? "" : text;
+            this.regex = regex;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        String getRegex() {
+            return regex;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitLiteral(this);
+        }
+    }
+
+    /**
+     * A single character from a set, such as {@code \d} or {@code [abc]}
+     */
+    static final class CharacterClass extends RegexNode {
+        private final CharacterClassType type;
+        private final String characters;
+
+        /**
+         * @param type       Type of character class
+         * @param characters Characters to include or exclude, for {@link CharacterClassType#ANY_FROM} and
+         *                   {@link CharacterClassType#ANY_EXCEPT}; otherwise null
+         * @param quantifier Quantifier, or null
+         */
+        CharacterClass(final CharacterClassType type, final String characters, final RegexQuantifier quantifier) {
+            super(quantifier);
+            this.type = type;
+            this.characters = characters;
+        }
+
+        CharacterClassType getType() {
+            return type;
+        }
+
+        String getCharacters() {
+            return characters;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitCharacterClass(this);
+        }
+    }
+
+    /**
+     * Any one of a list of literal strings, in order of preference
+     */
+    static final class Alternation extends RegexNode {
+        private final List<String> strings;
+
+        Alternation(final String[] strings, final RegexQuantifier quantifier) {
+            super(quantifier);
+            final List<String> list = new ArrayList<>(strings.length);
+            for (final String string : strings) {
+                list.add((string == null) ? "" : string);
+            }
+            this.strings = Collections.unmodifiableList(list);
+        }
+
+        List<String> getStrings() {
+            return strings;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitAlternation(this);
+        }
+    }
+
+    /**
+     * A zero-width assertion
+     */
+    static final class Anchor extends RegexNode {
+        private final AnchorType type;
+
+        Anchor(final AnchorType type) {
+            super(null);
+            this.type = type;
+        }
+
+        AnchorType getType() {
+            return type;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitAnchor(this);
+        }
+    }
+
+    /**
+     * A group of nodes
+     */
+    static final class Group extends RegexNode {
+        private final GroupType type;
+        private final String name;
+        private final List<RegexNode> children;
+
+        /**
+         * @param type       Type of group
+         * @param name       Name of a {@link GroupType#NAMED} group; otherwise null
+         * @param children   Nodes in the group
+         * @param quantifier Quantifier, or null
+         */
+        Group(final GroupType type,
+              final String name,
+              final List<RegexNode> children,
+              final RegexQuantifier quantifier) {
+            super(quantifier);
+            this.type = type;
+            this.name = name;
+            this.children = Collections.unmodifiableList(new ArrayList<>(children));
+        }
+
+        GroupType getType() {
+            return type;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<RegexNode> getChildren() {
+            return children;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitGroup(this);
+        }
+    }
+
+    /**
+     * Regex text added with {@link RegexBuilder#regexText(String)}, which is opaque to analysis
+     */
+    static final class Raw extends RegexNode {
+        private final String regex;
+
+        Raw(final String regex, final RegexQuantifier quantifier) {
+            super(quantifier);
+            this.regex = regex;
+        }
+
+        String getRegex() {
+            return regex;
+        }
+
+        @Override
+        <T> T accept(final Visitor<T> visitor) {
+            return visitor.visitRaw(this);
+        }
+    }
+
+    /**
+     * Types of {@link CharacterClass}
+     */
+    enum CharacterClassType {
+        ANY_CHARACTER("."),
+        WHITESPACE("\\s"),
+        NON_WHITESPACE("\\S"),
+        DIGIT("\\d"),
+        NON_DIGIT("\\D"),
+        LETTER("\\p{L}"),
+        NON_LETTER("\\P{L}"),
+        UPPERCASE_LETTER("\\p{Lu}"),
+        LOWERCASE_LETTER("\\p{Ll}"),
+        LETTER_OR_DIGIT("[\\p{L}0-9]"),
+        NON_LETTER_OR_DIGIT("[^\\p{L}0-9]"),
+        HEX_DIGIT("[0-9A-Fa-f]"),
+        UPPERCASE_HEX_DIGIT("[0-9A-F]"),
+        LOWERCASE_HEX_DIGIT("[0-9a-f]"),
+        NON_HEX_DIGIT("[^0-9A-Fa-f]"),
+        WORD_CHARACTER("[\\p{L}0-9_]"),
+        NON_WORD_CHARACTER("[^\\p{L}0-9_]"),
+        // Without UNICODE_CHARACTER_CLASS, Pattern's POSIX classes and \w only match ASCII, and each is checked with
+        // a single table lookup instead of a range for each part of a class such as [A-Za-z0-9]
+        ASCII_LETTER("\\p{Alpha}"),
+        ASCII_NON_LETTER("\\P{Alpha}"),
+        ASCII_UPPERCASE_LETTER("[A-Z]"),
+        ASCII_LOWERCASE_LETTER("[a-z]"),
+        ASCII_LETTER_OR_DIGIT("\\p{Alnum}"),
+        ASCII_NON_LETTER_OR_DIGIT("\\P{Alnum}"),
+        ASCII_WORD_CHARACTER("\\w"),
+        ASCII_NON_WORD_CHARACTER("\\W"),
+        ANY_FROM(null),
+        ANY_EXCEPT(null);
+
+        private final String regex;
+
+        CharacterClassType(final String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Get the regex for this type of character class
+         *
+         * @return Regex, or null for {@link #ANY_FROM} and {@link #ANY_EXCEPT} which depend on their characters
+         */
+        String getRegex() {
+            return regex;
+        }
+
+        /**
+         * Get the type which matches the same ASCII characters as this type, and no characters outside ASCII except
+         * where this type is negated
+         *
+         * @return ASCII equivalent, or this type if it already only depends on ASCII characters
+         */
+        CharacterClassType toAscii() {
+            switch (this) {
+                case LETTER:
+                    return ASCII_LETTER;
+                case NON_LETTER:
+                    return ASCII_NON_LETTER;
+                case UPPERCASE_LETTER:
+                    return ASCII_UPPERCASE_LETTER;
+                case LOWERCASE_LETTER:
+                    return ASCII_LOWERCASE_LETTER;
+                case LETTER_OR_DIGIT:
+                    return ASCII_LETTER_OR_DIGIT;
+                case NON_LETTER_OR_DIGIT:
+                    return ASCII_NON_LETTER_OR_DIGIT;
+                case WORD_CHARACTER:
+                    return ASCII_WORD_CHARACTER;
+                case NON_WORD_CHARACTER:
+                    return ASCII_NON_WORD_CHARACTER;
+                default:
+                    return this;
+            }
+        }
+    }
+
+    /**
+     * Types of {@link Anchor}
+     */
+    enum AnchorType {
+        START_OF_STRING("^"),
+        END_OF_STRING("$"),
+        WORD_BOUNDARY("\\b");
+
+        private final String regex;
+
+        AnchorType(final String regex) {
+            this.regex = regex;
+        }
+
+        String getRegex() {
+            return regex;
+        }
+    }
+
+    /**
+     * Types of {@link Group}
+     */
+    enum GroupType {
+        CAPTURING,
+        NON_CAPTURING,
+        NAMED,
+        ATOMIC
+    }
+}
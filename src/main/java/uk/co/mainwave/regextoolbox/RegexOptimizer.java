@@ -0,0 +1,365 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a tree of {@link RegexNode}s into an equivalent tree which renders as a shorter, faster regex. Used by
+ * {@link RegexBuilder#buildRegex(RegexOptions...)} with {@link RegexOptions#OPTIMIZE}.
+ * <p>
+ * Every rewrite keeps the strings matched, the order in which alternatives are tried, and the number and order of
+ * capturing groups exactly as they were:
+ * <ul>
+ * <li>Repeats of the same single-character element are folded, so {@code \d\d\d} becomes {@code \d{3}} and
+ * {@code \d\d+} becomes {@code \d{2,}}</li>
+ * <li>Non-capturing groups are removed when they don't need to be there, or when their quantifier can be applied to
+ * their only element directly</li>
+ * <li>Alternations of single characters become character classes, characters repeated in a class are removed, and
+ * a class of one character becomes that character</li>
+ * <li>Quantifiers are written in their shortest form, and a quantifier of exactly one is removed</li>
+ * </ul>
+ * Capturing groups are never removed, and neither the inside of a repeated group containing a capturing group nor
+ * regex text added with {@link RegexBuilder#regexText(String)} is changed.
+ */
+final class RegexOptimizer implements RegexNode.Visitor<RegexNode> {
+    private static final RegexOptimizer INSTANCE = new RegexOptimizer();
+
+    private RegexOptimizer() {
+    }
+
+    /**
+     * Optimize a list of nodes
+     *
+     * @param nodes Nodes to optimize
+     * @return Equivalent nodes
+     */
+    static List<RegexNode> optimize(final List<RegexNode> nodes) {
+        final List<RegexNode> optimized = new ArrayList<>(nodes.size());
+        for (final RegexNode node : nodes) {
+            final RegexNode simplified = node.accept(INSTANCE);
+            if (isRedundantGroup(simplified)) {
+                for (final RegexNode child : ((RegexNode.Group) simplified).getChildren()) {
+                    append(optimized, child);
+                }
+            } else {
+                append(optimized, simplified);
+            }
+        }
+        return optimized;
+    }
+
+    @Override
+    public RegexNode visitLiteral(final RegexNode.Literal node) {
+        return literal(node.getText(), node.getRegex(), simplify(node.getQuantifier()));
+    }
+
+    @Override
+    public RegexNode visitCharacterClass(final RegexNode.CharacterClass node) {
+        final RegexQuantifier quantifier = simplify(node.getQuantifier());
+        final RegexNode.CharacterClassType type = node.getType();
+        if ((type != RegexNode.CharacterClassType.ANY_FROM && type != RegexNode.CharacterClassType.ANY_EXCEPT)
+                || !isPlainCharacters(node.getCharacters()) || isNever(quantifier)) {
+            return new RegexNode.CharacterClass(type, node.getCharacters(), quantifier);
+        }
+
+        final String characters = distinctCharacters(node.getCharacters());
+        if (type == RegexNode.CharacterClassType.ANY_FROM && characters.length() == 1) {
+            return literal(characters, null, quantifier);
+        }
+        return new RegexNode.CharacterClass(type, characters, quantifier);
+    }
+
+    @Override
+    public RegexNode visitAlternation(final RegexNode.Alternation node) {
+        final RegexQuantifier quantifier = simplify(node.getQuantifier());
+        final StringBuilder characters = new StringBuilder();
+        for (final String string : node.getStrings()) {
+            if (string.length() != 1 || isNever(quantifier)) {
+                return new RegexNode.Alternation(node.getStrings().toArray(new String[0]), quantifier);
+            }
+            characters.append(string);
+        }
+        if (characters.length() == 0 || !isPlainCharacters(characters)) {
+            return new RegexNode.Alternation(node.getStrings().toArray(new String[0]), quantifier);
+        }
+
+        // Each alternative matches exactly one character, so the order they're tried in makes no difference
+        final String distinct = distinctCharacters(characters);
+        if (distinct.length() == 1) {
+            return literal(distinct, null, quantifier);
+        }
+        return new RegexNode.CharacterClass(RegexNode.CharacterClassType.ANY_FROM, distinct, quantifier);
+    }
+
+    @Override
+    public RegexNode visitAnchor(final RegexNode.Anchor node) {
+        return node;
+    }
+
+    @Override
+    public RegexNode visitGroup(final RegexNode.Group node) {
+        final RegexQuantifier quantifier = simplify(node.getQuantifier());
+        if (quantifier != null && (node.getType() != RegexNode.GroupType.NON_CAPTURING
+                || containsCapturingGroup(node.getChildren()))) {
+            // Which repeat a capture is recorded from depends on how Pattern implements the repeated group, which in
+            // turn depends on what's inside it, so the inside of the group is left alone
+            return new RegexNode.Group(node.getType(), node.getName(), node.getChildren(), quantifier);
+        }
+
+        final List<RegexNode> children = optimize(node.getChildren());
+
+        if (node.getType() == RegexNode.GroupType.NON_CAPTURING && quantifier != null && children.size() == 1) {
+            // (?:x)q is xq if x is a single element which doesn't have a quantifier of its own
+            final RegexNode child = children.get(0);
+            if (!(child instanceof RegexNode.Raw) && !(child instanceof RegexNode.Anchor)) {
+                final RegexQuantifier childQuantifier = child.getQuantifier();
+                if (childQuantifier == null) {
+                    return withQuantifier(child, quantifier);
+                }
+                // (?:x{m}){n} is x{m*n}
+                if (isFixed(childQuantifier) && isFixed(quantifier)
+                        && childQuantifier.getMode() != RegexQuantifier.Mode.POSSESSIVE
+                        && quantifier.getMode() != RegexQuantifier.Mode.POSSESSIVE) {
+                    final long times = (long) childQuantifier.getMinimum() * quantifier.getMinimum();
+                    if (times <= Integer.MAX_VALUE) {
+                        return withQuantifier(child, RegexQuantifier.create((int) times, (int) times, RegexQuantifier.Mode.GREEDY));
+                    }
+                }
+            }
+        }
+
+        return new RegexNode.Group(node.getType(), node.getName(), children, quantifier);
+    }
+
+    @Override
+    public RegexNode visitRaw(final RegexNode.Raw node) {
+        if (node.getQuantifier() == null) {
+            // Keep the same node, so that a template can find its placeholders in the optimized tree
+            return node;
+        }
+        final RegexQuantifier quantifier = simplify(node.getQuantifier());
+        if (quantifier == null) {
+            // Raw text is only wrapped in a group when it has a quantifier, and without one a | in it would split the
+            // rest of the regex, so keep the group
+            return new RegexNode.Group(RegexNode.GroupType.NON_CAPTURING, null,
+                    Collections.singletonList(new RegexNode.Raw(node.getRegex(), null)), null);
+        }
+        return new RegexNode.Raw(node.getRegex(), quantifier);
+    }
+
+    /**
+     * Append a node to an optimized list, merging it with the previous node if they repeat the same element
+     */
+    private static void append(final List<RegexNode> optimized, final RegexNode node) {
+        final int lastIndex = optimized.size() - 1;
+        if (lastIndex < 0) {
+            optimized.add(node);
+            return;
+        }
+
+        final RegexNode last = optimized.get(lastIndex);
+        if (node instanceof RegexNode.Anchor && last instanceof RegexNode.Anchor
+                && ((RegexNode.Anchor) node).getType() == ((RegexNode.Anchor) last).getType()) {
+            // Anchors match without consuming anything, so repeating one changes nothing
+            return;
+        }
+
+        final RegexNode merged = mergeRepeats(last, node);
+        if (merged == null) {
+            optimized.add(node);
+        } else {
+            optimized.set(lastIndex, merged);
+        }
+    }
+
+    /**
+     * Merge two adjacent repeats of the same single-character element into one, such as {@code \d\d+} into
+     * {@code \d{2,}}. Each repeat of the element consumes one character, so the only thing that matters to the rest of
+     * the regex is the total number of repeats, and when both quantifiers are greedy (or both non-greedy) the totals
+     * are tried in the same order as a single quantifier would try them. Possessive quantifiers are never merged, as
+     * they can stop the following element matching at all.
+     *
+     * @return The merged node, or null if the nodes can't be merged
+     */
+    private static RegexNode mergeRepeats(final RegexNode first, final RegexNode second) {
+        if (!isSameSingleCharacter(first, second)) {
+            return null;
+        }
+
+        final RegexQuantifier firstQuantifier = first.getQuantifier();
+        final RegexQuantifier secondQuantifier = second.getQuantifier();
+        if (first instanceof RegexNode.Literal && firstQuantifier == null && secondQuantifier == null) {
+            // Repeated characters of plain text are best left as text
+            return null;
+        }
+
+        final int firstMinimum = minimum(firstQuantifier);
+        final int firstMaximum = maximum(firstQuantifier);
+        final int secondMinimum = minimum(secondQuantifier);
+        final int secondMaximum = maximum(secondQuantifier);
+        final boolean firstFixed = firstMinimum == firstMaximum;
+        final boolean secondFixed = secondMinimum == secondMaximum;
+        final RegexQuantifier.Mode firstMode = mode(firstQuantifier);
+        final RegexQuantifier.Mode secondMode = mode(secondQuantifier);
+        if (firstMode == RegexQuantifier.Mode.POSSESSIVE || secondMode == RegexQuantifier.Mode.POSSESSIVE
+                || (!firstFixed && !secondFixed && firstMode != secondMode)
+                || firstMaximum == 0 || secondMaximum == 0) {
+            return null;
+        }
+
+        final long minimum = (long) firstMinimum + secondMinimum;
+        final long maximum = (firstMaximum == RegexQuantifier.UNBOUNDED || secondMaximum == RegexQuantifier.UNBOUNDED)
+                ? RegexQuantifier.UNBOUNDED
+                : (long) firstMaximum + secondMaximum;
+        if (maximum > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        final RegexQuantifier.Mode mode = firstFixed ? secondMode : firstMode;
+        return withQuantifier(first, RegexQuantifier.create((int) minimum, (int) maximum, mode));
+    }
+
+    private static boolean isSameSingleCharacter(final RegexNode first, final RegexNode second) {
+        if (first instanceof RegexNode.CharacterClass && second instanceof RegexNode.CharacterClass) {
+            final RegexNode.CharacterClass firstClass = (RegexNode.CharacterClass) first;
+            final RegexNode.CharacterClass secondClass = (RegexNode.CharacterClass) second;
+            return firstClass.getType() == secondClass.getType()
+                    && (firstClass.getCharacters() == null
+                    ? secondClass.getCharacters() == null
+                    : firstClass.getCharacters().equals(secondClass.getCharacters()));
+        }
+        if (first instanceof RegexNode.Literal && second instanceof RegexNode.Literal) {
+            final String text = ((RegexNode.Literal) first).getText();
+            return isSingleCharacter(text) && text.equals(((RegexNode.Literal) second).getText());
+        }
+        return false;
+    }
+
+    /**
+     * Test whether a node is a non-capturing group with no quantifier, whose elements can be used without it.
+     * Regex text inside the group could contain alternatives which the group keeps separate, so it must stay.
+     */
+    private static boolean isRedundantGroup(final RegexNode node) {
+        if (!(node instanceof RegexNode.Group) || node.getQuantifier() != null
+                || ((RegexNode.Group) node).getType() != RegexNode.GroupType.NON_CAPTURING) {
+            return false;
+        }
+        for (final RegexNode child : ((RegexNode.Group) node).getChildren()) {
+            if (child instanceof RegexNode.Raw) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsCapturingGroup(final List<RegexNode> nodes) {
+        for (final RegexNode node : nodes) {
+            if (node instanceof RegexNode.Group) {
+                final RegexNode.Group group = (RegexNode.Group) node;
+                if (group.getType() == RegexNode.GroupType.CAPTURING || group.getType() == RegexNode.GroupType.NAMED
+                        || containsCapturingGroup(group.getChildren())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy a node which can take a quantifier, replacing its quantifier
+     */
+    private static RegexNode withQuantifier(final RegexNode node, final RegexQuantifier quantifier) {
+        if (node instanceof RegexNode.Literal) {
+            final RegexNode.Literal literal = (RegexNode.Literal) node;
+            return literal(literal.getText(), literal.getRegex(), quantifier);
+        }
+        if (node instanceof RegexNode.CharacterClass) {
+            final RegexNode.CharacterClass characterClass = (RegexNode.CharacterClass) node;
+            return new RegexNode.CharacterClass(characterClass.getType(), characterClass.getCharacters(), quantifier);
+        }
+        if (node instanceof RegexNode.Alternation) {
+            return new RegexNode.Alternation(
+                    ((RegexNode.Alternation) node).getStrings().toArray(new String[0]), quantifier);
+        }
+        final RegexNode.Group group = (RegexNode.Group) node;
+        return new RegexNode.Group(group.getType(), group.getName(), group.getChildren(), quantifier);
+    }
+
+    /**
+     * Create a literal node, rendering a quantified single character without a group around it
+     */
+    private static RegexNode literal(final String text, final String regex, final RegexQuantifier quantifier) {
+        if (regex == null && quantifier != null && isSingleCharacter(text)) {
+            final StringBuilder escaped = new StringBuilder(2);
+            RegexEscaper.appendSafeForRegex(escaped, text.charAt(0));
+            return new RegexNode.Literal(text, escaped.toString(), quantifier);
+        }
+        return new RegexNode.Literal(text, regex, quantifier);
+    }
+
+    private static RegexQuantifier simplify(final RegexQuantifier quantifier) {
+        return (quantifier == null)
+                ? null
+                : RegexQuantifier.create(quantifier.getMinimum(), quantifier.getMaximum(), quantifier.getMode());
+    }
+
+    /**
+     * Test whether a quantifier is {@code {0}}. {@link java.util.regex.Pattern} records captures from empty repeats
+     * of a group differently depending on how the element inside is written, so such elements are left as they are.
+     */
+    private static boolean isNever(final RegexQuantifier quantifier) {
+        return quantifier != null && quantifier.getMaximum() == 0;
+    }
+
+    private static boolean isFixed(final RegexQuantifier quantifier) {
+        return quantifier.getMinimum() == quantifier.getMaximum();
+    }
+
+    private static RegexQuantifier.Mode mode(final RegexQuantifier quantifier) {
+        return (quantifier == null) ? RegexQuantifier.Mode.GREEDY : quantifier.getMode();
+    }
+
+    private static int minimum(final RegexQuantifier quantifier) {
+        return (quantifier == null) ? 1 : quantifier.getMinimum();
+    }
+
+    private static int maximum(final RegexQuantifier quantifier) {
+        return (quantifier == null) ? 1 : quantifier.getMaximum();
+    }
+
+    private static boolean isSingleCharacter(final String text) {
+        return text.length() == 1 && !Character.isSurrogate(text.charAt(0));
+    }
+
+    /**
+     * Test whether characters for a character class can be reordered and deduplicated: characters which start an
+     * escape sequence, a nested class or an intersection inside a class can't, and neither can surrogate pairs.
+     */
+    private static boolean isPlainCharacters(final CharSequence characters) {
+        if (characters == null || characters.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < characters.length(); i++) {
+            final char c = characters.charAt(i);
+            if (c == '\\' || c == '[' || c == '&' || Character.isSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String distinctCharacters(final CharSequence characters) {
+        final Set<Character> distinct = new LinkedHashSet<>();
+        for (int i = 0; i < characters.length(); i++) {
+            distinct.add(characters.charAt(i));
+        }
+        final StringBuilder stringBuilder = new StringBuilder(distinct.size());
+        for (final Character c : distinct) {
+            stringBuilder.append(c.charValue());
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -13,5 +13,37 @@ public enum RegexOptions {
      * Cause {@link RegexBuilder#startOfString()} and {@link RegexBuilder#endOfString()} to also match line breaks
      * within a multi-line string
      */
-    MULTILINE
+    MULTILINE,
+
+    /**
+     * Rewrite the regex into a shorter equivalent before compiling it, for example folding repeated elements and
+     * removing redundant groups. The strings matched and the numbering of capturing groups are unchanged.
+     */
+    OPTIMIZE,
+
+    /**
+     * Throw a {@link RegexBuilderException} instead of building a regex which could backtrack excessively on input
+     * that almost matches, as reported by {@link RegexBuilder#findBacktrackingRisks(RegexOptions...)}
+     */
+    REJECT_BACKTRACKING_RISKS,
+
+    /**
+     * Make {@link RegexBuilder#buildMatcher(RegexOptions...)} return a matcher which never backtracks, taking time
+     * linear in the length of the input. Regex text, possessive quantifiers, atomic groups and anchors in a repeated
+     * group which can match the empty string, such as {@code (\b.*){2}}, can't be matched this way, so
+     * {@link RegexBuilder#buildMatcher(RegexOptions...)} throws a {@link RegexBuilderException} if the regex contains
+     * any of them. Input containing characters outside the Basic Multilingual Plane is still matched with
+     * {@link java.util.regex.Pattern}.
+     */
+    LINEAR_TIME,
+
+    /**
+     * Make letter and word character elements, such as {@link RegexBuilder#letter()},
+     * {@link RegexBuilder#letterOrDigit()}, {@link RegexBuilder#wordCharacter()},
+     * {@link RegexBuilder#uppercaseLetter()} and their negations, match only ASCII letters, so that they're checked
+     * with simple ranges instead of Unicode properties. Use this when the input is known to be ASCII.
+     * {@link RegexBuilder#wordBoundary()} is unchanged, and follows {@link java.util.regex.Pattern}: before JDK 19 it
+     * treats letters in any script as word characters, and since then only ASCII ones.
+     */
+    ASCII_ONLY
 }
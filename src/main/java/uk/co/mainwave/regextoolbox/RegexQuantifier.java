@@ -1,51 +1,119 @@
 package uk.co.mainwave.regextoolbox;
 
 /**
- * Quantifiers that can be applied to regex elements or groups
+ * Quantifiers that can be applied to regex elements or groups.
+ * <p>
+ * Quantifiers are immutable, so they can be shared and kept in constants. The common ones, and those with small
+ * bounds, are interned: calling a factory method for them returns the same instance every time without allocating.
  */
 public class RegexQuantifier {
-    private String regexString;
+    /**
+     * Maximum of a quantifier with no upper limit
+     */
+    public static final int UNBOUNDED = -1;
+
+    // Quantifiers with bounds up to this are interned
+    private static final int INTERNED_LIMIT = 16;
+
+    private static final RegexGreedyQuantifier ZERO_OR_MORE = RegexGreedyQuantifier.interned("*", 0, UNBOUNDED);
+    private static final RegexGreedyQuantifier ONE_OR_MORE = RegexGreedyQuantifier.interned("+", 1, UNBOUNDED);
+    private static final RegexGreedyQuantifier ZERO_OR_ONE = RegexGreedyQuantifier.interned("?", 0, 1);
+
+    // Filled as each quantifier is first asked for. Quantifiers only have final fields, so a thread which reads one
+    // another thread has stored always sees it fully constructed, and a race at worst creates an equal instance twice.
+    private static final RegexQuantifier[] EXACTLY = new RegexQuantifier[INTERNED_LIMIT + 1];
+    private static final RegexGreedyQuantifier[] AT_LEAST = new RegexGreedyQuantifier[INTERNED_LIMIT + 1];
+    private static final RegexGreedyQuantifier[] NO_MORE_THAN = new RegexGreedyQuantifier[INTERNED_LIMIT + 1];
+    private static final RegexGreedyQuantifier[] BETWEEN =
+            new RegexGreedyQuantifier[(INTERNED_LIMIT + 1) * (INTERNED_LIMIT + 1)];
 
-    RegexQuantifier(final String regexString) {
+    private final int minimum;
+    private final int maximum;
+    private final Mode mode;
+    private final String regexString;
+
+    RegexQuantifier(final String regexString, final int minimum, final int maximum, final Mode mode) {
         this.regexString = regexString;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.mode = mode;
+    }
+
+    /**
+     * Create a quantifier with the shortest rendering for a number of occurrences
+     *
+     * @param minimum The minimum number of occurrences to match
+     * @param maximum The maximum number of occurrences to match, or {@link #UNBOUNDED}
+     * @param mode    How the number of occurrences is chosen
+     * @return A quantifier, or null if the range is exactly one occurrence, which needs no quantifier
+     */
+    static RegexQuantifier create(final int minimum, final int maximum, final Mode mode) {
+        if (minimum == maximum) {
+            if (mode != Mode.POSSESSIVE) {
+                // A fixed count matches the same way whether it's greedy or not
+                return (minimum == 1) ? null : exactly(minimum);
+            }
+            return new RegexQuantifier("{" + minimum + "}+", minimum, maximum, mode);
+        }
+
+        final RegexGreedyQuantifier greedy;
+        if (maximum == UNBOUNDED) {
+            greedy = (minimum == 0) ? zeroOrMore() : (minimum == 1) ? oneOrMore() : atLeast(minimum);
+        } else if (minimum == 0 && maximum == 1) {
+            greedy = zeroOrOne();
+        } else {
+            greedy = between(minimum, maximum);
+        }
+        switch (mode) {
+            case LAZY:
+                return greedy.butAsFewAsPossible();
+            case POSSESSIVE:
+                return greedy.butWithoutBacktracking();
+            default:
+                return greedy;
+        }
     }
 
     /**
      * Quantifier to match the preceding element zero or more times
      *
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier zeroOrMore() {
-        return new RegexGreedyQuantifier("*");
+        return ZERO_OR_MORE;
     }
 
     /**
      * Quantifier to match the preceding element one or more times
      *
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier oneOrMore() {
-        return new RegexGreedyQuantifier("+");
+        return ONE_OR_MORE;
     }
 
     /**
      * Quantifier to match the preceding element once or not at all
      * @deprecated Use {@link #zeroOrOne()} instead
      *
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     @Deprecated
     public static RegexGreedyQuantifier noneOrOne() {
-        return new RegexGreedyQuantifier("?");
+        return ZERO_OR_ONE;
     }
 
     /**
      * Quantifier to match the preceding element once or not at all
      *
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier zeroOrOne() {
-        return new RegexGreedyQuantifier("?");
+        return ZERO_OR_ONE;
     }
 
     /**
@@ -55,30 +123,53 @@ public class RegexQuantifier {
      * @return A non-greedy quantifier
      */
     public static RegexQuantifier exactly(final int times) {
-        return new RegexQuantifier(
-                "{" + times + "}");
+        if (!isInterned(times)) {
+            return new RegexQuantifier("{" + times + "}", times, times, Mode.GREEDY);
+        }
+        RegexQuantifier quantifier = EXACTLY[times];
+        if (quantifier == null) {
+            quantifier = new RegexQuantifier("{" + times + "}", times, times, Mode.GREEDY);
+            EXACTLY[times] = quantifier;
+        }
+        return quantifier;
     }
 
     /**
      * Quantifier to match at least a minimum number of occurrences of the preceding element
      *
      * @param minimum The minimum number of occurrences to match
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier atLeast(final int minimum) {
-        return new RegexGreedyQuantifier(
-                "{" + minimum + ",}");
+        if (!isInterned(minimum)) {
+            return new RegexGreedyQuantifier("{" + minimum + ",}", minimum, UNBOUNDED);
+        }
+        RegexGreedyQuantifier quantifier = AT_LEAST[minimum];
+        if (quantifier == null) {
+            quantifier = RegexGreedyQuantifier.interned("{" + minimum + ",}", minimum, UNBOUNDED);
+            AT_LEAST[minimum] = quantifier;
+        }
+        return quantifier;
     }
 
     /**
      * Quantifier to match no more than a maximum number of occurrences of the preceding element
      *
      * @param maximum The maximum number of occurrences to match
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier noMoreThan(final int maximum) {
-        return new RegexGreedyQuantifier(
-                "{0," + maximum + "}");
+        if (!isInterned(maximum)) {
+            return new RegexGreedyQuantifier("{0," + maximum + "}", 0, maximum);
+        }
+        RegexGreedyQuantifier quantifier = NO_MORE_THAN[maximum];
+        if (quantifier == null) {
+            quantifier = RegexGreedyQuantifier.interned("{0," + maximum + "}", 0, maximum);
+            NO_MORE_THAN[maximum] = quantifier;
+        }
+        return quantifier;
     }
 
     /**
@@ -86,11 +177,20 @@ public class RegexQuantifier {
      *
      * @param minimum The minimum number of occurrences to match
      * @param maximum The maximum number of occurrences to match
-     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy
+     * @return A greedy quantifier: use {@link RegexGreedyQuantifier#butAsFewAsPossible()} to make it non-greedy, or
+     * {@link RegexGreedyQuantifier#butWithoutBacktracking()} to make it possessive
      */
     public static RegexGreedyQuantifier between(final int minimum, final int maximum) {
-        return new RegexGreedyQuantifier(
-                "{" + minimum + "," + maximum + "}");
+        if (!isInterned(minimum) || !isInterned(maximum)) {
+            return new RegexGreedyQuantifier("{" + minimum + "," + maximum + "}", minimum, maximum);
+        }
+        final int index = minimum * (INTERNED_LIMIT + 1) + maximum;
+        RegexGreedyQuantifier quantifier = BETWEEN[index];
+        if (quantifier == null) {
+            quantifier = RegexGreedyQuantifier.interned("{" + minimum + "," + maximum + "}", minimum, maximum);
+            BETWEEN[index] = quantifier;
+        }
+        return quantifier;
     }
 
     @Override
@@ -98,7 +198,71 @@ public class RegexQuantifier {
         return regexString;
     }
 
-    final void makeNonGreedy() {
-        regexString += "?";
+    /**
+     * Get the minimum number of occurrences this quantifier matches
+     *
+     * @return Minimum number of occurrences
+     */
+    public final int getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Get the maximum number of occurrences this quantifier matches
+     *
+     * @return Maximum number of occurrences, or {@link #UNBOUNDED} if there is no limit
+     */
+    public final int getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Get how this quantifier chooses the number of occurrences to match
+     *
+     * @return Mode of the quantifier
+     */
+    public final Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public final boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RegexQuantifier)) {
+            return false;
+        }
+        final RegexQuantifier other = (RegexQuantifier) o;
+        return regexString.equals(other.regexString);
+    }
+
+    @Override
+    public final int hashCode() {
+        return regexString.hashCode();
+    }
+
+    private static boolean isInterned(final int bound) {
+        return bound >= 0 && bound <= INTERNED_LIMIT;
+    }
+
+    /**
+     * How a quantifier chooses the number of occurrences to match
+     */
+    public enum Mode {
+        /**
+         * As many as possible, backtracking to fewer if the rest of the regex doesn't match
+         */
+        GREEDY,
+
+        /**
+         * As few as possible, backtracking to more if the rest of the regex doesn't match
+         */
+        LAZY,
+
+        /**
+         * As many as possible, never backtracking
+         */
+        POSSESSIVE
     }
 }
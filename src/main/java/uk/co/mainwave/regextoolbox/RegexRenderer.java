@@ -0,0 +1,170 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a tree of {@link RegexNode}s as a regex string
+ */
+final class RegexRenderer implements RegexNode.Visitor<Void> {
+    private final StringBuilder stringBuilder;
+    private final Map<RegexNode, int[]> positions;
+
+    private RegexRenderer(final StringBuilder stringBuilder, final Map<RegexNode, int[]> positions) {
+        this.stringBuilder = stringBuilder;
+        this.positions = positions;
+    }
+
+    /**
+     * Render nodes as a regex string
+     *
+     * @param nodes Nodes to render
+     * @return Regex string
+     */
+    static String render(final List<RegexNode> nodes) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        render(nodes, stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Render nodes, appending them to a regex being built
+     *
+     * @param nodes         Nodes to render
+     * @param stringBuilder Regex being built
+     */
+    static void render(final List<RegexNode> nodes, final StringBuilder stringBuilder) {
+        final RegexRenderer renderer = new RegexRenderer(stringBuilder, null);
+        for (final RegexNode node : nodes) {
+            node.accept(renderer);
+        }
+    }
+
+    /**
+     * Render nodes as a regex string, recording where each node appears in it
+     *
+     * @param nodes     Nodes to render
+     * @param positions Map which receives the start and end (exclusive) index of every node in the regex string,
+     *                  including nodes inside groups
+     * @return Regex string
+     */
+    static String render(final List<RegexNode> nodes, final Map<RegexNode, int[]> positions) {
+        final RegexRenderer renderer = new RegexRenderer(new StringBuilder(), positions);
+        for (final RegexNode node : nodes) {
+            renderer.renderNode(node);
+        }
+        return renderer.stringBuilder.toString();
+    }
+
+    /**
+     * Append the opening of a group
+     *
+     * @param stringBuilder Regex being built
+     * @param type          Type of group
+     * @param name          Name of a named group, otherwise null
+     */
+    static void appendGroupStart(final StringBuilder stringBuilder,
+                                 final RegexNode.GroupType type,
+                                 final String name) {
+        switch (type) {
+            case CAPTURING:
+                stringBuilder.append('(');
+                break;
+            case NAMED:
+                stringBuilder.append("(?<").append(name).append('>');
+                break;
+            case ATOMIC:
+                stringBuilder.append("(?>");
+                break;
+            default:
+                stringBuilder.append("(?:");
+                break;
+        }
+    }
+
+    @Override
+    public Void visitLiteral(final RegexNode.Literal node) {
+        if (node.getRegex() != null) {
+            stringBuilder.append(node.getRegex());
+            return appendQuantifier(node);
+        }
+        if (node.getQuantifier() == null) {
+            RegexEscaper.appendSafeForRegex(stringBuilder, node.getText());
+            return null;
+        }
+        stringBuilder.append("(?:");
+        RegexEscaper.appendSafeForRegex(stringBuilder, node.getText());
+        stringBuilder.append(')');
+        return appendQuantifier(node);
+    }
+
+    @Override
+    public Void visitCharacterClass(final RegexNode.CharacterClass node) {
+        switch (node.getType()) {
+            case ANY_FROM:
+                // Build a character class, remembering to escape any ] character if passed in
+                stringBuilder.append('[');
+                RegexEscaper.appendSafeForCharacterClass(stringBuilder, node.getCharacters());
+                stringBuilder.append(']');
+                break;
+            case ANY_EXCEPT:
+                stringBuilder.append("[^");
+                RegexEscaper.appendSafeForCharacterClass(stringBuilder, node.getCharacters());
+                stringBuilder.append(']');
+                break;
+            default:
+                stringBuilder.append(node.getType().getRegex());
+                break;
+        }
+        return appendQuantifier(node);
+    }
+
+    @Override
+    public Void visitAlternation(final RegexNode.Alternation node) {
+        stringBuilder.append("(?:");
+        AlternationTrie.appendAlternatives(stringBuilder, node.getStrings());
+        stringBuilder.append(')');
+        return appendQuantifier(node);
+    }
+
+    @Override
+    public Void visitAnchor(final RegexNode.Anchor node) {
+        stringBuilder.append(node.getType().getRegex());
+        return null;
+    }
+
+    @Override
+    public Void visitGroup(final RegexNode.Group node) {
+        appendGroupStart(stringBuilder, node.getType(), node.getName());
+        for (final RegexNode child : node.getChildren()) {
+            renderNode(child);
+        }
+        stringBuilder.append(')');
+        return appendQuantifier(node);
+    }
+
+    @Override
+    public Void visitRaw(final RegexNode.Raw node) {
+        if (node.getQuantifier() == null) {
+            stringBuilder.append(node.getRegex());
+            return null;
+        }
+        stringBuilder.append("(?:").append(node.getRegex()).append(')');
+        return appendQuantifier(node);
+    }
+
+    private void renderNode(final RegexNode node) {
+        final int start = stringBuilder.length();
+        node.accept(this);
+        if (positions != null) {
+            positions.put(node, new int[]{start, stringBuilder.length()});
+        }
+    }
+
+    private Void appendQuantifier(final RegexNode node) {
+        if (node.getQuantifier() != null) {
+            stringBuilder.append(node.getQuantifier());
+        }
+        return null;
+    }
+}
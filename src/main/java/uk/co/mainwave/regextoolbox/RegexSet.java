@@ -0,0 +1,324 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Many regexes compiled into one automaton, which reports in a single pass over the input which of them match. This
+ * replaces testing the input against each regex in turn: the work done for each character depends on how far the
+ * regexes between them have got, not on how many there are. The regexes that matched can then be run on their own to
+ * extract capturing groups.
+ * <p>
+ * Like {@link RegexOptions#LINEAR_TIME}, the automaton is a DFA built lazily by each thread as the input needs it, and
+ * matching takes time linear in the length of the input. Regex text, possessive quantifiers, atomic groups and
+ * anchors in a repeated group which can match the empty string are not supported. Input containing surrogate pairs is
+ * matched with each regex's {@link Pattern} in turn instead.
+ * <p>
+ * Instances are immutable and thread-safe.
+ * <p>
+ * Example:
+ * <pre>
+ * final List&lt;RegexFragment&gt; rules = new ArrayList&lt;&gt;();
+ * rules.add(new RegexBuilder().text("ERROR").buildFragment());
+ * rules.add(new RegexBuilder().text("took ").digit(RegexQuantifier.exactly(4)).text("ms").buildFragment());
+ * final RegexSet set = RegexSet.of(rules);
+ *
+ * final BitSet matched = new BitSet();
+ * if (set.find(logLine, matched)) {
+ *     for (int i = matched.nextSetBit(0); i &gt;= 0; i = matched.nextSetBit(i + 1)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public final class RegexSet {
+    private static final int[] NO_REGEXES = new int[0];
+
+    private final List<RegexFragment> regexes;
+    private final Pattern[] patterns;
+    private final Nfa nfa;
+    private final int maximumCacheSize;
+    private final CharacterClasses classes;
+    private final int[] asciiClasses;
+    private final int surrogateClass;
+    private final ThreadLocal<Dfa> anchored;
+    private final ThreadLocal<Dfa> unanchored;
+
+    private RegexSet(final List<RegexFragment> regexes,
+                     final Pattern[] patterns,
+                     final Nfa nfa,
+                     final int maximumCacheSize) {
+        this.regexes = regexes;
+        this.patterns = patterns;
+        this.nfa = nfa;
+        this.maximumCacheSize = maximumCacheSize;
+        classes = new CharacterClasses(nfa.getCharacterSets());
+        asciiClasses = classes.getAsciiClasses();
+        surrogateClass = classes.getSurrogateClass();
+        anchored = ThreadLocal.withInitial(() -> new Dfa(nfa, classes, maximumCacheSize, false));
+        unanchored = ThreadLocal.withInitial(() -> new Dfa(nfa, classes, maximumCacheSize, true));
+    }
+
+    /**
+     * Compile regexes into a set. Build each regex with {@link RegexBuilder#buildFragment()}; its index in the list
+     * identifies it in the results.
+     *
+     * @param regexes Regexes to match
+     * @param options Options to apply to every regex: {@link RegexOptions#IGNORE_CASE},
+     *                {@link RegexOptions#MULTILINE}, {@link RegexOptions#OPTIMIZE} and {@link RegexOptions#ASCII_ONLY}
+     *                are supported, and the others are ignored
+     * @return A new {@link RegexSet}
+     * @throws RegexBuilderException A regex can't be matched without backtracking, or the regexes are too large
+     *                               together
+     */
+    public static RegexSet of(final List<RegexFragment> regexes, final RegexOptions... options) {
+        final int flags = RegexBuilder.getFlags(options);
+        final List<List<RegexNode>> nodes = new ArrayList<>(regexes.size());
+        final List<String> regexStrings = new ArrayList<>(regexes.size());
+        final Pattern[] patterns = new Pattern[regexes.size()];
+        for (int i = 0; i < regexes.size(); i++) {
+            final List<RegexNode> regexNodes = RegexBuilder.rewrite(regexes.get(i).copyNodes(), options);
+            final String regexString = RegexRenderer.render(regexNodes);
+            nodes.add(regexNodes);
+            regexStrings.add(regexString);
+            patterns[i] = Pattern.compile(regexString, flags);
+        }
+        final Nfa nfa = Nfa.compileSet(nodes,
+                RegexBuilder.hasOption(options, RegexOptions.IGNORE_CASE),
+                RegexBuilder.hasOption(options, RegexOptions.MULTILINE),
+                regexStrings);
+        return new RegexSet(Collections.unmodifiableList(new ArrayList<>(regexes)), patterns, nfa,
+                LazyDfa.DEFAULT_MAXIMUM_CACHE_SIZE);
+    }
+
+    /**
+     * Create a set of the same regexes with a different limit on the size of its caches
+     *
+     * @param maximumCacheSize Maximum number of transitions cached by each thread, for each of the two DFAs
+     * @return A new {@link RegexSet}
+     */
+    RegexSet withMaximumCacheSize(final int maximumCacheSize) {
+        return new RegexSet(regexes, patterns, nfa, maximumCacheSize);
+    }
+
+    /**
+     * Get the number of regexes in the set
+     *
+     * @return Number of regexes
+     */
+    public int size() {
+        return regexes.size();
+    }
+
+    /**
+     * Get one of the regexes in the set, for example to build a {@link RegexCaptureMatcher} for it once the set has
+     * found that it matches
+     *
+     * @param index Index of the regex
+     * @return Regex
+     * @throws IndexOutOfBoundsException index is less than zero or not less than {@link #size()}
+     */
+    public RegexFragment get(final int index) {
+        return regexes.get(index);
+    }
+
+    /**
+     * Find which regexes match the entire input, as {@link java.util.regex.Matcher#matches()}
+     *
+     * @param input   Input to test
+     * @param matched Set which is cleared and then receives the index of each regex which matches
+     * @return true if any regex matches
+     */
+    public boolean matches(final CharSequence input, final BitSet matched) {
+        return run(anchored.get(), input, matched);
+    }
+
+    /**
+     * Find which regexes match the entire input, as {@link java.util.regex.Matcher#matches()}
+     *
+     * @param input Input to test
+     * @return Indexes of the regexes which match
+     */
+    public BitSet matches(final CharSequence input) {
+        final BitSet matched = new BitSet(size());
+        matches(input, matched);
+        return matched;
+    }
+
+    /**
+     * Find which regexes match anywhere in the input, as {@link java.util.regex.Matcher#find()}
+     *
+     * @param input   Input to search
+     * @param matched Set which is cleared and then receives the index of each regex which matches
+     * @return true if any regex matches
+     */
+    public boolean find(final CharSequence input, final BitSet matched) {
+        return run(unanchored.get(), input, matched);
+    }
+
+    /**
+     * Find which regexes match anywhere in the input, as {@link java.util.regex.Matcher#find()}
+     *
+     * @param input Input to search
+     * @return Indexes of the regexes which match
+     */
+    public BitSet find(final CharSequence input) {
+        final BitSet matched = new BitSet(size());
+        find(input, matched);
+        return matched;
+    }
+
+    @Override
+    public String toString() {
+        return regexes.toString();
+    }
+
+    private boolean run(final Dfa dfa, final CharSequence input, final BitSet matched) {
+        matched.clear();
+        final int length = input.length();
+        final int[] ascii = asciiClasses;
+        final int stride = classes.getCount();
+        final int regexCount = regexes.size();
+        int[] transitions = dfa.getTransitions();
+        int state = dfa.getStartState();
+        for (int i = 0; i < length; i++) {
+            final char c = input.charAt(i);
+            final int characterClass = (c < CharacterClasses.ASCII_SIZE) ? ascii[c] : classes.classOf(c);
+            final int index = state * stride + characterClass;
+            int transition = transitions[index];
+            if (transition == LazyDfa.UNKNOWN) {
+                if (characterClass == surrogateClass) {
+                    return runPatterns(dfa.unanchored, input, matched);
+                }
+                transition = dfa.computeTransition(state, characterClass);
+                if (transition == LazyDfa.CACHE_FULL) {
+                    return simulate(dfa, state, input, i, matched);
+                }
+                // Adding a state may have reallocated the table
+                transitions = dfa.getTransitions();
+            }
+            if (transition < 0) {
+                // Only set when finding: some regexes matched before this character
+                for (final int regex : dfa.getMatchSet(dfa.getTransitionMatch(index))) {
+                    matched.set(regex);
+                }
+                if (matched.cardinality() == regexCount) {
+                    return true;
+                }
+                transition = -transition;
+            }
+            state = transition - 1;
+            if (state == LazyDfa.DEAD) {
+                return !matched.isEmpty();
+            }
+        }
+        final int endMatch = dfa.getEndMatch(state);
+        if (endMatch != LazyDfa.NO_MATCH) {
+            for (final int regex : dfa.getMatchSet(endMatch)) {
+                matched.set(regex);
+            }
+        }
+        return !matched.isEmpty();
+    }
+
+    /**
+     * Carry on from a DFA state by simulating the NFA directly, once the cache of DFA states is full
+     */
+    private boolean simulate(final Dfa dfa,
+                             final int state,
+                             final CharSequence input,
+                             final int from,
+                             final BitSet matched) {
+        int[] threads = dfa.getThreads(state);
+        int flags = dfa.getFlags(state);
+        dfa.clear();
+
+        final Nfa.Stepper stepper = dfa.stepper;
+        final int length = input.length();
+        for (int i = from; i < length; i++) {
+            final char c = input.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return runPatterns(dfa.unanchored, input, matched);
+            }
+            // Matches before the end only count when finding
+            stepper.step(threads, flags, c, dfa.unanchored, dfa.unanchored ? matched : null);
+            threads = stepper.getThreads();
+            if (threads.length == 0) {
+                return !matched.isEmpty();
+            }
+            flags = nfa.getNextFlags(flags, c);
+        }
+        stepper.step(threads, flags, Nfa.END_OF_INPUT, false, matched);
+        return !matched.isEmpty();
+    }
+
+    /**
+     * Match input the automaton can't read by running each regex's {@link Pattern} in turn
+     */
+    private boolean runPatterns(final boolean find, final CharSequence input, final BitSet matched) {
+        matched.clear();
+        for (int i = 0; i < patterns.length; i++) {
+            if (find ? patterns[i].matcher(input).find() : patterns[i].matcher(input).matches()) {
+                matched.set(i);
+            }
+        }
+        return !matched.isEmpty();
+    }
+
+    /**
+     * {@link LazyDfa} which records which regexes matched, as indexes into a list of the distinct sets of regexes seen
+     * so far
+     */
+    private static final class Dfa extends LazyDfa {
+        private final BitSet stepMatches = new BitSet();
+        private final Map<BitSet, Integer> matchSetIndexes = new HashMap<>();
+        private final List<int[]> matchSets = new ArrayList<>();
+
+        Dfa(final Nfa nfa, final CharacterClasses classes, final int maximumCacheSize, final boolean unanchored) {
+            super(nfa, classes, maximumCacheSize, unanchored);
+            onClear();
+        }
+
+        @Override
+        int step(final int[] stateThreads, final int stateFlags, final int c) {
+            stepMatches.clear();
+            stepper.step(stateThreads, stateFlags, c, unanchored, unanchored ? stepMatches : null);
+            return stepMatches.isEmpty() ? NO_MATCH : addMatchSet(stepMatches);
+        }
+
+        @Override
+        int stepAtEnd(final int[] stateThreads, final int stateFlags) {
+            stepMatches.clear();
+            stepper.step(stateThreads, stateFlags, Nfa.END_OF_INPUT, false, stepMatches);
+            return addMatchSet(stepMatches);
+        }
+
+        @Override
+        void onClear() {
+            matchSetIndexes.clear();
+            matchSets.clear();
+            matchSets.add(NO_REGEXES);
+            matchSetIndexes.put(new BitSet(), 0);
+        }
+
+        int[] getMatchSet(final int index) {
+            return matchSets.get(index);
+        }
+
+        private int addMatchSet(final BitSet regexes) {
+            final Integer existing = matchSetIndexes.get(regexes);
+            if (existing != null) {
+                return existing;
+            }
+            final int index = matchSets.size();
+            matchSets.add(regexes.stream().toArray());
+            matchSetIndexes.put((BitSet) regexes.clone(), index);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package uk.co.mainwave.regextoolbox;
+
+/**
+ * Callback receiving each match found by {@link RegexStreamScanner#scan(java.io.Reader, RegexStreamMatchHandler)}
+ */
+public interface RegexStreamMatchHandler {
+    /**
+     * Called for each match
+     *
+     * @param start Start of the match, in chars from the start of the stream
+     * @param end   End (exclusive) of the match, in chars from the start of the stream
+     * @param match Text of the match
+     * @return true to carry on scanning, false to stop
+     */
+    boolean onMatch(long start, long end, String match);
+}
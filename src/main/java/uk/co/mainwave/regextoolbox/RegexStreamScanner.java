@@ -0,0 +1,199 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds matches for a regex built with {@link RegexBuilder#buildStreamScanner(RegexOptions...)} in a stream of text
+ * too large to hold in memory, such as a log file or a request body. The stream is read in chunks into a sliding
+ * buffer, and each match is reported with its offsets from the start of the stream. The matches are the same as
+ * repeatedly calling {@link Matcher#find()} on the whole stream would find.
+ * <p>
+ * A match is only reported once the regex engine no longer needs to look past the end of the buffer to decide it, and
+ * text is only dropped from the buffer once no match can start in it. If the length of the regex's matches has an
+ * upper limit, as it does unless the regex contains an unbounded quantifier or regex text, memory use is bounded by
+ * that limit plus the size of a chunk. Otherwise the buffer grows to hold the longest partial match, which for a
+ * regex that can't cross a line break is at most a line.
+ * <p>
+ * Instances are immutable and thread-safe; each call to {@code scan} has its own buffer.
+ * <pre>{@code
+ * RegexStreamScanner scanner = new RegexBuilder()
+ *     .text("ERROR ")
+ *     .anyCharacter(RegexQuantifier.between(1, 200))
+ *     .buildStreamScanner();
+ * try (Reader reader = Files.newBufferedReader(logFile)) {
+ *     scanner.scan(reader, (start, end, match) -> {
+ *         System.out.println(start + ": " + match);
+ *         return true;
+ *     });
+ * }
+ * }</pre>
+ */
+public final class RegexStreamScanner {
+    /**
+     * Default number of chars read from the stream at a time
+     */
+    static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    // Chars kept before the search position so that \b, ^ and $ can look behind it. Pattern looks back over a run of
+    // non-spacing marks to decide whether they're in a word, so those are kept too, up to a limit.
+    private static final int MAXIMUM_LOOKBEHIND = 16;
+    // Chars past the end of a match that $ can look at before deciding it matches
+    private static final int LOOKAHEAD = 2;
+
+    private final Pattern pattern;
+    private final int maximumMatchLength;
+    private final int chunkSize;
+
+    /**
+     * @param pattern            Compiled regex
+     * @param maximumMatchLength Length of the longest match, or {@link RegexLengthAnalyzer#UNBOUNDED}
+     * @param chunkSize          Number of chars to read from the stream at a time
+     */
+    RegexStreamScanner(final Pattern pattern, final int maximumMatchLength, final int chunkSize) {
+        this.pattern = pattern;
+        this.maximumMatchLength = maximumMatchLength;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a scanner for the same regex which reads a different number of chars at a time
+     *
+     * @param chunkSize Number of chars to read from the stream at a time
+     * @return A new {@link RegexStreamScanner}
+     */
+    RegexStreamScanner withChunkSize(final int chunkSize) {
+        return new RegexStreamScanner(pattern, maximumMatchLength, chunkSize);
+    }
+
+    /**
+     * Get the length of the longest match the regex can make, which bounds the memory used by a scan
+     *
+     * @return Maximum length in chars, or -1 if there is no limit
+     */
+    public int getMaximumMatchLength() {
+        return maximumMatchLength;
+    }
+
+    /**
+     * Report every match in the text read from a reader, until the end of the stream or until the handler returns
+     * false. The reader is not closed.
+     *
+     * @param reader  Reader to read from
+     * @param handler Callback receiving each match
+     * @return Number of matches reported
+     * @throws IOException Reading from the reader failed
+     */
+    public long scan(final Reader reader, final RegexStreamMatchHandler handler) throws IOException {
+        final char[] chunk = new char[chunkSize];
+        final StringBuilder buffer = new StringBuilder();
+        final Matcher matcher = pattern.matcher(buffer)
+                .useTransparentBounds(true)
+                .useAnchoringBounds(false);
+        // Offset in the stream of the start of the buffer
+        long base = 0;
+        // Position in the buffer to search from
+        int position = 0;
+        long count = 0;
+        boolean endOfStream = false;
+        while (!endOfStream) {
+            final int read = reader.read(chunk);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                buffer.append(chunk, 0, read);
+            }
+
+            matcher.reset(buffer);
+            while (position <= buffer.length()) {
+                matcher.region(position, buffer.length());
+                if (!matcher.find()) {
+                    position = endOfStream ? buffer.length() + 1 : nextPossibleStart(matcher, buffer, position);
+                    break;
+                }
+                if (matcher.hitEnd() && !endOfStream) {
+                    // More text could change the match, or let an earlier start match
+                    break;
+                }
+                count++;
+                if (!handler.onMatch(base + matcher.start(), base + matcher.end(), matcher.group())) {
+                    return count;
+                }
+                position = (matcher.end() == matcher.start()) ? matcher.end() + 1 : matcher.end();
+            }
+
+            final int discard = discardable(buffer, position);
+            if (discard > 0) {
+                buffer.delete(0, discard);
+                base += discard;
+                position -= discard;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Report every match in the text decoded from a channel, until the end of the stream or until the handler returns
+     * false. Offsets are in chars, not bytes. The channel is not closed.
+     *
+     * @param channel Channel to read from
+     * @param charset Encoding of the text
+     * @param handler Callback receiving each match
+     * @return Number of matches reported
+     * @throws IOException Reading from the channel failed, or its contents are not valid in the encoding
+     */
+    public long scan(final ReadableByteChannel channel,
+                     final Charset charset,
+                     final RegexStreamMatchHandler handler) throws IOException {
+        return scan(Channels.newReader(channel, charset.newDecoder(), -1), handler);
+    }
+
+    @Override
+    public String toString() {
+        return pattern.toString();
+    }
+
+    /**
+     * Find where a match could next start, after a search found nothing before the end of the buffer
+     */
+    private int nextPossibleStart(final Matcher matcher, final CharSequence buffer, final int position) {
+        final int length = buffer.length();
+        if (!matcher.hitEnd()) {
+            // No attempt needed to see past the end, so more text can't make any of them match
+            return length;
+        }
+        if (maximumMatchLength != RegexLengthAnalyzer.UNBOUNDED) {
+            // A match starting earlier would have ended, and been decided, before the end of the buffer
+            return Math.max(position, length - maximumMatchLength - LOOKAHEAD);
+        }
+        // Find the first start whose attempt reached the end
+        for (int start = position; start < length; start++) {
+            matcher.region(start, length);
+            // The search found nothing, so this can't match either
+            matcher.lookingAt();
+            if (matcher.hitEnd()) {
+                return start;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Get the number of chars at the start of the buffer which no longer need to be kept
+     */
+    private static int discardable(final CharSequence buffer, final int position) {
+        int keep = Math.min(position, buffer.length()) - 1;
+        final int limit = Math.max(keep - MAXIMUM_LOOKBEHIND, 0);
+        while (keep > limit && (Character.getType(buffer.charAt(keep)) == Character.NON_SPACING_MARK
+                || Character.isLowSurrogate(buffer.charAt(keep)))) {
+            keep--;
+        }
+        // Only compact the buffer once there is a reasonable amount to drop
+        return (keep > buffer.length() / 2) ? keep : 0;
+    }
+}
@@ -0,0 +1,137 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A regex built with {@link RegexBuilder#buildTemplate(RegexOptions...)}, containing named placeholders added with
+ * {@link RegexBuilder#placeholder(String)} which are filled with literal text each time a {@link Pattern} is needed.
+ * <p>
+ * Everything except the placeholders is rendered and validated once, when the template is built, so filling it only
+ * escapes the values and joins them with the fixed parts of the regex. If the builder was created with a
+ * {@link RegexCache}, filling the template with values it has been filled with before returns the already-compiled
+ * {@link Pattern}.
+ * <p>
+ * Example:
+ * <pre>
+ * final RegexTemplate template = new RegexBuilder(RegexCache.shared())
+ *     .text("tenant=")
+ *     .placeholder("tenant")
+ *     .text(" user=")
+ *     .wordCharacter(RegexQuantifier.oneOrMore())
+ *     .buildTemplate();
+ * final Pattern regex = template.fill("acme.com");
+ * </pre>
+ * Templates are immutable and thread-safe.
+ */
+public final class RegexTemplate {
+    private final String[] segments;
+    private final int[] holes;
+    private final List<String> names;
+    private final int flags;
+    private final RegexCache cache;
+    private final int fixedLength;
+
+    /**
+     * @param segments Fixed parts of the regex, one more than the number of holes
+     * @param holes    Index into names of the placeholder filling each hole, in the order they appear
+     * @param names    Distinct placeholder names, in the order they first appear
+     * @param flags    Flags as passed to {@link Pattern#compile(String, int)}
+     * @param cache    Cache of compiled patterns, or null for no caching
+     */
+    RegexTemplate(final String[] segments,
+                  final int[] holes,
+                  final List<String> names,
+                  final int flags,
+                  final RegexCache cache) {
+        this.segments = segments;
+        this.holes = holes;
+        this.names = Collections.unmodifiableList(names);
+        this.flags = flags;
+        this.cache = cache;
+        int length = 0;
+        for (final String segment : segments) {
+            length += segment.length();
+        }
+        fixedLength = length;
+    }
+
+    /**
+     * Get the names of the placeholders, in the order they first appear in the regex
+     *
+     * @return Placeholder names
+     */
+    public List<String> getPlaceholderNames() {
+        return names;
+    }
+
+    /**
+     * Fill the placeholders with literal text and get the resulting {@link Pattern}
+     *
+     * @param values Text for each placeholder, keyed by name: a null value is treated as an empty string
+     * @return {@link Pattern} with the placeholders filled
+     * @throws IllegalArgumentException A placeholder has no value
+     */
+    public Pattern fill(final Map<String, String> values) {
+        final String[] valuesByName = new String[names.size()];
+        for (int i = 0; i < valuesByName.length; i++) {
+            final String name = names.get(i);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException("No value for placeholder " + name);
+            }
+            valuesByName[i] = values.get(name);
+        }
+        return compile(valuesByName);
+    }
+
+    /**
+     * Fill the placeholders with literal text and get the resulting {@link Pattern}
+     *
+     * @param values Text for each placeholder, in the order of {@link #getPlaceholderNames()}: a null value is
+     *               treated as an empty string
+     * @return {@link Pattern} with the placeholders filled
+     * @throws IllegalArgumentException The number of values is not the number of placeholders
+     */
+    public Pattern fill(final String... values) {
+        if (values.length != names.size()) {
+            throw new IllegalArgumentException("Expected " + names.size() + " values but got " + values.length);
+        }
+        return compile(values);
+    }
+
+    /**
+     * Get the regex with each placeholder shown as its name in braces
+     *
+     * @return Regex string
+     */
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder(segments[0]);
+        for (int i = 0; i < holes.length; i++) {
+            stringBuilder.append('{').append(names.get(holes[i])).append('}').append(segments[i + 1]);
+        }
+        return stringBuilder.toString();
+    }
+
+    private Pattern compile(final String[] valuesByName) {
+        int length = fixedLength;
+        for (final int hole : holes) {
+            final String value = valuesByName[hole];
+            length += (value == null) ? 0 : value.length();
+        }
+
+        final StringBuilder stringBuilder = new StringBuilder(length + 16);
+        stringBuilder.append(segments[0]);
+        for (int i = 0; i < holes.length; i++) {
+            RegexEscaper.appendSafeForRegex(stringBuilder, valuesByName[holes[i]]);
+            stringBuilder.append(segments[i + 1]);
+        }
+
+        final String regex = stringBuilder.toString();
+        return (cache == null)
+                ? Pattern.compile(regex, flags)
+                : cache.getPattern(regex, flags);
+    }
+}
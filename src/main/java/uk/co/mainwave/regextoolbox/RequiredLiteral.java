@@ -0,0 +1,130 @@
+package uk.co.mainwave.regextoolbox;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Literal text which every match of a regex contains, found from the structure of a tree of {@link RegexNode}s, and
+ * the furthest before it that a match can start. Searching for the literal is much faster than running the regex, so
+ * matchers use it to reject input which can't contain a match, and to start looking for a match near the literal.
+ * <p>
+ * The literal is the longest text added with {@link RegexBuilder#text(String)} which a match can't skip: one that
+ * isn't optional and isn't inside an optional group. Text in an alternation isn't used, and there is no literal if the
+ * regex contains any regex text, since a {@code |} in it makes all the text optional and inline flags such as
+ * {@code (?i)} change how the text matches.
+ */
+final class RequiredLiteral {
+    private final LiteralMatcher searcher;
+    private final int maximumPrefixLength;
+
+    private RequiredLiteral(final LiteralMatcher searcher, final int maximumPrefixLength) {
+        this.searcher = searcher;
+        this.maximumPrefixLength = maximumPrefixLength;
+    }
+
+    /**
+     * Find the literal which every match of the nodes contains
+     *
+     * @param nodes      Nodes to analyze
+     * @param ignoreCase Whether the regex is case-insensitive
+     * @return The longest required literal, or null if there isn't one
+     */
+    static RequiredLiteral find(final List<RegexNode> nodes, final boolean ignoreCase) {
+        if (RegexLengthAnalyzer.containsRegexText(nodes)) {
+            return null;
+        }
+        final Finder finder = new Finder(ignoreCase);
+        finder.search(nodes, 0);
+        if (finder.text == null) {
+            return null;
+        }
+        return new RequiredLiteral(new LiteralMatcher(finder.text, false, false, ignoreCase, finder.text),
+                finder.prefixLength);
+    }
+
+    /**
+     * Find the first occurrence of the literal in the input
+     *
+     * @param input Input to search
+     * @return Index of the first occurrence, or -1 if there is none, in which case the regex can't match
+     */
+    int indexIn(final CharSequence input) {
+        return searcher.indexOf(input);
+    }
+
+    /**
+     * Get the first index in the input where a match can start, given where the literal first occurs
+     *
+     * @param index Index of the first occurrence of the literal
+     * @return Index to start looking for a match from
+     */
+    int getSearchStart(final int index) {
+        return (maximumPrefixLength == RegexLengthAnalyzer.UNBOUNDED) ? 0 : Math.max(0, index - maximumPrefixLength);
+    }
+
+    @Override
+    public String toString() {
+        return searcher.toString();
+    }
+
+    /**
+     * Walks the sequences of nodes a match must pass through, keeping the longest literal found
+     */
+    private static final class Finder {
+        private final boolean ignoreCase;
+        private String text;
+        private int prefixLength;
+
+        Finder(final boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        /**
+         * Look for literals in a sequence of nodes which starts at most a number of chars into a match
+         */
+        void search(final List<RegexNode> nodes, final int startLength) {
+            // Consecutive literals without quantifiers are always matched together
+            final StringBuilder run = new StringBuilder();
+            int runLength = startLength;
+            int length = startLength;
+            for (final RegexNode node : nodes) {
+                final RegexQuantifier quantifier = node.getQuantifier();
+                if (node instanceof RegexNode.Literal && quantifier == null) {
+                    if (run.length() == 0) {
+                        runLength = length;
+                    }
+                    run.append(((RegexNode.Literal) node).getText());
+                } else {
+                    consider(run.toString(), runLength);
+                    run.setLength(0);
+                    if (quantifier == null || quantifier.getMinimum() > 0) {
+                        // The first occurrence of a mandatory node starts where the node does
+                        if (node instanceof RegexNode.Literal) {
+                            consider(((RegexNode.Literal) node).getText(), length);
+                        } else if (node instanceof RegexNode.Group) {
+                            search(((RegexNode.Group) node).getChildren(), length);
+                        }
+                    }
+                }
+                length = add(length, RegexLengthAnalyzer.getMaximumLength(Collections.singletonList(node),
+                        ignoreCase));
+            }
+            consider(run.toString(), runLength);
+        }
+
+        private void consider(final String literal, final int prefix) {
+            if (!literal.isEmpty() && (text == null || literal.length() > text.length())) {
+                text = literal;
+                prefixLength = prefix;
+            }
+        }
+
+        private static int add(final int length, final int nodeLength) {
+            if (length == RegexLengthAnalyzer.UNBOUNDED || nodeLength == RegexLengthAnalyzer.UNBOUNDED
+                    || nodeLength > Integer.MAX_VALUE - length) {
+                return RegexLengthAnalyzer.UNBOUNDED;
+            }
+            return length + nodeLength;
+        }
+    }
+}
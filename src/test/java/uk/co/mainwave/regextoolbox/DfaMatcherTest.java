@@ -0,0 +1,397 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class DfaMatcherTest {
+    private static final String[] INPUTS = {
+            "", "a", "A", "ab", "aab", "abab", "1", "12", "123", "a1", "x123y", "cat", "Cat", "cat cat", "cat_1",
+            " cat ", "a\n", "a\r\n", "a\r", "a\n\n", "\na", "a\nb", "a\r\nb", "\r\n", "a\u2028", "a\u0085b",
+            "e\u0301", "\u0301e", "_\u0301x", "\u00e9t\u00e9", "\u00c9T\u00c9", "\u01c5x", "--", "a-b"
+    };
+    private static final String ALPHABET = "aAbB1 _-\n\r\u00e9\u0301\u2028x";
+
+    @Test
+    public void testLiteralsAndClasses() {
+        assertSameResults(builder -> builder
+                .text("cat")
+                .whitespace(RegexQuantifier.zeroOrMore())
+                .anyCharacterFrom("ab-"));
+        assertSameResults(builder -> builder
+                .letter()
+                .digit(RegexQuantifier.between(1, 3))
+                .nonWordCharacter(RegexQuantifier.zeroOrOne()));
+        assertSameResults(builder -> builder
+                .anyCharacterExcept("a\n", RegexQuantifier.oneOrMore())
+                .anyCharacter());
+    }
+
+    @Test
+    public void testAlternativesAndGroups() {
+        assertSameResults(builder -> builder
+                .anyOf(new String[]{"cat", "ca", "a", ""}, RegexQuantifier.oneOrMore())
+                .startGroup()
+                .text("b")
+                .endGroup(RegexQuantifier.zeroOrMore().butAsFewAsPossible()));
+        assertSameResults(builder -> builder
+                .startNamedGroup("x")
+                .startNonCapturingGroup()
+                .letter()
+                .digit(RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.between(2, 3))
+                .endGroup());
+    }
+
+    @Test
+    public void testAnchors() {
+        assertSameResults(builder -> builder
+                .startOfString()
+                .letter(RegexQuantifier.oneOrMore())
+                .endOfString());
+        assertSameResults(builder -> builder
+                .letter()
+                .endOfString()
+                .anyCharacterFrom("\r\n", RegexQuantifier.zeroOrMore()));
+        assertSameResults(builder -> builder
+                .endOfString()
+                .startOfString());
+        assertSameResults(builder -> builder
+                .wordBoundary()
+                .letter(RegexQuantifier.oneOrMore())
+                .wordBoundary());
+        assertSameResults(builder -> builder
+                .nonWordCharacter()
+                .wordBoundary()
+                .anyCharacter());
+    }
+
+    @Test
+    public void testWordBoundaryNextToNonAsciiLetters() {
+        // Whether letters outside ASCII are word characters at \b depends on the JDK, so follow Pattern
+        assertEquals(Pattern.compile("\\b").matcher("\u00e9").find(),
+                CharacterSet.boundaryWordCharacters().contains('\u00e9'));
+
+        final String[] inputs = {
+                "\u00e9", "a\u00e9", "\u00e9a", "\u00e9 ", "\u00e9\u0301 ", "\u00e9\u0301a", "x\u0301", "_\u00e9",
+                "\u0663", "1\u0663", "\u00e9t\u00e9 x", "\u03b1\u03b2-\u03b3"
+        };
+        final Consumer<RegexBuilder> around = builder -> builder
+                .wordBoundary()
+                .anyCharacter()
+                .wordBoundary();
+        final Consumer<RegexBuilder> after = builder -> builder
+                .anyCharacter(RegexQuantifier.oneOrMore())
+                .wordBoundary()
+                .anyCharacter(RegexQuantifier.zeroOrOne())
+                .endOfString();
+        for (final Consumer<RegexBuilder> elements : Arrays.asList(around, after)) {
+            final Pattern pattern = build(elements).buildRegex();
+            final RegexMatcher matcher = build(elements).buildMatcher(RegexOptions.LINEAR_TIME);
+            final RegexCaptureMatcher capture = build(elements).buildCaptureMatcher();
+            final RegexSet set = RegexSet.of(Collections.singletonList(build(elements).buildFragment()));
+            for (final String input : inputs) {
+                assertSameResults(pattern, matcher, input);
+                assertEquals(escape(input), pattern.matcher(input).find(), capture.find(input));
+                assertEquals(escape(input), pattern.matcher(input).matches(), capture.matches(input));
+                assertEquals(escape(input), pattern.matcher(input).find(), !set.find(input).isEmpty());
+                assertEquals(escape(input), pattern.matcher(input).matches(), !set.matches(input).isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomRegexes() {
+        final Random random = new Random(12);
+        for (int i = 0; i < 500; i++) {
+            final long seed = random.nextLong();
+            if (isSupported(builder -> addRandomElements(new Random(seed), builder, 0))) {
+                assertSameResults(builder -> addRandomElements(new Random(seed), builder, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testSmallCacheFallsBackToNfa() {
+        final Random random = new Random(34);
+        for (int i = 0; i < 100; i++) {
+            final long seed = random.nextLong();
+            if (!isSupported(builder -> addRandomElements(new Random(seed), builder, 0))) {
+                continue;
+            }
+            final Pattern pattern = build(builder -> addRandomElements(new Random(seed), builder, 0)).buildRegex();
+            final RegexMatcher built = build(builder -> addRandomElements(new Random(seed), builder, 0))
+                    .buildMatcher(RegexOptions.LINEAR_TIME);
+            final RegexMatcher matcher = (built instanceof DfaMatcher)
+                    ? ((DfaMatcher) built).withMaximumCacheSize(1)
+                    : built;
+            for (final String input : randomInputs(new Random(seed), 20)) {
+                assertSameResults(pattern, matcher, input);
+            }
+        }
+    }
+
+    @Test
+    public void testNoCatastrophicBacktracking() {
+        final RegexMatcher matcher = new RegexBuilder()
+                .startOfString()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+                .endGroup(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+                .endOfString()
+                .buildMatcher(RegexOptions.LINEAR_TIME);
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            input.append(i % 10);
+        }
+
+        assertTrue(matcher.matches(input));
+        input.append('x');
+        assertFalse(matcher.matches(input));
+        assertFalse(matcher.find(input));
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        assertSameResults(builder -> builder
+                .letter()
+                .anyCharacter()
+                .letter());
+        final RegexMatcher matcher = new RegexBuilder()
+                .letter()
+                .anyCharacter()
+                .letter()
+                .buildMatcher(RegexOptions.LINEAR_TIME);
+
+        assertTrue(matcher.matches("a\ud83d\ude00b"));
+        assertTrue(matcher.find("\ud801\udc00\ud801\udc00\ud801\udc00"));
+        assertTrue(matcher.lookingAt("\ud801\udc00\ud801\udc00\ud801\udc00x"));
+    }
+
+    @Test
+    public void testUnsupportedConstructs() {
+        assertUnsupported(new RegexBuilder()
+                .regexText("a(?=b)"));
+        assertUnsupported(new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking()));
+        assertUnsupported(new RegexBuilder()
+                .startAtomicGroup()
+                .digit()
+                .endGroup());
+        assertUnsupported(new RegexBuilder()
+                .anyCharacterFrom("a\\d"));
+        assertUnsupported(new RegexBuilder()
+                .digit(RegexQuantifier.exactly(Nfa.MAXIMUM_STATES)));
+    }
+
+    @Test
+    public void testAnchorInRepeatedEmptyGroupUnsupported() {
+        // Pattern stops after the first iteration matches the empty string, so "a-" doesn't match: \b fails at the
+        // end of the input, after the first iteration has taken the "-"
+        final Pattern pattern = anchorLoopBuilder().buildRegex();
+        assertFalse(pattern.matcher("a-").matches());
+        assertUnsupported(anchorLoopBuilder());
+        assertUnsupported(new RegexBuilder()
+                .startGroup()
+                .startOfString()
+                .letter(RegexQuantifier.zeroOrMore())
+                .endGroup(RegexQuantifier.atLeast(2)));
+
+        // Groups which can't match the empty string, or contain no anchors, are still supported
+        assertSameResults(builder -> builder
+                .startGroup()
+                .wordBoundary()
+                .letter(RegexQuantifier.oneOrMore())
+                .anyCharacterFrom("- ", RegexQuantifier.zeroOrMore())
+                .endGroup(RegexQuantifier.atLeast(2)));
+        assertSameResults(builder -> builder
+                .letter()
+                .startGroup()
+                .anyCharacter(RegexQuantifier.zeroOrMore())
+                .endGroup(RegexQuantifier.exactly(2)));
+        final RegexCaptureMatcher capture = anchorLoopBuilder().buildCaptureMatcher();
+        assertFalse(capture.matches("a-", new int[4]));
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("\\d+x", new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore())
+                .text("x")
+                .buildMatcher(RegexOptions.LINEAR_TIME)
+                .toString());
+    }
+
+    private static void assertSameResults(final Consumer<RegexBuilder> elements) {
+        final RegexOptions[][] optionSets = {
+                {},
+                {RegexOptions.IGNORE_CASE},
+                {RegexOptions.MULTILINE},
+                {RegexOptions.IGNORE_CASE, RegexOptions.MULTILINE, RegexOptions.OPTIMIZE},
+                {RegexOptions.ASCII_ONLY},
+                {RegexOptions.ASCII_ONLY, RegexOptions.IGNORE_CASE, RegexOptions.OPTIMIZE}
+        };
+        for (final RegexOptions[] options : optionSets) {
+            final Pattern pattern = build(elements).buildRegex(options);
+            final RegexMatcher matcher = build(elements).buildMatcher(with(options, RegexOptions.LINEAR_TIME));
+            for (final String input : INPUTS) {
+                assertSameResults(pattern, matcher, input);
+            }
+            for (final String input : randomInputs(new Random(pattern.pattern().hashCode()), 20)) {
+                assertSameResults(pattern, matcher, input);
+            }
+        }
+    }
+
+    private static void assertSameResults(final Pattern pattern, final RegexMatcher matcher, final String input) {
+        final String message = pattern + " (flags " + pattern.flags() + ") on \"" + escape(input) + "\"";
+        assertEquals("matches " + message, pattern.matcher(input).matches(), matcher.matches(input));
+        assertEquals("find " + message, pattern.matcher(input).find(), matcher.find(input));
+        assertEquals("lookingAt " + message, pattern.matcher(input).lookingAt(), matcher.lookingAt(input));
+    }
+
+    private static void assertUnsupported(final RegexBuilder builder) {
+        try {
+            builder.buildMatcher(RegexOptions.LINEAR_TIME);
+            fail("Expected RegexBuilderException");
+        } catch (final RegexBuilderException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test whether a random regex can be matched in linear time, which it can't if it has an anchor in a repeated
+     * group which can match the empty string
+     */
+    private static boolean isSupported(final Consumer<RegexBuilder> elements) {
+        try {
+            build(elements).buildMatcher(RegexOptions.LINEAR_TIME);
+            return true;
+        } catch (final RegexBuilderException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("an anchor in a repeated group"));
+            return false;
+        }
+    }
+
+    private static RegexBuilder anchorLoopBuilder() {
+        return new RegexBuilder()
+                .letter()
+                .startGroup()
+                .wordBoundary()
+                .anyCharacter(RegexQuantifier.zeroOrMore())
+                .endGroup(RegexQuantifier.exactly(2));
+    }
+
+    private static RegexBuilder build(final Consumer<RegexBuilder> elements) {
+        final RegexBuilder builder = new RegexBuilder();
+        elements.accept(builder);
+        return builder;
+    }
+
+    private static RegexOptions[] with(final RegexOptions[] options, final RegexOptions option) {
+        final RegexOptions[] result = new RegexOptions[options.length + 1];
+        System.arraycopy(options, 0, result, 0, options.length);
+        result[options.length] = option;
+        return result;
+    }
+
+    private static String[] randomInputs(final Random random, final int count) {
+        final String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs[i] = input.toString();
+        }
+        return inputs;
+    }
+
+    private static void addRandomElements(final Random random, final RegexBuilder builder, final int depth) {
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final RegexQuantifier quantifier = randomQuantifier(random);
+            switch (random.nextInt(depth < 2 ? 12 : 10)) {
+                case 0:
+                    builder.text(random.nextBoolean() ? "a" : "ab", quantifier);
+                    break;
+                case 1:
+                    builder.letter(quantifier);
+                    break;
+                case 2:
+                    builder.digit(quantifier);
+                    break;
+                case 3:
+                    builder.anyCharacterFrom("aB\r", quantifier);
+                    break;
+                case 4:
+                    builder.anyCharacterExcept("a1", quantifier);
+                    break;
+                case 5:
+                    builder.anyOf(new String[]{"a", "ab", "b\n"}, quantifier);
+                    break;
+                case 6:
+                    builder.wordCharacter(quantifier);
+                    break;
+                case 7:
+                    builder.uppercaseLetter(quantifier);
+                    break;
+                case 8:
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            builder.startOfString();
+                            break;
+                        case 1:
+                            builder.endOfString();
+                            break;
+                        default:
+                            builder.wordBoundary();
+                            break;
+                    }
+                    break;
+                case 9:
+                    builder.anyCharacter(quantifier);
+                    break;
+                default:
+                    builder.startGroup();
+                    addRandomElements(random, builder, depth + 1);
+                    builder.endGroup(quantifier);
+                    break;
+            }
+        }
+    }
+
+    private static RegexQuantifier randomQuantifier(final Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return RegexQuantifier.zeroOrMore();
+            case 1:
+                return RegexQuantifier.oneOrMore().butAsFewAsPossible();
+            case 2:
+                return RegexQuantifier.zeroOrOne();
+            case 3:
+                return RegexQuantifier.between(1, 3);
+            default:
+                return null;
+        }
+    }
+
+    private static String escape(final String s) {
+        final StringBuilder escaped = new StringBuilder();
+        for (final char c : s.toCharArray()) {
+            if (c < ' ' || c > '~') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class FirstCharactersTest {
+    private static final String[] INPUTS = {
+            "", "5", "5%", "x5%", "ab 12% cd", "ab12%", "1234567890123456789%", "12 34 56 78 90 12 34 56 78 90 1%",
+            "a-1", "a -1", "-", "cat", "xdog", "Cat", "\n7x", "a\n7x", "7x", "ab 12$", "\ud83d\ude00!", "x\ud83d\ude00!"
+    };
+
+    @Test
+    public void testLeadingClass() {
+        final FirstCharacters digits = FirstCharacters.find(Arrays.asList(
+                characterClass(RegexNode.CharacterClassType.DIGIT, null, RegexQuantifier.oneOrMore()),
+                literal("x", null)), false);
+
+        assertEquals(2, digits.indexIn("ab1c", 0));
+        assertEquals(4, digits.indexIn("ab1c2", 3));
+        assertEquals(-1, digits.indexIn("abc", 0));
+        assertEquals(-1, digits.indexIn("ab1", 3));
+    }
+
+    @Test
+    public void testLiteralsAndAlternations() {
+        final FirstCharacters literal = FirstCharacters.find(Collections.singletonList(literal("Hello", null)), true);
+        final FirstCharacters alternation = FirstCharacters.find(Collections.singletonList(
+                new RegexNode.Alternation(new String[]{"cat", "dog"}, null)), false);
+
+        assertEquals(2, literal.indexIn("a hello", 0));
+        assertEquals(2, literal.indexIn("a Hello", 0));
+        assertEquals(-1, literal.indexIn("ello", 0));
+        assertEquals(1, alternation.indexIn("xdog", 0));
+        assertEquals(-1, alternation.indexIn("bat", 0));
+    }
+
+    @Test
+    public void testOptionalElementsAddTheirCharacters() {
+        final FirstCharacters signed = FirstCharacters.find(Arrays.asList(
+                new RegexNode.Anchor(RegexNode.AnchorType.WORD_BOUNDARY),
+                characterClass(RegexNode.CharacterClassType.ANY_FROM, "+-", RegexQuantifier.zeroOrOne()),
+                group(RegexQuantifier.zeroOrMore(), literal("0x", null)),
+                characterClass(RegexNode.CharacterClassType.DIGIT, null, null),
+                literal("y", null)), false);
+
+        assertEquals(0, signed.indexIn("-1", 0));
+        assertEquals(1, signed.indexIn(" 0x1", 0));
+        assertEquals(1, signed.indexIn("a7", 0));
+        // Nothing after the first element that must consume a character is included
+        assertEquals(-1, signed.indexIn("xy", 0));
+    }
+
+    @Test
+    public void testSupplementaryCharactersStartWithHighSurrogate() {
+        final FirstCharacters emoji = FirstCharacters.find(Collections.singletonList(
+                literal("\ud83d\ude00", null)), false);
+
+        assertEquals(1, emoji.indexIn("x\ud83d\ude00", 0));
+        assertEquals(-1, emoji.indexIn("\ude00x", 0));
+    }
+
+    @Test
+    public void testNoSetWhenEveryPositionCanStartAMatch() {
+        // A match can be empty
+        assertNull(FirstCharacters.find(Arrays.asList(
+                characterClass(RegexNode.CharacterClassType.DIGIT, null, RegexQuantifier.zeroOrMore()),
+                new RegexNode.Anchor(RegexNode.AnchorType.END_OF_STRING)), false));
+        assertNull(FirstCharacters.find(Collections.singletonList(
+                new RegexNode.Alternation(new String[]{"", "a"}, null)), false));
+        // Regex text isn't analyzed, even after a leading element
+        assertNull(FirstCharacters.find(Arrays.asList(
+                new RegexNode.Raw("[0-9]", null),
+                literal("x", null)), false));
+        assertNull(FirstCharacters.find(Arrays.asList(
+                literal("abc", null),
+                new RegexNode.Raw("|x", null)), false));
+        // Too many characters to skip positions
+        assertNull(FirstCharacters.find(Collections.singletonList(
+                characterClass(RegexNode.CharacterClassType.ANY_CHARACTER, null, null)), false));
+        assertNull(FirstCharacters.find(Collections.singletonList(
+                characterClass(RegexNode.CharacterClassType.NON_DIGIT, null, null)), false));
+    }
+
+    @Test
+    public void testRegexTextAfterLeadingElements() {
+        // A | in regex text starts another alternative, and inline flags change the case of what follows
+        final List<Supplier<RegexBuilder>> builders = Arrays.asList(
+                () -> new RegexBuilder()
+                        .text("abc")
+                        .regexText("|x"),
+                () -> new RegexBuilder()
+                        .text("a", RegexQuantifier.zeroOrOne())
+                        .regexText("(?i)")
+                        .text("b"));
+        for (final Supplier<RegexBuilder> builder : builders) {
+            final Pattern pattern = builder.get().buildRegex();
+            final RegexMatcher matcher = builder.get().buildMatcher();
+            for (final String input : new String[]{"", "x", "abc", "yx", "B", "aB", "c"}) {
+                assertEquals(pattern + " " + input, pattern.matcher(input).find(), matcher.find(input));
+            }
+        }
+    }
+
+    @Test
+    public void testFindSameAsPattern() {
+        final RegexOptions[][] optionSets = {
+                {}, {RegexOptions.IGNORE_CASE}, {RegexOptions.MULTILINE}, {RegexOptions.ASCII_ONLY}
+        };
+        final List<Supplier<RegexBuilder>> builders = Arrays.asList(
+                () -> new RegexBuilder()
+                        .digit(RegexQuantifier.between(1, 3))
+                        .anyCharacterFrom("%$"),
+                () -> new RegexBuilder()
+                        .wordBoundary()
+                        .anyCharacterFrom("+-", RegexQuantifier.zeroOrOne())
+                        .digit(),
+                () -> new RegexBuilder()
+                        .anyOf("cat", "dog")
+                        .wordBoundary(),
+                () -> new RegexBuilder()
+                        .startOfString()
+                        .digit()
+                        .letter(),
+                () -> new RegexBuilder()
+                        .letter(RegexQuantifier.oneOrMore())
+                        .anyCharacterFrom("!%"),
+                () -> new RegexBuilder()
+                        .text("\ud83d\ude00")
+                        .anyCharacterFrom("!"));
+        for (final RegexOptions[] options : optionSets) {
+            for (final Supplier<RegexBuilder> builder : builders) {
+                final Pattern pattern = builder.get().buildRegex(options);
+                final RegexMatcher matcher = builder.get().buildMatcher(options);
+                for (final String input : INPUTS) {
+                    assertEquals(pattern + " " + input, pattern.matcher(input).find(), matcher.find(input));
+                }
+            }
+        }
+    }
+
+    private static RegexNode literal(final String text, final RegexQuantifier quantifier) {
+        return new RegexNode.Literal(text, null, quantifier);
+    }
+
+    private static RegexNode characterClass(final RegexNode.CharacterClassType type,
+                                            final String characters,
+                                            final RegexQuantifier quantifier) {
+        return new RegexNode.CharacterClass(type, characters, quantifier);
+    }
+
+    private static RegexNode group(final RegexQuantifier quantifier, final RegexNode... children) {
+        return new RegexNode.Group(RegexNode.GroupType.NON_CAPTURING, null, Arrays.asList(children), quantifier);
+    }
+}
@@ -0,0 +1,95 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class LiteralMatcherTest {
+    private static final String[] LITERALS = {"", "cat", "a.b", "Cat\n", "a\r"};
+    private static final String[] INPUTS = {
+            "", "cat", "CAT", "cat\n", "cat\r\n", "cat\r", "cat\u2028", "cat\u0085", "cat\n\n", "a cat", "cat a",
+            "concatenate", "a.b", "axb", "xa.b\r\n", "Cat\n", "cAT\n\n", "a\r\n", "a\r", "ca", "\n"
+    };
+
+    @Test
+    public void testLiteralBuildsUseLiteralMatcher() {
+        assertTrue(new RegexBuilder()
+                .startOfString()
+                .text("cat")
+                .space()
+                .anyOf("dog")
+                .endOfString()
+                .buildMatcher() instanceof LiteralMatcher);
+        assertTrue(new RegexBuilder()
+                .text("cat")
+                .buildMatcher(RegexOptions.MULTILINE) instanceof LiteralMatcher);
+    }
+
+    @Test
+    public void testNonLiteralBuildsUsePattern() {
+        assertTrue(new RegexBuilder()
+                .text("cat")
+                .digit()
+                .buildMatcher() instanceof PatternMatcher);
+        assertTrue(new RegexBuilder()
+                .text("cat", RegexQuantifier.oneOrMore())
+                .buildMatcher() instanceof PatternMatcher);
+        assertTrue(new RegexBuilder()
+                .text("cat")
+                .startOfString()
+                .buildMatcher() instanceof PatternMatcher);
+        assertTrue(new RegexBuilder()
+                .endOfString()
+                .text("cat")
+                .buildMatcher() instanceof PatternMatcher);
+        assertTrue(new RegexBuilder()
+                .startOfString()
+                .text("cat")
+                .buildMatcher(RegexOptions.MULTILINE) instanceof PatternMatcher);
+    }
+
+    @Test
+    public void testBuildMatcherClearsBuilder() {
+        final RegexBuilder builder = new RegexBuilder();
+        builder.text("cat").buildMatcher();
+        final RegexMatcher matcher = builder.text("dog").buildMatcher();
+
+        assertTrue(matcher.matches("dog"));
+        assertEquals("dog", matcher.toString());
+    }
+
+    @Test
+    public void testSameResultsAsPattern() {
+        final RegexOptions[][] optionSets = {{}, {RegexOptions.IGNORE_CASE}, {RegexOptions.MULTILINE}};
+        for (final String literal : LITERALS) {
+            for (int anchors = 0; anchors < 4; anchors++) {
+                for (final RegexOptions[] options : optionSets) {
+                    final Pattern pattern = build(literal, anchors).buildRegex(options);
+                    final RegexMatcher matcher = build(literal, anchors).buildMatcher(options);
+                    for (final String input : INPUTS) {
+                        final String message = pattern + " on \"" + input + "\"";
+                        assertEquals(message, pattern.matcher(input).matches(), matcher.matches(input));
+                        assertEquals(message, pattern.matcher(input).find(), matcher.find(input));
+                        assertEquals(message, pattern.matcher(input).find(),
+                                matcher.find(new StringBuilder(input)));
+                        assertEquals(message, pattern.matcher(input).lookingAt(), matcher.lookingAt(input));
+                    }
+                }
+            }
+        }
+    }
+
+    private static RegexBuilder build(final String literal, final int anchors) {
+        final RegexBuilder builder = new RegexBuilder();
+        if ((anchors & 1) != 0) {
+            builder.startOfString();
+        }
+        builder.text(literal);
+        if ((anchors & 2) != 0) {
+            builder.endOfString();
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,105 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LiteralSetMatcherTest {
+    @Test
+    public void testFind() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("cat", "dog");
+
+        assertTrue(matcher.find("hotdog stand"));
+        assertFalse(matcher.find("ca do"));
+        assertFalse(matcher.find(""));
+    }
+
+    @Test
+    public void testFindWithPosition() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("he", "she", "hers", "his");
+        final int[] match = new int[3];
+
+        assertTrue(matcher.find("ushers", 0, match));
+        assertArrayEquals(new int[]{1, 1, 4}, match);
+        assertTrue(matcher.find("ushers", 2, match));
+        assertArrayEquals(new int[]{0, 2, 4}, match);
+        assertFalse(matcher.find("ushers", 4, match));
+    }
+
+    @Test
+    public void testFindAllReportsOverlappingMatches() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("he", "she", "hers", "his");
+        final List<String> matches = new ArrayList<>();
+
+        matcher.findAll("ushers", (index, start, end) -> {
+            matches.add(matcher.getString(index) + "@" + start + "-" + end);
+            return true;
+        });
+
+        assertEquals("[she@1-4, he@2-4, hers@2-6]", matches.toString());
+    }
+
+    @Test
+    public void testFindAllCanStop() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("a");
+        final int[] calls = new int[1];
+
+        matcher.findAll("aaaa", (index, start, end) -> ++calls[0] < 2);
+
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void testCount() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("aa", "a", "b");
+
+        assertEquals(6, matcher.count("aaab"));
+        assertEquals(0, matcher.count("xyz"));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        final LiteralSetMatcher caseSensitive = LiteralSetMatcher.of(new String[]{"Error"});
+        final LiteralSetMatcher caseInsensitive = LiteralSetMatcher.of(new String[]{"Error"}, RegexOptions.IGNORE_CASE);
+
+        assertFalse(caseSensitive.find("FATAL ERROR"));
+        assertTrue(caseInsensitive.find("FATAL ERROR"));
+        assertFalse(caseInsensitive.find("FATAL \u00c9RROR"));
+    }
+
+    @Test
+    public void testDuplicatesNullAndEmptyStrings() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("cat", null, "", "cat");
+        final int[] match = new int[3];
+
+        assertEquals(4, matcher.size());
+        assertTrue(matcher.find("a cat", 0, match));
+        assertArrayEquals(new int[]{0, 2, 5}, match);
+        assertEquals(1, matcher.count("a cat"));
+    }
+
+    @Test
+    public void testNonAsciiStrings() {
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of("caf\u00e9", "na\u00efve", "\u65e5\u672c");
+
+        assertTrue(matcher.find("un caf\u00e9 noir"));
+        assertTrue(matcher.find("\u65e5\u672c\u8a9e"));
+        assertFalse(matcher.find("cafe naive"));
+    }
+
+    @Test
+    public void testAgreesWithAnyOf() {
+        final String[] words = new String[]{"abc", "bcd", "cde", "ab", "e", "xyzzy"};
+        final LiteralSetMatcher matcher = LiteralSetMatcher.of(words);
+        final java.util.regex.Pattern regex = new RegexBuilder()
+                .anyOf(words)
+                .buildRegex();
+
+        for (final String input : new String[]{"", "a", "abcde", "xyz", "xyzzy", "zzz", "bc"}) {
+            assertEquals(input, regex.matcher(input).find(), matcher.find(input));
+        }
+    }
+}
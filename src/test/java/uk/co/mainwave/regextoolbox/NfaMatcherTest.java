@@ -0,0 +1,443 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class NfaMatcherTest {
+    private static final String[] INPUTS = {
+            "", "a", "A", "ab", "aab", "abab", "1", "12", "123", "a1", "x123y", "cat", "Cat", "cat cat", "cat_1",
+            " cat ", "a\n", "a\r\n", "a\r", "\na", "a\nb", "\r\n", "a\u2028", "e\u0301", "\u00e9t\u00e9", "--", "a-b"
+    };
+    private static final String ALPHABET = "aAbB1 _-\n\r\u00e9\u0301x";
+
+    @Test
+    public void testGroups() {
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .startGroup()
+                .digit(RegexQuantifier.zeroOrMore())
+                .endGroup());
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .startGroup()
+                .text("a")
+                .endGroup()
+                .text("b", RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.oneOrMore()));
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .anyOf("cat", "ca", "a")
+                .endGroup(RegexQuantifier.between(1, 3).butAsFewAsPossible())
+                .startGroup()
+                .anyCharacter(RegexQuantifier.zeroOrMore())
+                .endGroup());
+    }
+
+    @Test
+    public void testEmptyIterations() {
+        // Each of these keeps or drops the captures of an empty iteration as Matcher does
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .text("a", RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.zeroOrMore()));
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .startOfString()
+                .endGroup(RegexQuantifier.zeroOrMore()));
+        assertSameGroups(builder -> builder
+                .startNonCapturingGroup()
+                .startGroup()
+                .letter()
+                .endOfString()
+                .endGroup()
+                .endGroup(RegexQuantifier.zeroOrOne()));
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .startGroup()
+                .digit(RegexQuantifier.zeroOrMore())
+                .endGroup(RegexQuantifier.zeroOrMore())
+                .letter()
+                .endGroup(RegexQuantifier.zeroOrMore()));
+    }
+
+    @Test
+    public void testOptionalGroupsWhichOnlyMatchEmpty() {
+        // (\b)?
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .wordBoundary()
+                .endGroup(RegexQuantifier.zeroOrOne()));
+        // (?:())* tries one iteration, capturing the inner group
+        assertSameGroups(builder -> builder
+                .startNonCapturingGroup()
+                .startGroup()
+                .endGroup()
+                .endGroup(RegexQuantifier.zeroOrMore()));
+        // \b(?<g>^)?
+        assertSameGroups(builder -> builder
+                .wordBoundary()
+                .startNamedGroup("g")
+                .startOfString()
+                .endGroup(RegexQuantifier.zeroOrOne()));
+        // (()){0,2} captures the inner group but not the repeated one
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .startGroup()
+                .endGroup()
+                .endGroup(RegexQuantifier.between(0, 2)));
+        // (?:(\b)())*? and a(?:\b())*
+        assertSameGroups(builder -> builder
+                .startNonCapturingGroup()
+                .startGroup()
+                .wordBoundary()
+                .endGroup()
+                .startGroup()
+                .endGroup()
+                .endGroup(RegexQuantifier.zeroOrMore().butAsFewAsPossible()));
+        assertSameGroups(builder -> builder
+                .text("a")
+                .startNonCapturingGroup()
+                .wordBoundary()
+                .startGroup()
+                .endGroup()
+                .endGroup(RegexQuantifier.zeroOrMore()));
+    }
+
+    @Test
+    public void testEverySpellingOfZeroOrOne() {
+        // Pattern compiles {0,1} as it does ?, trying the group once even though it matches the empty string
+        final RegexGreedyQuantifier[] quantifiers = {
+                RegexQuantifier.zeroOrOne(), RegexQuantifier.noneOrOne(), RegexQuantifier.between(0, 1),
+                RegexQuantifier.noMoreThan(1)
+        };
+        for (final RegexGreedyQuantifier quantifier : quantifiers) {
+            for (final RegexQuantifier mode : new RegexQuantifier[]{quantifier, quantifier.butAsFewAsPossible()}) {
+                assertSameGroups(builder -> builder
+                        .startGroup()
+                        .endGroup(mode));
+                assertSameGroups(builder -> builder
+                        .startGroup()
+                        .wordBoundary()
+                        .endGroup(mode));
+                assertSameGroups(builder -> builder
+                        .startNonCapturingGroup()
+                        .startGroup()
+                        .endGroup()
+                        .endGroup(mode)
+                        .letter());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomRegexes() {
+        final Random random = new Random(56);
+        for (int i = 0; i < 500; i++) {
+            final long seed = random.nextLong();
+            assertSameGroups(builder -> addRandomElements(new Random(seed), builder, 0));
+        }
+    }
+
+    @Test
+    public void testNamedGroups() {
+        final RegexCaptureMatcher matcher = new RegexBuilder()
+                .startNamedGroup("level")
+                .uppercaseLetter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text(" [")
+                .startNamedGroup("component")
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("]")
+                .buildCaptureMatcher();
+        final String line = "12:00 WARN [db] slow";
+        final int[] groups = new int[2 * (matcher.getGroupCount() + 1)];
+
+        assertEquals(2, matcher.getGroupCount());
+        assertEquals(1, matcher.getGroupNumber("level"));
+        assertEquals(2, matcher.getGroupNumber("component"));
+        assertTrue(matcher.find(line, 0, groups));
+        assertArrayEquals(new int[]{6, 15, 6, 10, 12, 14}, groups);
+        assertFalse(matcher.find(line, 11, groups));
+        assertArrayEquals(new int[]{6, 15, 6, 10, 12, 14}, groups);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownGroupName() {
+        new RegexBuilder()
+                .startNamedGroup("x")
+                .digit()
+                .endGroup()
+                .buildCaptureMatcher()
+                .getGroupNumber("y");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupsTooShort() {
+        new RegexBuilder()
+                .startGroup()
+                .digit()
+                .endGroup()
+                .buildCaptureMatcher()
+                .matches("1", new int[3]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFromOutOfRange() {
+        new RegexBuilder()
+                .digit()
+                .buildCaptureMatcher()
+                .find("1", 2, new int[2]);
+    }
+
+    @Test
+    public void testNoCatastrophicBacktracking() {
+        final RegexCaptureMatcher matcher = new RegexBuilder()
+                .startOfString()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .buildCaptureMatcher();
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            input.append(i % 10);
+        }
+        final int[] groups = new int[4];
+
+        assertTrue(matcher.matches(input, groups));
+        assertArrayEquals(new int[]{0, 100000, 0, 100000}, groups);
+        input.append('x');
+        assertFalse(matcher.matches(input, groups));
+        assertFalse(matcher.find(input));
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        final RegexCaptureMatcher matcher = new RegexBuilder()
+                .startGroup()
+                .letter()
+                .endGroup()
+                .anyCharacter()
+                .buildCaptureMatcher();
+        final int[] groups = new int[4];
+
+        assertTrue(matcher.find("1\ud801\udc00\ud83d\ude00", 0, groups));
+        assertArrayEquals(new int[]{1, 5, 1, 3}, groups);
+        assertTrue(matcher.matches("a\ud83d\ude00", groups));
+        assertArrayEquals(new int[]{0, 3, 0, 1}, groups);
+    }
+
+    @Test
+    public void testUnsupportedConstructs() {
+        assertUnsupported(new RegexBuilder()
+                .regexText("a(?=b)"));
+        assertUnsupported(new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking()));
+        assertUnsupported(new RegexBuilder()
+                .startAtomicGroup()
+                .digit()
+                .endGroup());
+    }
+
+    @Test
+    public void testUnsupportedConstructsRepeatedNoTimes() {
+        // Pattern counts the group in the regex text even though it never matches
+        assertEquals(1, new RegexBuilder()
+                .regexText("(x)", RegexQuantifier.exactly(0))
+                .buildRegex()
+                .matcher("")
+                .groupCount());
+        assertUnsupported(new RegexBuilder()
+                .regexText("(x)", RegexQuantifier.exactly(0)));
+        assertUnsupported(new RegexBuilder()
+                .startGroup()
+                .regexText("(x)")
+                .endGroup(RegexQuantifier.between(0, 0)));
+        assertUnsupported(new RegexBuilder()
+                .startAtomicGroup()
+                .digit()
+                .endGroup(RegexQuantifier.exactly(0)));
+        assertUnsupported(new RegexBuilder()
+                .startNonCapturingGroup()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .endGroup(RegexQuantifier.exactly(0)));
+
+        // Supported elements repeated no times still match as Matcher does
+        assertSameGroups(builder -> builder
+                .startGroup()
+                .letter()
+                .endGroup(RegexQuantifier.exactly(0))
+                .startGroup()
+                .digit(RegexQuantifier.zeroOrMore())
+                .endGroup());
+    }
+
+    private static void assertSameGroups(final Consumer<RegexBuilder> elements) {
+        final RegexOptions[][] optionSets = {
+                {},
+                {RegexOptions.IGNORE_CASE},
+                {RegexOptions.MULTILINE},
+                {RegexOptions.IGNORE_CASE, RegexOptions.MULTILINE, RegexOptions.OPTIMIZE}
+        };
+        for (final RegexOptions[] options : optionSets) {
+            final Pattern pattern = build(elements).buildRegex(options);
+            final RegexCaptureMatcher matcher = build(elements).buildCaptureMatcher(options);
+            for (final String input : INPUTS) {
+                assertSameGroups(pattern, matcher, input);
+            }
+            for (final String input : randomInputs(new Random(pattern.pattern().hashCode()), 15)) {
+                assertSameGroups(pattern, matcher, input);
+            }
+        }
+    }
+
+    private static void assertSameGroups(final Pattern pattern,
+                                         final RegexCaptureMatcher matcher,
+                                         final String input) {
+        final String message = pattern + " (flags " + pattern.flags() + ") on \"" + escape(input) + "\"";
+        final int[] groups = new int[2 * (matcher.getGroupCount() + 1)];
+        final Matcher expected = pattern.matcher(input);
+
+        assertEquals(expected.groupCount(), matcher.getGroupCount());
+        assertEquals("matches " + message, expected.matches(), matcher.matches(input, groups));
+        if (expected.matches()) {
+            assertArrayEquals("matches " + message, offsets(expected), groups);
+        }
+        assertEquals("lookingAt " + message, expected.lookingAt(), matcher.lookingAt(input));
+        assertEquals("matches without groups " + message, expected.matches(), matcher.matches(input));
+        assertEquals("find without groups " + message, expected.find(0), matcher.find(input));
+        for (int from = 0; from <= input.length(); from++) {
+            final boolean found = expected.find(from);
+            assertEquals("find from " + from + " " + message, found, matcher.find(input, from, groups));
+            if (found) {
+                assertArrayEquals("find from " + from + " " + message, offsets(expected), groups);
+            }
+        }
+    }
+
+    private static int[] offsets(final Matcher matcher) {
+        final int[] offsets = new int[2 * (matcher.groupCount() + 1)];
+        for (int group = 0; group <= matcher.groupCount(); group++) {
+            offsets[2 * group] = matcher.start(group);
+            offsets[2 * group + 1] = matcher.end(group);
+        }
+        return offsets;
+    }
+
+    private static void assertUnsupported(final RegexBuilder builder) {
+        try {
+            builder.buildCaptureMatcher();
+            fail("Expected RegexBuilderException");
+        } catch (final RegexBuilderException e) {
+            // Expected
+        }
+    }
+
+    private static RegexBuilder build(final Consumer<RegexBuilder> elements) {
+        final RegexBuilder builder = new RegexBuilder();
+        elements.accept(builder);
+        return builder;
+    }
+
+    private static String[] randomInputs(final Random random, final int count) {
+        final String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs[i] = input.toString();
+        }
+        return inputs;
+    }
+
+    private static void addRandomElements(final Random random, final RegexBuilder builder, final int depth) {
+        final int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            final RegexQuantifier quantifier = randomQuantifier(random);
+            switch (random.nextInt(depth < 2 ? 10 : 7)) {
+                case 0:
+                    builder.text(random.nextBoolean() ? "a" : "ab", quantifier);
+                    break;
+                case 1:
+                    builder.letter(quantifier);
+                    break;
+                case 2:
+                    builder.digit(quantifier);
+                    break;
+                case 3:
+                    builder.anyOf(new String[]{"a", "ab", "b\n", ""}, quantifier);
+                    break;
+                case 4:
+                    builder.wordCharacter(quantifier);
+                    break;
+                case 5:
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            builder.startOfString();
+                            break;
+                        case 1:
+                            builder.endOfString();
+                            break;
+                        default:
+                            builder.wordBoundary();
+                            break;
+                    }
+                    break;
+                case 6:
+                    builder.anyCharacter(quantifier);
+                    break;
+                case 7:
+                    builder.startNonCapturingGroup();
+                    addRandomElements(random, builder, depth + 1);
+                    builder.endGroup(quantifier);
+                    break;
+                default:
+                    builder.startGroup();
+                    addRandomElements(random, builder, depth + 1);
+                    builder.endGroup(quantifier);
+                    break;
+            }
+        }
+    }
+
+    private static RegexQuantifier randomQuantifier(final Random random) {
+        switch (random.nextInt(9)) {
+            case 0:
+                return RegexQuantifier.zeroOrMore();
+            case 1:
+                return RegexQuantifier.oneOrMore().butAsFewAsPossible();
+            case 2:
+                return RegexQuantifier.zeroOrOne();
+            case 3:
+                return RegexQuantifier.between(1, 3);
+            case 4:
+                return RegexQuantifier.zeroOrOne().butAsFewAsPossible();
+            default:
+                return null;
+        }
+    }
+
+    private static String escape(final String s) {
+        final StringBuilder escaped = new StringBuilder();
+        for (final char c : s.toCharArray()) {
+            if (c < ' ' || c > '~') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PatternMatcherTest {
+    private static final String[] INPUTS = {"", "a1", "1a", "a12b", "ab", "x a1", "A1", "a1\n"};
+
+    @Test
+    public void testSameResultsAsPattern() {
+        final Pattern pattern = new RegexBuilder()
+                .letter()
+                .digit(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .buildRegex();
+        final RegexMatcher matcher = new PatternMatcher(pattern);
+
+        // Each call reuses the same Matcher, so results must not leak from one input to the next
+        for (int i = 0; i < 2; i++) {
+            for (final String input : INPUTS) {
+                assertEquals(input, pattern.matcher(input).matches(), matcher.matches(input));
+                assertEquals(input, pattern.matcher(input).find(), matcher.find(input));
+                assertEquals(input, pattern.matcher(input).lookingAt(), matcher.lookingAt(input));
+                assertEquals(input, pattern.matcher(input).find(), matcher.find(new StringBuilder(input)));
+            }
+        }
+    }
+
+    @Test
+    public void testBuildMatcherReturnsPatternMatcher() {
+        final RegexMatcher matcher = new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore())
+                .buildMatcher();
+
+        assertTrue(matcher instanceof PatternMatcher);
+        assertTrue(matcher.lookingAt("12ab"));
+        assertFalse(matcher.lookingAt("ab12"));
+    }
+
+    @Test
+    public void testMatchLengthBounds() {
+        final RegexMatcher id = idBuilder().buildMatcher();
+        final RegexMatcher word = new RegexBuilder()
+                .letter(RegexQuantifier.between(2, 4))
+                .digit(RegexQuantifier.zeroOrOne())
+                .buildMatcher();
+        final RegexMatcher asciiWord = new RegexBuilder()
+                .letter(RegexQuantifier.between(2, 4))
+                .buildMatcher(RegexOptions.ASCII_ONLY);
+        final RegexMatcher unbounded = new RegexBuilder()
+                .text("a")
+                .digit(RegexQuantifier.oneOrMore())
+                .buildMatcher();
+
+        assertEquals(9, id.getMinimumLength());
+        assertEquals(9, id.getMaximumLength());
+        // A letter outside the Basic Multilingual Plane takes two chars
+        assertEquals(2, word.getMinimumLength());
+        assertEquals(9, word.getMaximumLength());
+        assertEquals(4, asciiWord.getMaximumLength());
+        assertEquals(2, unbounded.getMinimumLength());
+        assertEquals(-1, unbounded.getMaximumLength());
+    }
+
+    @Test
+    public void testWrongLengthRejectedWithoutMatching() {
+        for (final RegexOptions[] options : new RegexOptions[][]{{}, {RegexOptions.LINEAR_TIME}}) {
+            final RegexMatcher matcher = idBuilder().buildMatcher(options);
+
+            assertTrue(matcher.matches("0123abcd-"));
+            assertFalse(matcher.matches(unreadable(8)));
+            assertFalse(matcher.matches(unreadable(10)));
+            assertFalse(matcher.find(unreadable(8)));
+            assertFalse(matcher.lookingAt(unreadable(8)));
+        }
+        final RegexCaptureMatcher capture = idBuilder().buildCaptureMatcher();
+
+        assertFalse(capture.matches(unreadable(10), new int[2]));
+        assertFalse(capture.find(unreadable(12), 4, new int[2]));
+        assertEquals(9, RegexBudget.ofSteps(1000).limit(capture).getMaximumLength());
+    }
+
+    @Test
+    public void testRegexTextMakesLengthUnknown() {
+        // The | in the regex text splits the whole regex into alternatives
+        final Pattern pattern = new RegexBuilder()
+                .text("abc")
+                .regexText("|x")
+                .buildRegex();
+        final RegexMatcher matcher = new RegexBuilder()
+                .text("abc")
+                .regexText("|x")
+                .buildMatcher();
+
+        assertEquals(0, matcher.getMinimumLength());
+        assertEquals(-1, matcher.getMaximumLength());
+        for (final String input : new String[]{"", "x", "abc", "xy", "ab"}) {
+            assertEquals(input, pattern.matcher(input).find(), matcher.find(input));
+            assertEquals(input, pattern.matcher(input).matches(), matcher.matches(input));
+            assertEquals(input, pattern.matcher(input).lookingAt(), matcher.lookingAt(input));
+        }
+    }
+
+    @Test
+    public void testThreadsHaveTheirOwnMatchers() throws Exception {
+        final RegexMatcher matcher = new RegexBuilder()
+                .startOfString()
+                .digit(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .buildMatcher();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final String input = (i % 2 == 0) ? Integer.toString(i) : i + "x";
+                results.add(executor.submit(() -> matcher.matches(input)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static RegexBuilder idBuilder() {
+        return new RegexBuilder()
+                .hexDigit(RegexQuantifier.exactly(8))
+                .text("-");
+    }
+
+    /**
+     * Input of a given length whose characters can't be read, to show that the regex wasn't run
+     */
+    private static CharSequence unreadable(final int length) {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public char charAt(final int index) {
+                throw new AssertionError("Input was read");
+            }
+
+            @Override
+            public CharSequence subSequence(final int start, final int end) {
+                throw new AssertionError("Input was read");
+            }
+
+            @Override
+            public String toString() {
+                throw new AssertionError("Input was read");
+            }
+        };
+    }
+}
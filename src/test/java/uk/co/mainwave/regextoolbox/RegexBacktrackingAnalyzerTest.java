@@ -0,0 +1,196 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexBacktrackingAnalyzerTest {
+    @Test
+    public void testNestedQuantifiers() {
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .text("id=")
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks();
+
+        assertEquals(1, risks.size());
+        assertEquals(RegexBacktrackingRisk.Severity.EXPONENTIAL, risks.get(0).getSeverity());
+        assertEquals(3, risks.get(0).getStart());
+        assertEquals(18, risks.get(0).getEnd());
+    }
+
+    @Test
+    public void testNestedQuantifierWithOptionalSeparator() {
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .whitespace(RegexQuantifier.zeroOrOne())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .findBacktrackingRisks();
+
+        assertEquals(1, risks.size());
+        assertEquals(RegexBacktrackingRisk.Severity.EXPONENTIAL, risks.get(0).getSeverity());
+    }
+
+    @Test
+    public void testNestedQuantifierAtStartOfGroup() {
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .startNonCapturingGroup()
+                .text(",", RegexQuantifier.zeroOrOne())
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.between(1, 10))
+                .findBacktrackingRisks();
+
+        assertEquals(1, risks.size());
+        assertEquals(RegexBacktrackingRisk.Severity.POLYNOMIAL, risks.get(0).getSeverity());
+    }
+
+    @Test
+    public void testNestedQuantifierWithRequiredSeparator() {
+        assertTrue(new RegexBuilder()
+                .startNonCapturingGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .whitespace()
+                .endGroup(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+    }
+
+    @Test
+    public void testPossessiveQuantifierAndAtomicGroupAreNotRisks() {
+        assertTrue(new RegexBuilder()
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+        assertTrue(new RegexBuilder()
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .findBacktrackingRisks()
+                .isEmpty());
+        assertTrue(new RegexBuilder()
+                .startAtomicGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+    }
+
+    @Test
+    public void testRepeatedOverlappingAlternatives() {
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .anyOf(new String[]{"ab", "a", "ba"}, RegexQuantifier.zeroOrMore())
+                .findBacktrackingRisks();
+
+        assertEquals(1, risks.size());
+        assertEquals(RegexBacktrackingRisk.Severity.EXPONENTIAL, risks.get(0).getSeverity());
+
+        assertEquals(1, new RegexBuilder()
+                .startNonCapturingGroup()
+                .anyOf("x", "xx")
+                .endGroup(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .size());
+    }
+
+    @Test
+    public void testRepeatedDistinctAlternatives() {
+        assertTrue(new RegexBuilder()
+                .anyOf(new String[]{"ab", "cd", "abc"}, RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+        assertTrue(new RegexBuilder()
+                .anyOf(new String[]{"a", "a"}, RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+    }
+
+    @Test
+    public void testAlternativesDifferingInCase() {
+        assertTrue(new RegexBuilder()
+                .anyOf(new String[]{"a", "A"}, RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+        assertEquals(1, new RegexBuilder()
+                .anyOf(new String[]{"a", "A"}, RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks(RegexOptions.IGNORE_CASE)
+                .size());
+    }
+
+    @Test
+    public void testAdjacentOverlappingQuantifiers() {
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .text("n=")
+                .digit(RegexQuantifier.oneOrMore())
+                .text(",", RegexQuantifier.zeroOrOne())
+                .startGroup()
+                .hexDigit(RegexQuantifier.atLeast(2))
+                .endGroup()
+                .findBacktrackingRisks();
+
+        assertEquals(1, risks.size());
+        assertEquals(RegexBacktrackingRisk.Severity.POLYNOMIAL, risks.get(0).getSeverity());
+        assertEquals(2, risks.get(0).getStart());
+        assertEquals(27, risks.get(0).getEnd());
+    }
+
+    @Test
+    public void testAdjacentDistinctQuantifiers() {
+        assertTrue(new RegexBuilder()
+                .letter(RegexQuantifier.oneOrMore())
+                .whitespace(RegexQuantifier.zeroOrMore())
+                .digit(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+        assertTrue(new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore())
+                .text("-")
+                .digit(RegexQuantifier.oneOrMore())
+                .findBacktrackingRisks()
+                .isEmpty());
+    }
+
+    @Test
+    public void testFindBacktrackingRisksDoesNotClearBuilder() {
+        final RegexBuilder builder = new RegexBuilder()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.zeroOrMore());
+
+        assertEquals(1, builder.findBacktrackingRisks().size());
+        assertEquals("(\\d+)*", builder.buildRegex().toString());
+    }
+
+    @Test
+    public void testRejectBacktrackingRisks() {
+        RegexBuilderException exception = null;
+        try {
+            new RegexBuilder()
+                    .startGroup()
+                    .digit(RegexQuantifier.oneOrMore())
+                    .endGroup(RegexQuantifier.zeroOrMore())
+                    .buildRegex(RegexOptions.REJECT_BACKTRACKING_RISKS);
+        } catch (final RegexBuilderException e) {
+            exception = e;
+        }
+
+        assertNotNull(exception);
+        assertEquals("(\\d+)*", exception.getRegexString());
+
+        final Pattern regex = new RegexBuilder()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .text(",")
+                .endGroup(RegexQuantifier.zeroOrMore())
+                .buildRegex(RegexOptions.REJECT_BACKTRACKING_RISKS);
+
+        assertEquals("(\\d+,)*", regex.toString());
+    }
+}
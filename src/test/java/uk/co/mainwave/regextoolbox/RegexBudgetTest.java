@@ -0,0 +1,188 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexBudgetTest {
+    // ^(\d+?)+?$, which takes exponential time to fail on a long run of digits followed by something else
+    private static final Pattern CATASTROPHIC = new RegexBuilder()
+            .startOfString()
+            .startGroup()
+            .digit(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+            .endGroup(RegexQuantifier.oneOrMore().butAsFewAsPossible())
+            .endOfString()
+            .buildRegex();
+    private static final String NEAR_MISS = "1234567890123456789012345678901234567890x";
+
+    @Test
+    public void testTimeoutStopsCatastrophicBacktracking() {
+        final RegexBudget budget = RegexBudget.ofTimeout(Duration.ofMillis(20));
+        final long start = System.nanoTime();
+        RegexBudgetExceededException exception = null;
+        try {
+            budget.matcher(CATASTROPHIC, NEAR_MISS).matches();
+        } catch (final RegexBudgetExceededException e) {
+            exception = e;
+        }
+
+        assertNotNull(exception);
+        assertEquals(CATASTROPHIC.pattern(), exception.getRegexString());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+    }
+
+    @Test
+    public void testStepBudgetIsExact() {
+        final Pattern pattern = new RegexBuilder()
+                .text("abc")
+                .buildRegex();
+        final String input = "xxxxxxxxxxabc";
+
+        assertTrue(RegexBudget.ofSteps(100).matcher(pattern, input).find());
+
+        int steps = 1;
+        while (true) {
+            try {
+                RegexBudget.ofSteps(steps).matcher(pattern, input).find();
+                break;
+            } catch (final RegexBudgetExceededException e) {
+                steps++;
+            }
+        }
+        final int stepsNeeded = steps;
+        final CountingCharSequence counting = new CountingCharSequence(input);
+        pattern.matcher(counting).find();
+        assertEquals(counting.count, stepsNeeded);
+    }
+
+    @Test
+    public void testStepBudgetLargerThanCheckInterval() {
+        final RegexBudget budget = RegexBudget.ofSteps(RegexBudget.CHECK_INTERVAL * 3L + 7);
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < RegexBudget.CHECK_INTERVAL * 3 + 7; i++) {
+            input.append('a');
+        }
+
+        assertTrue(budget.matcher(Pattern.compile("a*"), input).matches());
+        try {
+            budget.matcher(Pattern.compile("a*"), input.append('a')).matches();
+            fail("Expected RegexBudgetExceededException");
+        } catch (final RegexBudgetExceededException e) {
+            assertEquals("a*", e.getRegexString());
+        }
+    }
+
+    @Test
+    public void testResultsAreUnchangedWithinBudget() {
+        final Pattern pattern = new RegexBuilder()
+                .startGroup()
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("=")
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .buildRegex();
+        final Matcher matcher = RegexBudget.ofTimeout(Duration.ofSeconds(10))
+                .withSteps(10000)
+                .matcher(pattern, "a=1, bb=22, ccc=333");
+
+        assertTrue(matcher.find());
+        assertEquals("a", matcher.group(1));
+        assertTrue(matcher.find());
+        assertEquals("bb", matcher.group(1));
+        assertTrue(matcher.find());
+        assertEquals("333", matcher.group(2));
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    public void testLimitRegexMatcher() {
+        final RegexMatcher literal = RegexBudget.ofSteps(10).limit(new RegexBuilder()
+                .text("needle")
+                .buildMatcher());
+
+        assertTrue(literal.find("a needle"));
+        assertFalse(literal.matches("haystack"));
+        assertEquals("needle", literal.toString());
+        try {
+            // Boyer-Moore-Horspool skips ahead, but still reads more than 10 characters of this
+            literal.find("haystack haystack haystack haystack haystack haystack haystack haystack haystack");
+            fail("Expected RegexBudgetExceededException");
+        } catch (final RegexBudgetExceededException e) {
+            assertEquals("needle", e.getRegexString());
+        }
+
+        final RegexMatcher catastrophic = RegexBudget.ofTimeout(Duration.ofMillis(20))
+                .limit(new PatternMatcher(CATASTROPHIC));
+        try {
+            catastrophic.matches(NEAR_MISS);
+            fail("Expected RegexBudgetExceededException");
+        } catch (final RegexBudgetExceededException e) {
+            assertEquals(CATASTROPHIC.pattern(), e.getRegexString());
+        }
+    }
+
+    @Test
+    public void testInterruptStopsMatching() {
+        Thread.currentThread().interrupt();
+        try {
+            RegexBudget.ofTimeout(Duration.ofDays(1)).matcher(CATASTROPHIC, NEAR_MISS).matches();
+            fail("Expected RegexBudgetExceededException");
+        } catch (final RegexBudgetExceededException e) {
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testInvalidBudgets() {
+        try {
+            RegexBudget.ofSteps(0);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            RegexBudget.ofSteps(1).withTimeout(Duration.ZERO);
+            fail("Expected IllegalArgumentException");
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static final class CountingCharSequence implements CharSequence {
+        private final CharSequence input;
+        private int count;
+
+        CountingCharSequence(final CharSequence input) {
+            this.input = input;
+        }
+
+        @Override
+        public int length() {
+            return input.length();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            count++;
+            return input.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return input.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return input.toString();
+        }
+    }
+}
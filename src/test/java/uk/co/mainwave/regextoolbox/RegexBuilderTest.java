@@ -62,6 +62,26 @@ public class RegexBuilderTest {
         assertEquals("(?:a\\*b)+", regex.toString());
     }
 
+    @Test
+    public void testTextWithManySpecialCharactersIsQuoted() {
+        final Pattern regex = new RegexBuilder()
+                .text("(a+b)*[c]")
+                .buildRegex();
+
+        assertEquals("\\Q(a+b)*[c]\\E", regex.toString());
+        assertTrue(regex.matcher("(a+b)*[c]").matches());
+    }
+
+    @Test
+    public void testTextContainingQuoteEndIsNotQuoted() {
+        final Pattern regex = new RegexBuilder()
+                .text("\\E(a+b)*[c]")
+                .buildRegex();
+
+        assertEquals("\\\\E\\(a\\+b\\)\\*\\[c\\]", regex.toString());
+        assertTrue(regex.matcher("\\E(a+b)*[c]").matches());
+    }
+
     @Test
     public void testRegexText() {
         final Pattern regex = new RegexBuilder()
@@ -532,6 +552,62 @@ public class RegexBuilderTest {
         assertEquals("(?:cat|dog|\\|)", regex.toString());
     }
 
+    @Test
+    public void testAnyOfWithSharedPrefixes() {
+        final Pattern regex = new RegexBuilder()
+                .anyOf("foo", "foobar", "fox")
+                .buildRegex();
+
+        assertEquals("(?:fo(?:o(?:bar)??|x))", regex.toString());
+    }
+
+    @Test
+    public void testAnyOfWithSharedPrefixesPrefersFirstAlternative() {
+        final Pattern shortestFirst = new RegexBuilder()
+                .anyOf("foo", "foobar")
+                .buildRegex();
+        final Pattern longestFirst = new RegexBuilder()
+                .anyOf("foobar", "foo")
+                .buildRegex();
+        final Pattern split = new RegexBuilder()
+                .anyOf("foobar", "foo", "foobaz")
+                .buildRegex();
+
+        final Matcher shortestFirstMatch = shortestFirst.matcher("foobar");
+        assertTrue(shortestFirstMatch.find());
+        assertEquals("foo", shortestFirstMatch.group());
+        final Matcher longestFirstMatch = longestFirst.matcher("foobar");
+        assertTrue(longestFirstMatch.find());
+        assertEquals("foobar", longestFirstMatch.group());
+        assertEquals("(?:foo(?:bar||baz))", split.toString());
+        final Matcher splitMatch = split.matcher("foobaz");
+        assertTrue(splitMatch.find());
+        assertEquals("foo", splitMatch.group());
+    }
+
+    @Test
+    public void testAnyOfWithSharedPrefixesAndIgnoreCase() {
+        final Pattern regex = new RegexBuilder()
+                .anyOf("fz", "Fa", "fab")
+                .buildRegex(RegexOptions.IGNORE_CASE);
+
+        assertEquals("(?:fz|Fa|fab)", regex.toString());
+        final Matcher matcher = regex.matcher("FAB");
+        assertTrue(matcher.find());
+        assertEquals("FA", matcher.group());
+    }
+
+    @Test
+    public void testAnyOfWithSpecialCharactersAndSharedPrefixes() {
+        final Pattern regex = new RegexBuilder()
+                .anyOf("a.b", "a.c", "a")
+                .buildRegex();
+
+        assertEquals("(?:a(?:\\.(?:b|c))?)", regex.toString());
+        assertTrue(regex.matcher("a.c").matches());
+        assertFalse(regex.matcher("axc").matches());
+    }
+
     @Test
     public void testAnyOfNullEmptyOrSingle() {
         final String nullString = null;
@@ -589,6 +665,54 @@ public class RegexBuilderTest {
         assertEquals("\\b", regex.toString());
     }
 
+    @Test
+    public void testAsciiOnly() {
+        final Pattern regex = new RegexBuilder()
+                .letter()
+                .nonLetter()
+                .uppercaseLetter()
+                .lowercaseLetter()
+                .letterOrDigit()
+                .nonLetterOrDigit()
+                .startGroup()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .nonWordCharacter()
+                .endGroup()
+                .digit()
+                .anyCharacterFrom("\u00e9")
+                .buildRegex(RegexOptions.ASCII_ONLY);
+
+        assertEquals("\\p{Alpha}\\P{Alpha}[A-Z][a-z]\\p{Alnum}\\P{Alnum}(\\w+\\W)\\d[\u00e9]", regex.toString());
+    }
+
+    @Test
+    public void testAsciiOnlyMatching() {
+        final Pattern regex = new RegexBuilder()
+                .startOfString()
+                .uppercaseLetter()
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .nonLetter()
+                .endOfString()
+                .buildRegex(RegexOptions.ASCII_ONLY);
+
+        assertTrue(regex.matcher("Ab_1 ").matches());
+        assertTrue(regex.matcher("Ab_1\u00e9").matches());
+        assertFalse(regex.matcher("\u00c9b_1 ").matches());
+        assertFalse(regex.matcher("A\u00e9 ").matches());
+        assertFalse(regex.matcher("ab_1 ").matches());
+    }
+
+    @Test
+    public void testAsciiOnlyIgnoreCase() {
+        final Pattern regex = new RegexBuilder()
+                .uppercaseLetter(RegexQuantifier.oneOrMore())
+                .buildRegex(RegexOptions.ASCII_ONLY, RegexOptions.IGNORE_CASE);
+
+        assertEquals("[A-Z]+", regex.toString());
+        assertTrue(regex.matcher("aBc").matches());
+        assertFalse(regex.matcher("\u00e9").matches());
+    }
+
     @Test
     public void testGroup() {
         final Pattern regex = new RegexBuilder()
@@ -691,6 +815,41 @@ public class RegexBuilderTest {
         assertEquals("(?<group1>a(?<group2>\\d))", regex.toString());
     }
 
+    @Test
+    public void testAtomicGroup() {
+        final Pattern regex = new RegexBuilder()
+                .startAtomicGroup()
+                .text("a")
+                .digit()
+                .endGroup()
+                .buildRegex();
+
+        assertEquals("(?>a\\d)", regex.toString());
+    }
+
+    @Test
+    public void testAtomicGroupDoesNotBacktrack() {
+        final Pattern regex = new RegexBuilder()
+                .startAtomicGroup()
+                .anyOf("a", "ab")
+                .endGroup()
+                .text("c")
+                .buildRegex();
+
+        assertTrue(regex.matcher("ac").matches());
+        assertFalse(regex.matcher("abc").matches());
+    }
+
+    @Test
+    public void testPossessiveQuantifierDoesNotBacktrack() {
+        final Pattern regex = new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .digit()
+                .buildRegex();
+
+        assertFalse(regex.matcher("123").find());
+    }
+
     @Test
     public void testOneOrMoreQuantifier() {
         final Pattern regex = new RegexBuilder()
@@ -699,9 +858,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.oneOrMore().butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d+", regex.toString());
         assertEquals("\\d+?", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d++", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
@@ -712,9 +875,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.zeroOrMore().butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.zeroOrMore().butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d*", regex.toString());
         assertEquals("\\d*?", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d*+", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
@@ -725,9 +892,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.zeroOrOne().butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.zeroOrOne().butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d?", regex.toString());
         assertEquals("\\d??", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d?+", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
@@ -738,9 +909,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.atLeast(1).butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.atLeast(1).butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d{1,}", regex.toString());
         assertEquals("\\d{1,}?", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d{1,}+", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
@@ -751,9 +926,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.noMoreThan(2).butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.noMoreThan(2).butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d{0,2}", regex.toString());
         assertEquals("\\d{0,2}?", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d{0,2}+", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
@@ -764,9 +943,13 @@ public class RegexBuilderTest {
         final Pattern butAsFewAsPossibleRegex = new RegexBuilder()
                 .digit(RegexQuantifier.between(1, 2).butAsFewAsPossible())
                 .buildRegex();
+        final Pattern butWithoutBacktrackingRegex = new RegexBuilder()
+                .digit(RegexQuantifier.between(1, 2).butWithoutBacktracking())
+                .buildRegex();
 
         assertEquals("\\d{1,2}", regex.toString());
         assertEquals("\\d{1,2}?", butAsFewAsPossibleRegex.toString());
+        assertEquals("\\d{1,2}+", butWithoutBacktrackingRegex.toString());
     }
 
     @Test
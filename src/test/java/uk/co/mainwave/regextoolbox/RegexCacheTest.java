@@ -0,0 +1,81 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexCacheTest {
+    @Test
+    public void testCacheHitReturnsSamePattern() {
+        final RegexCache cache = new RegexCache();
+        final Pattern first = new RegexBuilder(cache)
+                .text("cat")
+                .buildRegex();
+        final Pattern second = new RegexBuilder(cache)
+                .text("cat")
+                .buildRegex();
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCacheKeyIncludesOptions() {
+        final RegexCache cache = new RegexCache();
+        final Pattern caseSensitive = new RegexBuilder(cache)
+                .text("cat")
+                .buildRegex();
+        final Pattern caseInsensitive = new RegexBuilder(cache)
+                .text("cat")
+                .buildRegex(RegexOptions.IGNORE_CASE);
+
+        assertNotSame(caseSensitive, caseInsensitive);
+        assertEquals(0, caseSensitive.flags());
+        assertEquals(Pattern.CASE_INSENSITIVE, caseInsensitive.flags());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPatternIsEvicted() {
+        final RegexCache cache = new RegexCache(2);
+        final Pattern cat = cache.getPattern("cat", 0);
+        cache.getPattern("dog", 0);
+        cache.getPattern("cat", 0);
+        cache.getPattern("fish", 0);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(cat, cache.getPattern("cat", 0));
+        assertEquals(3, cache.getMissCount());
+        cache.getPattern("dog", 0);
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testSeparateCachesAreIsolated() {
+        final RegexCache cache1 = new RegexCache();
+        final RegexCache cache2 = new RegexCache();
+
+        assertNotSame(cache1.getPattern("cat", 0), cache2.getPattern("cat", 0));
+        assertSame(RegexCache.shared(), RegexCache.shared());
+    }
+
+    @Test
+    public void testClear() {
+        final RegexCache cache = new RegexCache();
+        cache.getPattern("cat", 0);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaximumSize() {
+        new RegexCache(0);
+    }
+}
@@ -0,0 +1,130 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexConstantGeneratorTest {
+    @Test
+    public void testGeneratedSource() {
+        final String source = RegexConstantGenerator.generate("com.example.Regexes", Annotated.class);
+
+        assertTrue(source.startsWith("package com.example;\n"));
+        assertTrue(source.contains("public final class Regexes {\n"));
+        assertTrue(source.contains("    public static final String LOG_LEVEL = \"(?:DEBUG|INFO|WARN|ERROR)\\\\b\";\n"));
+        assertTrue(source.contains(
+                "    public static final int LOG_LEVEL_FLAGS = java.util.regex.Pattern.CASE_INSENSITIVE;\n"));
+        assertTrue(source.contains("    public static java.util.regex.Pattern logLevelPattern() {\n"));
+        assertTrue(source.contains("    public static final String QUOTED = \"\\\"\\\\t\\u00e9\\\"\";\n"));
+        assertTrue(source.contains("    public static final int QUOTED_FLAGS = 0;\n"));
+        assertFalse(source.contains("quotedPattern()"));
+        assertFalse(source.contains("notAnnotated"));
+    }
+
+    @Test
+    public void testGeneratedSourceCompiles() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            // Running on a JRE
+            return;
+        }
+        final Path directory = Files.createTempDirectory("regexes");
+        final Path file = directory.resolve("Regexes.java");
+        Files.write(file, RegexConstantGenerator.generate("Regexes", Annotated.class).getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, compiler.run(null, null, null, file.toString()));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()})) {
+            final Class<?> regexes = classLoader.loadClass("Regexes");
+            final Pattern logLevel = Annotated.logLevel().buildRegex(RegexOptions.IGNORE_CASE);
+            final Pattern compiled = (Pattern) regexes.getMethod("logLevelPattern").invoke(null);
+
+            assertEquals(logLevel.pattern(), regexes.getField("LOG_LEVEL").get(null));
+            assertEquals(logLevel.flags(), regexes.getField("LOG_LEVEL_FLAGS").get(null));
+            assertEquals(logLevel.pattern(), compiled.pattern());
+            assertSame(compiled, regexes.getMethod("logLevelPattern").invoke(null));
+            assertEquals(Annotated.quoted().buildRegex().pattern(), regexes.getField("QUOTED").get(null));
+        }
+    }
+
+    @Test
+    public void testNoPackage() {
+        final String source = RegexConstantGenerator.generate("Regexes", Annotated.class);
+
+        assertTrue(source.startsWith("/**\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonStaticMethod() {
+        RegexConstantGenerator.generate("Regexes", NonStatic.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRegex() {
+        RegexConstantGenerator.generate("Regexes", Invalid.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateName() {
+        RegexConstantGenerator.generate("Regexes", Annotated.class, Duplicate.class);
+    }
+
+    static final class Annotated {
+        @RegexConstant(options = RegexOptions.IGNORE_CASE, pattern = true)
+        static RegexBuilder logLevel() {
+            return new RegexBuilder()
+                    .anyOf("DEBUG", "INFO", "WARN", "ERROR")
+                    .wordBoundary();
+        }
+
+        @RegexConstant(name = "QUOTED")
+        private static RegexBuilder quotedText() {
+            return quoted();
+        }
+
+        static RegexBuilder quoted() {
+            return new RegexBuilder()
+                    .text("\"")
+                    .tab()
+                    .text("\u00e9\"");
+        }
+
+        static RegexBuilder notAnnotated() {
+            return new RegexBuilder()
+                    .digit();
+        }
+    }
+
+    static final class NonStatic {
+        @RegexConstant
+        RegexBuilder digits() {
+            return new RegexBuilder()
+                    .digit(RegexQuantifier.oneOrMore());
+        }
+    }
+
+    static final class Invalid {
+        @RegexConstant
+        static RegexBuilder unclosed() {
+            return new RegexBuilder()
+                    .startGroup()
+                    .digit();
+        }
+    }
+
+    static final class Duplicate {
+        @RegexConstant(name = "LOG_LEVEL")
+        static RegexBuilder level() {
+            return new RegexBuilder()
+                    .uppercaseLetter(RegexQuantifier.oneOrMore());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexFileScannerTest {
+    private static final String ALPHABET = "ab1 _-\r\n\n\u00e9\u20ac\u2028x";
+    private static final int[] CHUNK_SIZES = {1, 5, 64, RegexFileScanner.DEFAULT_CHUNK_SIZE};
+
+    @Test
+    public void testMatchesInOrderWithFileOffsets() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("line ").append(i).append(i % 1000 == 0 ? " ERROR [db]\n" : " INFO\r\n");
+        }
+        final RegexFileScanner scanner = new RegexBuilder()
+                .text("ERROR [")
+                .letter(RegexQuantifier.oneOrMore())
+                .text("]")
+                .buildFileScanner()
+                .withChunkSize(1000);
+
+        assertEquals(expected(Pattern.compile("ERROR \\[\\p{L}+]"), text.toString()),
+                scan(scanner, text.toString(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEachLineMatchedOnItsOwn() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .startOfString()
+                .letter(RegexQuantifier.oneOrMore())
+                .endOfString()
+                .buildFileScanner();
+
+        assertEquals(Arrays.asList("0-3:abc", "8-11:def", "12-14:gh"),
+                scan(scanner, "abc\r\na1\ndef\ngh", StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRandomRegexesAndChunkSizes() throws IOException {
+        final Random random = new Random(90);
+        for (int i = 0; i < 100; i++) {
+            final long seed = random.nextLong();
+            final Pattern pattern = randomBuilder(new Random(seed)).buildRegex();
+            final RegexFileScanner scanner = randomBuilder(new Random(seed)).buildFileScanner();
+            final String text = randomText(random);
+            for (final Charset charset : new Charset[]{StandardCharsets.UTF_8, Charset.forName("windows-1252")}) {
+                // Characters the encoding can't represent are written as '?'
+                final String written = new String(text.getBytes(charset), charset);
+                for (final int chunkSize : CHUNK_SIZES) {
+                    assertEquals(pattern + " on \"" + text + "\" in " + charset,
+                            expected(pattern, written),
+                            scan(scanner.withChunkSize(chunkSize), text, charset));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLatin1IsNeverDecoded() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .letter(RegexQuantifier.oneOrMore())
+                .buildFileScanner();
+
+        assertEquals(Arrays.asList("0-4:caf\u00e9", "5-9:\u00fcber"),
+                scan(scanner, "caf\u00e9\n\u00fcber", StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testHandlerStopsScan() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .digit()
+                .buildFileScanner()
+                .withChunkSize(2);
+        final Path file = write("1\n2\n3\n4\n5\n", StandardCharsets.UTF_8);
+        try {
+            final List<String> matches = new ArrayList<>();
+            final long count = scanner.scan(file, StandardCharsets.UTF_8, new ForkJoinPool(2), (start, end, match) -> {
+                matches.add(match);
+                return matches.size() < 3;
+            });
+            assertEquals(3, count);
+            assertEquals(Arrays.asList("1", "2", "3"), matches);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .digit(RegexQuantifier.zeroOrMore())
+                .buildFileScanner();
+
+        assertEquals(Collections.emptyList(), scan(scanner, "", StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void testMalformedInput() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .digit()
+                .buildFileScanner();
+
+        scan(scanner, "1\n\u00e92\n", StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCharset() throws IOException {
+        final RegexFileScanner scanner = new RegexBuilder()
+                .digit()
+                .buildFileScanner();
+
+        scan(scanner, "1", StandardCharsets.UTF_16);
+    }
+
+    private static List<String> scan(final RegexFileScanner scanner, final String text, final Charset charset)
+            throws IOException {
+        return scan(scanner, text, charset, charset);
+    }
+
+    private static List<String> scan(final RegexFileScanner scanner,
+                                     final String text,
+                                     final Charset writeCharset,
+                                     final Charset readCharset) throws IOException {
+        final Path file = write(text, writeCharset);
+        try {
+            final List<String> matches = new ArrayList<>();
+            scanner.scan(file, readCharset, (start, end, match) -> matches.add(start + "-" + end + ":" + match));
+            return matches;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(final String text, final Charset charset) throws IOException {
+        final Path file = Files.createTempFile("RegexFileScannerTest", ".txt");
+        Files.write(file, text.getBytes(charset));
+        return file;
+    }
+
+    /**
+     * Find the matches in each line of the text on its own
+     */
+    private static List<String> expected(final Pattern pattern, final String text) {
+        final List<String> matches = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            final int contentEnd = (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+            final Matcher matcher = pattern.matcher(text.substring(lineStart, contentEnd));
+            while (matcher.find()) {
+                matches.add((lineStart + matcher.start()) + "-" + (lineStart + matcher.end()) + ":" + matcher.group());
+            }
+            lineStart = lineEnd + 1;
+        }
+        return matches;
+    }
+
+    private static String randomText(final Random random) {
+        final StringBuilder text = new StringBuilder();
+        final int length = random.nextInt(60);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private static RegexBuilder randomBuilder(final Random random) {
+        final RegexBuilder builder = new RegexBuilder();
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final RegexQuantifier quantifier = random.nextInt(3) == 0 ? RegexQuantifier.zeroOrMore() : null;
+            switch (random.nextInt(8)) {
+                case 0:
+                    builder.text(random.nextBoolean() ? "a" : "ab", quantifier);
+                    break;
+                case 1:
+                    builder.letter(quantifier);
+                    break;
+                case 2:
+                    builder.digit(quantifier);
+                    break;
+                case 3:
+                    builder.anyCharacter(quantifier);
+                    break;
+                case 4:
+                    builder.startOfString();
+                    break;
+                case 5:
+                    builder.endOfString();
+                    break;
+                case 6:
+                    builder.wordBoundary();
+                    break;
+                default:
+                    builder.whitespace(quantifier);
+                    break;
+            }
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,181 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexFragmentTest {
+    private static final RegexFragment OCTET = new RegexBuilder()
+            .digit(RegexQuantifier.between(1, 3))
+            .buildFragment();
+
+    @Test
+    public void testFragmentRendersAsInline() {
+        final Pattern regex = new RegexBuilder()
+                .startOfString()
+                .fragment(OCTET)
+                .startNonCapturingGroup()
+                .text(".")
+                .fragment(OCTET)
+                .endGroup(RegexQuantifier.exactly(3))
+                .endOfString()
+                .buildRegex();
+
+        assertEquals("^\\d{1,3}(?:\\.\\d{1,3}){3}$", regex.pattern());
+        assertTrue(regex.matcher("192.168.0.1").matches());
+        assertFalse(regex.matcher("192.168.0").matches());
+    }
+
+    @Test
+    public void testFragmentWithQuantifier() {
+        final RegexFragment pair = new RegexBuilder()
+                .letter()
+                .digit()
+                .buildFragment();
+
+        assertEquals("(?:\\p{L}\\d)+", new RegexBuilder()
+                .fragment(pair, RegexQuantifier.oneOrMore())
+                .buildRegex()
+                .pattern());
+        assertEquals("\\p{L}\\d", new RegexBuilder()
+                .fragment(pair, RegexQuantifier.exactly(1))
+                .buildRegex(RegexOptions.OPTIMIZE)
+                .pattern());
+    }
+
+    @Test
+    public void testToStringIsRenderedRegex() {
+        assertEquals("\\d{1,3}", OCTET.toString());
+    }
+
+    @Test
+    public void testGroupCount() {
+        final RegexFragment keyValue = new RegexBuilder()
+                .startNamedGroup("key")
+                .letter(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .text("=")
+                .startGroup()
+                .startNonCapturingGroup()
+                .startGroup()
+                .digit()
+                .endGroup()
+                .endGroup(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .buildFragment();
+
+        assertEquals(3, keyValue.getGroupCount());
+        assertEquals(Collections.singletonList("key"), keyValue.getGroupNames());
+        assertEquals(0, OCTET.getGroupCount());
+        assertTrue(OCTET.getGroupNames().isEmpty());
+    }
+
+    @Test
+    public void testRepeatedFragmentGroupsAreNumberedSeparately() {
+        final RegexFragment number = new RegexBuilder()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup()
+                .buildFragment();
+        final RegexBuilder builder = new RegexBuilder()
+                .fragment(number)
+                .text("-")
+                .fragment(number);
+        final RegexCaptureMatcher matcher = builder.buildCaptureMatcher();
+        final int[] groups = new int[6];
+
+        assertTrue(matcher.matches("12-345", groups));
+        assertArrayEquals(new int[]{0, 6, 0, 2, 3, 6}, groups);
+    }
+
+    @Test
+    public void testBacktrackingRisksInRepeatedFragment() {
+        final RegexFragment nested = new RegexBuilder()
+                .startGroup()
+                .digit(RegexQuantifier.oneOrMore())
+                .endGroup(RegexQuantifier.oneOrMore())
+                .buildFragment();
+        final List<RegexBacktrackingRisk> risks = new RegexBuilder()
+                .fragment(nested)
+                .text("x")
+                .fragment(nested)
+                .findBacktrackingRisks();
+
+        assertEquals(2, risks.size());
+        assertNotEquals(risks.get(0).getStart(), risks.get(1).getStart());
+    }
+
+    @Test
+    public void testBuilderClearedAfterBuildingFragment() {
+        final RegexBuilder builder = new RegexBuilder()
+                .digit();
+        builder.buildFragment();
+
+        assertEquals("a", builder.text("a").buildRegex().pattern());
+    }
+
+    @Test
+    public void testFragmentUnchangedByLaterQuantifierVariants() {
+        final RegexGreedyQuantifier common = RegexQuantifier.oneOrMore();
+        final RegexGreedyQuantifier uncommon = RegexQuantifier.between(1, 200);
+        final RegexFragment fragment = new RegexBuilder()
+                .digit(common)
+                .letter(uncommon)
+                .buildFragment();
+        common.butAsFewAsPossible();
+        uncommon.butAsFewAsPossible();
+        uncommon.butWithoutBacktracking();
+
+        assertEquals("\\d+\\p{L}{1,200}", fragment.toString());
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testUnendedGroup() {
+        new RegexBuilder()
+                .startGroup()
+                .buildFragment();
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testPlaceholder() {
+        new RegexBuilder()
+                .placeholder("x")
+                .buildFragment();
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int n = i;
+                results.add(executor.submit(() -> {
+                    final Matcher matcher = new RegexBuilder()
+                            .text(Integer.toString(n))
+                            .text(":")
+                            .startGroup()
+                            .fragment(OCTET)
+                            .endGroup()
+                            .buildRegex()
+                            .matcher(n + ":255");
+                    return matcher.matches() ? matcher.group(1) : null;
+                }));
+            }
+            for (final Future<String> result : results) {
+                assertEquals("255", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexOptimizerTest {
+    private static final String[] INPUTS = {
+            "", "a", "aa", "aaa", "aaaa", "aaaaa", "ab", "ba", "abab", "1", "12", "123", "1234", "12345", "x123y",
+            "a1b2c3", "a-b", "a^b", "a]b", "cat", "cat cat", "  x", "a.b", "..", "A", "AB", "\u00e9t\u00e9"
+    };
+
+    @Test
+    public void testRepeatedCharacterClassesAreFolded() {
+        assertOptimized("\\d{3}", () -> new RegexBuilder()
+                .digit()
+                .digit()
+                .digit());
+    }
+
+    @Test
+    public void testRepeatedQuantifiedElementsAreFolded() {
+        assertOptimized("\\d{2,}", () -> new RegexBuilder()
+                .digit()
+                .digit(RegexQuantifier.oneOrMore()));
+        assertOptimized("\\d{1,5}", () -> new RegexBuilder()
+                .digit(RegexQuantifier.between(0, 2))
+                .digit(RegexQuantifier.between(1, 3)));
+        assertOptimized("a{3,}?", () -> new RegexBuilder()
+                .text("a", RegexQuantifier.exactly(2))
+                .text("a", RegexQuantifier.oneOrMore().butAsFewAsPossible()));
+    }
+
+    @Test
+    public void testGreedyAndNonGreedyQuantifiersAreNotFolded() {
+        assertOptimized("\\d*\\d*?", () -> new RegexBuilder()
+                .digit(RegexQuantifier.zeroOrMore())
+                .digit(RegexQuantifier.zeroOrMore().butAsFewAsPossible()));
+    }
+
+    @Test
+    public void testPossessiveQuantifiersAreNotFolded() {
+        assertOptimized("\\d++\\d", () -> new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore().butWithoutBacktracking())
+                .digit());
+        assertOptimized("(?>a\\d{2})", () -> new RegexBuilder()
+                .startAtomicGroup()
+                .startNonCapturingGroup()
+                .text("a")
+                .endGroup()
+                .digit()
+                .digit()
+                .endGroup());
+    }
+
+    @Test
+    public void testRepeatedTextIsNotFolded() {
+        assertOptimized("aa", () -> new RegexBuilder()
+                .text("a")
+                .text("a"));
+    }
+
+    @Test
+    public void testQuantifiedSingleCharacterTextNeedsNoGroup() {
+        assertOptimized("\\.+", () -> new RegexBuilder()
+                .text(".", RegexQuantifier.oneOrMore()));
+    }
+
+    @Test
+    public void testQuantifiersAreSimplified() {
+        assertOptimized("a+b*c?\\d", () -> new RegexBuilder()
+                .text("a", RegexQuantifier.atLeast(1))
+                .text("b", RegexQuantifier.atLeast(0))
+                .text("c", RegexQuantifier.between(0, 1))
+                .digit(RegexQuantifier.exactly(1)));
+    }
+
+    @Test
+    public void testRedundantNonCapturingGroupsAreRemoved() {
+        assertOptimized("ab\\d", () -> new RegexBuilder()
+                .startNonCapturingGroup()
+                .text("a")
+                .startNonCapturingGroup()
+                .text("b")
+                .endGroup()
+                .endGroup()
+                .digit());
+        assertOptimized("\\d+", () -> new RegexBuilder()
+                .startNonCapturingGroup()
+                .digit()
+                .endGroup(RegexQuantifier.oneOrMore()));
+        assertOptimized("\\d{6}", () -> new RegexBuilder()
+                .startNonCapturingGroup()
+                .digit(RegexQuantifier.exactly(2))
+                .endGroup(RegexQuantifier.exactly(3)));
+    }
+
+    @Test
+    public void testCapturingGroupsAreKept() {
+        assertOptimized("(\\d{2})(?:(?<name>a))+", () -> new RegexBuilder()
+                .startGroup()
+                .digit()
+                .digit()
+                .endGroup()
+                .startNonCapturingGroup()
+                .startNamedGroup("name")
+                .text("a")
+                .endGroup()
+                .endGroup(RegexQuantifier.oneOrMore()));
+    }
+
+    @Test
+    public void testGroupsAroundRegexTextAreKept() {
+        assertOptimized("(?:a|b)c", () -> new RegexBuilder()
+                .startNonCapturingGroup()
+                .regexText("a|b")
+                .endGroup()
+                .text("c"));
+    }
+
+    @Test
+    public void testQuantifierOfOneOnRegexTextKeepsGroup() {
+        assertOptimized("(?:a|b)\\d", () -> new RegexBuilder()
+                .regexText("a|b", RegexQuantifier.exactly(1))
+                .digit());
+        assertOptimized("(?:a|b)$", () -> new RegexBuilder()
+                .regexText("a|b", RegexQuantifier.between(1, 1))
+                .endOfString());
+    }
+
+    @Test
+    public void testSingleCharacterAlternativesBecomeCharacterClass() {
+        assertOptimized("[ab\\-]+", () -> new RegexBuilder()
+                .anyOf(new String[]{"a", "b", "-", "a"}, RegexQuantifier.oneOrMore()));
+        assertOptimized("a", () -> new RegexBuilder()
+                .anyOf("a", "a"));
+        assertOptimized("(?:a|bc)", () -> new RegexBuilder()
+                .anyOf("a", "bc"));
+    }
+
+    @Test
+    public void testCharacterClassesAreDeduplicated() {
+        assertOptimized("[ab]{2}", () -> new RegexBuilder()
+                .anyCharacterFrom("aba")
+                .anyCharacterFrom("ab"));
+        assertOptimized("[^\\]]", () -> new RegexBuilder()
+                .anyCharacterExcept("]]"));
+        assertOptimized("\\^", () -> new RegexBuilder()
+                .anyCharacterFrom("^"));
+        assertOptimized("[\\d\\d]", () -> new RegexBuilder()
+                .anyCharacterFrom("\\d\\d"));
+    }
+
+    @Test
+    public void testRepeatedAnchorsAreRemoved() {
+        assertOptimized("^\\bcat\\b$", () -> new RegexBuilder()
+                .startOfString()
+                .startOfString()
+                .wordBoundary()
+                .text("cat")
+                .wordBoundary()
+                .wordBoundary()
+                .endOfString());
+    }
+
+    @Test
+    public void testWithoutOptimizeOptionRegexIsUnchanged() {
+        final Pattern regex = new RegexBuilder()
+                .digit()
+                .digit()
+                .buildRegex();
+
+        assertEquals("\\d\\d", regex.toString());
+    }
+
+    private static void assertOptimized(final String expected, final Supplier<RegexBuilder> builder) {
+        final Pattern optimized = builder.get().buildRegex(RegexOptions.OPTIMIZE);
+        assertEquals(expected, optimized.toString());
+
+        final Pattern original = builder.get().buildRegex();
+        assertEquals(original.matcher("").groupCount(), optimized.matcher("").groupCount());
+        for (final String input : INPUTS) {
+            final Matcher originalMatcher = original.matcher(input);
+            final Matcher optimizedMatcher = optimized.matcher(input);
+            assertEquals(input, originalMatcher.matches(), optimizedMatcher.matches());
+            originalMatcher.reset();
+            optimizedMatcher.reset();
+            while (originalMatcher.find()) {
+                assertTrue(input, optimizedMatcher.find());
+                assertEquals(input, originalMatcher.group(), optimizedMatcher.group());
+                for (int group = 1; group <= originalMatcher.groupCount(); group++) {
+                    assertEquals(input, originalMatcher.group(group), optimizedMatcher.group(group));
+                }
+            }
+            assertFalse(input, optimizedMatcher.find());
+        }
+    }
+}
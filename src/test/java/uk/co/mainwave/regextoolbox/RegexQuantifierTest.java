@@ -0,0 +1,81 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RegexQuantifierTest {
+    @Test
+    public void testCommonQuantifiersAreInterned() {
+        assertSame(RegexQuantifier.zeroOrMore(), RegexQuantifier.zeroOrMore());
+        assertSame(RegexQuantifier.oneOrMore(), RegexQuantifier.oneOrMore());
+        assertSame(RegexQuantifier.zeroOrOne(), RegexQuantifier.zeroOrOne());
+        assertSame(RegexQuantifier.exactly(4), RegexQuantifier.exactly(4));
+        assertSame(RegexQuantifier.atLeast(2), RegexQuantifier.atLeast(2));
+        assertSame(RegexQuantifier.noMoreThan(3), RegexQuantifier.noMoreThan(3));
+        assertSame(RegexQuantifier.between(1, 16), RegexQuantifier.between(1, 16));
+        assertSame(RegexQuantifier.oneOrMore().butAsFewAsPossible(), RegexQuantifier.oneOrMore().butAsFewAsPossible());
+        assertSame(RegexQuantifier.between(2, 5).butWithoutBacktracking(),
+                RegexQuantifier.between(2, 5).butWithoutBacktracking());
+    }
+
+    @Test
+    public void testLargeBoundsAreEqualButNotInterned() {
+        final RegexQuantifier first = RegexQuantifier.between(1, 200);
+        final RegexQuantifier second = RegexQuantifier.between(1, 200);
+
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals("{1,200}?", RegexQuantifier.between(1, 200).butAsFewAsPossible().toString());
+        assertEquals(RegexQuantifier.exactly(100), RegexQuantifier.exactly(100));
+    }
+
+    @Test
+    public void testVariantsDontChangeOriginal() {
+        final RegexGreedyQuantifier quantifier = RegexQuantifier.oneOrMore();
+        final RegexQuantifier lazy = quantifier.butAsFewAsPossible();
+        final RegexQuantifier possessive = quantifier.butWithoutBacktracking();
+
+        assertEquals("+", quantifier.toString());
+        assertEquals(RegexQuantifier.Mode.GREEDY, quantifier.getMode());
+        assertEquals("+?", lazy.toString());
+        assertEquals(RegexQuantifier.Mode.LAZY, lazy.getMode());
+        assertEquals("++", possessive.toString());
+        assertEquals(RegexQuantifier.Mode.POSSESSIVE, possessive.getMode());
+        assertEquals("\\d+\\d+?", new RegexBuilder()
+                .digit(quantifier)
+                .digit(lazy)
+                .buildRegex()
+                .toString());
+    }
+
+    @Test
+    public void testBounds() {
+        assertBounds(0, RegexQuantifier.UNBOUNDED, RegexQuantifier.zeroOrMore());
+        assertBounds(1, RegexQuantifier.UNBOUNDED, RegexQuantifier.oneOrMore());
+        assertBounds(0, 1, RegexQuantifier.zeroOrOne());
+        assertBounds(3, 3, RegexQuantifier.exactly(3));
+        assertBounds(20, RegexQuantifier.UNBOUNDED, RegexQuantifier.atLeast(20));
+        assertBounds(0, 7, RegexQuantifier.noMoreThan(7).butAsFewAsPossible());
+        assertBounds(2, 30, RegexQuantifier.between(2, 30).butWithoutBacktracking());
+    }
+
+    @Test
+    public void testCreateUsesShortestForm() {
+        assertNull(RegexQuantifier.create(1, 1, RegexQuantifier.Mode.LAZY));
+        assertSame(RegexQuantifier.exactly(3), RegexQuantifier.create(3, 3, RegexQuantifier.Mode.LAZY));
+        assertEquals("{3}+", RegexQuantifier.create(3, 3, RegexQuantifier.Mode.POSSESSIVE).toString());
+        assertSame(RegexQuantifier.zeroOrMore().butAsFewAsPossible(),
+                RegexQuantifier.create(0, RegexQuantifier.UNBOUNDED, RegexQuantifier.Mode.LAZY));
+        assertEquals("{2,}+", RegexQuantifier.create(2, RegexQuantifier.UNBOUNDED,
+                RegexQuantifier.Mode.POSSESSIVE).toString());
+        assertEquals("?", RegexQuantifier.create(0, 1, RegexQuantifier.Mode.GREEDY).toString());
+        assertEquals("{2,40}", RegexQuantifier.create(2, 40, RegexQuantifier.Mode.GREEDY).toString());
+    }
+
+    private static void assertBounds(final int minimum, final int maximum, final RegexQuantifier quantifier) {
+        assertEquals(minimum, quantifier.getMinimum());
+        assertEquals(maximum, quantifier.getMaximum());
+    }
+}
@@ -0,0 +1,210 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexSetTest {
+    private static final String ALPHABET = "aAbB1 _-\n\r\u00e9\u2028x";
+
+    @Test
+    public void testFindReportsEachMatchingRegex() {
+        final RegexSet set = RegexSet.of(Arrays.asList(
+                new RegexBuilder().text("ERROR").buildFragment(),
+                new RegexBuilder().text("took ").digit(RegexQuantifier.exactly(4)).text("ms").buildFragment(),
+                new RegexBuilder().startOfString().digit(RegexQuantifier.exactly(4)).buildFragment(),
+                new RegexBuilder().text("[db]").buildFragment()));
+
+        assertEquals(bits(0, 1, 2), set.find("2024-01-02 ERROR [http] took 1234ms"));
+        assertEquals(bits(2, 3), set.find("2024-01-02 INFO [db] took 12ms"));
+        assertEquals(bits(), set.find("INFO"));
+        assertEquals(4, set.size());
+        assertEquals("ERROR", set.get(0).toString());
+    }
+
+    @Test
+    public void testMatchesRequiresWholeInput() {
+        final RegexSet set = RegexSet.of(Arrays.asList(
+                new RegexBuilder().letter(RegexQuantifier.oneOrMore()).buildFragment(),
+                new RegexBuilder().text("ab").buildFragment(),
+                new RegexBuilder().wordCharacter(RegexQuantifier.zeroOrMore()).buildFragment()));
+        final BitSet matched = new BitSet();
+
+        assertTrue(set.matches("ab", matched));
+        assertEquals(bits(0, 1, 2), matched);
+        assertTrue(set.matches("abc", matched));
+        assertEquals(bits(0, 2), matched);
+        assertFalse(set.matches("ab-", matched));
+        assertEquals(bits(), matched);
+    }
+
+    @Test
+    public void testOptions() {
+        final List<RegexFragment> regexes = Arrays.asList(
+                new RegexBuilder().startOfString().text("error").endOfString().buildFragment(),
+                new RegexBuilder().text("x").buildFragment());
+
+        assertEquals(bits(), RegexSet.of(regexes).find("a\nERROR\nb"));
+        assertEquals(bits(0), RegexSet.of(regexes, RegexOptions.IGNORE_CASE, RegexOptions.MULTILINE)
+                .find("a\nERROR\nb"));
+    }
+
+    @Test
+    public void testRandomSetsMatchPatterns() {
+        final Random random = new Random(56);
+        for (int i = 0; i < 200; i++) {
+            final List<RegexFragment> regexes = new ArrayList<>();
+            final List<Pattern> patterns = new ArrayList<>();
+            final int count = 1 + random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                final long seed = random.nextLong();
+                regexes.add(randomBuilder(new Random(seed)).buildFragment());
+                patterns.add(randomBuilder(new Random(seed)).buildRegex());
+            }
+            final RegexSet set = RegexSet.of(regexes);
+            final RegexSet uncached = set.withMaximumCacheSize(1);
+            for (final String input : randomInputs(random, 20)) {
+                assertSameResults(patterns, set, input);
+                assertSameResults(patterns, uncached, input);
+            }
+        }
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        final RegexSet set = RegexSet.of(Arrays.asList(
+                new RegexBuilder().letter().anyCharacter().letter().buildFragment(),
+                new RegexBuilder().text("b").buildFragment()));
+
+        assertEquals(bits(0), set.matches("a\ud83d\ude00b"));
+        assertEquals(bits(0, 1), set.find("a\ud83d\ude00b"));
+        assertEquals(bits(0), set.find("\ud801\udc00\ud801\udc00\ud801\udc00"));
+    }
+
+    @Test
+    public void testEmptySet() {
+        final RegexSet set = RegexSet.of(Collections.emptyList());
+
+        assertEquals(0, set.size());
+        assertEquals(bits(), set.find("abc"));
+        assertEquals(bits(), set.matches(""));
+    }
+
+    @Test
+    public void testEmptyRegexMatchesEverywhere() {
+        final RegexSet set = RegexSet.of(Arrays.asList(
+                new RegexBuilder().buildFragment(),
+                new RegexBuilder().text("a").buildFragment()));
+
+        assertEquals(bits(0), set.find(""));
+        assertEquals(bits(0, 1), set.find("ba"));
+        assertEquals(bits(0), set.matches(""));
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testUnsupportedConstruct() {
+        RegexSet.of(Arrays.asList(
+                new RegexBuilder().text("a").buildFragment(),
+                new RegexBuilder().digit(RegexQuantifier.oneOrMore().butWithoutBacktracking()).buildFragment()));
+    }
+
+    @Test
+    public void testAnchorInRepeatedEmptyGroupUnsupported() {
+        // Pattern ends the loop after an empty iteration, so it doesn't match "-", "ab" or "\n"
+        final RegexFragment regex = new RegexBuilder()
+                .digit(RegexQuantifier.zeroOrMore())
+                .startGroup()
+                .startOfString()
+                .letter(RegexQuantifier.between(0, 3))
+                .anyCharacterFrom("-", RegexQuantifier.zeroOrMore())
+                .whitespace(RegexQuantifier.zeroOrMore().butAsFewAsPossible())
+                .endGroup(RegexQuantifier.atLeast(2))
+                .buildFragment();
+        final Pattern pattern = Pattern.compile(regex.toString());
+        for (final String input : new String[]{"-", "ab", "\n"}) {
+            assertFalse(input, pattern.matcher(input).matches());
+        }
+
+        try {
+            RegexSet.of(Arrays.asList(new RegexBuilder().text("a").buildFragment(), regex));
+            fail("Expected RegexBuilderException");
+        } catch (final RegexBuilderException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("an anchor in a repeated group"));
+        }
+    }
+
+    private static void assertSameResults(final List<Pattern> patterns, final RegexSet set, final String input) {
+        final BitSet expectedMatches = new BitSet();
+        final BitSet expectedFinds = new BitSet();
+        for (int i = 0; i < patterns.size(); i++) {
+            expectedMatches.set(i, patterns.get(i).matcher(input).matches());
+            expectedFinds.set(i, patterns.get(i).matcher(input).find());
+        }
+        assertEquals("matches " + patterns + " on \"" + input + "\"", expectedMatches, set.matches(input));
+        assertEquals("find " + patterns + " on \"" + input + "\"", expectedFinds, set.find(input));
+    }
+
+    private static BitSet bits(final int... indexes) {
+        final BitSet bits = new BitSet();
+        for (final int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    private static String[] randomInputs(final Random random, final int count) {
+        final String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs[i] = input.toString();
+        }
+        return inputs;
+    }
+
+    private static RegexBuilder randomBuilder(final Random random) {
+        final RegexBuilder builder = new RegexBuilder();
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final RegexQuantifier quantifier = random.nextInt(3) == 0 ? RegexQuantifier.oneOrMore() : null;
+            switch (random.nextInt(8)) {
+                case 0:
+                    builder.text(random.nextBoolean() ? "a" : "ab", quantifier);
+                    break;
+                case 1:
+                    builder.letter(quantifier);
+                    break;
+                case 2:
+                    builder.digit(quantifier);
+                    break;
+                case 3:
+                    builder.anyOf(new String[]{"a", "ab", "b\n"}, quantifier);
+                    break;
+                case 4:
+                    builder.anyCharacterExcept("a1", quantifier);
+                    break;
+                case 5:
+                    builder.startOfString();
+                    break;
+                case 6:
+                    builder.endOfString();
+                    break;
+                default:
+                    builder.wordBoundary();
+                    break;
+            }
+        }
+        return builder;
+    }
+}
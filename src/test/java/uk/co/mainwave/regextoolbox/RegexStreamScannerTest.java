@@ -0,0 +1,225 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexStreamScannerTest {
+    private static final String ALPHABET = "aAbB1 _-\n\r\u00e9\u0301x";
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 7, RegexStreamScanner.DEFAULT_CHUNK_SIZE};
+
+    @Test
+    public void testOffsetsAreFromStartOfStream() throws IOException {
+        final RegexStreamScanner scanner = new RegexBuilder()
+                .text("ERROR ")
+                .digit(RegexQuantifier.between(1, 3))
+                .buildStreamScanner();
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            input.append("INFO 1\n");
+        }
+        input.append("ERROR 42\n");
+        final List<String> matches = scan(scanner, input.toString());
+
+        assertEquals(Arrays.asList("70000-70008:ERROR 42"), matches);
+    }
+
+    @Test
+    public void testSameMatchesAsPattern() throws IOException {
+        assertSameMatches(new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore()));
+        assertSameMatches(new RegexBuilder()
+                .startOfString()
+                .letter(RegexQuantifier.zeroOrMore()));
+        assertSameMatches(new RegexBuilder()
+                .letter()
+                .endOfString());
+        assertSameMatches(new RegexBuilder()
+                .wordBoundary()
+                .letter(RegexQuantifier.between(1, 3))
+                .wordBoundary());
+        assertSameMatches(new RegexBuilder()
+                .anyCharacter(RegexQuantifier.zeroOrMore())
+                .text("x"));
+        assertSameMatches(new RegexBuilder()
+                .anyOf("a", "ab", "b\n")
+                .digit(RegexQuantifier.zeroOrOne()));
+    }
+
+    @Test
+    public void testRandomRegexes() throws IOException {
+        final Random random = new Random(78);
+        for (int i = 0; i < 300; i++) {
+            final long seed = random.nextLong();
+            final RegexOptions[] options = random.nextBoolean()
+                    ? new RegexOptions[0]
+                    : new RegexOptions[]{RegexOptions.MULTILINE};
+            final Pattern pattern = randomBuilder(new Random(seed)).buildRegex(options);
+            final RegexStreamScanner scanner = randomBuilder(new Random(seed)).buildStreamScanner(options);
+            for (int j = 0; j < 5; j++) {
+                final String input = randomInput(random);
+                for (final int chunkSize : CHUNK_SIZES) {
+                    assertEquals(pattern + " on \"" + input + "\"",
+                            findAll(pattern, input),
+                            scan(scanner.withChunkSize(chunkSize), input));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHandlerStopsScan() throws IOException {
+        final RegexStreamScanner scanner = new RegexBuilder()
+                .digit()
+                .buildStreamScanner();
+        final List<String> matches = new ArrayList<>();
+
+        final long count = scanner.scan(new StringReader("1a2b3c"), (start, end, match) -> {
+            matches.add(match);
+            return matches.size() < 2;
+        });
+        assertEquals(2, count);
+        assertEquals(Arrays.asList("1", "2"), matches);
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        final RegexStreamScanner scanner = new RegexBuilder()
+                .letter(RegexQuantifier.oneOrMore())
+                .buildStreamScanner();
+        final byte[] bytes = "12 \u00e9t\u00e9 34 caf\u00e9".getBytes(StandardCharsets.UTF_8);
+        final List<String> matches = new ArrayList<>();
+
+        scanner.scan(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8,
+                (start, end, match) -> matches.add(start + "-" + end + ":" + match));
+        assertEquals(Arrays.asList("3-6:\u00e9t\u00e9", "10-14:caf\u00e9"), matches);
+    }
+
+    @Test
+    public void testMaximumMatchLength() {
+        assertEquals(8, new RegexBuilder()
+                .text("ab")
+                .digit(RegexQuantifier.between(2, 6))
+                .buildStreamScanner()
+                .getMaximumMatchLength());
+        assertEquals(-1, new RegexBuilder()
+                .digit(RegexQuantifier.oneOrMore())
+                .buildStreamScanner()
+                .getMaximumMatchLength());
+        assertEquals(-1, new RegexBuilder()
+                .regexText("a")
+                .buildStreamScanner()
+                .getMaximumMatchLength());
+        // A letter can be a surrogate pair
+        assertEquals(9, new RegexBuilder()
+                .startOfString()
+                .anyOf("a", "abc")
+                .startGroup()
+                .letter()
+                .wordBoundary()
+                .endGroup(RegexQuantifier.exactly(2))
+                .digit(RegexQuantifier.between(0, 2).butAsFewAsPossible())
+                .text("x", RegexQuantifier.exactly(0))
+                .buildStreamScanner()
+                .getMaximumMatchLength());
+    }
+
+    private static void assertSameMatches(final RegexBuilder builder) throws IOException {
+        final RegexStreamScanner scanner = builder.buildStreamScanner();
+        final Pattern pattern = Pattern.compile(scanner.toString());
+        final Random random = new Random(pattern.pattern().hashCode());
+        for (int i = 0; i < 50; i++) {
+            final String input = randomInput(random);
+            for (final int chunkSize : CHUNK_SIZES) {
+                assertEquals(pattern + " on \"" + input + "\"",
+                        findAll(pattern, input),
+                        scan(scanner.withChunkSize(chunkSize), input));
+            }
+        }
+    }
+
+    private static List<String> scan(final RegexStreamScanner scanner, final String input) throws IOException {
+        final List<String> matches = new ArrayList<>();
+        scanner.scan(new StringReader(input), (start, end, match) -> matches.add(start + "-" + end + ":" + match));
+        return matches;
+    }
+
+    private static List<String> findAll(final Pattern pattern, final String input) {
+        final List<String> matches = new ArrayList<>();
+        final Matcher matcher = pattern.matcher(input);
+        while (matcher.find()) {
+            matches.add(matcher.start() + "-" + matcher.end() + ":" + matcher.group());
+        }
+        return matches;
+    }
+
+    private static String randomInput(final Random random) {
+        final StringBuilder input = new StringBuilder();
+        final int length = random.nextInt(40);
+        for (int i = 0; i < length; i++) {
+            input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return input.toString();
+    }
+
+    private static RegexBuilder randomBuilder(final Random random) {
+        final RegexBuilder builder = new RegexBuilder();
+        final int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            final RegexQuantifier quantifier;
+            switch (random.nextInt(5)) {
+                case 0:
+                    quantifier = RegexQuantifier.oneOrMore();
+                    break;
+                case 1:
+                    quantifier = RegexQuantifier.between(0, 3);
+                    break;
+                default:
+                    quantifier = null;
+                    break;
+            }
+            switch (random.nextInt(9)) {
+                case 0:
+                    builder.text(random.nextBoolean() ? "a" : "ab", quantifier);
+                    break;
+                case 1:
+                    builder.letter(quantifier);
+                    break;
+                case 2:
+                    builder.digit(quantifier);
+                    break;
+                case 3:
+                    builder.anyOf(new String[]{"a", "ab", "b\n"}, quantifier);
+                    break;
+                case 4:
+                    builder.anyCharacter(quantifier);
+                    break;
+                case 5:
+                    builder.startOfString();
+                    break;
+                case 6:
+                    builder.endOfString();
+                    break;
+                case 7:
+                    builder.wordBoundary();
+                    break;
+                default:
+                    builder.whitespace(quantifier);
+                    break;
+            }
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,198 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexTemplateTest {
+    @Test
+    public void testFillMatchesBuiltRegex() {
+        final RegexTemplate template = new RegexBuilder()
+                .startOfString()
+                .text("tenant=")
+                .placeholder("tenant")
+                .text(" user=")
+                .wordCharacter(RegexQuantifier.oneOrMore())
+                .buildTemplate();
+
+        for (final String tenant : new String[]{"acme", "a.b*c", "x\\Ey", "(", ""}) {
+            final Pattern expected = new RegexBuilder()
+                    .startOfString()
+                    .text("tenant=")
+                    .text(tenant)
+                    .text(" user=")
+                    .wordCharacter(RegexQuantifier.oneOrMore())
+                    .buildRegex();
+            final Pattern filled = template.fill(tenant);
+
+            assertEquals(expected.pattern(), filled.pattern());
+            assertTrue(filled.matcher("tenant=" + tenant + " user=bob").find());
+        }
+    }
+
+    @Test
+    public void testNamedValues() {
+        final RegexTemplate template = new RegexBuilder()
+                .placeholder("first")
+                .text("-")
+                .placeholder("second")
+                .text("-")
+                .placeholder("first")
+                .buildTemplate();
+        final Map<String, String> values = new HashMap<>();
+        values.put("first", "a+");
+        values.put("second", "b");
+
+        assertEquals(Arrays.asList("first", "second"), template.getPlaceholderNames());
+        assertTrue(template.fill(values).matcher("a+-b-a+").matches());
+        assertTrue(template.fill("a+", "b").matcher("a+-b-a+").matches());
+        assertFalse(template.fill(values).matcher("a+-b-aa").matches());
+    }
+
+    @Test
+    public void testAdjacentPlaceholders() {
+        final RegexTemplate template = new RegexBuilder()
+                .placeholder("a")
+                .placeholder("b")
+                .placeholder("c")
+                .buildTemplate();
+
+        assertEquals("{a}{b}{c}", template.toString());
+        assertEquals("xyz", template.fill("x", "y", "z").pattern());
+    }
+
+    @Test
+    public void testPlaceholderInGroups() {
+        final RegexTemplate template = new RegexBuilder()
+                .startNonCapturingGroup()
+                .placeholder("word")
+                .endGroup(RegexQuantifier.oneOrMore())
+                .startGroup()
+                .digit()
+                .placeholder("suffix")
+                .endGroup()
+                .buildTemplate(RegexOptions.OPTIMIZE, RegexOptions.IGNORE_CASE);
+        final Pattern filled = template.fill("ab", ".");
+
+        assertEquals("(?:{word})+(\\d{suffix})", template.toString());
+        assertEquals(Pattern.CASE_INSENSITIVE, filled.flags());
+        assertTrue(filled.matcher("ABab1.").matches());
+        assertFalse(filled.matcher("ABab1x").matches());
+    }
+
+    @Test
+    public void testOptimizeKeepsPlaceholders() {
+        final RegexTemplate template = new RegexBuilder()
+                .digit()
+                .placeholder("x")
+                .digit()
+                .startNonCapturingGroup()
+                .placeholder("y")
+                .endGroup()
+                .buildTemplate(RegexOptions.OPTIMIZE);
+
+        assertEquals("\\d{x}\\d(?:{y})", template.toString());
+        assertEquals("\\da\\d(?:b)", template.fill("a", "b").pattern());
+    }
+
+    @Test
+    public void testAsciiOnlyKeepsPlaceholders() {
+        final RegexTemplate template = new RegexBuilder()
+                .startGroup()
+                .letter(RegexQuantifier.oneOrMore())
+                .placeholder("x")
+                .endGroup()
+                .buildTemplate(RegexOptions.ASCII_ONLY);
+
+        assertEquals("(\\p{Alpha}+{x})", template.toString());
+        assertEquals("(\\p{Alpha}+=)", template.fill("=").pattern());
+    }
+
+    @Test
+    public void testNullValueIsEmpty() {
+        final RegexTemplate template = new RegexBuilder()
+                .text("a")
+                .placeholder("x")
+                .buildTemplate();
+
+        assertEquals("a", template.fill((String) null).pattern());
+        assertEquals("a", template.fill(Collections.singletonMap("x", null)).pattern());
+    }
+
+    @Test
+    public void testFillUsesCache() {
+        final RegexCache cache = new RegexCache();
+        final RegexTemplate template = new RegexBuilder(cache)
+                .text("id=")
+                .placeholder("id")
+                .buildTemplate();
+
+        final Pattern first = template.fill("1");
+        assertSame(first, template.fill("1"));
+        assertNotSame(first, template.fill("2"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testNoPlaceholders() {
+        final RegexTemplate template = new RegexBuilder()
+                .text("a")
+                .buildTemplate();
+
+        assertTrue(template.getPlaceholderNames().isEmpty());
+        assertEquals("a", template.fill().pattern());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingValue() {
+        new RegexBuilder()
+                .placeholder("x")
+                .placeholder("y")
+                .buildTemplate()
+                .fill(Collections.singletonMap("x", "a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongNumberOfValues() {
+        new RegexBuilder()
+                .placeholder("x")
+                .buildTemplate()
+                .fill("a", "b");
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testEmptyName() {
+        new RegexBuilder()
+                .placeholder("");
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testBuildRegexWithPlaceholder() {
+        new RegexBuilder()
+                .placeholder("x")
+                .buildRegex();
+    }
+
+    @Test(expected = RegexBuilderException.class)
+    public void testBuildMatcherWithPlaceholder() {
+        new RegexBuilder()
+                .placeholder("x")
+                .buildMatcher();
+    }
+
+    @Test
+    public void testBuilderClearedAfterBuildingTemplate() {
+        final RegexBuilder builder = new RegexBuilder()
+                .placeholder("x");
+        builder.buildTemplate();
+
+        assertEquals("a", builder.text("a").buildRegex().pattern());
+    }
+}
@@ -0,0 +1,175 @@
+package uk.co.mainwave.regextoolbox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RequiredLiteralTest {
+    private static final String[] INPUTS = {
+            "", "ERROR 1", "xERROR 12", "error 5", "ERROR x", "ab", "xab", "1ab", "12ab", "123ab", "\n1ab", "x\n1ab",
+            "ab1ab2!", "ab1!", "ab!", "cd", "abcd", "xcd", "the ab-x end", "abc-x", "a-x", "-x", "zz ab-x", "Ab1AB2!",
+            "\u00e9ab-x", "ERROR ERROR 7"
+    };
+
+    @Test
+    public void testLongestLiteralIsChosen() {
+        final RequiredLiteral literal = RequiredLiteral.find(Arrays.asList(
+                literal("ab"),
+                digit(null),
+                literal("ERROR"),
+                digit(RegexQuantifier.oneOrMore()),
+                literal("xyz")), false);
+
+        assertEquals("ERROR", literal.toString());
+        // "ab" and a digit come before it
+        assertEquals(7, literal.getSearchStart(10));
+        assertEquals(0, literal.getSearchStart(1));
+        assertEquals(4, literal.indexIn("abc ERROR"));
+        assertEquals(-1, literal.indexIn("abc error"));
+    }
+
+    @Test
+    public void testConsecutiveLiteralsAreJoined() {
+        final RequiredLiteral literal = RequiredLiteral.find(Arrays.asList(
+                digit(null),
+                literal("a"),
+                literal("bc"),
+                digit(null),
+                literal("xy")), false);
+
+        assertEquals("abc", literal.toString());
+        assertEquals(9, literal.getSearchStart(10));
+    }
+
+    @Test
+    public void testOptionalLiteralsAreIgnored() {
+        assertEquals("ab", RequiredLiteral.find(Arrays.asList(
+                literal("OPTIONAL", RegexQuantifier.zeroOrOne()),
+                literal("ab")), false).toString());
+        assertEquals("x", RequiredLiteral.find(Arrays.asList(
+                group(RegexQuantifier.zeroOrMore(), literal("OPTIONAL")),
+                literal("x")), false).toString());
+        assertNull(RequiredLiteral.find(Arrays.asList(
+                literal("ab", RegexQuantifier.zeroOrOne()),
+                new RegexNode.Alternation(new String[]{"cat", "dog"}, null),
+                digit(RegexQuantifier.oneOrMore())), false));
+    }
+
+    @Test
+    public void testLiteralsInMandatoryGroupsAreFound() {
+        final RequiredLiteral literal = RequiredLiteral.find(Arrays.asList(
+                digit(RegexQuantifier.between(1, 2)),
+                group(RegexQuantifier.oneOrMore(), literal("-"), group(null, digit(null), literal("inner"))),
+                literal("x")), false);
+
+        assertEquals("inner", literal.toString());
+        // Two digits, the dash and another digit
+        assertEquals(6, literal.getSearchStart(10));
+    }
+
+    @Test
+    public void testUnboundedPrefixSearchesFromStart() {
+        final RequiredLiteral literal = RequiredLiteral.find(Arrays.asList(
+                digit(RegexQuantifier.oneOrMore()),
+                literal("ab")), false);
+
+        assertEquals(0, literal.getSearchStart(100));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        final RequiredLiteral literal = RequiredLiteral.find(Arrays.asList(literal("Error")), true);
+
+        assertEquals(2, literal.indexIn("a ERROR"));
+        assertEquals(-1, literal.indexIn("a ERR"));
+    }
+
+    @Test
+    public void testNoLiteralWithRegexText() {
+        assertNull(RequiredLiteral.find(Arrays.asList(
+                new RegexNode.Raw("foo|", null),
+                literal("ERROR")), false));
+        assertNull(RequiredLiteral.find(Arrays.asList(
+                literal("a"),
+                group(null, new RegexNode.Raw("(?i)", null)),
+                literal("bcd")), false));
+
+        // A | in regex text makes the text optional, and inline flags change how it matches
+        final List<Supplier<RegexBuilder>> builders = Arrays.asList(
+                () -> new RegexBuilder()
+                        .regexText("foo|")
+                        .text("ERROR"),
+                () -> new RegexBuilder()
+                        .text("a")
+                        .regexText("(?i)")
+                        .text("bcd"));
+        for (final Supplier<RegexBuilder> builder : builders) {
+            final Pattern pattern = builder.get().buildRegex();
+            final RegexMatcher matcher = builder.get().buildMatcher();
+            for (final String input : new String[]{"foo", "ERROR", "abcd", "aBCD", "xyz"}) {
+                assertEquals(pattern + " " + input, pattern.matcher(input).find(), matcher.find(input));
+            }
+        }
+    }
+
+    @Test
+    public void testFindSameAsPattern() {
+        final RegexOptions[][] optionSets = {
+                {}, {RegexOptions.LINEAR_TIME}, {RegexOptions.IGNORE_CASE}, {RegexOptions.MULTILINE},
+                {RegexOptions.MULTILINE, RegexOptions.LINEAR_TIME}
+        };
+        final List<Supplier<RegexBuilder>> builders = Arrays.asList(
+                () -> new RegexBuilder()
+                        .text("ERROR ")
+                        .digit(RegexQuantifier.oneOrMore()),
+                () -> new RegexBuilder()
+                        .wordBoundary()
+                        .letter(RegexQuantifier.between(1, 3))
+                        .text("-x")
+                        .wordBoundary(),
+                () -> new RegexBuilder()
+                        .startOfString()
+                        .digit(RegexQuantifier.between(0, 2))
+                        .text("ab"),
+                () -> new RegexBuilder()
+                        .startGroup()
+                        .text("ab")
+                        .digit()
+                        .endGroup(RegexQuantifier.oneOrMore())
+                        .text("!"),
+                () -> new RegexBuilder()
+                        .text("ab", RegexQuantifier.zeroOrOne())
+                        .text("cd"));
+        for (final RegexOptions[] options : optionSets) {
+            for (final Supplier<RegexBuilder> builder : builders) {
+                final Pattern pattern = builder.get().buildRegex(options);
+                final RegexMatcher matcher = builder.get().buildMatcher(options);
+                for (final String input : INPUTS) {
+                    assertEquals(pattern + " " + input, pattern.matcher(input).find(), matcher.find(input));
+                    assertEquals(pattern + " " + input, pattern.matcher(input).matches(), matcher.matches(input));
+                }
+            }
+        }
+    }
+
+    private static RegexNode literal(final String text) {
+        return literal(text, null);
+    }
+
+    private static RegexNode literal(final String text, final RegexQuantifier quantifier) {
+        return new RegexNode.Literal(text, null, quantifier);
+    }
+
+    private static RegexNode digit(final RegexQuantifier quantifier) {
+        return new RegexNode.CharacterClass(RegexNode.CharacterClassType.DIGIT, null, quantifier);
+    }
+
+    private static RegexNode group(final RegexQuantifier quantifier, final RegexNode... children) {
+        return new RegexNode.Group(RegexNode.GroupType.NON_CAPTURING, null, Arrays.asList(children), quantifier);
+    }
+}